@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import java.util.Collection;
+
+/**
+ * Extension of {@link com.wandrell.pattern.repository.Repository Repository}
+ * allowing to modify several entities at once.
+ * <p>
+ * Each of the methods added by this interface works the same as calling its
+ * single entity version for each of the received entities, but the
+ * implementation may group them, for example sending them to the database as a
+ * batch, instead of one by one.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public interface BatchRepository<V> extends Repository<V> {
+
+    /**
+     * Adds the entities to the repository.
+     * 
+     * @param entities
+     *            the entities to add
+     */
+    public void addAll(final Collection<? extends V> entities);
+
+    /**
+     * Removes the entities from the repository.
+     * 
+     * @param entities
+     *            the entities to remove
+     */
+    public void removeAll(final Collection<? extends V> entities);
+
+    /**
+     * Updates the entities on the repository.
+     * 
+     * @param entities
+     *            the entities to update
+     */
+    public void updateAll(final Collection<? extends V> entities);
+
+}
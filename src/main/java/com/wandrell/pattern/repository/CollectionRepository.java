@@ -24,12 +24,32 @@
 
 package com.wandrell.pattern.repository;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
 
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Ordering;
+import com.wandrell.pattern.repository.pagination.PaginationData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortedPaginatedRepository;
 
 /**
  * Collection-based implementation of
@@ -48,13 +68,73 @@ import com.google.common.base.Predicate;
  * "http://docs.guava-libraries.googlecode.com/git/javadoc/com/google/common/base/Predicate.html">
  * Predicate</a> class. When using the query methods all the entities validating
  * the predicate received as filter will be returned.
+ * <p>
+ * By default the entities are stored in a {@code LinkedList}, which means that
+ * updating or removing an entity requires going through the whole list. When
+ * this is too costly the repository can be built with a key function, such as
+ * {@link com.wandrell.pattern.repository.entity.EntityKeyFunction
+ * EntityKeyFunction}. Then the entities will be indexed by their keys, making
+ * these operations take constant time, while still keeping the order in which
+ * they were added.
+ * <p>
+ * Additionally, named hash indexes can be registered with
+ * {@link #addIndex(String, Function) addIndex}. Each of them extracts a key
+ * from the entities, and allows acquiring all the entities with a concrete key
+ * through {@link #getCollection(String, Object) getCollection} without
+ * checking all the stored entities.
+ * <p>
+ * Range indexes can be registered in the same way with
+ * {@link #addRangeIndex(String, Function) addRangeIndex}. These keep the
+ * entities sorted by a {@code Comparable} key, and answer range queries, such
+ * as {@link #getRange(String, Comparable, Comparable) getRange}, by reading
+ * only the entities in the range.
+ * <p>
+ * All the indexes are kept updated when adding, updating or removing entities
+ * through the repository.
+ * <p>
+ * Pages are read without going through the entities before them when the
+ * repository is built with a key function, or with a random access
+ * {@code List}. With other collections, such as the default
+ * {@code LinkedList}, the entities before the page have to be skipped one by
+ * one.
+ * <p>
+ * The entities can be sorted by the properties registered with
+ * {@link #addSortKey(String, Function) addSortKey}, and by the keys of the
+ * range indexes, using the name of the sort key or index as property. When
+ * sorting and paginating only the entities up to the end of the page are
+ * sorted, after selecting them in linear time. And when sorting by a single
+ * range index, which contains all the entities, these are read in order from
+ * the index. Entities with a {@code null} key are sorted after the rest, as if
+ * it was the highest value, while entities with the same keys are not sorted
+ * in any particular order.
+ * <p>
+ * Filtering big repositories can be parallelized by setting a
+ * {@code ForkJoinPool} with {@link #setForkJoinPool(ForkJoinPool)
+ * setForkJoinPool}. Then, if the repository contains at least as many entities
+ * as the {@link #setParallelThreshold(int) parallel threshold}, the entities
+ * will be divided into chunks filtered in parallel. The results are joined in
+ * order, so they are the same as when filtering sequentially. In this case the
+ * predicates should be thread-safe.
  * 
  * @author Bernardo Martínez Garrido
  * @param <V>
  *            the type stored on the repository
  */
 public final class CollectionRepository<V>
-        implements FilteredRepository<V, Predicate<V>> {
+        implements SortedPaginatedRepository<V, Predicate<V>> {
+
+    /**
+     * Number of chunks assigned to each thread when filtering in parallel.
+     * <p>
+     * Using several chunks for each thread helps balancing the work if some
+     * chunks take longer than others.
+     */
+    private static final int                          CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Default minimum number of entities for filtering in parallel.
+     */
+    private static final int                          DEFAULT_THRESHOLD = 10000;
 
     /**
      * The entities stored in the repository.
@@ -62,7 +142,29 @@ public final class CollectionRepository<V>
      * This is just a collection kept in memory. There is no optimization
      * applied by default.
      */
-    private final Collection<V> data;
+    private final Collection<V>                       data;
+
+    /**
+     * Pool used for filtering in parallel.
+     * <p>
+     * If it is {@code null} the entities are always filtered sequentially.
+     */
+    private ForkJoinPool                              forkJoinPool      = null;
+
+    /**
+     * Indexes for the entities, identified by their names.
+     */
+    private final Map<String, EntityIndex<V>>         indexes           = new LinkedHashMap<String, EntityIndex<V>>();
+
+    /**
+     * Minimum number of entities for filtering in parallel.
+     */
+    private int                                       parallelThreshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Functions extracting the keys for sorting, identified by their names.
+     */
+    private final Map<String, Function<? super V, ?>> sortKeys;
 
     /**
      * Constructs a {@code CollectionRepository} using a {@code LinkedList} as
@@ -89,13 +191,130 @@ public final class CollectionRepository<V>
         checkNotNull(collection, "Received a null pointer as collection");
 
         this.data = collection;
+
+        sortKeys = new LinkedHashMap<String, Function<? super V, ?>>();
+    }
+
+    /**
+     * Constructs a {@code CollectionRepository} which indexes the entities by
+     * the keys generated with the specified function.
+     * <p>
+     * Each entity will be identified by its key, and only one entity will be
+     * kept for each of them. Adding an entity with the same key as one already
+     * stored will be ignored, while updating it will replace the stored one.
+     * <p>
+     * Thanks to this index adding, updating and removing entities take
+     * constant time. The entities will still be returned in the order they
+     * were added.
+     * <p>
+     * The key of an entity should not change while it is stored in the
+     * repository.
+     * 
+     * @param keyFunction
+     *            function generating the key for each entity
+     * @see com.wandrell.pattern.repository.entity.EntityKeyFunction
+     *      EntityKeyFunction
+     */
+    public CollectionRepository(final Function<? super V, ?> keyFunction) {
+        this(new KeyedCollection<V>(keyFunction));
     }
 
     @Override
     public final void add(final V entity) {
         checkNotNull(entity, "Received a null pointer as entity");
 
-        getData().add(entity);
+        if (getData().add(entity)) {
+            for (final EntityIndex<V> index : getIndexes().values()) {
+                index.add(entity);
+            }
+        }
+    }
+
+    /**
+     * Registers a hash index for the entities.
+     * <p>
+     * The index will contain all the entities in the repository, grouped by
+     * the key extracted from each of them. It will be kept updated when adding,
+     * updating or removing entities through the repository, and can be queried
+     * with the {@link #getCollection(String, Object) getCollection} and
+     * {@link #getEntity(String, Object) getEntity} methods receiving the index
+     * name.
+     * <p>
+     * If the entities are modified outside the repository, the change won't be
+     * reflected in the index until they are updated.
+     * 
+     * @param name
+     *            name for the index
+     * @param keyExtractor
+     *            function extracting the key from each entity
+     */
+    public final void addIndex(final String name,
+            final Function<? super V, ?> keyExtractor) {
+        checkNotNull(keyExtractor, "Received a null pointer as key extractor");
+
+        registerIndex(name, new HashIndex<V>(keyExtractor));
+    }
+
+    /**
+     * Registers a range index for the entities.
+     * <p>
+     * The index will contain all the entities in the repository, sorted by
+     * the {@code Comparable} key extracted from each of them. Entities with a
+     * {@code null} key are left out of it.
+     * <p>
+     * It will be kept updated when adding, updating or removing entities
+     * through the repository, and can be queried with the
+     * {@link #getRange(String, Comparable, Comparable) getRange},
+     * {@link #getFloor(String, Comparable) getFloor},
+     * {@link #getCeiling(String, Comparable) getCeiling} and
+     * {@link #getSorted(String, boolean) getSorted} methods receiving the
+     * index name. These take logarithmic time to find the first entity, and
+     * then read the rest in order.
+     * <p>
+     * The index is kept in a skip list, and can be read while it is being
+     * updated. If the entities are modified outside the repository, the change
+     * won't be reflected in the index until they are updated.
+     * <p>
+     * The key is also registered as a sort key with the same name, and
+     * sorting just by it will read the entities from the index.
+     * 
+     * @param name
+     *            name for the index
+     * @param keyExtractor
+     *            function extracting the key from each entity
+     */
+    public final void addRangeIndex(final String name,
+            final Function<? super V, ? extends Comparable<?>> keyExtractor) {
+        checkNotNull(name, "Received a null pointer as index name");
+        checkNotNull(keyExtractor, "Received a null pointer as key extractor");
+        checkArgument(!getSortKeys().containsKey(name),
+                "A sort key named %s already exists", name);
+
+        registerIndex(name, new RangeIndex<V>(keyExtractor));
+        getSortKeys().put(name, keyExtractor);
+    }
+
+    /**
+     * Registers a key for sorting the entities.
+     * <p>
+     * The name of the key is used as the property in the {@code SortData}
+     * received when sorting the entities. Unlike indexes, sort keys don't
+     * store anything, the keys are extracted from the entities when sorting
+     * them.
+     * 
+     * @param name
+     *            name for the key
+     * @param keyExtractor
+     *            function extracting the key from each entity
+     */
+    public final void addSortKey(final String name,
+            final Function<? super V, ? extends Comparable<?>> keyExtractor) {
+        checkNotNull(name, "Received a null pointer as sort key name");
+        checkNotNull(keyExtractor, "Received a null pointer as key extractor");
+        checkArgument(!getSortKeys().containsKey(name),
+                "A sort key named %s already exists", name);
+
+        getSortKeys().put(name, keyExtractor);
     }
 
     @Override
@@ -103,43 +322,402 @@ public final class CollectionRepository<V>
         return new LinkedList<V>(getData());
     }
 
+    /**
+     * Returns all the entities contained in the repository paginated.
+     * <p>
+     * If the repository was built with a key function, or with a random
+     * access {@code List}, this only reads the entities in the page.
+     * 
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository paginated
+     */
+    @Override
+    public final Collection<V> getAll(final PaginationData pagination) {
+        final long offset;        // Position of the first entity in the page
+        final int count;          // Size of the page
+        final Collection<V> page; // Entities in the page
+        final List<V> list;       // Entities as a list
+        final int from;           // Position of the page in the list
+
+        offset = getOffset(pagination);
+        count = pagination.getPageSize();
+
+        if (offset >= getData().size()) {
+            page = new ArrayList<V>(0);
+        } else if (getData() instanceof KeyedCollection) {
+            page = ((KeyedCollection<V>) getData()).getRange((int) offset,
+                    count);
+        } else if ((getData() instanceof List)
+                && (getData() instanceof RandomAccess)) {
+            list = (List<V>) getData();
+            from = (int) offset;
+            page = new ArrayList<V>(list.subList(from,
+                    from + Math.min(count, list.size() - from)));
+        } else {
+            page = FluentIterable.from(getData()).skip((int) offset)
+                    .limit(count).copyInto(new ArrayList<V>());
+        }
+
+        return page;
+    }
+
+    @Override
+    public final Collection<V> getAll(final SortData sort) {
+        return sort(Predicates.<V> alwaysTrue(), sort, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns all the entities contained in the repository sorted and
+     * paginated.
+     * <p>
+     * Only the entities up to the end of the page are sorted, after selecting
+     * them from the rest. When sorting by a single range index containing all
+     * the entities, only the entities up to the end of the page are read from
+     * it.
+     * 
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository sorted and
+     *         paginated
+     */
+    @Override
+    public final Collection<V> getAll(final SortData sort,
+            final PaginationData pagination) {
+        return sort(Predicates.<V> alwaysTrue(), sort, getOffset(pagination),
+                pagination.getPageSize());
+    }
+
+    /**
+     * Returns the first entity with the lowest key greater or equal to the
+     * received one in a range index.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param key
+     *            key to search for
+     * @return the first entity with the ceiling key, or {@code null} if there
+     *         is none
+     */
+    public final V getCeiling(final String index, final Comparable<?> key) {
+        checkNotNull(key, "Received a null pointer as key");
+
+        return getRangeIndex(index).ceiling(key);
+    }
+
     @Override
     public final Collection<V> getCollection(final Predicate<V> filter) {
         final Collection<V> result;
 
         checkNotNull(filter, "Received a null pointer as filter");
 
-        result = new LinkedList<V>();
-        for (final V entity : getData()) {
-            if (filter.apply(entity)) {
-                result.add(entity);
+        if ((getForkJoinPool() != null)
+                && (getData().size() >= getParallelThreshold())) {
+            result = filterParallel(filter);
+        } else {
+            result = new LinkedList<V>();
+            for (final V entity : getData()) {
+                if (filter.apply(entity)) {
+                    result.add(entity);
+                }
             }
         }
 
         return result;
     }
 
+    /**
+     * Queries the entities in the repository and returns a paginated subset of
+     * them.
+     * <p>
+     * The entities are filtered in order until the page is filled, so the
+     * entities after it are not checked. As the entities before the page have
+     * to be filtered too, this is never parallelized.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param pagination
+     *            pagination data
+     * @return the filtered and paginated subset of entities
+     */
     @Override
-    public final V getEntity(final Predicate<V> filter) {
-        final Collection<V> entities;
-        final V entity;
+    public final Collection<V> getCollection(final Predicate<V> filter,
+            final PaginationData pagination) {
+        final long offset;        // Position of the first entity in the page
+        final int count;          // Size of the page
+        final Collection<V> page; // Entities in the page
 
         checkNotNull(filter, "Received a null pointer as filter");
 
-        entities = getCollection(filter);
+        offset = getOffset(pagination);
+        count = pagination.getPageSize();
 
-        if (entities.isEmpty()) {
-            entity = null;
+        if (offset >= getData().size()) {
+            page = new ArrayList<V>(0);
         } else {
-            entity = entities.iterator().next();
+            page = FluentIterable.from(getData()).filter(filter)
+                    .skip((int) offset).limit(count)
+                    .copyInto(new ArrayList<V>());
+        }
+
+        return page;
+    }
+
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter,
+            final SortData sort) {
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        return sort(filter, sort, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a sorted and
+     * paginated subset of them.
+     * <p>
+     * Only the entities accepted by the filter up to the end of the page are
+     * sorted, after selecting them from the rest.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return the filtered, sorted and paginated subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter,
+            final SortData sort, final PaginationData pagination) {
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        return sort(filter, sort, getOffset(pagination),
+                pagination.getPageSize());
+    }
+
+    /**
+     * Returns all the entities with the specified key in a hash index.
+     * <p>
+     * This is the same as calling {@link #getCollection(Predicate)
+     * getCollection} with a predicate comparing the key extracted from each
+     * entity, but the entities are taken from the index instead of checking
+     * all of them.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param key
+     *            key to search for
+     * @return all the entities with the key
+     */
+    public final Collection<V> getCollection(final String index,
+            final Object key) {
+        return new LinkedList<V>(getHashIndex(index).get(key));
+    }
+
+    /**
+     * Queries the entities in the repository and returns only one.
+     * <p>
+     * This will be the first entity accepted by the filter. The entities after
+     * it won't be checked.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @return a single entity found by the filter, or {@code null} is no entity
+     *         is found
+     */
+    @Override
+    public final V getEntity(final Predicate<V> filter) {
+        final Iterator<V> itr; // Iterator for the stored data
+        V entity;              // Entity found
+        V next;                // Next instance in the data
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        entity = null;
+        itr = getData().iterator();
+        while ((entity == null) && itr.hasNext()) {
+            next = itr.next();
+            if (filter.apply(next)) {
+                entity = next;
+            }
         }
 
         return entity;
     }
 
+    /**
+     * Returns the first entity with the greatest key lower or equal to the
+     * received one in a range index.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param key
+     *            key to search for
+     * @return the first entity with the floor key, or {@code null} if there is
+     *         none
+     */
+    public final V getFloor(final String index, final Comparable<?> key) {
+        checkNotNull(key, "Received a null pointer as key");
+
+        return getRangeIndex(index).floor(key);
+    }
+
+    /**
+     * Returns a lazy view of the entities accepted by the filter.
+     * <p>
+     * Unlike {@link #getCollection(Predicate) getCollection}, no entity is
+     * checked when calling this method. Instead, the filter is applied while
+     * iterating, and only until the iteration stops. So taking just the first
+     * entities accepted, for example with {@link FluentIterable#limit(int)
+     * limit}, only checks the entities up to the last of them.
+     * <p>
+     * The view is backed by the repository, and can't be used to modify it.
+     * Modifying the repository while iterating the view will cause a
+     * {@code ConcurrentModificationException}, or an undefined behavior if the
+     * {@code Collection} used by the repository does not detect concurrent
+     * modifications.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @return a lazy view of the filtered subset of entities
+     */
+    public final FluentIterable<V> getIterable(final Predicate<V> filter) {
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        return FluentIterable.from(Iterables
+                .unmodifiableIterable(Iterables.filter(getData(), filter)));
+    }
+
+    /**
+     * Returns the first entity with the specified key in a hash index.
+     * <p>
+     * This is the same as calling {@link #getEntity(Predicate) getEntity} with
+     * a predicate comparing the key extracted from each entity, but the entity
+     * is taken from the index instead of checking all of them.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param key
+     *            key to search for
+     * @return the first entity with the key, or {@code null} if there is none
+     */
+    public final V getEntity(final String index, final Object key) {
+        return getFirst(getHashIndex(index).get(key));
+    }
+
+    /**
+     * Returns all the entities with keys in the specified range, both limits
+     * included, from a range index.
+     * <p>
+     * This is the same as a {@code BETWEEN} query. The entities are sorted by
+     * their keys, and those with the same key by the order they were added.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param from
+     *            lowest key
+     * @param to
+     *            highest key
+     * @return all the entities with keys in the range
+     */
+    public final Collection<V> getRange(final String index,
+            final Comparable<?> from, final Comparable<?> to) {
+        return getRange(index, from, true, to, true);
+    }
+
+    /**
+     * Returns all the entities with keys in the specified range from a range
+     * index.
+     * <p>
+     * The entities are sorted by their keys, and those with the same key by
+     * the order they were added.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param from
+     *            lowest key
+     * @param fromInclusive
+     *            flag marking if the lowest key is included
+     * @param to
+     *            highest key
+     * @param toInclusive
+     *            flag marking if the highest key is included
+     * @return all the entities with keys in the range
+     */
+    public final Collection<V> getRange(final String index,
+            final Comparable<?> from, final boolean fromInclusive,
+            final Comparable<?> to, final boolean toInclusive) {
+        checkNotNull(from, "Received a null pointer as lowest key");
+        checkNotNull(to, "Received a null pointer as highest key");
+
+        return getRangeIndex(index).range(from, fromInclusive, to, toInclusive)
+                .copyInto(new LinkedList<V>());
+    }
+
+    /**
+     * Returns a lazy view of all the entities in a range index, sorted by
+     * their keys.
+     * <p>
+     * The view reads the index while being iterated, so taking just the first
+     * entities, for example with {@link FluentIterable#limit(int) limit},
+     * only reads those entities. It can't be used to modify the repository.
+     * 
+     * @param index
+     *            name of the index to query
+     * @param descending
+     *            flag marking if the entities are sorted from the highest key
+     * @return a lazy view of the indexed entities, sorted by their keys
+     */
+    public final FluentIterable<V> getSorted(final String index,
+            final boolean descending) {
+        return getRangeIndex(index).sorted(descending);
+    }
+
     @Override
     public final void remove(final V entity) {
-        getData().remove(entity);
+        final V stored; // Entity removed from the data
+
+        if (getIndexes().isEmpty()) {
+            getData().remove(entity);
+        } else {
+            stored = removeStored(entity);
+
+            if (stored != null) {
+                for (final EntityIndex<V> index : getIndexes().values()) {
+                    index.remove(stored);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the pool used for filtering the entities in parallel.
+     * <p>
+     * If it is {@code null}, which is the default value, the entities will
+     * always be filtered sequentially.
+     * 
+     * @param pool
+     *            the pool for filtering in parallel
+     */
+    public final void setForkJoinPool(final ForkJoinPool pool) {
+        forkJoinPool = pool;
+    }
+
+    /**
+     * Sets the minimum number of entities required for filtering in parallel.
+     * <p>
+     * Smaller repositories will always be filtered sequentially, as splitting
+     * the work would take longer than filtering.
+     * 
+     * @param threshold
+     *            the minimum number of entities for filtering in parallel
+     */
+    public final void setParallelThreshold(final int threshold) {
+        checkArgument(threshold > 0, "The threshold should be positive");
+
+        parallelThreshold = threshold;
     }
 
     @Override
@@ -152,6 +730,43 @@ public final class CollectionRepository<V>
         }
     }
 
+    /**
+     * Filters the entities in parallel.
+     * <p>
+     * The entities are divided into chunks, which are filtered in the
+     * fork-join pool, and then the results are joined in order.
+     * 
+     * @param filter
+     *            the filter to apply
+     * @return the entities accepted by the filter
+     */
+    private final Collection<V> filterParallel(final Predicate<V> filter) {
+        final Collection<V> result;   // Joined results
+        final List<List<V>> filtered; // Results for each chunk
+        final V[] entities;           // Entities to filter
+        final int chunkSize;          // Size of each chunk
+        final int chunks;             // Number of chunks
+
+        entities = toArray(getData());
+
+        chunkSize = Math.max(1, (int) Math.ceil((double) entities.length
+                / (getForkJoinPool().getParallelism() * CHUNKS_PER_THREAD)));
+        chunks = (int) Math.ceil((double) entities.length / chunkSize);
+
+        filtered = new ArrayList<List<V>>(
+                Collections.<List<V>> nCopies(chunks, null));
+
+        getForkJoinPool().invoke(new ParallelFilterTask<V>(entities, filter,
+                chunkSize, 0, chunks, filtered));
+
+        result = new LinkedList<V>();
+        for (final List<V> chunk : filtered) {
+            result.addAll(chunk);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the entities being stored.
      * 
@@ -161,4 +776,325 @@ public final class CollectionRepository<V>
         return data;
     }
 
+    /**
+     * Returns the first of the received entities.
+     * 
+     * @param entities
+     *            the entities to check
+     * @return the first entity, or {@code null} if there is none
+     */
+    private final V getFirst(final List<V> entities) {
+        final V entity;
+
+        if (entities.isEmpty()) {
+            entity = null;
+        } else {
+            entity = entities.get(0);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Returns the pool used for filtering in parallel.
+     * 
+     * @return the pool for filtering in parallel
+     */
+    private final ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * Returns the hash index with the specified name.
+     * 
+     * @param name
+     *            name of the index
+     * @return the index with the specified name
+     */
+    private final HashIndex<V> getHashIndex(final String name) {
+        final EntityIndex<V> index;
+
+        index = getIndex(name);
+
+        checkArgument(index instanceof HashIndex,
+                "The index %s is not a hash index", name);
+
+        return (HashIndex<V>) index;
+    }
+
+    /**
+     * Returns the index with the specified name.
+     * 
+     * @param name
+     *            name of the index
+     * @return the index with the specified name
+     */
+    private final EntityIndex<V> getIndex(final String name) {
+        final EntityIndex<V> index;
+
+        checkNotNull(name, "Received a null pointer as index name");
+
+        index = getIndexes().get(name);
+
+        checkArgument(index != null, "No index named %s exists", name);
+
+        return index;
+    }
+
+    /**
+     * Returns the indexes, identified by their names.
+     * 
+     * @return the indexes
+     */
+    private final Map<String, EntityIndex<V>> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Returns the position of the first entity in a page.
+     * 
+     * @param pagination
+     *            pagination data
+     * @return the position of the first entity in the page
+     */
+    private final long getOffset(final PaginationData pagination) {
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+        checkArgument(pagination.getPageNumber() > 0,
+                "The page number should be positive");
+        checkArgument(pagination.getPageSize() >= 0,
+                "The page size should not be negative");
+
+        return (pagination.getPageNumber() - 1L) * pagination.getPageSize();
+    }
+
+    /**
+     * Returns the ordering for the received sorting data.
+     * 
+     * @param sort
+     *            sorting data
+     * @return the ordering for the sorting data
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final Ordering<V> getOrdering(final SortData sort) {
+        Function<? super V, ?> extractor; // Function extracting the sort key
+        Ordering<V> order;                // Ordering for a single sort key
+        Ordering<V> ordering;             // Ordering for all the sort keys
+
+        ordering = null;
+        for (final SortOrder sortOrder : sort.getOrders()) {
+            extractor = getSortKeys().get(sortOrder.getProperty());
+
+            checkArgument(extractor != null, "No sort key named %s exists",
+                    sortOrder.getProperty());
+
+            order = ((Ordering) Ordering.natural().nullsLast())
+                    .onResultOf(extractor);
+            if (sortOrder.getDirection() == SortDirection.DESCENDING) {
+                order = order.reverse();
+            }
+
+            if (ordering == null) {
+                ordering = order;
+            } else {
+                ordering = ordering.compound(order);
+            }
+        }
+
+        return ordering;
+    }
+
+    /**
+     * Returns the minimum number of entities for filtering in parallel.
+     * 
+     * @return the minimum number of entities for filtering in parallel
+     */
+    private final int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Returns the range index with the specified name.
+     * 
+     * @param name
+     *            name of the index
+     * @return the index with the specified name
+     */
+    private final RangeIndex<V> getRangeIndex(final String name) {
+        final EntityIndex<V> index;
+
+        index = getIndex(name);
+
+        checkArgument(index instanceof RangeIndex,
+                "The index %s is not a range index", name);
+
+        return (RangeIndex<V>) index;
+    }
+
+    /**
+     * Returns the range index which can be read to apply the received sorting
+     * data.
+     * <p>
+     * This is only possible when sorting by a single range index which
+     * contains all the entities.
+     * 
+     * @param sort
+     *            sorting data
+     * @return the range index to read, or {@code null} if there is none
+     */
+    private final RangeIndex<V> getSortIndex(final SortData sort) {
+        final EntityIndex<V> index;    // Index for the sort order
+        final RangeIndex<V> sortIndex; // Index to read
+
+        if (sort.getOrders().size() == 1) {
+            index = getIndexes().get(sort.getOrders().get(0).getProperty());
+        } else {
+            index = null;
+        }
+
+        // Entities with null keys are not indexed
+        if ((index instanceof RangeIndex)
+                && (((RangeIndex<V>) index).size() == getData().size())) {
+            sortIndex = (RangeIndex<V>) index;
+        } else {
+            sortIndex = null;
+        }
+
+        return sortIndex;
+    }
+
+    /**
+     * Returns the functions extracting the keys for sorting, identified by
+     * their names.
+     * 
+     * @return the functions extracting the keys for sorting
+     */
+    private final Map<String, Function<? super V, ?>> getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Registers an index, adding to it all the stored entities.
+     * 
+     * @param name
+     *            name for the index
+     * @param index
+     *            the index to register
+     */
+    private final void registerIndex(final String name,
+            final EntityIndex<V> index) {
+        checkNotNull(name, "Received a null pointer as index name");
+        checkArgument(!getIndexes().containsKey(name),
+                "An index named %s already exists", name);
+
+        for (final V entity : getData()) {
+            index.add(entity);
+        }
+
+        getIndexes().put(name, index);
+    }
+
+    /**
+     * Removes an entity from the stored data, and returns the instance which
+     * was actually stored.
+     * <p>
+     * This instance may not be the one received, but it will be equal to it.
+     * It is the instance which should be removed from the indexes.
+     * 
+     * @param entity
+     *            the entity to remove
+     * @return the stored instance which was removed, or {@code null} if none
+     *         was removed
+     */
+    private final V removeStored(final V entity) {
+        final Iterator<V> itr; // Iterator for the stored data
+        V stored;              // Instance removed
+        V next;                // Next instance in the data
+
+        if (getData() instanceof KeyedCollection) {
+            stored = ((KeyedCollection<V>) getData()).get(entity);
+            getData().remove(entity);
+        } else {
+            stored = null;
+            itr = getData().iterator();
+            while ((stored == null) && itr.hasNext()) {
+                next = itr.next();
+                if (Objects.equal(next, entity)) {
+                    itr.remove();
+                    stored = next;
+                }
+            }
+        }
+
+        return stored;
+    }
+
+    /**
+     * Sorts the entities accepted by the filter and returns those in the
+     * specified range.
+     * <p>
+     * If the range ends before the last entity, the entities up to its end
+     * are selected in linear time and then sorted, instead of sorting all of
+     * them. If a range index can be read, the entities are taken from it in
+     * order, and those after the range are not read.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param sort
+     *            sorting data
+     * @param offset
+     *            position of the first entity to return
+     * @param count
+     *            maximum number of entities to return
+     * @return the sorted entities in the range
+     */
+    private final List<V> sort(final Predicate<V> filter, final SortData sort,
+            final long offset, final int count) {
+        final Ordering<V> ordering;   // Ordering for the sort data
+        final RangeIndex<V> index;    // Index to read the entities from
+        final Iterable<V> candidates; // Entities to sort
+        final boolean descending;     // Flag for reading the index backwards
+        final List<V> sorted;         // Sorted entities up to the range end
+        final List<V> range;          // Sorted entities in the range
+
+        checkNotNull(sort, "Received a null pointer as sorting data");
+
+        // Also checks the sort keys exist
+        ordering = getOrdering(sort);
+        index = getSortIndex(sort);
+
+        if (offset >= getData().size()) {
+            range = new ArrayList<V>(0);
+        } else if (index != null) {
+            descending = sort.getOrders().get(0)
+                    .getDirection() == SortDirection.DESCENDING;
+            range = index.sorted(descending).filter(filter).skip((int) offset)
+                    .limit(count).copyInto(new ArrayList<V>());
+        } else {
+            candidates = Iterables.filter(getData(), filter);
+            if (offset + count >= getData().size()) {
+                sorted = ordering.sortedCopy(candidates);
+            } else {
+                sorted = ordering.leastOf(candidates, (int) (offset + count));
+            }
+
+            range = new ArrayList<V>(sorted.subList(
+                    (int) Math.min(offset, sorted.size()), sorted.size()));
+        }
+
+        return range;
+    }
+
+    /**
+     * Copies the received entities into an array.
+     * 
+     * @param entities
+     *            the entities to copy
+     * @return an array with the entities
+     */
+    @SuppressWarnings("unchecked")
+    private final V[] toArray(final Collection<V> entities) {
+        return (V[]) entities.toArray();
+    }
+
 }
@@ -0,0 +1,304 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+
+/**
+ * Thread-safe collection-based implementation of
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * .
+ * <p>
+ * This works like the {@link CollectionRepository} when it receives a key
+ * function, but it can be shared between several threads. Each entity is
+ * identified by its key, and only one entity is kept for each key.
+ * <p>
+ * Reading never blocks. The entities are kept in concurrent structures, and
+ * the query methods just go through them, so any number of threads can read at
+ * the same time. The results are weakly consistent: each entity returned is
+ * in the state it had at some point during the query, but entities modified
+ * while querying may or not be included.
+ * <p>
+ * Writing locks only the entity's key. The keys are divided between a fixed
+ * number of locks, so writes on different entities will rarely wait for each
+ * other.
+ * <p>
+ * Updating an entity replaces it atomically, keeping it in the same position.
+ * So, unlike the {@code CollectionRepository}, updating an entity won't move it
+ * to the end.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class ConcurrentCollectionRepository<V>
+        implements FilteredRepository<V, Predicate<V>> {
+
+    /**
+     * Default number of locks for the writing operations.
+     */
+    private static final int                      DEFAULT_STRIPES = 64;
+
+    /**
+     * The entities stored in the repository, sorted by insertion order.
+     * <p>
+     * Each entity is identified by a sequence number, assigned when adding it.
+     */
+    private final ConcurrentNavigableMap<Long, V> entities        = new ConcurrentSkipListMap<Long, V>();
+
+    /**
+     * Function generating the key for each entity.
+     */
+    private final Function<? super V, ?>          keyFunction;
+
+    /**
+     * Locks for the writing operations.
+     * <p>
+     * Each key is assigned to one of these locks.
+     */
+    private final Object[]                        locks;
+
+    /**
+     * Sequence number assigned to each key.
+     */
+    private final ConcurrentMap<Object, Long>     positions       = new ConcurrentHashMap<Object, Long>();
+
+    /**
+     * Generator for the sequence numbers.
+     */
+    private final AtomicLong                      sequence        = new AtomicLong();
+
+    /**
+     * Constructs a {@code ConcurrentCollectionRepository} which identifies the
+     * entities with an {@link EntityKeyFunction}.
+     */
+    public ConcurrentCollectionRepository() {
+        this(new EntityKeyFunction());
+    }
+
+    /**
+     * Constructs a {@code ConcurrentCollectionRepository} which identifies the
+     * entities with the specified key function.
+     * 
+     * @param function
+     *            function generating the key for each entity
+     */
+    public ConcurrentCollectionRepository(
+            final Function<? super V, ?> function) {
+        this(function, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a {@code ConcurrentCollectionRepository} which identifies the
+     * entities with the specified key function, and divides the keys between
+     * the specified number of locks.
+     * <p>
+     * The number of locks will be rounded up to the next power of two.
+     * 
+     * @param function
+     *            function generating the key for each entity
+     * @param stripes
+     *            number of locks for the writing operations
+     */
+    public ConcurrentCollectionRepository(
+            final Function<? super V, ?> function, final int stripes) {
+        super();
+
+        checkNotNull(function, "Received a null pointer as key function");
+        checkArgument(stripes > 0, "The number of locks should be positive");
+
+        keyFunction = function;
+
+        locks = new Object[Integer.highestOneBit((stripes * 2) - 1)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * If an entity with the same key is already stored, then the operation
+     * will be ignored.
+     * 
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        final Object key;
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = getKey(entity);
+
+        synchronized (getLock(key)) {
+            if (!positions.containsKey(key)) {
+                positions.put(key, addEntity(entity));
+            }
+        }
+    }
+
+    @Override
+    public final Collection<V> getAll() {
+        return new ArrayList<V>(entities.values());
+    }
+
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter) {
+        final Collection<V> result;
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        result = new ArrayList<V>();
+        for (final V entity : entities.values()) {
+            if (filter.apply(entity)) {
+                result.add(entity);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public final V getEntity(final Predicate<V> filter) {
+        V entity;
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        entity = null;
+        for (final V stored : entities.values()) {
+            if (filter.apply(stored)) {
+                entity = stored;
+                break;
+            }
+        }
+
+        return entity;
+    }
+
+    @Override
+    public final void remove(final V entity) {
+        final Object key;
+        final Long position;
+
+        if (entity != null) {
+            key = getKey(entity);
+
+            synchronized (getLock(key)) {
+                position = positions.remove(key);
+                if (position != null) {
+                    entities.remove(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The entity stored with the same key is replaced by the received one,
+     * which takes its position. If there is no entity with the same key, then
+     * nothing is done.
+     * 
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        final Object key;
+        final Long position;
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = getKey(entity);
+
+        synchronized (getLock(key)) {
+            position = positions.get(key);
+            if (position != null) {
+                entities.put(position, entity);
+            }
+        }
+    }
+
+    /**
+     * Stores an entity at the end of the repository.
+     * 
+     * @param entity
+     *            the entity to store
+     * @return the sequence number assigned to the entity
+     */
+    private final Long addEntity(final V entity) {
+        final Long position;
+
+        position = sequence.incrementAndGet();
+        entities.put(position, entity);
+
+        return position;
+    }
+
+    /**
+     * Returns the key for the specified entity.
+     * 
+     * @param entity
+     *            entity to generate the key for
+     * @return the key for the entity
+     */
+    private final Object getKey(final V entity) {
+        return checkNotNull(keyFunction.apply(entity),
+                "Generated a null pointer as key");
+    }
+
+    /**
+     * Returns the lock assigned to the specified key.
+     * 
+     * @param key
+     *            key to find the lock for
+     * @return the lock for the key
+     */
+    private final Object getLock(final Object key) {
+        int hash;
+
+        // Spreads the hash bits, as the lower ones choose the lock
+        hash = key.hashCode();
+        hash ^= (hash >>> 16);
+
+        return locks[hash & (locks.length - 1)];
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick tree counting the elements stored in a sequence of slots.
+ * <p>
+ * Each slot may be occupied or empty. The tree keeps partial sums of the
+ * occupied slots, so both marking a slot as empty and finding the slot of the
+ * n-th element take logarithmic time, no matter how many empty slots there
+ * are before it.
+ * <p>
+ * Slots are appended at the end, always occupied, and can be emptied
+ * afterwards. Slots are identified by their position, starting at zero.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+final class FenwickTree {
+
+    /**
+     * Initial capacity for the partial sums.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Number of slots in the tree.
+     */
+    private int              size             = 0;
+
+    /**
+     * Partial sums for the occupied slots.
+     * <p>
+     * These start at the position 1, which contains the first slot.
+     */
+    private int[]            sums             = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Default constructor.
+     */
+    public FenwickTree() {
+        super();
+    }
+
+    /**
+     * Appends an occupied slot.
+     */
+    public final void append() {
+        final int position; // Position of the new slot in the sums
+        int child;          // Partial sum contained in the new one
+        int sum;            // Sum for the new slot
+
+        if (size + 1 == sums.length) {
+            sums = Arrays.copyOf(sums, sums.length * 2);
+        }
+
+        size++;
+        position = size;
+
+        // The new sum covers the slot and the sums for the slots before it
+        sum = 1;
+        child = position - 1;
+        while (child > position - Integer.lowestOneBit(position)) {
+            sum += sums[child];
+            child -= Integer.lowestOneBit(child);
+        }
+
+        sums[position] = sum;
+    }
+
+    /**
+     * Removes all the slots.
+     */
+    public final void clear() {
+        sums = new int[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Marks the specified slot as empty.
+     * 
+     * @param slot
+     *            slot to empty
+     */
+    public final void empty(final int slot) {
+        int position; // Position being updated
+
+        position = slot + 1;
+        while (position <= size) {
+            sums[position]--;
+            position += Integer.lowestOneBit(position);
+        }
+    }
+
+    /**
+     * Replaces all the slots with the specified number of occupied slots.
+     * 
+     * @param count
+     *            number of occupied slots
+     */
+    public final void fill(final int count) {
+        sums = new int[Math.max(DEFAULT_CAPACITY,
+                Integer.highestOneBit(count) * 2)];
+        size = count;
+
+        // When all the slots are occupied each sum covers as many slots as
+        // its lowest bit
+        for (int position = 1; position <= size; position++) {
+            sums[position] = Integer.lowestOneBit(position);
+        }
+    }
+
+    /**
+     * Returns the slot containing the element at the specified position.
+     * <p>
+     * The position counts only the occupied slots, so the first element is
+     * the one in the first occupied slot, even if there are empty slots before
+     * it.
+     * 
+     * @param index
+     *            position of the element, starting at zero
+     * @return the slot containing the element, or the number of slots if
+     *         there are not so many elements
+     */
+    public final int find(final int index) {
+        int position;  // Position reached
+        int remaining; // Elements which have to be skipped yet
+        int step;      // Positions to advance
+
+        position = 0;
+        remaining = index + 1;
+        step = Integer.highestOneBit(sums.length - 1);
+        while (step > 0) {
+            if ((position + step <= size)
+                    && (sums[position + step] < remaining)) {
+                position += step;
+                remaining -= sums[position];
+            }
+            step >>= 1;
+        }
+
+        // The slot after the position is the one with the element
+        return position;
+    }
+
+}
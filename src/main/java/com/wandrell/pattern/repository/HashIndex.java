@@ -0,0 +1,157 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+/**
+ * Hash index for the entities stored in a repository.
+ * <p>
+ * Each entity is stored in a bucket, identified by the key which a
+ * {@code Function} extracts from it. All the entities sharing the same key
+ * can be then acquired in constant time.
+ * <p>
+ * The key under which each entity was indexed is remembered, so entities
+ * can be removed even after modifying them. Because of this, entities are
+ * removed by identity, and the instance received when removing should be the
+ * same one which was indexed.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+final class HashIndex<V> implements EntityIndex<V> {
+
+    /**
+     * Entities indexed by their keys.
+     * <p>
+     * Each bucket keeps the entities in the order they were indexed.
+     */
+    private final Map<Object, List<V>>   buckets = new HashMap<Object, List<V>>();
+
+    /**
+     * Function extracting the key from each entity.
+     */
+    private final Function<? super V, ?> keyExtractor;
+
+    /**
+     * Key under which each entity was indexed.
+     */
+    private final Map<V, Object>         keys    = new IdentityHashMap<V, Object>();
+
+    /**
+     * Constructs an index using the specified function to extract the keys.
+     * 
+     * @param extractor
+     *            function extracting the key from each entity
+     */
+    public HashIndex(final Function<? super V, ?> extractor) {
+        super();
+
+        keyExtractor = checkNotNull(extractor,
+                "Received a null pointer as key extractor");
+    }
+
+    @Override
+    public final void add(final V entity) {
+        final Object key; // Key for the entity
+        List<V> bucket;   // Bucket for the key
+
+        key = keyExtractor.apply(entity);
+
+        bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<V>(1);
+            buckets.put(key, bucket);
+        }
+
+        bucket.add(entity);
+        keys.put(entity, key);
+    }
+
+    /**
+     * Returns all the entities indexed under the specified key.
+     * <p>
+     * The returned list is backed by the index, and should not be modified.
+     * 
+     * @param key
+     *            the key to search for
+     * @return all the entities with the key
+     */
+    public final List<V> get(final Object key) {
+        final List<V> bucket; // Bucket for the key
+
+        bucket = buckets.get(key);
+
+        return bucket == null ? Collections.<V> emptyList() : bucket;
+    }
+
+    @Override
+    public final void remove(final V entity) {
+        final Object key;      // Key under which the entity was indexed
+        final List<V> bucket;  // Current bucket for the key
+        final Iterator<V> itr; // Iterator over the bucket
+        boolean found;         // Flag marking if the instance was found
+        boolean duplicated;    // Flag marking if it was indexed twice
+
+        if (keys.containsKey(entity)) {
+            key = keys.get(entity);
+            bucket = buckets.get(key);
+
+            // The instance may have been indexed more than once
+            found = false;
+            duplicated = false;
+            itr = bucket.iterator();
+            while (itr.hasNext() && !duplicated) {
+                if (itr.next() == entity) {
+                    if (found) {
+                        duplicated = true;
+                    } else {
+                        itr.remove();
+                        found = true;
+                    }
+                }
+            }
+
+            if (!duplicated) {
+                keys.remove(entity);
+            }
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.entity.PersistenceEntity;
+
+/**
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * which stores the entities by their identifiers, as primitive {@code int}
+ * values.
+ * <p>
+ * The entities are kept in an open addressing hash table, where the
+ * identifiers are stored in an {@code int} array. This way the
+ * {@link #getById(int) getById}, {@link #containsId(int) containsId} and
+ * {@link #removeById(int) removeById} methods find the entities without
+ * boxing the identifier, nor creating any other object.
+ * <p>
+ * Only one entity is kept for each identifier, and all of them should have
+ * one. Adding an entity without an identifier, or with a negative one, will
+ * throw an {@code IllegalArgumentException}.
+ * <p>
+ * The entities are returned in the order they are stored in the table, which
+ * depends on their identifiers and not on the order they were added.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class IntKeyedRepository<V extends PersistenceEntity>
+        implements FilteredRepository<V, Predicate<V>> {
+
+    /**
+     * Default initial capacity of the table.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Multiplier for mixing the bits of the identifiers.
+     * <p>
+     * This is the 32 bits golden ratio, used in Fibonacci hashing.
+     */
+    private static final int HASH_MULTIPLIER  = 0x9E3779B9;
+
+    /**
+     * Identifier of the entity in each slot of the table.
+     */
+    private int[]            ids;
+
+    /**
+     * Mask for turning hashes into slots.
+     */
+    private int              mask;
+
+    /**
+     * Number of entities stored.
+     */
+    private int              size             = 0;
+
+    /**
+     * Entity in each slot of the table.
+     * <p>
+     * Empty slots are {@code null}.
+     */
+    private Object[]         slots;
+
+    /**
+     * Default constructor.
+     */
+    public IntKeyedRepository() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a repository with space for the specified number of entities.
+     * <p>
+     * The table will grow when needed, so this is just a hint to avoid doing
+     * so.
+     *
+     * @param capacity
+     *            expected number of entities
+     */
+    public IntKeyedRepository(final int capacity) {
+        super();
+
+        checkArgument(capacity >= 0, "The capacity can't be negative");
+
+        // The table is kept at most three quarters full
+        allocate(Math.max(DEFAULT_CAPACITY,
+                Integer.highestOneBit(Math.max(1, (capacity * 4) / 3)) << 1));
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * If there is already an entity with the same identifier, then nothing is
+     * done.
+     *
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        final int id;   // Identifier of the entity
+        final int slot; // Slot for the entity
+
+        id = getId(entity);
+        slot = find(id);
+        if (slots[slot] == null) {
+            ids[slot] = id;
+            slots[slot] = entity;
+            size++;
+
+            if (size > getThreshold()) {
+                resize();
+            }
+        }
+    }
+
+    /**
+     * Checks if there is an entity with the specified identifier.
+     *
+     * @param id
+     *            identifier to check
+     * @return {@code true} if there is an entity with that identifier,
+     *         {@code false} otherwise
+     */
+    public final boolean containsId(final int id) {
+        return slots[find(id)] != null;
+    }
+
+    @Override
+    public final Collection<V> getAll() {
+        final Collection<V> result; // Stored entities
+
+        result = new ArrayList<V>(size);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                result.add(getSlot(i));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entity with the specified identifier.
+     *
+     * @param id
+     *            identifier of the entity
+     * @return the entity with that identifier, or {@code null} if there is
+     *         none
+     */
+    public final V getById(final int id) {
+        return getSlot(find(id));
+    }
+
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter) {
+        final Collection<V> result; // Filtered entities
+        V entity;                   // Entity being checked
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        result = new ArrayList<V>();
+        for (int i = 0; i < slots.length; i++) {
+            entity = getSlot(i);
+            if ((entity != null) && (filter.apply(entity))) {
+                result.add(entity);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public final V getEntity(final Predicate<V> filter) {
+        V entity; // Entity being checked
+        V found;  // Entity which passed the filter
+        int i;    // Slot being checked
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        found = null;
+        i = 0;
+        while ((found == null) && (i < slots.length)) {
+            entity = getSlot(i);
+            if ((entity != null) && (filter.apply(entity))) {
+                found = entity;
+            }
+            i++;
+        }
+
+        return found;
+    }
+
+    /**
+     * Removes the entity with the same identifier as the received one.
+     *
+     * @param entity
+     *            the entity to remove
+     */
+    @Override
+    public final void remove(final V entity) {
+        if ((entity != null) && (entity.getId() != null)) {
+            removeById(entity.getId());
+        }
+    }
+
+    /**
+     * Removes the entity with the specified identifier.
+     *
+     * @param id
+     *            identifier of the entity
+     * @return the removed entity, or {@code null} if there was none
+     */
+    public final V removeById(final int id) {
+        final int slot; // Slot of the entity
+        final V entity; // Removed entity
+
+        slot = find(id);
+        entity = getSlot(slot);
+        if (entity != null) {
+            slots[slot] = null;
+            size--;
+            shiftBack(slot);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The entity stored with the same identifier is replaced by the received
+     * one. If there is no entity with the same identifier, then nothing is
+     * done.
+     *
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        final int slot; // Slot of the entity
+
+        slot = find(getId(entity));
+        if (slots[slot] != null) {
+            slots[slot] = entity;
+        }
+    }
+
+    /**
+     * Creates an empty table with the specified capacity.
+     *
+     * @param capacity
+     *            capacity of the table, which should be a power of two
+     */
+    private final void allocate(final int capacity) {
+        ids = new int[capacity];
+        slots = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the slot for the specified identifier.
+     * <p>
+     * This is either the slot containing it, or the empty slot where it
+     * should be stored.
+     *
+     * @param id
+     *            identifier to find
+     * @return the slot for the identifier
+     */
+    private final int find(final int id) {
+        int slot; // Slot being checked
+
+        slot = getHome(id);
+        while ((slots[slot] != null) && (ids[slot] != id)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Returns the slot where the specified identifier should be stored, if
+     * there were no collisions.
+     *
+     * @param id
+     *            identifier to hash
+     * @return the home slot for the identifier
+     */
+    private final int getHome(final int id) {
+        final int hash; // Mixed identifier
+
+        hash = id * HASH_MULTIPLIER;
+
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the identifier of the received entity, validating it.
+     *
+     * @param entity
+     *            entity to check
+     * @return the identifier of the entity
+     */
+    private final int getId(final V entity) {
+        checkNotNull(entity, "Received a null pointer as entity");
+        checkArgument((entity.getId() != null) && (entity.getId() >= 0),
+                "The entity has no valid identifier");
+
+        return entity.getId();
+    }
+
+    /**
+     * Returns the entity in the specified slot.
+     *
+     * @param slot
+     *            slot to read
+     * @return the entity in the slot, or {@code null} if it is empty
+     */
+    @SuppressWarnings("unchecked")
+    private final V getSlot(final int slot) {
+        return (V) slots[slot];
+    }
+
+    /**
+     * Returns the number of entities which can be stored before growing the
+     * table.
+     *
+     * @return the number of entities the table can store
+     */
+    private final int getThreshold() {
+        return (slots.length >> 1) + (slots.length >> 2);
+    }
+
+    /**
+     * Doubles the capacity of the table, storing again all the entities.
+     */
+    private final void resize() {
+        final int[] oldIds;      // Previous identifiers
+        final Object[] oldSlots; // Previous entities
+        int slot;                // Slot for the entity being moved
+
+        oldIds = ids;
+        oldSlots = slots;
+        allocate(oldSlots.length << 1);
+
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != null) {
+                slot = find(oldIds[i]);
+                ids[slot] = oldIds[i];
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    /**
+     * Moves back the entities following a slot which has been emptied.
+     * <p>
+     * Each entity which can't be found anymore, as there is an empty slot
+     * between it and its home slot, is moved into that empty slot. This way
+     * the table never needs tombstones.
+     *
+     * @param emptied
+     *            slot which has been emptied
+     */
+    private final void shiftBack(final int emptied) {
+        int empty; // Slot which is empty
+        int slot;  // Slot being checked
+        int home;  // Home slot for the entity being checked
+
+        empty = emptied;
+        slot = (empty + 1) & mask;
+        while (slots[slot] != null) {
+            home = getHome(ids[slot]);
+            // Moves the entity if the empty slot is between its home and it
+            if (((slot - home) & mask) >= ((slot - empty) & mask)) {
+                ids[empty] = ids[slot];
+                slots[empty] = slots[slot];
+                slots[slot] = null;
+                empty = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+}
@@ -0,0 +1,434 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Function;
+
+/**
+ * Insertion-ordered {@code Collection} which indexes its elements by a key.
+ * <p>
+ * Each element is identified by the key generated for it by a
+ * {@code Function}. The elements are kept in an array of slots, in the same
+ * order they were added, while a hash map links each key to its slot. Thanks
+ * to this adding, removing and checking if an element is contained are
+ * constant time operations.
+ * <p>
+ * Removing an element just empties its slot. Once the empty slots outnumber
+ * the stored elements the slots are compacted, so this cost is amortized.
+ * <p>
+ * The occupied slots are counted by a {@link FenwickTree}, which allows
+ * finding the slot of the element at any position in logarithmic time. So
+ * reading a range of elements, as done when paginating, costs just the size
+ * of the range.
+ * <p>
+ * Only a single element is kept for each key. Adding an element whose key is
+ * already in use will be ignored, in the same way a {@code Set} would do.
+ * <p>
+ * The key of an element should not change while it is stored, otherwise it
+ * won't be possible to find it again.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the collection
+ */
+final class KeyedCollection<V> extends AbstractCollection<V> {
+
+    /**
+     * Iterator for the stored elements.
+     * <p>
+     * It moves through the slots, skipping those which are empty.
+     */
+    private final class SlotIterator implements Iterator<V> {
+
+        /**
+         * Modifications count expected by the iterator.
+         */
+        private int expectedModifications = modifications;
+
+        /**
+         * Slot of the last element returned, or -1 if there is none.
+         */
+        private int last                  = -1;
+
+        /**
+         * Slot of the next element to return.
+         */
+        private int next                  = findNext(0);
+
+        /**
+         * Default constructor.
+         */
+        public SlotIterator() {
+            super();
+        }
+
+        @Override
+        public final boolean hasNext() {
+            return next < slots.size();
+        }
+
+        @Override
+        public final V next() {
+            checkModifications();
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next = findNext(next + 1);
+
+            return slots.get(last);
+        }
+
+        @Override
+        public final void remove() {
+            checkModifications();
+
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+
+            // Compaction is not allowed while iterating
+            removeSlot(last, false);
+            last = -1;
+            expectedModifications = modifications;
+        }
+
+        /**
+         * Checks that the collection has not been modified outside the
+         * iterator.
+         */
+        private final void checkModifications() {
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * Returns the first non-empty slot starting at the specified one.
+         * 
+         * @param start
+         *            the slot where the search starts
+         * @return the first non-empty slot, or the slots size if there is none
+         */
+        private final int findNext(final int start) {
+            int slot;
+
+            slot = start;
+            while ((slot < slots.size()) && (slots.get(slot) == null)) {
+                slot++;
+            }
+
+            return slot;
+        }
+
+    }
+
+    /**
+     * Minimum number of empty slots before compacting them.
+     * <p>
+     * This avoids compacting small collections too often.
+     */
+    private static final int             MIN_COMPACTION = 16;
+
+    /**
+     * Function generating the key for each element.
+     */
+    private final Function<? super V, ?> keyFunction;
+
+    /**
+     * Counts of the occupied slots.
+     */
+    private final FenwickTree            occupied       = new FenwickTree();
+
+    /**
+     * Number of structural modifications.
+     * <p>
+     * Used to detect modifications while iterating.
+     */
+    private int                          modifications  = 0;
+
+    /**
+     * Slot assigned to each key.
+     */
+    private final Map<Object, Integer>   positions      = new HashMap<Object, Integer>();
+
+    /**
+     * Number of elements stored.
+     */
+    private int                          size           = 0;
+
+    /**
+     * Slots containing the elements, in insertion order.
+     * <p>
+     * Removed elements leave an empty slot, marked with a {@code null}.
+     */
+    private final List<V>                slots          = new ArrayList<V>();
+
+    /**
+     * Constructs a {@code KeyedCollection} using the specified function to
+     * generate the keys.
+     * 
+     * @param function
+     *            function generating the key for each element
+     */
+    public KeyedCollection(final Function<? super V, ?> function) {
+        super();
+
+        keyFunction = checkNotNull(function,
+                "Received a null pointer as key function");
+    }
+
+    @Override
+    public final boolean add(final V element) {
+        final Object key;
+        final boolean added;
+
+        checkNotNull(element, "Received a null pointer as element");
+
+        key = getKey(element);
+
+        if (positions.containsKey(key)) {
+            added = false;
+        } else {
+            positions.put(key, slots.size());
+            slots.add(element);
+            occupied.append();
+            size++;
+            modifications++;
+
+            added = true;
+        }
+
+        return added;
+    }
+
+    @Override
+    public final void clear() {
+        positions.clear();
+        slots.clear();
+        occupied.clear();
+        size = 0;
+        modifications++;
+    }
+
+    @Override
+    public final boolean contains(final Object element) {
+        final Object key;
+
+        key = getKeyOf(element);
+
+        return (key != null) && positions.containsKey(key);
+    }
+
+    /**
+     * Returns the stored element with the same key as the received one.
+     * 
+     * @param element
+     *            the element to search for
+     * @return the stored element with the same key, or {@code null} if there
+     *         is none
+     */
+    public final V get(final Object element) {
+        final Object key;
+        final Integer slot;
+        final V stored;
+
+        key = getKeyOf(element);
+
+        if (key == null) {
+            slot = null;
+        } else {
+            slot = positions.get(key);
+        }
+
+        if (slot == null) {
+            stored = null;
+        } else {
+            stored = slots.get(slot);
+        }
+
+        return stored;
+    }
+
+    /**
+     * Returns the elements in the specified range of positions.
+     * <p>
+     * The first element is found without going through the elements before
+     * it, so this takes time relative to the number of elements returned, and
+     * the empty slots between them.
+     * 
+     * @param offset
+     *            position of the first element, starting at zero
+     * @param count
+     *            maximum number of elements to return
+     * @return the elements in the range
+     */
+    public final List<V> getRange(final int offset, final int count) {
+        final List<V> range;
+        int slot;
+
+        range = new ArrayList<V>(Math.max(0, Math.min(count, size - offset)));
+
+        slot = occupied.find(offset);
+        while ((range.size() < count) && (slot < slots.size())) {
+            if (slots.get(slot) != null) {
+                range.add(slots.get(slot));
+            }
+            slot++;
+        }
+
+        return range;
+    }
+
+    @Override
+    public final Iterator<V> iterator() {
+        return new SlotIterator();
+    }
+
+    @Override
+    public final boolean remove(final Object element) {
+        final Object key;
+        final Integer slot;
+        final boolean removed;
+
+        key = getKeyOf(element);
+
+        if (key == null) {
+            slot = null;
+        } else {
+            slot = positions.get(key);
+        }
+
+        if (slot == null) {
+            removed = false;
+        } else {
+            removeSlot(slot, true);
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    @Override
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Moves all the elements to the start of the slots, removing the empty
+     * slots.
+     */
+    private final void compact() {
+        int target;
+
+        target = 0;
+        for (final V element : slots) {
+            if (element != null) {
+                slots.set(target, element);
+                positions.put(getKey(element), target);
+                target++;
+            }
+        }
+
+        slots.subList(target, slots.size()).clear();
+        occupied.fill(target);
+    }
+
+    /**
+     * Returns the key for the specified element.
+     * 
+     * @param element
+     *            element to generate the key for
+     * @return the key for the element
+     */
+    private final Object getKey(final V element) {
+        return checkNotNull(keyFunction.apply(element),
+                "Generated a null pointer as key");
+    }
+
+    /**
+     * Returns the key for an object which may or not be of the type stored.
+     * 
+     * @param element
+     *            object to generate the key for
+     * @return the key for the object, or {@code null} if it can't be generated
+     */
+    @SuppressWarnings("unchecked")
+    private final Object getKeyOf(final Object element) {
+        Object key;
+
+        if (element == null) {
+            key = null;
+        } else {
+            try {
+                key = keyFunction.apply((V) element);
+            } catch (final ClassCastException e) {
+                key = null;
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Empties the specified slot.
+     * 
+     * @param slot
+     *            slot to empty
+     * @param allowCompaction
+     *            flag indicating if the slots can be compacted afterwards
+     */
+    private final void removeSlot(final int slot,
+            final boolean allowCompaction) {
+        final V element;
+        final int empty;
+
+        element = slots.get(slot);
+        positions.remove(getKey(element));
+        slots.set(slot, null);
+        occupied.empty(slot);
+        size--;
+        modifications++;
+
+        empty = slots.size() - size;
+        if (allowCompaction && (empty > MIN_COMPACTION) && (empty > size)) {
+            compact();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.base.Predicate;
+
+/**
+ * Fork-join task filtering a section of an array of entities.
+ * <p>
+ * The array is divided into chunks of, at most, a fixed size. Each chunk is
+ * filtered on its own, and its result is stored in the position of the
+ * results array matching the chunk. So joining these results in order will
+ * give the same result as filtering the array sequentially.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+final class ParallelFilterTask<V> extends RecursiveAction {
+
+    /**
+     * Serialization ID.
+     */
+    private static final long     serialVersionUID = 4117460361924617012L;
+
+    /**
+     * Size of each chunk.
+     */
+    private final int             chunkSize;
+
+    /**
+     * Entities to filter.
+     */
+    private final V[]             entities;
+
+    /**
+     * First chunk filtered by this task.
+     */
+    private final int             firstChunk;
+
+    /**
+     * Chunk after the last one filtered by this task.
+     */
+    private final int             lastChunk;
+
+    /**
+     * Filter to apply.
+     */
+    private final Predicate<V>    predicate;
+
+    /**
+     * Entities accepted from each chunk.
+     */
+    private final List<List<V>>   results;
+
+    /**
+     * Constructs a task filtering the specified chunks.
+     * 
+     * @param data
+     *            entities to filter
+     * @param filter
+     *            filter to apply
+     * @param size
+     *            size of each chunk
+     * @param first
+     *            first chunk to filter
+     * @param last
+     *            chunk after the last one to filter
+     * @param filtered
+     *            list where the results for each chunk will be stored
+     */
+    public ParallelFilterTask(final V[] data, final Predicate<V> filter,
+            final int size, final int first, final int last,
+            final List<List<V>> filtered) {
+        super();
+
+        entities = data;
+        predicate = filter;
+        chunkSize = size;
+        firstChunk = first;
+        lastChunk = last;
+        results = filtered;
+    }
+
+    @Override
+    protected final void compute() {
+        final int middle;
+
+        if (lastChunk - firstChunk == 1) {
+            results.set(firstChunk, filterChunk());
+        } else {
+            middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(
+                    new ParallelFilterTask<V>(entities, predicate, chunkSize,
+                            firstChunk, middle, results),
+                    new ParallelFilterTask<V>(entities, predicate, chunkSize,
+                            middle, lastChunk, results));
+        }
+    }
+
+    /**
+     * Filters the single chunk assigned to this task.
+     * 
+     * @return the entities accepted by the filter
+     */
+    private final List<V> filterChunk() {
+        final List<V> accepted;
+        final int start;
+        final int end;
+
+        start = firstChunk * chunkSize;
+        end = Math.min(start + chunkSize, entities.length);
+
+        accepted = new ArrayList<V>();
+        for (int i = start; i < end; i++) {
+            if (predicate.apply(entities[i])) {
+                accepted.add(entities[i]);
+            }
+        }
+
+        return accepted;
+    }
+
+}
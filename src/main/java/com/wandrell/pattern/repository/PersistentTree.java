@@ -0,0 +1,465 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable balanced tree, sorting its values by a numeric key.
+ * <p>
+ * This is a persistent structure. Modifying it does not change the tree, but
+ * returns a new one instead. Both trees share all the nodes which were not
+ * modified, so only the nodes in the path to the modified one are copied,
+ * which takes logarithmic time.
+ * <p>
+ * As no tree ever changes, any number of threads can read one without any
+ * synchronization, even while another thread creates new versions of it.
+ * <p>
+ * The nodes keep the size of their subtrees, so the values can be also
+ * acquired by their position.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the tree
+ */
+final class PersistentTree<V> implements Iterable<V> {
+
+    /**
+     * Iterator going through the values in the order of their keys.
+     * 
+     * @param <V>
+     *            the type stored on the tree
+     */
+    private static final class InOrderIterator<V> implements Iterator<V> {
+
+        /**
+         * Nodes pending to be visited.
+         * <p>
+         * The top of the stack is the next node to return.
+         */
+        private final Deque<Node<V>> pending = new ArrayDeque<Node<V>>();
+
+        /**
+         * Constructs an iterator for the tree starting at the specified node.
+         * 
+         * @param root
+         *            root of the tree to iterate
+         */
+        public InOrderIterator(final Node<V> root) {
+            super();
+
+            pushLeft(root);
+        }
+
+        @Override
+        public final boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public final V next() {
+            final Node<V> node;
+
+            if (pending.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            node = pending.pop();
+            pushLeft(node.right);
+
+            return node.value;
+        }
+
+        @Override
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Adds the specified node, and all the nodes to its left, to the
+         * pending nodes.
+         * 
+         * @param node
+         *            node to add
+         */
+        private final void pushLeft(final Node<V> node) {
+            Node<V> current;
+
+            current = node;
+            while (current != null) {
+                pending.push(current);
+                current = current.left;
+            }
+        }
+
+    }
+
+    /**
+     * Node of the tree.
+     * 
+     * @param <V>
+     *            the type stored on the tree
+     */
+    private static final class Node<V> {
+
+        /**
+         * Height of the subtree starting on this node.
+         */
+        private final int     height;
+
+        /**
+         * Key of the node.
+         */
+        private final long    key;
+
+        /**
+         * Subtree with the lower keys.
+         */
+        private final Node<V> left;
+
+        /**
+         * Subtree with the higher keys.
+         */
+        private final Node<V> right;
+
+        /**
+         * Number of nodes in the subtree starting on this node.
+         */
+        private final int     size;
+
+        /**
+         * Value of the node.
+         */
+        private final V       value;
+
+        /**
+         * Constructs a node with the specified data.
+         * 
+         * @param nodeKey
+         *            key of the node
+         * @param nodeValue
+         *            value of the node
+         * @param lower
+         *            subtree with the lower keys
+         * @param higher
+         *            subtree with the higher keys
+         */
+        public Node(final long nodeKey, final V nodeValue,
+                final Node<V> lower, final Node<V> higher) {
+            super();
+
+            key = nodeKey;
+            value = nodeValue;
+            left = lower;
+            right = higher;
+            height = 1 + Math.max(height(lower), height(higher));
+            size = 1 + size(lower) + size(higher);
+        }
+
+    }
+
+    /**
+     * Empty tree.
+     */
+    private static final PersistentTree<Object> EMPTY =
+            new PersistentTree<Object>(null);
+
+    /**
+     * Returns an empty tree.
+     * 
+     * @param <V>
+     *            the type stored on the tree
+     * @return an empty tree
+     */
+    @SuppressWarnings("unchecked")
+    public static final <V> PersistentTree<V> empty() {
+        return (PersistentTree<V>) EMPTY;
+    }
+
+    /**
+     * Creates a balanced node from the specified data.
+     * <p>
+     * The subtrees are expected to differ at most by two levels in height,
+     * which is the case after adding or removing a single node.
+     * 
+     * @param key
+     *            key of the node
+     * @param value
+     *            value of the node
+     * @param left
+     *            subtree with the lower keys
+     * @param right
+     *            subtree with the higher keys
+     * @return a balanced node containing the data
+     */
+    private static final <V> Node<V> balance(final long key, final V value,
+            final Node<V> left, final Node<V> right) {
+        final Node<V> node;
+
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                node = rotateRight(key, value, left, right);
+            } else {
+                node = rotateRight(key, value,
+                        rotateLeft(left.key, left.value, left.left, left.right),
+                        right);
+            }
+        } else if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                node = rotateLeft(key, value, left, right);
+            } else {
+                node = rotateLeft(key, value, left, rotateRight(right.key,
+                        right.value, right.left, right.right));
+            }
+        } else {
+            node = new Node<V>(key, value, left, right);
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the height of a subtree.
+     * 
+     * @param node
+     *            root of the subtree
+     * @return the height of the subtree
+     */
+    private static final int height(final Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Returns a subtree with the specified value set for the key.
+     * 
+     * @param node
+     *            root of the subtree
+     * @param key
+     *            key for the value
+     * @param value
+     *            value to set
+     * @return the new subtree
+     */
+    private static final <V> Node<V> put(final Node<V> node, final long key,
+            final V value) {
+        final Node<V> result;
+
+        if (node == null) {
+            result = new Node<V>(key, value, null, null);
+        } else if (key < node.key) {
+            result = balance(node.key, node.value, put(node.left, key, value),
+                    node.right);
+        } else if (key > node.key) {
+            result = balance(node.key, node.value, node.left,
+                    put(node.right, key, value));
+        } else {
+            result = new Node<V>(key, value, node.left, node.right);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a subtree without the specified key.
+     * 
+     * @param node
+     *            root of the subtree
+     * @param key
+     *            key to remove
+     * @return the new subtree
+     */
+    private static final <V> Node<V> remove(final Node<V> node,
+            final long key) {
+        final Node<V> result;
+        Node<V> min;
+
+        if (node == null) {
+            result = null;
+        } else if (key < node.key) {
+            result = balance(node.key, node.value, remove(node.left, key),
+                    node.right);
+        } else if (key > node.key) {
+            result = balance(node.key, node.value, node.left,
+                    remove(node.right, key));
+        } else if (node.left == null) {
+            result = node.right;
+        } else if (node.right == null) {
+            result = node.left;
+        } else {
+            // The lowest higher node takes the place of the removed one
+            min = node.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+
+            result = balance(min.key, min.value, node.left,
+                    remove(node.right, min.key));
+        }
+
+        return result;
+    }
+
+    /**
+     * Rotates a subtree to the left.
+     * 
+     * @param key
+     *            key of the root
+     * @param value
+     *            value of the root
+     * @param left
+     *            subtree with the lower keys
+     * @param right
+     *            subtree with the higher keys
+     * @return the rotated subtree
+     */
+    private static final <V> Node<V> rotateLeft(final long key, final V value,
+            final Node<V> left, final Node<V> right) {
+        return new Node<V>(right.key, right.value,
+                new Node<V>(key, value, left, right.left), right.right);
+    }
+
+    /**
+     * Rotates a subtree to the right.
+     * 
+     * @param key
+     *            key of the root
+     * @param value
+     *            value of the root
+     * @param left
+     *            subtree with the lower keys
+     * @param right
+     *            subtree with the higher keys
+     * @return the rotated subtree
+     */
+    private static final <V> Node<V> rotateRight(final long key,
+            final V value, final Node<V> left, final Node<V> right) {
+        return new Node<V>(left.key, left.value, left.left,
+                new Node<V>(key, value, left.right, right));
+    }
+
+    /**
+     * Returns the size of a subtree.
+     * 
+     * @param node
+     *            root of the subtree
+     * @return the size of the subtree
+     */
+    private static final int size(final Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Root of the tree.
+     */
+    private final Node<V> root;
+
+    /**
+     * Constructs a tree with the specified root.
+     * 
+     * @param node
+     *            root of the tree
+     */
+    private PersistentTree(final Node<V> node) {
+        super();
+
+        root = node;
+    }
+
+    /**
+     * Returns the value at the specified position.
+     * <p>
+     * The position follows the order of the keys.
+     * 
+     * @param index
+     *            position of the value
+     * @return the value at the position
+     */
+    public final V get(final int index) {
+        Node<V> node;
+        int position;
+
+        if ((index < 0) || (index >= size())) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Index %d out of bounds for size %d", index, size()));
+        }
+
+        node = root;
+        position = index;
+        while (position != size(node.left)) {
+            if (position < size(node.left)) {
+                node = node.left;
+            } else {
+                position -= size(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        return node.value;
+    }
+
+    @Override
+    public final Iterator<V> iterator() {
+        return new InOrderIterator<V>(root);
+    }
+
+    /**
+     * Returns a tree with the specified value set for the key.
+     * <p>
+     * If the key already exists, then its value is replaced.
+     * 
+     * @param key
+     *            key for the value
+     * @param value
+     *            value to set
+     * @return a tree with the value set
+     */
+    public final PersistentTree<V> put(final long key, final V value) {
+        return new PersistentTree<V>(put(root, key, value));
+    }
+
+    /**
+     * Returns a tree without the specified key.
+     * 
+     * @param key
+     *            key to remove
+     * @return a tree without the key
+     */
+    public final PersistentTree<V> remove(final long key) {
+        return new PersistentTree<V>(remove(root, key));
+    }
+
+    /**
+     * Returns the number of values in the tree.
+     * 
+     * @return the number of values in the tree
+     */
+    public final int size() {
+        return size(root);
+    }
+
+}
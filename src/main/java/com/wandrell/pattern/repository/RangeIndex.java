@@ -0,0 +1,445 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.Iterables;
+
+/**
+ * Sorted index for the entities stored in a repository.
+ * <p>
+ * Each entity is indexed by the {@code Comparable} key which a
+ * {@code Function} extracts from it, along a sequence number marking the order
+ * in which it was indexed. The entities are kept in a skip list sorted by
+ * both, so entities with the same key are kept in the order they were
+ * indexed. Finding the first entity in a range takes logarithmic time, and
+ * the rest of the range is read in order from there. Adding or removing an
+ * entity also takes logarithmic time, no matter how many entities share its
+ * key.
+ * <p>
+ * Entities with a {@code null} key are not indexed.
+ * <p>
+ * The skip list can be read while it is being updated, and readers will see
+ * each entity as it was before or after the change. Still, only one thread
+ * should update the index at a time.
+ * <p>
+ * As in the {@link HashIndex}, the position under which each entity was
+ * indexed is remembered, so entities are removed by identity even after
+ * modifying them.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+final class RangeIndex<V> implements EntityIndex<V> {
+
+    /**
+     * Iterator over the entities from the highest key to the lowest one.
+     * <p>
+     * The entities with the same key are still returned in the order they
+     * were indexed.
+     * 
+     * @param <V>
+     *            the type of the entities
+     */
+    private static final class DescendingIterator<V>
+            extends AbstractIterator<V> {
+
+        /**
+         * Entities with the key being read.
+         */
+        private Iterator<V>                              bucket;
+
+        /**
+         * Indexed entities.
+         */
+        private final ConcurrentSkipListMap<Position, V> entries;
+
+        /**
+         * Lowest position for the key being read.
+         * <p>
+         * It is {@code null} before reading the first key.
+         */
+        private Position                                 lowest;
+
+        /**
+         * Constructs an iterator over the received entities.
+         * 
+         * @param indexed
+         *            indexed entities
+         */
+        public DescendingIterator(
+                final ConcurrentSkipListMap<Position, V> indexed) {
+            super();
+
+            entries = indexed;
+            bucket = Collections.<V> emptyList().iterator();
+        }
+
+        @Override
+        protected final V computeNext() {
+            final V entity;          // Next entity
+            Entry<Position, V> last; // Last entity with the next key
+            boolean ended;           // Flag marking the end of the entities
+
+            ended = false;
+            while ((!ended) && (!bucket.hasNext())) {
+                if (lowest == null) {
+                    last = entries.lastEntry();
+                } else {
+                    last = entries.lowerEntry(lowest);
+                }
+
+                if (last == null) {
+                    ended = true;
+                } else {
+                    lowest = new Position(last.getKey().key, Long.MIN_VALUE);
+                    bucket = entries.subMap(lowest, true, last.getKey(), true)
+                            .values().iterator();
+                }
+            }
+
+            if (ended) {
+                entity = endOfData();
+            } else {
+                entity = bucket.next();
+            }
+
+            return entity;
+        }
+
+    }
+
+    /**
+     * Position of an entity in the index.
+     * <p>
+     * Positions are sorted by key, and then by sequence number.
+     */
+    private static final class Position implements Comparable<Position> {
+
+        /**
+         * Key of the entity.
+         */
+        private final Comparable<Object> key;
+
+        /**
+         * Next position of the same entity, if it was indexed more than once.
+         */
+        private Position                 next;
+
+        /**
+         * Sequence number, marking the order in which it was indexed.
+         */
+        private final long               sequence;
+
+        /**
+         * Constructs a position with the specified key and sequence number.
+         * 
+         * @param value
+         *            key of the entity
+         * @param order
+         *            sequence number
+         */
+        @SuppressWarnings("unchecked")
+        public Position(final Object value, final long order) {
+            super();
+
+            key = (Comparable<Object>) value;
+            sequence = order;
+        }
+
+        @Override
+        public final int compareTo(final Position other) {
+            int comparison; // Comparison between the positions
+
+            comparison = key.compareTo(other.key);
+            if (comparison == 0) {
+                comparison = Long.compare(sequence, other.sequence);
+            }
+
+            return comparison;
+        }
+
+    }
+
+    /**
+     * Indexed entities, sorted by their positions.
+     */
+    private final ConcurrentSkipListMap<Position, V>           entries;
+
+    /**
+     * Function extracting the key from each entity.
+     */
+    private final Function<? super V, ? extends Comparable<?>> keyExtractor;
+
+    /**
+     * First position under which each entity was indexed.
+     */
+    private final Map<V, Position>                             positions;
+
+    /**
+     * Sequence number for the next indexed entity.
+     */
+    private long                                               sequence;
+
+    /**
+     * Constructs an index using the specified function to extract the keys.
+     * 
+     * @param extractor
+     *            function extracting the key from each entity
+     */
+    public RangeIndex(
+            final Function<? super V, ? extends Comparable<?>> extractor) {
+        super();
+
+        keyExtractor = checkNotNull(extractor,
+                "Received a null pointer as key extractor");
+
+        entries = new ConcurrentSkipListMap<Position, V>();
+        positions = new IdentityHashMap<V, Position>();
+        sequence = 0;
+    }
+
+    @Override
+    public final void add(final V entity) {
+        final Object key;        // Key for the entity
+        final Position position; // Position for the entity
+        Position last;           // Last position of the entity
+
+        key = keyExtractor.apply(entity);
+
+        if (key != null) {
+            position = new Position(key, sequence);
+            sequence++;
+
+            entries.put(position, entity);
+
+            if (positions.containsKey(entity)) {
+                // The instance is indexed more than once
+                last = positions.get(entity);
+                while (last.next != null) {
+                    last = last.next;
+                }
+                last.next = position;
+            } else {
+                positions.put(entity, position);
+            }
+        }
+    }
+
+    /**
+     * Returns the first entity indexed with the lowest key greater or equal
+     * to the received one.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the first entity with the ceiling key, or {@code null} if there
+     *         is none
+     */
+    public final V ceiling(final Comparable<?> key) {
+        return getValue(
+                entries.ceilingEntry(new Position(key, Long.MIN_VALUE)));
+    }
+
+    /**
+     * Returns the first entity indexed with the greatest key lower or equal
+     * to the received one.
+     * 
+     * @param key
+     *            the key to search for
+     * @return the first entity with the floor key, or {@code null} if there
+     *         is none
+     */
+    public final V floor(final Comparable<?> key) {
+        final Entry<Position, V> floor; // Last entity with the floor key
+        Entry<Position, V> first;       // First entity with the floor key
+
+        floor = entries.floorEntry(new Position(key, Long.MAX_VALUE));
+        if (floor == null) {
+            first = null;
+        } else {
+            first = entries.subMap(
+                    new Position(floor.getKey().key, Long.MIN_VALUE), true,
+                    floor.getKey(), true).firstEntry();
+            if (first == null) {
+                // The floor entity was removed in the meantime
+                first = floor;
+            }
+        }
+
+        return getValue(first);
+    }
+
+    /**
+     * Returns a lazy view of the entities in the specified range, sorted by
+     * their keys.
+     * <p>
+     * The view reads the index while being iterated. If the lowest key is
+     * greater than the highest one, or they are the same and any of them is
+     * excluded, the range is empty.
+     * 
+     * @param from
+     *            lowest key
+     * @param fromInclusive
+     *            flag marking if the lowest key is included
+     * @param to
+     *            highest key
+     * @param toInclusive
+     *            flag marking if the highest key is included
+     * @return the entities with keys in the range
+     */
+    @SuppressWarnings("unchecked")
+    public final FluentIterable<V> range(final Comparable<?> from,
+            final boolean fromInclusive, final Comparable<?> to,
+            final boolean toInclusive) {
+        final FluentIterable<V> entities; // Entities in the range
+        final int comparison;             // Comparison between the limits
+        final Position lowest;            // Lowest position in the range
+        final Position highest;           // Highest position in the range
+
+        comparison = ((Comparable<Object>) from).compareTo(to);
+        if ((comparison > 0)
+                || ((comparison == 0) && !(fromInclusive && toInclusive))) {
+            entities = FluentIterable.from(Collections.<V> emptyList());
+        } else {
+            if (fromInclusive) {
+                lowest = new Position(from, Long.MIN_VALUE);
+            } else {
+                lowest = new Position(from, Long.MAX_VALUE);
+            }
+            if (toInclusive) {
+                highest = new Position(to, Long.MAX_VALUE);
+            } else {
+                highest = new Position(to, Long.MIN_VALUE);
+            }
+
+            entities = getView(
+                    entries.subMap(lowest, true, highest, true).values());
+        }
+
+        return entities;
+    }
+
+    @Override
+    public final void remove(final V entity) {
+        final Position position; // First position of the entity
+
+        if (positions.containsKey(entity)) {
+            position = positions.get(entity);
+
+            entries.remove(position);
+
+            // The instance may have been indexed more than once
+            if (position.next == null) {
+                positions.remove(entity);
+            } else {
+                positions.put(entity, position.next);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entities in the index.
+     * <p>
+     * Each instance is counted once, even if it was indexed more than once.
+     * 
+     * @return the number of entities in the index
+     */
+    public final int size() {
+        return positions.size();
+    }
+
+    /**
+     * Returns a lazy view of all the indexed entities, sorted by their keys.
+     * <p>
+     * The entities with the same key are always in the order they were
+     * indexed, even when sorting from the highest key.
+     * 
+     * @param descending
+     *            flag marking if the entities are sorted from the highest key
+     * @return all the indexed entities, sorted
+     */
+    public final FluentIterable<V> sorted(final boolean descending) {
+        final FluentIterable<V> sorted; // Sorted entities
+
+        if (descending) {
+            sorted = FluentIterable.from(new Iterable<V>() {
+
+                @Override
+                public final Iterator<V> iterator() {
+                    return new DescendingIterator<V>(entries);
+                }
+
+            });
+        } else {
+            sorted = getView(entries.values());
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Returns the entity in an entry.
+     * 
+     * @param entry
+     *            the entry for the entity, may be {@code null}
+     * @return the entity in the entry, or {@code null} if there is none
+     */
+    private final V getValue(final Entry<Position, V> entry) {
+        final V entity; // Entity in the entry
+
+        if (entry == null) {
+            entity = null;
+        } else {
+            entity = entry.getValue();
+        }
+
+        return entity;
+    }
+
+    /**
+     * Returns a lazy view of the received entities, which can't be used to
+     * remove them.
+     * 
+     * @param entities
+     *            the entities to view
+     * @return a lazy view of the entities
+     */
+    private final FluentIterable<V> getView(final Iterable<V> entities) {
+        return FluentIterable.from(Iterables.unmodifiableIterable(entities));
+    }
+
+}
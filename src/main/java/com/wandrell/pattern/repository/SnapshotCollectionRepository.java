@@ -0,0 +1,310 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+
+/**
+ * Collection-based implementation of
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * which reads from immutable snapshots.
+ * <p>
+ * The entities are kept in a persistent tree. Each modification creates a new
+ * version of the tree, which shares with the previous one all the entities
+ * which were not modified, and then publishes it. Meanwhile, the older
+ * versions are never changed.
+ * <p>
+ * This means that:
+ * <ul>
+ * <li>{@link #getAll() getAll} just returns the current version, wrapped in an
+ * immutable {@code List}, in constant time and without copying anything.</li>
+ * <li>{@link #getCollection(Predicate) getCollection} and
+ * {@link #getEntity(Predicate) getEntity} filter the current version.</li>
+ * <li>Readers never block, nor are blocked by writers. Each of them sees the
+ * version which was current when it started reading, even if entities are
+ * added or removed at the same time.</li>
+ * <li>Writers are applied one at a time, each of them taking logarithmic time.
+ * </li>
+ * </ul>
+ * <p>
+ * Like the {@link ConcurrentCollectionRepository}, each entity is identified by
+ * the key generated for it by a function, only one entity is kept for each
+ * key, and updating an entity replaces it in the same position.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class SnapshotCollectionRepository<V>
+        implements FilteredRepository<V, Predicate<V>> {
+
+    /**
+     * Immutable view of a version of the entities.
+     * 
+     * @param <V>
+     *            the type stored on the repository
+     */
+    private static final class SnapshotList<V> extends AbstractList<V> {
+
+        /**
+         * The version being viewed.
+         */
+        private final PersistentTree<V> tree;
+
+        /**
+         * Constructs a view of the specified version.
+         * 
+         * @param version
+         *            the version to view
+         */
+        public SnapshotList(final PersistentTree<V> version) {
+            super();
+
+            tree = version;
+        }
+
+        @Override
+        public final V get(final int index) {
+            return tree.get(index);
+        }
+
+        @Override
+        public final Iterator<V> iterator() {
+            return tree.iterator();
+        }
+
+        @Override
+        public final int size() {
+            return tree.size();
+        }
+
+    }
+
+    /**
+     * Current version of the entities, sorted by insertion order.
+     * <p>
+     * Each entity is identified by a sequence number, assigned when adding it.
+     */
+    private volatile PersistentTree<V>  entities = PersistentTree.empty();
+
+    /**
+     * Function generating the key for each entity.
+     */
+    private final Function<? super V, ?> keyFunction;
+
+    /**
+     * Lock for the writing operations.
+     */
+    private final Object                 lock     = new Object();
+
+    /**
+     * Sequence number assigned to each key.
+     * <p>
+     * This is only accessed by the writers.
+     */
+    private final Map<Object, Long>      positions = new HashMap<Object, Long>();
+
+    /**
+     * Last sequence number assigned.
+     */
+    private long                         sequence  = 0;
+
+    /**
+     * Constructs a {@code SnapshotCollectionRepository} which identifies the
+     * entities with an {@link EntityKeyFunction}.
+     */
+    public SnapshotCollectionRepository() {
+        this(new EntityKeyFunction());
+    }
+
+    /**
+     * Constructs a {@code SnapshotCollectionRepository} which identifies the
+     * entities with the specified key function.
+     * 
+     * @param function
+     *            function generating the key for each entity
+     */
+    public SnapshotCollectionRepository(
+            final Function<? super V, ?> function) {
+        super();
+
+        keyFunction = checkNotNull(function,
+                "Received a null pointer as key function");
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * If an entity with the same key is already stored, then the operation
+     * will be ignored.
+     * 
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        final Object key;
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = getKey(entity);
+
+        synchronized (lock) {
+            if (!positions.containsKey(key)) {
+                sequence++;
+                positions.put(key, sequence);
+                entities = entities.put(sequence, entity);
+            }
+        }
+    }
+
+    /**
+     * Returns all the entities contained in the repository.
+     * <p>
+     * This is an immutable snapshot of the repository, which won't change even
+     * if the repository is modified. It is acquired in constant time.
+     * 
+     * @return all the entities contained in the repository
+     */
+    @Override
+    public final Collection<V> getAll() {
+        return new SnapshotList<V>(entities);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a subset of them.
+     * <p>
+     * The entities are filtered from a snapshot of the repository, so the
+     * result won't be affected by modifications made while filtering.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @return the filtered subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter) {
+        final List<V> result;
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        result = new ArrayList<V>();
+        for (final V entity : entities) {
+            if (filter.apply(entity)) {
+                result.add(entity);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public final V getEntity(final Predicate<V> filter) {
+        final Iterator<V> itr;
+        V entity;
+        V next;
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        entity = null;
+        itr = entities.iterator();
+        while ((entity == null) && itr.hasNext()) {
+            next = itr.next();
+            if (filter.apply(next)) {
+                entity = next;
+            }
+        }
+
+        return entity;
+    }
+
+    @Override
+    public final void remove(final V entity) {
+        final Object key;
+        final Long position;
+
+        if (entity != null) {
+            key = getKey(entity);
+
+            synchronized (lock) {
+                position = positions.remove(key);
+                if (position != null) {
+                    entities = entities.remove(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The entity stored with the same key is replaced by the received one,
+     * which takes its position. If there is no entity with the same key, then
+     * nothing is done.
+     * 
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        final Object key;
+        final Long position;
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = getKey(entity);
+
+        synchronized (lock) {
+            position = positions.get(key);
+            if (position != null) {
+                entities = entities.put(position, entity);
+            }
+        }
+    }
+
+    /**
+     * Returns the key for the specified entity.
+     * 
+     * @param entity
+     *            entity to generate the key for
+     * @return the key for the entity
+     */
+    private final Object getKey(final V entity) {
+        return checkNotNull(keyFunction.apply(entity),
+                "Generated a null pointer as key");
+    }
+
+}
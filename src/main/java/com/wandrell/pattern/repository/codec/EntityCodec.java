@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Transforms entities into bytes, and those bytes back into entities.
+ * <p>
+ * The bytes generated for an entity should contain all the data required to
+ * recreate it, as repositories using a codec will only store them.
+ * <p>
+ * When decoding, the bytes to read are the ones between the position and the
+ * limit of the received {@code ByteBuffer}. These will be the same bytes which
+ * the codec generated, so it is free to choose their layout. For example,
+ * writing the identifier first allows filtering entities by their identifier
+ * just by reading the first bytes, without decoding them.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type to encode
+ */
+public interface EntityCodec<V> {
+
+    /**
+     * Recreates an entity from the received bytes.
+     * <p>
+     * These are the bytes remaining in the buffer, which are always the same
+     * which were generated by {@link #encode(Object) encode}.
+     *
+     * @param buffer
+     *            the bytes to decode
+     * @return the decoded entity
+     */
+    public V decode(final ByteBuffer buffer);
+
+    /**
+     * Transforms the received entity into bytes.
+     *
+     * @param entity
+     *            the entity to encode
+     * @return the entity encoded as bytes
+     */
+    public byte[] encode(final V entity);
+
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.codec;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code EntityCodec} using Java serialization.
+ * <p>
+ * This works with any {@code Serializable} entity, but the generated bytes are
+ * not easy to read without decoding them. When filtering the encoded entities
+ * is important a custom codec should be used instead.
+ * <p>
+ * Any {@code IOException} or {@code ClassNotFoundException} thrown while
+ * serializing is wrapped in an {@code IllegalStateException}.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type to encode
+ */
+public final class SerializationCodec<V extends Serializable>
+        implements EntityCodec<V> {
+
+    /**
+     * Type of the decoded entities.
+     */
+    private final Class<V> type;
+
+    /**
+     * Constructs a codec for the specified type.
+     *
+     * @param entityType
+     *            type of the entities to encode
+     */
+    public SerializationCodec(final Class<V> entityType) {
+        super();
+
+        type = checkNotNull(entityType,
+                "Received a null pointer as the entity type");
+    }
+
+    @Override
+    public final V decode(final ByteBuffer buffer) {
+        final byte[] bytes;            // Encoded entity
+        final ObjectInputStream input; // Stream for reading the entity
+        final V entity;                // Decoded entity
+
+        checkNotNull(buffer, "Received a null pointer as the buffer");
+
+        bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        try {
+            input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                entity = getType().cast(input.readObject());
+            } finally {
+                input.close();
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return entity;
+    }
+
+    @Override
+    public final byte[] encode(final V entity) {
+        final ByteArrayOutputStream bytes; // Encoded entity
+        final ObjectOutputStream output;   // Stream for writing the entity
+
+        checkNotNull(entity, "Received a null pointer as the entity");
+
+        bytes = new ByteArrayOutputStream();
+        try {
+            output = new ObjectOutputStream(bytes);
+            try {
+                output.writeObject(entity);
+            } finally {
+                output.close();
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns the type of the decoded entities.
+     *
+     * @return the type of the decoded entities
+     */
+    private final Class<V> getType() {
+        return type;
+    }
+
+}
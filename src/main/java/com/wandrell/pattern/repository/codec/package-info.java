@@ -0,0 +1,40 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Codecs for transforming entities into bytes and back.
+ * <p>
+ * These are used by those repositories which keep the entities outside the
+ * Java heap, such as the
+ * {@link com.wandrell.pattern.repository.offheap.OffHeapRepository
+ * OffHeapRepository}.
+ * <h2>Implementations</h2>
+ * <p>
+ * The {@link com.wandrell.pattern.repository.codec.EntityCodec EntityCodec}
+ * interface is the base for all the codecs. The
+ * {@link com.wandrell.pattern.repository.codec.SerializationCodec
+ * SerializationCodec} is offered for any {@code Serializable} entity.
+ */
+
+package com.wandrell.pattern.repository.codec;
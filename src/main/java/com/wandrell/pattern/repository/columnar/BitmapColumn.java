@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+/**
+ * Column keeping a bitmap of rows for each distinct value.
+ * <p>
+ * Filtering by a value just takes its bitmap, without checking the rows, and
+ * filtering by several values joins their bitmaps. The bitmaps are
+ * compressed, so this works best with columns having few distinct values,
+ * such as states or types.
+ * <p>
+ * Values are compared through their {@code equals} and {@code hashCode}
+ * methods.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities
+ */
+final class BitmapColumn<V> extends Column<V, Object> {
+
+    /**
+     * Rows for each value.
+     */
+    private final Map<Object, RowBitmap> bitmaps;
+
+    /**
+     * Value in each row.
+     */
+    private Object[]                     values;
+
+    /**
+     * Constructs a column using the specified extractor.
+     *
+     * @param function
+     *            function taking the value from each entity
+     */
+    public BitmapColumn(final Function<? super V, ?> function) {
+        super(function);
+
+        bitmaps = new HashMap<Object, RowBitmap>();
+        values = new Object[0];
+    }
+
+    @Override
+    public final void clear(final int row) {
+        final Object value;     // Value in the row
+        final RowBitmap bitmap; // Rows for the value
+
+        value = values[row];
+        if (value != null) {
+            bitmap = bitmaps.get(value);
+            bitmap.remove(row);
+            if (bitmap.getCardinality() == 0) {
+                bitmaps.remove(value);
+            }
+            values[row] = null;
+        }
+    }
+
+    /**
+     * Returns the rows with any of the specified values.
+     * <p>
+     * The bitmaps for those values are joined into the result.
+     *
+     * @param accepted
+     *            values to find
+     * @param rows
+     *            number of rows to check
+     * @return the rows with any of the values
+     */
+    public final long[] in(final Collection<?> accepted, final int rows) {
+        final long[] bits; // Matching rows
+        RowBitmap bitmap;  // Rows for the value
+
+        bits = new long[Bits.words(rows)];
+        for (final Object value : accepted) {
+            bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.orInto(bits);
+            }
+        }
+
+        return bits;
+    }
+
+    @Override
+    protected final void copy(final int from, final int to) {
+        final Object value; // Value to copy
+
+        value = values[from];
+        clear(to);
+        clear(from);
+        if (value != null) {
+            store(to, value);
+        }
+    }
+
+    @Override
+    protected final int getCapacity() {
+        return values.length;
+    }
+
+    @Override
+    protected final void grow(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected final void store(final int row, final Object value) {
+        RowBitmap bitmap; // Rows for the value
+
+        if (!value.equals(values[row])) {
+            clear(row);
+
+            bitmap = bitmaps.get(value);
+            if (bitmap == null) {
+                bitmap = new RowBitmap();
+                bitmaps.put(value, bitmap);
+            }
+            bitmap.add(row);
+            values[row] = value;
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+/**
+ * Operations on bitsets stored in {@code long} arrays.
+ * <p>
+ * These are used to mark the rows of a columnar repository, where each bit
+ * stands for a row. Bit {@code i} is kept in the word {@code i / 64}.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class Bits {
+
+    /**
+     * Keeps in the target only the bits set in both bitsets.
+     *
+     * @param target
+     *            bitset to modify
+     * @param other
+     *            bitset to combine with the target
+     */
+    public static final void and(final long[] target, final long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+    /**
+     * Removes from the target the bits set in the other bitset.
+     *
+     * @param target
+     *            bitset to modify
+     * @param other
+     *            bitset to remove from the target
+     */
+    public static final void andNot(final long[] target,
+            final long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~other[i];
+        }
+    }
+
+    /**
+     * Clears the specified bit.
+     *
+     * @param bits
+     *            bitset to modify
+     * @param index
+     *            index of the bit
+     */
+    public static final void clear(final long[] bits, final int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Counts the bits set.
+     *
+     * @param bits
+     *            bitset to check
+     * @return the number of bits set
+     */
+    public static final int count(final long[] bits) {
+        int count; // Bits set
+
+        count = 0;
+        for (final long word : bits) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the index of the first bit set, starting from the specified
+     * one.
+     *
+     * @param bits
+     *            bitset to check
+     * @param from
+     *            index to start from
+     * @return the index of the next bit set, or {@code -1} if there is none
+     */
+    public static final int next(final long[] bits, final int from) {
+        int index; // Index of the word being checked
+        long word; // Word being checked
+        int next;  // Next bit set
+
+        index = from >>> 6;
+        if (index >= bits.length) {
+            next = -1;
+        } else {
+            word = bits[index] & (-1L << from);
+            while ((word == 0) && (index + 1 < bits.length)) {
+                index++;
+                word = bits[index];
+            }
+
+            if (word == 0) {
+                next = -1;
+            } else {
+                next = (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * Flips all the bits for the specified number of rows.
+     *
+     * @param bits
+     *            bitset to modify
+     * @param rows
+     *            number of rows in the bitset
+     */
+    public static final void not(final long[] bits, final int rows) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = ~bits[i];
+        }
+
+        // Rows after the last one are kept clear
+        if ((rows & 63) != 0) {
+            bits[bits.length - 1] &= (1L << rows) - 1;
+        }
+    }
+
+    /**
+     * Joins into the target the bits set in the other bitset.
+     *
+     * @param target
+     *            bitset to modify
+     * @param other
+     *            bitset to join into the target
+     */
+    public static final void or(final long[] target, final long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+    /**
+     * Sets the specified bit.
+     *
+     * @param bits
+     *            bitset to modify
+     * @param index
+     *            index of the bit
+     */
+    public static final void set(final long[] bits, final int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Returns the number of words needed for the specified number of rows.
+     *
+     * @param rows
+     *            number of rows
+     * @return the number of words for the rows
+     */
+    public static final int words(final int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private Bits() {
+        super();
+    }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import java.util.Arrays;
+
+import com.google.common.base.Function;
+
+/**
+ * Column of a columnar repository.
+ * <p>
+ * Each column stores a single property of the entities, taken from them by an
+ * extractor function. The values are kept in arrays by the implementations,
+ * while this class keeps track of the rows where the value is {@code null}.
+ * Those rows never match any filter.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities
+ * @param <T>
+ *            the type of the values
+ */
+abstract class Column<V, T> {
+
+    /**
+     * Function taking the value from each entity.
+     */
+    private final Function<? super V, ? extends T> extractor;
+
+    /**
+     * Rows where the value is {@code null}.
+     */
+    private long[]                                 nulls = new long[0];
+
+    /**
+     * Constructs a column using the specified extractor.
+     *
+     * @param function
+     *            function taking the value from each entity
+     */
+    public Column(final Function<? super V, ? extends T> function) {
+        super();
+
+        extractor = function;
+    }
+
+    /**
+     * Drops the value in the specified row.
+     * <p>
+     * This is called when the row is removed, or when its value becomes
+     * {@code null}. By default nothing is done, as the value will be ignored
+     * or overwritten.
+     *
+     * @param row
+     *            row to clear
+     */
+    public void clear(final int row) {}
+
+    /**
+     * Makes sure the column has space for the specified number of rows.
+     *
+     * @param rows
+     *            number of rows to store
+     */
+    public final void ensureCapacity(final int rows) {
+        if (Bits.words(rows) > nulls.length) {
+            nulls = Arrays.copyOf(nulls,
+                    Math.max(Bits.words(rows), nulls.length * 2));
+        }
+        if (rows > getCapacity()) {
+            grow(Math.max(rows, getCapacity() * 2));
+        }
+    }
+
+    /**
+     * Moves the value in a row to another row.
+     *
+     * @param from
+     *            row to move
+     * @param to
+     *            row to store the value
+     */
+    public final void move(final int from, final int to) {
+        copy(from, to);
+        if ((nulls[from >>> 6] & (1L << from)) == 0) {
+            Bits.clear(nulls, to);
+        } else {
+            Bits.set(nulls, to);
+        }
+    }
+
+    /**
+     * Stores the value of the received entity in the specified row.
+     *
+     * @param row
+     *            row for the value
+     * @param entity
+     *            entity to take the value from
+     */
+    public final void set(final int row, final V entity) {
+        final T value; // Value for the row
+
+        value = extractor.apply(entity);
+        if (value == null) {
+            Bits.set(nulls, row);
+            clear(row);
+        } else {
+            Bits.clear(nulls, row);
+            store(row, value);
+        }
+    }
+
+    /**
+     * Removes the rows with {@code null} values from the received bitset.
+     *
+     * @param bits
+     *            bitset to modify
+     */
+    protected final void clearNulls(final long[] bits) {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= ~nulls[i];
+        }
+    }
+
+    /**
+     * Copies the value in a row to another row.
+     *
+     * @param from
+     *            row to copy
+     * @param to
+     *            row to store the value
+     */
+    protected abstract void copy(final int from, final int to);
+
+    /**
+     * Returns the number of rows the column can store.
+     *
+     * @return the capacity of the column
+     */
+    protected abstract int getCapacity();
+
+    /**
+     * Grows the column to the specified capacity.
+     *
+     * @param capacity
+     *            new capacity
+     */
+    protected abstract void grow(final int capacity);
+
+    /**
+     * Stores a value in the specified row.
+     *
+     * @param row
+     *            row for the value
+     * @param value
+     *            value to store, never {@code null}
+     */
+    protected abstract void store(final int row, final T value);
+
+}
@@ -0,0 +1,72 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+/**
+ * Filter for a {@link ColumnarRepository}.
+ * <p>
+ * Filters are applied to whole columns at once, and mark the rows they accept
+ * in a bitset. They are created through the static methods in
+ * {@link ColumnFilters}.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see ColumnFilters
+ */
+public abstract class ColumnFilter {
+
+    /**
+     * Constructs a filter.
+     * <p>
+     * Only the filters in this package are supported.
+     */
+    ColumnFilter() {
+        super();
+    }
+
+    /**
+     * Removes from the received bitset the rows with a {@code null} value in
+     * any of the columns checked by the filter.
+     *
+     * @param repository
+     *            repository being filtered
+     * @param bits
+     *            bitset to modify
+     */
+    abstract void clearNulls(final ColumnarRepository<?> repository,
+            final long[] bits);
+
+    /**
+     * Returns the rows accepted by the filter.
+     * <p>
+     * The returned bitset may include removed rows, which are discarded by
+     * the repository.
+     *
+     * @param repository
+     *            repository to filter
+     * @return the rows accepted by the filter
+     */
+    abstract long[] evaluate(final ColumnarRepository<?> repository);
+
+}
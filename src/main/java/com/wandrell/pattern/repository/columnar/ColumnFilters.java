@@ -0,0 +1,458 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Creates the filters for a {@link ColumnarRepository}.
+ * <p>
+ * Filters on a single column are evaluated by a loop over its values. These
+ * can then be combined with {@link #and(ColumnFilter...) and},
+ * {@link #or(ColumnFilter...) or} and {@link #not(ColumnFilter) not}, which
+ * are evaluated over the resulting bitsets, 64 rows at a time.
+ * <p>
+ * Rows where the column value is {@code null} are never accepted by the
+ * filters on that column, not even when they are negated.
+ * <p>
+ * Filters on bitmap columns don't need to check the rows, as they just take
+ * the bitmaps for the values they accept.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+public final class ColumnFilters {
+
+    /**
+     * Filter accepting the rows accepted by all the filters.
+     */
+    private static final class AndFilter extends ColumnFilter {
+
+        /**
+         * Filters to combine.
+         */
+        private final ColumnFilter[] filters;
+
+        /**
+         * Constructs a filter combining the received ones.
+         *
+         * @param combined
+         *            filters to combine
+         */
+        public AndFilter(final ColumnFilter[] combined) {
+            super();
+
+            filters = combined;
+        }
+
+        @Override
+        final void clearNulls(final ColumnarRepository<?> repository,
+                final long[] bits) {
+            for (final ColumnFilter filter : filters) {
+                filter.clearNulls(repository, bits);
+            }
+        }
+
+        @Override
+        final long[] evaluate(final ColumnarRepository<?> repository) {
+            final long[] bits; // Accepted rows
+
+            bits = filters[0].evaluate(repository);
+            for (int i = 1; i < filters.length; i++) {
+                Bits.and(bits, filters[i].evaluate(repository));
+            }
+
+            return bits;
+        }
+
+    }
+
+    /**
+     * Filter accepting the rows with a numeric value in a range.
+     */
+    private static final class BetweenFilter extends ColumnFilter {
+
+        /**
+         * Column to check.
+         */
+        private final String column;
+
+        /**
+         * Maximum value accepted.
+         */
+        private final long   max;
+
+        /**
+         * Minimum value accepted.
+         */
+        private final long   min;
+
+        /**
+         * Constructs a filter for the specified range.
+         *
+         * @param name
+         *            column to check
+         * @param minimum
+         *            minimum value accepted
+         * @param maximum
+         *            maximum value accepted
+         */
+        public BetweenFilter(final String name, final long minimum,
+                final long maximum) {
+            super();
+
+            column = name;
+            min = minimum;
+            max = maximum;
+        }
+
+        @Override
+        final void clearNulls(final ColumnarRepository<?> repository,
+                final long[] bits) {
+            repository.getColumn(column).clearNulls(bits);
+        }
+
+        @Override
+        final long[] evaluate(final ColumnarRepository<?> repository) {
+            final Column<?, ?> values; // Column to check
+            final long[] bits;         // Accepted rows
+            final int rows;            // Number of rows
+
+            values = repository.getColumn(column);
+            rows = repository.getRowCount();
+            if (values instanceof IntColumn) {
+                if ((min > Integer.MAX_VALUE) || (max < Integer.MIN_VALUE)) {
+                    bits = new long[Bits.words(rows)];
+                } else {
+                    bits = ((IntColumn<?>) values).between(
+                            (int) Math.max(min, Integer.MIN_VALUE),
+                            (int) Math.min(max, Integer.MAX_VALUE), rows);
+                }
+            } else if (values instanceof LongColumn) {
+                bits = ((LongColumn<?>) values).between(min, max, rows);
+            } else {
+                throw new IllegalArgumentException(String
+                        .format("The column %s is not numeric", column));
+            }
+
+            return bits;
+        }
+
+    }
+
+    /**
+     * Filter accepting the rows with any of a set of values.
+     */
+    private static final class InFilter extends ColumnFilter {
+
+        /**
+         * Column to check.
+         */
+        private final String        column;
+
+        /**
+         * Values accepted.
+         */
+        private final Collection<?> values;
+
+        /**
+         * Constructs a filter for the specified values.
+         *
+         * @param name
+         *            column to check
+         * @param accepted
+         *            values accepted
+         */
+        public InFilter(final String name, final Collection<?> accepted) {
+            super();
+
+            column = name;
+            values = accepted;
+        }
+
+        @Override
+        final void clearNulls(final ColumnarRepository<?> repository,
+                final long[] bits) {
+            repository.getColumn(column).clearNulls(bits);
+        }
+
+        @Override
+        final long[] evaluate(final ColumnarRepository<?> repository) {
+            final Column<?, ?> checked; // Column to check
+            final int rows;             // Number of rows
+            final long[] bits;          // Accepted rows
+
+            checked = repository.getColumn(column);
+            rows = repository.getRowCount();
+            if (checked instanceof BitmapColumn) {
+                bits = ((BitmapColumn<?>) checked).in(values, rows);
+            } else if (checked instanceof StringColumn) {
+                bits = ((StringColumn<?>) checked).in(values, rows);
+            } else {
+                // Numeric columns check each value as a range
+                bits = new long[Bits.words(rows)];
+                for (final Object value : values) {
+                    checkArgument(value instanceof Number,
+                            "The column %s only accepts numbers", column);
+                    Bits.or(bits, new BetweenFilter(column,
+                            ((Number) value).longValue(),
+                            ((Number) value).longValue())
+                                    .evaluate(repository));
+                }
+            }
+
+            return bits;
+        }
+
+    }
+
+    /**
+     * Filter accepting the rows not accepted by another filter.
+     */
+    private static final class NotFilter extends ColumnFilter {
+
+        /**
+         * Filter to negate.
+         */
+        private final ColumnFilter filter;
+
+        /**
+         * Constructs a filter negating the received one.
+         *
+         * @param negated
+         *            filter to negate
+         */
+        public NotFilter(final ColumnFilter negated) {
+            super();
+
+            filter = negated;
+        }
+
+        @Override
+        final void clearNulls(final ColumnarRepository<?> repository,
+                final long[] bits) {
+            filter.clearNulls(repository, bits);
+        }
+
+        @Override
+        final long[] evaluate(final ColumnarRepository<?> repository) {
+            final long[] bits; // Accepted rows
+
+            bits = filter.evaluate(repository);
+            Bits.not(bits, repository.getRowCount());
+            // Null values are not accepted by the negation either
+            filter.clearNulls(repository, bits);
+
+            return bits;
+        }
+
+    }
+
+    /**
+     * Filter accepting the rows accepted by any of the filters.
+     */
+    private static final class OrFilter extends ColumnFilter {
+
+        /**
+         * Filters to combine.
+         */
+        private final ColumnFilter[] filters;
+
+        /**
+         * Constructs a filter combining the received ones.
+         *
+         * @param combined
+         *            filters to combine
+         */
+        public OrFilter(final ColumnFilter[] combined) {
+            super();
+
+            filters = combined;
+        }
+
+        @Override
+        final void clearNulls(final ColumnarRepository<?> repository,
+                final long[] bits) {
+            for (final ColumnFilter filter : filters) {
+                filter.clearNulls(repository, bits);
+            }
+        }
+
+        @Override
+        final long[] evaluate(final ColumnarRepository<?> repository) {
+            final long[] bits; // Accepted rows
+
+            bits = filters[0].evaluate(repository);
+            for (int i = 1; i < filters.length; i++) {
+                Bits.or(bits, filters[i].evaluate(repository));
+            }
+
+            return bits;
+        }
+
+    }
+
+    /**
+     * Returns a filter accepting the rows accepted by all the received
+     * filters.
+     *
+     * @param filters
+     *            filters to combine
+     * @return a filter combining the received ones
+     */
+    public static final ColumnFilter and(final ColumnFilter... filters) {
+        return new AndFilter(checkFilters(filters));
+    }
+
+    /**
+     * Returns a filter accepting the rows with a value in the specified
+     * range, both limits included.
+     * <p>
+     * The column should contain numbers.
+     *
+     * @param column
+     *            column to check
+     * @param min
+     *            minimum value accepted
+     * @param max
+     *            maximum value accepted
+     * @return a filter for the range
+     */
+    public static final ColumnFilter between(final String column,
+            final long min, final long max) {
+        checkNotNull(column, "Received a null pointer as column");
+
+        return new BetweenFilter(column, min, max);
+    }
+
+    /**
+     * Returns a filter accepting the rows with the specified value.
+     * <p>
+     * The column should contain numbers.
+     *
+     * @param column
+     *            column to check
+     * @param value
+     *            value accepted
+     * @return a filter for the value
+     */
+    public static final ColumnFilter equal(final String column,
+            final long value) {
+        return between(column, value, value);
+    }
+
+    /**
+     * Returns a filter accepting the rows with the specified value.
+     * <p>
+     * Values are compared through their {@code equals} method, except for
+     * numeric columns, which compare them as {@code long} values.
+     *
+     * @param column
+     *            column to check
+     * @param value
+     *            value accepted
+     * @return a filter for the value
+     */
+    public static final ColumnFilter equal(final String column,
+            final Object value) {
+        return in(column, value);
+    }
+
+    /**
+     * Returns a filter accepting the rows with any of the specified values.
+     * <p>
+     * Values are compared through their {@code equals} method, except for
+     * numeric columns, which compare them as {@code long} values.
+     * <p>
+     * For bitmap columns this just joins the bitmaps for each value.
+     *
+     * @param column
+     *            column to check
+     * @param values
+     *            values accepted
+     * @return a filter for the values
+     */
+    public static final ColumnFilter in(final String column,
+            final Object... values) {
+        checkNotNull(column, "Received a null pointer as column");
+        checkNotNull(values, "Received a null pointer as values");
+
+        return new InFilter(column, Arrays.asList(values.clone()));
+    }
+
+    /**
+     * Returns a filter accepting the rows not accepted by the received one.
+     *
+     * @param filter
+     *            filter to negate
+     * @return a filter negating the received one
+     */
+    public static final ColumnFilter not(final ColumnFilter filter) {
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        return new NotFilter(filter);
+    }
+
+    /**
+     * Returns a filter accepting the rows accepted by any of the received
+     * filters.
+     *
+     * @param filters
+     *            filters to combine
+     * @return a filter combining the received ones
+     */
+    public static final ColumnFilter or(final ColumnFilter... filters) {
+        return new OrFilter(checkFilters(filters));
+    }
+
+    /**
+     * Validates the filters to combine.
+     *
+     * @param filters
+     *            filters to check
+     * @return the received filters
+     */
+    private static final ColumnFilter[]
+            checkFilters(final ColumnFilter[] filters) {
+        checkNotNull(filters, "Received a null pointer as filters");
+        checkArgument(filters.length > 0, "Received no filters");
+        for (final ColumnFilter filter : filters) {
+            checkNotNull(filter, "Received a null pointer as filter");
+        }
+
+        return filters.clone();
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private ColumnFilters() {
+        super();
+    }
+
+}
@@ -0,0 +1,599 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+
+/**
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * which filters the entities through columns storing their properties.
+ * <p>
+ * Each column is declared with a name and a function taking a property from
+ * the entities. Its values are stored in a primitive array for numbers, or
+ * encoded through a dictionary for text, so filtering over a column is a loop
+ * over a single array, instead of going through each entity.
+ * <p>
+ * The filters are created with {@link ColumnFilters}. They mark the rows
+ * which they accept in a bitset, and only the entities in those rows are
+ * returned. For example:
+ * <p>
+ * {@code repository.getCollection(and(between("id", 10, 20), equal("name", "a")))}
+ * <p>
+ * Properties with few distinct values can be stored in bitmap columns, which
+ * keep a compressed bitmap of rows for each value. Filtering by these values,
+ * or counting them with {@link #count(ColumnFilter) count}, does not require
+ * checking each row. The entities accepted by a filter can also be read
+ * lazily through {@link #getView(ColumnFilter) getView}.
+ * <p>
+ * The entities themselves are kept along the columns, in the same rows, and
+ * returned in the order they were added. If they are modified, then they
+ * should be updated in the repository so the columns are updated too.
+ * <p>
+ * As in the {@link com.wandrell.pattern.repository.ConcurrentCollectionRepository
+ * ConcurrentCollectionRepository}, each entity is identified by the key
+ * generated for it by a function, and only one entity is kept for each key.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class ColumnarRepository<V>
+        implements FilteredRepository<V, ColumnFilter> {
+
+    /**
+     * Unmodifiable view of the entities in a set of rows.
+     * <p>
+     * The entities are read only while iterating. If the repository is
+     * modified afterwards, then iterating throws a
+     * {@code ConcurrentModificationException}.
+     */
+    private final class RowView extends AbstractCollection<V> {
+
+        /**
+         * Rows in the view.
+         */
+        private final long[] bits;
+
+        /**
+         * Modifications of the repository when the view was created.
+         */
+        private final int    expected;
+
+        /**
+         * Number of rows in the view.
+         */
+        private final int    size;
+
+        /**
+         * Constructs a view of the specified rows.
+         *
+         * @param rows
+         *            rows in the view
+         */
+        public RowView(final long[] rows) {
+            super();
+
+            bits = rows;
+            size = Bits.count(rows);
+            expected = modifications;
+        }
+
+        @Override
+        public final Iterator<V> iterator() {
+            return new Iterator<V>() {
+
+                /**
+                 * Next row to return.
+                 */
+                private int row = Bits.next(bits, 0);
+
+                @Override
+                public final boolean hasNext() {
+                    return row >= 0;
+                }
+
+                @Override
+                public final V next() {
+                    final V entity; // Entity in the row
+
+                    if (modifications != expected) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (row < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    entity = entities.get(row);
+                    row = Bits.next(bits, row + 1);
+
+                    return entity;
+                }
+
+                @Override
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+        }
+
+        @Override
+        public final int size() {
+            return size;
+        }
+
+    }
+
+    /**
+     * Minimum number of removed rows before compacting the columns.
+     */
+    private static final int                MIN_COMPACTION = 16;
+
+    /**
+     * Columns, by their names.
+     */
+    private final Map<String, Column<V, ?>> columns;
+
+    /**
+     * Entity in each row.
+     * <p>
+     * Removed rows are {@code null}.
+     */
+    private final List<V>                   entities;
+
+    /**
+     * Function generating the key for each entity.
+     */
+    private final Function<? super V, ?>    keyFunction;
+
+    /**
+     * Rows which have not been removed.
+     */
+    private long[]                          live;
+
+    /**
+     * Number of times the repository has been modified.
+     */
+    private int                             modifications;
+
+    /**
+     * Number of removed rows.
+     */
+    private int                             removed;
+
+    /**
+     * Row for each key.
+     */
+    private final Map<Object, Integer>      rows;
+
+    /**
+     * Constructs a repository identifying the entities with an
+     * {@link EntityKeyFunction}.
+     */
+    public ColumnarRepository() {
+        this(new EntityKeyFunction());
+    }
+
+    /**
+     * Constructs a repository identifying the entities with the specified
+     * function.
+     *
+     * @param function
+     *            function generating the key for each entity
+     */
+    public ColumnarRepository(final Function<? super V, ?> function) {
+        super();
+
+        keyFunction = checkNotNull(function,
+                "Received a null pointer as key function");
+
+        columns = new LinkedHashMap<String, Column<V, ?>>();
+        entities = new ArrayList<V>();
+        rows = new HashMap<Object, Integer>();
+        live = new long[0];
+        modifications = 0;
+        removed = 0;
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * If there is already an entity with the same key, then nothing is done.
+     *
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        final Object key; // Key for the entity
+        final int row;    // Row for the entity
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = keyFunction.apply(entity);
+        if (!rows.containsKey(key)) {
+            row = entities.size();
+            entities.add(entity);
+
+            if (Bits.words(entities.size()) > live.length) {
+                live = Arrays.copyOf(live, Math.max(1, live.length * 2));
+            }
+            Bits.set(live, row);
+
+            for (final Column<V, ?> column : columns.values()) {
+                column.ensureCapacity(entities.size());
+                column.set(row, entity);
+            }
+
+            rows.put(key, row);
+            modifications++;
+        }
+    }
+
+    /**
+     * Adds a column keeping a compressed bitmap of rows for each value.
+     * <p>
+     * This is meant for properties having few distinct values, such as
+     * states or types. Filtering by them just takes the bitmaps for the
+     * accepted values, so it does not depend on the number of rows but on
+     * how many of them are accepted.
+     * <p>
+     * The column is filled with the entities already in the repository.
+     *
+     * @param name
+     *            name for the column
+     * @param extractor
+     *            function taking the value from each entity
+     */
+    public final void addBitmapColumn(final String name,
+            final Function<? super V, ?> extractor) {
+        checkNotNull(extractor, "Received a null pointer as extractor");
+
+        addColumn(name, new BitmapColumn<V>(extractor));
+    }
+
+    /**
+     * Adds a column for {@code int} values.
+     * <p>
+     * The column is filled with the entities already in the repository.
+     *
+     * @param name
+     *            name for the column
+     * @param extractor
+     *            function taking the value from each entity
+     */
+    public final void addIntColumn(final String name,
+            final Function<? super V, Integer> extractor) {
+        checkNotNull(extractor, "Received a null pointer as extractor");
+
+        addColumn(name, new IntColumn<V>(extractor));
+    }
+
+    /**
+     * Adds a column for {@code long} values.
+     * <p>
+     * The column is filled with the entities already in the repository.
+     *
+     * @param name
+     *            name for the column
+     * @param extractor
+     *            function taking the value from each entity
+     */
+    public final void addLongColumn(final String name,
+            final Function<? super V, Long> extractor) {
+        checkNotNull(extractor, "Received a null pointer as extractor");
+
+        addColumn(name, new LongColumn<V>(extractor));
+    }
+
+    /**
+     * Adds a column for text values.
+     * <p>
+     * The values are encoded through a dictionary, so this works best with
+     * properties having few distinct values.
+     * <p>
+     * The column is filled with the entities already in the repository.
+     *
+     * @param name
+     *            name for the column
+     * @param extractor
+     *            function taking the value from each entity
+     */
+    public final void addStringColumn(final String name,
+            final Function<? super V, String> extractor) {
+        checkNotNull(extractor, "Received a null pointer as extractor");
+
+        addColumn(name, new StringColumn<V>(extractor));
+    }
+
+    /**
+     * Returns the number of entities accepted by the filter.
+     * <p>
+     * This only checks the columns, and not the entities.
+     *
+     * @param filter
+     *            the filter to apply
+     * @return the number of entities accepted by the filter
+     */
+    public final int count(final ColumnFilter filter) {
+        return Bits.count(select(filter));
+    }
+
+    @Override
+    public final Collection<V> getAll() {
+        final Collection<V> result; // Stored entities
+
+        result = new ArrayList<V>(rows.size());
+        for (final V entity : entities) {
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entities accepted by the filter.
+     * <p>
+     * The filter is applied to the columns, and only the entities in the
+     * accepted rows are read.
+     *
+     * @param filter
+     *            the filter to apply
+     * @return the entities accepted by the filter
+     */
+    @Override
+    public final Collection<V> getCollection(final ColumnFilter filter) {
+        final long[] bits;          // Accepted rows
+        final Collection<V> result; // Accepted entities
+        int row;                    // Accepted row
+
+        bits = select(filter);
+
+        result = new ArrayList<V>(Bits.count(bits));
+        row = Bits.next(bits, 0);
+        while (row >= 0) {
+            result.add(entities.get(row));
+            row = Bits.next(bits, row + 1);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the first entity accepted by the filter.
+     *
+     * @param filter
+     *            the filter to apply
+     * @return the first entity accepted by the filter, or {@code null} if
+     *         there is none
+     */
+    @Override
+    public final V getEntity(final ColumnFilter filter) {
+        final int row;  // First accepted row
+        final V entity; // First accepted entity
+
+        row = Bits.next(select(filter), 0);
+        if (row < 0) {
+            entity = null;
+        } else {
+            entity = entities.get(row);
+        }
+
+        return entity;
+    }
+
+    /**
+     * Returns a view of the entities accepted by the filter.
+     * <p>
+     * The filter is applied when calling this method, but the entities are
+     * read only when iterating the view. Its size is known without reading
+     * them.
+     * <p>
+     * The view can't be modified, and it should not be used after modifying
+     * the repository. If that happens, iterating it will throw a
+     * {@code ConcurrentModificationException}.
+     *
+     * @param filter
+     *            the filter to apply
+     * @return a view of the entities accepted by the filter
+     */
+    public final Collection<V> getView(final ColumnFilter filter) {
+        return new RowView(select(filter));
+    }
+
+    /**
+     * Removes the entity with the same key as the received one.
+     *
+     * @param entity
+     *            the entity to remove
+     */
+    @Override
+    public final void remove(final V entity) {
+        final Integer row; // Row of the entity
+
+        if (entity != null) {
+            row = rows.remove(keyFunction.apply(entity));
+            if (row != null) {
+                entities.set(row, null);
+                Bits.clear(live, row);
+                for (final Column<V, ?> column : columns.values()) {
+                    column.clear(row);
+                }
+                removed++;
+                modifications++;
+
+                if ((removed > MIN_COMPACTION) && (removed > rows.size())) {
+                    compact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The entity stored with the same key is replaced by the received one,
+     * and the columns take its values. If there is no entity with the same
+     * key, then nothing is done.
+     *
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        final Integer row; // Row of the entity
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        row = rows.get(keyFunction.apply(entity));
+        if (row != null) {
+            entities.set(row, entity);
+            for (final Column<V, ?> column : columns.values()) {
+                column.set(row, entity);
+            }
+            modifications++;
+        }
+    }
+
+    /**
+     * Returns the column with the specified name.
+     *
+     * @param name
+     *            name of the column
+     * @return the column with the name
+     */
+    final Column<V, ?> getColumn(final String name) {
+        final Column<V, ?> column; // Found column
+
+        column = columns.get(name);
+        checkArgument(column != null, "No column named %s exists", name);
+
+        return column;
+    }
+
+    /**
+     * Returns the number of rows in the columns, including the removed ones.
+     *
+     * @return the number of rows in the columns
+     */
+    final int getRowCount() {
+        return entities.size();
+    }
+
+    /**
+     * Adds a column, filling it with the stored entities.
+     *
+     * @param name
+     *            name for the column
+     * @param column
+     *            column to add
+     */
+    private final void addColumn(final String name,
+            final Column<V, ?> column) {
+        checkNotNull(name, "Received a null pointer as name");
+        checkArgument(!columns.containsKey(name),
+                "A column named %s already exists", name);
+
+        column.ensureCapacity(entities.size());
+        for (int row = 0; row < entities.size(); row++) {
+            if (entities.get(row) != null) {
+                column.set(row, entities.get(row));
+            }
+        }
+
+        columns.put(name, column);
+    }
+
+    /**
+     * Moves all the entities to the first rows, dropping the removed ones.
+     */
+    private final void compact() {
+        int target; // Row where the next entity is moved
+        V entity;   // Entity being moved
+
+        target = 0;
+        for (int row = 0; row < entities.size(); row++) {
+            entity = entities.get(row);
+            if (entity != null) {
+                if (row != target) {
+                    entities.set(target, entity);
+                    for (final Column<V, ?> column : columns.values()) {
+                        column.move(row, target);
+                    }
+                    rows.put(keyFunction.apply(entity), target);
+                }
+                target++;
+            }
+        }
+
+        entities.subList(target, entities.size()).clear();
+
+        live = new long[Bits.words(target)];
+        for (int row = 0; row < target; row++) {
+            Bits.set(live, row);
+        }
+        removed = 0;
+    }
+
+    /**
+     * Returns the rows accepted by the filter, excluding the removed ones.
+     *
+     * @param filter
+     *            the filter to apply
+     * @return the rows accepted by the filter
+     */
+    private final long[] select(final ColumnFilter filter) {
+        final long[] bits; // Accepted rows
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        bits = filter.evaluate(this);
+        Bits.and(bits, live);
+
+        return bits;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import java.util.Arrays;
+
+import com.google.common.base.Function;
+
+/**
+ * Column storing {@code long} values in a primitive array.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities
+ */
+final class LongColumn<V> extends Column<V, Long> {
+
+    /**
+     * Value for each row.
+     */
+    private long[] values = new long[0];
+
+    /**
+     * Constructs a column using the specified extractor.
+     *
+     * @param function
+     *            function taking the value from each entity
+     */
+    public LongColumn(final Function<? super V, ? extends Long> function) {
+        super(function);
+    }
+
+    /**
+     * Returns the rows with a value between the specified ones, both
+     * included.
+     * <p>
+     * Each word of the result is built in a local variable from 64 values,
+     * with no other branches than the loop ones.
+     *
+     * @param min
+     *            minimum value
+     * @param max
+     *            maximum value
+     * @param rows
+     *            number of rows to check
+     * @return the rows with a value in the range
+     */
+    public final long[] between(final long min, final long max,
+            final int rows) {
+        final long[] bits; // Matching rows
+        long word;         // Word being built
+        int end;           // End of the rows for the word
+        long value;        // Value being checked
+
+        bits = new long[Bits.words(rows)];
+        for (int w = 0; w < bits.length; w++) {
+            word = 0;
+            end = Math.min((w + 1) << 6, rows);
+            for (int i = w << 6; i < end; i++) {
+                value = values[i];
+                word |= ((value >= min) & (value <= max) ? 1L : 0L) << i;
+            }
+            bits[w] = word;
+        }
+
+        clearNulls(bits);
+
+        return bits;
+    }
+
+    @Override
+    protected final void copy(final int from, final int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected final int getCapacity() {
+        return values.length;
+    }
+
+    @Override
+    protected final void grow(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected final void store(final int row, final Long value) {
+        values[row] = value;
+    }
+
+}
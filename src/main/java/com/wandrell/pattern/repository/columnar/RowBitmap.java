@@ -0,0 +1,398 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of rows.
+ * <p>
+ * The rows are split into chunks of 65536, identified by the high 16 bits of
+ * the row. Only the chunks with rows are stored, each one in a container
+ * chosen by how many rows it has:
+ * <ul>
+ * <li>Up to 4096 rows are kept as a sorted array of their low 16 bits.</li>
+ * <li>More rows than that are kept as a bitset of 1024 words.</li>
+ * </ul>
+ * <p>
+ * This way a bitmap never takes more than two bytes for each of its rows, nor
+ * more than 8 KB for each chunk.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class RowBitmap {
+
+    /**
+     * Container storing the rows as a sorted array.
+     */
+    private static final class ArrayContainer extends Container {
+
+        /**
+         * Number of rows stored.
+         */
+        private int    count  = 0;
+
+        /**
+         * Low bits of the rows, sorted.
+         */
+        private char[] values = new char[4];
+
+        /**
+         * Default constructor.
+         */
+        public ArrayContainer() {
+            super();
+        }
+
+        @Override
+        public final Container add(final char value) {
+            final int index;           // Position of the value
+            final Container container; // Container after adding
+            final int insert;          // Position where the value is inserted
+
+            index = Arrays.binarySearch(values, 0, count, value);
+            if (index >= 0) {
+                container = this;
+            } else if (count == ARRAY_LIMIT) {
+                container = toBitmap().add(value);
+            } else {
+                insert = -index - 1;
+                if (count == values.length) {
+                    values = Arrays.copyOf(values,
+                            Math.min(values.length * 2, ARRAY_LIMIT));
+                }
+                System.arraycopy(values, insert, values, insert + 1,
+                        count - insert);
+                values[insert] = value;
+                count++;
+                container = this;
+            }
+
+            return container;
+        }
+
+        @Override
+        public final int getCardinality() {
+            return count;
+        }
+
+        @Override
+        public final void orInto(final long[] bits, final int base) {
+            int row; // Row to set
+
+            for (int i = 0; i < count; i++) {
+                row = base + values[i];
+                if ((row >>> 6) < bits.length) {
+                    Bits.set(bits, row);
+                }
+            }
+        }
+
+        @Override
+        public final Container remove(final char value) {
+            final int index; // Position of the value
+
+            index = Arrays.binarySearch(values, 0, count, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index,
+                        count - index - 1);
+                count--;
+            }
+
+            return this;
+        }
+
+        /**
+         * Returns a bitset container with the same rows.
+         *
+         * @return a bitset container with the same rows
+         */
+        private final Container toBitmap() {
+            final BitmapContainer bitmap; // Container with the same rows
+
+            bitmap = new BitmapContainer();
+            for (int i = 0; i < count; i++) {
+                bitmap.add(values[i]);
+            }
+
+            return bitmap;
+        }
+
+    }
+
+    /**
+     * Container storing the rows as a bitset.
+     */
+    private static final class BitmapContainer extends Container {
+
+        /**
+         * Number of rows stored.
+         */
+        private int          count = 0;
+
+        /**
+         * Bitset for the rows.
+         */
+        private final long[] words = new long[1024];
+
+        /**
+         * Default constructor.
+         */
+        public BitmapContainer() {
+            super();
+        }
+
+        @Override
+        public final Container add(final char value) {
+            final long mask; // Mask for the value
+
+            mask = 1L << value;
+            if ((words[value >>> 6] & mask) == 0) {
+                words[value >>> 6] |= mask;
+                count++;
+            }
+
+            return this;
+        }
+
+        @Override
+        public final int getCardinality() {
+            return count;
+        }
+
+        @Override
+        public final void orInto(final long[] bits, final int base) {
+            final int offset; // Word for the start of the chunk
+            final int end;    // Number of words to join
+
+            offset = base >>> 6;
+            end = Math.min(words.length, bits.length - offset);
+            for (int i = 0; i < end; i++) {
+                bits[offset + i] |= words[i];
+            }
+        }
+
+        @Override
+        public final Container remove(final char value) {
+            final long mask;           // Mask for the value
+            final Container container; // Container after removing
+
+            mask = 1L << value;
+            if ((words[value >>> 6] & mask) != 0) {
+                words[value >>> 6] &= ~mask;
+                count--;
+            }
+
+            // Goes back to an array once it is small enough
+            if (count <= ARRAY_LIMIT / 2) {
+                container = toArray();
+            } else {
+                container = this;
+            }
+
+            return container;
+        }
+
+        /**
+         * Returns an array container with the same rows.
+         *
+         * @return an array container with the same rows
+         */
+        private final Container toArray() {
+            Container array; // Container with the same rows
+            int low;         // Low bits of the row being copied
+
+            array = new ArrayContainer();
+            for (int i = 0; i < words.length; i++) {
+                for (long word = words[i]; word != 0; word &= word - 1) {
+                    low = (i << 6) + Long.numberOfTrailingZeros(word);
+                    array = array.add((char) low);
+                }
+            }
+
+            return array;
+        }
+
+    }
+
+    /**
+     * Stores the rows of a single chunk.
+     */
+    private abstract static class Container {
+
+        /**
+         * Default constructor.
+         */
+        public Container() {
+            super();
+        }
+
+        /**
+         * Adds a row to the container.
+         *
+         * @param value
+         *            low bits of the row
+         * @return the container to use from now on, which may be a new one
+         */
+        public abstract Container add(final char value);
+
+        /**
+         * Returns the number of rows in the container.
+         *
+         * @return the number of rows in the container
+         */
+        public abstract int getCardinality();
+
+        /**
+         * Sets the rows of the container in an uncompressed bitset.
+         *
+         * @param bits
+         *            bitset to modify
+         * @param base
+         *            first row of the chunk
+         */
+        public abstract void orInto(final long[] bits, final int base);
+
+        /**
+         * Removes a row from the container.
+         *
+         * @param value
+         *            low bits of the row
+         * @return the container to use from now on, which may be a new one
+         */
+        public abstract Container remove(final char value);
+
+    }
+
+    /**
+     * Maximum number of rows kept in an array container.
+     */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /**
+     * Number of chunks stored.
+     */
+    private int              chunks      = 0;
+
+    /**
+     * Container for each chunk.
+     */
+    private Container[]      containers  = new Container[1];
+
+    /**
+     * High bits of each chunk, sorted.
+     */
+    private int[]            keys        = new int[1];
+
+    /**
+     * Default constructor.
+     */
+    public RowBitmap() {
+        super();
+    }
+
+    /**
+     * Adds a row to the bitmap.
+     *
+     * @param row
+     *            row to add
+     */
+    public final void add(final int row) {
+        int index; // Position of the chunk
+
+        index = Arrays.binarySearch(keys, 0, chunks, row >>> 16);
+        if (index < 0) {
+            index = -index - 1;
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                containers = Arrays.copyOf(containers, chunks * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, chunks - index);
+            System.arraycopy(containers, index, containers, index + 1,
+                    chunks - index);
+            keys[index] = row >>> 16;
+            containers[index] = new ArrayContainer();
+            chunks++;
+        }
+
+        containers[index] = containers[index].add((char) row);
+    }
+
+    /**
+     * Returns the number of rows in the bitmap.
+     *
+     * @return the number of rows in the bitmap
+     */
+    public final int getCardinality() {
+        int cardinality; // Rows in the bitmap
+
+        cardinality = 0;
+        for (int i = 0; i < chunks; i++) {
+            cardinality += containers[i].getCardinality();
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Sets the rows of the bitmap in an uncompressed bitset.
+     * <p>
+     * Rows beyond the bitset are ignored.
+     *
+     * @param bits
+     *            bitset to modify
+     */
+    public final void orInto(final long[] bits) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].orInto(bits, keys[i] << 16);
+        }
+    }
+
+    /**
+     * Removes a row from the bitmap.
+     *
+     * @param row
+     *            row to remove
+     */
+    public final void remove(final int row) {
+        final int index; // Position of the chunk
+
+        index = Arrays.binarySearch(keys, 0, chunks, row >>> 16);
+        if (index >= 0) {
+            containers[index] = containers[index].remove((char) row);
+
+            // Empty chunks are dropped
+            if (containers[index].getCardinality() == 0) {
+                System.arraycopy(keys, index + 1, keys, index,
+                        chunks - index - 1);
+                System.arraycopy(containers, index + 1, containers, index,
+                        chunks - index - 1);
+                chunks--;
+                containers[chunks] = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+/**
+ * Column storing {@code String} values encoded through a dictionary.
+ * <p>
+ * Each distinct value receives a code, and the rows store only these codes.
+ * Comparing values then requires comparing just the codes.
+ * <p>
+ * Values are never removed from the dictionary, so this works best with
+ * columns having few distinct values.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities
+ */
+final class StringColumn<V> extends Column<V, String> {
+
+    /**
+     * Code for each value.
+     */
+    private final Map<String, Integer> codes;
+
+    /**
+     * Value for each code.
+     */
+    private final List<String>         dictionary;
+
+    /**
+     * Code of the value in each row.
+     */
+    private int[]                      values;
+
+    /**
+     * Constructs a column using the specified extractor.
+     *
+     * @param function
+     *            function taking the value from each entity
+     */
+    public StringColumn(final Function<? super V, ? extends String> function) {
+        super(function);
+
+        codes = new HashMap<String, Integer>();
+        dictionary = new ArrayList<String>();
+        values = new int[0];
+    }
+
+    /**
+     * Returns the rows with any of the specified values.
+     * <p>
+     * The values are turned into a table of accepted codes, which is then
+     * checked for each row.
+     *
+     * @param accepted
+     *            values to find
+     * @param rows
+     *            number of rows to check
+     * @return the rows with any of the values
+     */
+    public final long[] in(final Collection<?> accepted,
+            final int rows) {
+        final boolean[] matches; // Flags marking the accepted codes
+        final long[] bits;       // Matching rows
+        Integer code;            // Code of the value
+        long word;               // Word being built
+        int end;                 // End of the rows for the word
+
+        // Rows with null values may have any code, even if there are none
+        matches = new boolean[Math.max(1, dictionary.size())];
+        for (final Object value : accepted) {
+            code = codes.get(value);
+            if (code != null) {
+                matches[code] = true;
+            }
+        }
+
+        bits = new long[Bits.words(rows)];
+        for (int w = 0; w < bits.length; w++) {
+            word = 0;
+            end = Math.min((w + 1) << 6, rows);
+            for (int i = w << 6; i < end; i++) {
+                word |= (matches[values[i]] ? 1L : 0L) << i;
+            }
+            bits[w] = word;
+        }
+
+        clearNulls(bits);
+
+        return bits;
+    }
+
+    @Override
+    protected final void copy(final int from, final int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    protected final int getCapacity() {
+        return values.length;
+    }
+
+    @Override
+    protected final void grow(final int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected final void store(final int row, final String value) {
+        Integer code; // Code for the value
+
+        code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+        }
+
+        values[row] = code;
+    }
+
+}
@@ -0,0 +1,566 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.durable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * which keeps its entities in memory, but also stores them on the disk, so
+ * they can be recovered after a restart.
+ * <p>
+ * The entities are kept in a {@link CollectionRepository} using the received
+ * key function, and all the queries are handled by it. The changes are stored
+ * in a directory through two kinds of files:
+ * <ul>
+ * <li>A write-ahead log, where each change is appended before being applied.
+ * </li>
+ * <li>Snapshots, containing all the entities at a given moment. After writing
+ * one, the log is started again, and the older files are deleted.</li>
+ * </ul>
+ * <p>
+ * When the repository is created it recovers the contents of the directory.
+ * The last snapshot is read and decoded, and then the log written after it is
+ * replayed. So the time needed for this depends mostly on the number of
+ * entities, and not on the number of changes since the first one.
+ * <p>
+ * The log is forced to the disk after a number of changes, set with
+ * {@link #setSyncInterval(int) setSyncInterval}. By default this happens
+ * after each change. Bigger intervals allow a group of changes to share a
+ * single sync, but if the system crashes the unsynced changes may be lost.
+ * <p>
+ * Snapshots are written after a number of changes, set with
+ * {@link #setSnapshotInterval(int) setSnapshotInterval}, or when calling
+ * {@link #snapshot() snapshot}. If one of the snapshots written after the
+ * changes fails, the change is kept in the log, and the snapshot is tried
+ * again after the same number of changes.
+ * <p>
+ * Entities are transformed into bytes with an {@link EntityCodec}. Any
+ * {@code IOException} thrown while accessing the files is wrapped in an
+ * {@code IllegalStateException}.
+ * <p>
+ * This class is not thread-safe, and only a single instance should use each
+ * directory. It should be closed once it is not needed anymore.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class DurableRepository<V>
+        implements FilteredRepository<V, Predicate<V>>, Closeable {
+
+    /**
+     * Default number of changes between snapshots.
+     */
+    private static final int              DEFAULT_INTERVAL = 10000;
+
+    /**
+     * Prefix for the log files.
+     */
+    private static final String           LOG_PREFIX       = "log-";
+
+    /**
+     * Prefix for the snapshot files.
+     */
+    private static final String           SNAPSHOT_PREFIX  = "snapshot-";
+
+    /**
+     * Number of changes since the last snapshot.
+     */
+    private int                           changes;
+
+    /**
+     * Codec for the entities.
+     */
+    private final EntityCodec<V>          codec;
+
+    /**
+     * Repository containing the entities.
+     */
+    private final CollectionRepository<V> data;
+
+    /**
+     * Directory where the files are stored.
+     */
+    private final Path                    directory;
+
+    /**
+     * Generation of the current files.
+     * <p>
+     * Each snapshot begins a new generation, and the log for it contains the
+     * changes made after it.
+     */
+    private long                          generation;
+
+    /**
+     * Log for the current generation.
+     */
+    private WriteAheadLog                 log;
+
+    /**
+     * Number of changes between snapshots.
+     */
+    private int                           snapshotInterval;
+
+    /**
+     * Number of changes between syncs of the log.
+     */
+    private int                           syncInterval;
+
+    /**
+     * Constructs a repository storing its files in the specified directory,
+     * and recovers the entities stored there.
+     * <p>
+     * The directory is created if it does not exist.
+     *
+     * @param path
+     *            directory for the files
+     * @param entityCodec
+     *            codec for the entities
+     * @param keyFunction
+     *            function generating the key for each entity
+     */
+    public DurableRepository(final Path path,
+            final EntityCodec<V> entityCodec,
+            final Function<? super V, ?> keyFunction) {
+        super();
+
+        directory = checkNotNull(path,
+                "Received a null pointer as directory");
+        codec = checkNotNull(entityCodec,
+                "Received a null pointer as the codec");
+        checkNotNull(keyFunction, "Received a null pointer as key function");
+
+        data = new CollectionRepository<V>(keyFunction);
+        changes = 0;
+        snapshotInterval = DEFAULT_INTERVAL;
+        syncInterval = 1;
+
+        try {
+            recover();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * The change is written to the log before being applied.
+     *
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        append(WriteAheadLog.ADD, entity);
+        data.add(entity);
+        checkSnapshot();
+    }
+
+    /**
+     * Syncs the log and closes it.
+     *
+     * @throws IOException
+     *             if the log can't be synced
+     */
+    @Override
+    public final void close() throws IOException {
+        log.close();
+    }
+
+    @Override
+    public final Collection<V> getAll() {
+        return data.getAll();
+    }
+
+    @Override
+    public final Collection<V> getCollection(final Predicate<V> filter) {
+        return data.getCollection(filter);
+    }
+
+    @Override
+    public final V getEntity(final Predicate<V> filter) {
+        return data.getEntity(filter);
+    }
+
+    /**
+     * Removes an entity from the repository.
+     * <p>
+     * The change is written to the log before being applied.
+     *
+     * @param entity
+     *            the entity to remove
+     */
+    @Override
+    public final void remove(final V entity) {
+        if (entity != null) {
+            append(WriteAheadLog.REMOVE, entity);
+            data.remove(entity);
+            checkSnapshot();
+        }
+    }
+
+    /**
+     * Sets the number of changes after which a snapshot is written.
+     *
+     * @param interval
+     *            number of changes between snapshots
+     */
+    public final void setSnapshotInterval(final int interval) {
+        checkArgument(interval > 0, "The interval should be positive");
+
+        snapshotInterval = interval;
+    }
+
+    /**
+     * Sets the number of changes after which the log is forced to the disk.
+     * <p>
+     * Changes not yet synced may be lost if the system crashes.
+     *
+     * @param interval
+     *            number of changes between syncs
+     */
+    public final void setSyncInterval(final int interval) {
+        checkArgument(interval > 0, "The interval should be positive");
+
+        syncInterval = interval;
+        log.setSyncInterval(interval);
+    }
+
+    /**
+     * Writes a snapshot with all the entities, and starts a new log.
+     * <p>
+     * The files for the previous snapshot and log are deleted afterwards. If
+     * the new log can't be opened, the snapshot is discarded and the
+     * repository keeps using the previous log.
+     */
+    public final void snapshot() {
+        final long next;              // Generation for the new snapshot
+        final WriteAheadLog previous; // Log for the previous generation
+
+        next = generation + 1;
+        try {
+            log.sync();
+            SnapshotFile.write(getSnapshotFile(next), codec, data.getAll());
+
+            previous = log;
+            log = startLog(next);
+            generation = next;
+
+            // The snapshot is complete, the older files can be dropped
+            previous.close();
+            deleteOlderFiles();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        changes = 0;
+    }
+
+    /**
+     * Forces all the changes in the log to the disk.
+     */
+    public final void sync() {
+        try {
+            log.sync();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The change is written to the log before being applied.
+     *
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        append(WriteAheadLog.UPDATE, entity);
+        data.update(entity);
+        checkSnapshot();
+    }
+
+    /**
+     * Appends a change to the log.
+     *
+     * @param operation
+     *            the operation applied
+     * @param entity
+     *            the entity it is applied to
+     */
+    private final void append(final byte operation, final V entity) {
+        try {
+            log.append(operation, codec.encode(entity));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a snapshot if enough changes have been made since the last one.
+     * <p>
+     * The change is already in the log, so if the snapshot fails the change is
+     * kept, and the snapshot is tried again after the same number of changes.
+     */
+    private final void checkSnapshot() {
+        changes++;
+        if (changes >= snapshotInterval) {
+            try {
+                snapshot();
+            } catch (final RuntimeException e) {
+                // The repository keeps using the current log
+                changes = 0;
+            }
+        }
+    }
+
+    /**
+     * Deletes the files from generations older than the current one.
+     * <p>
+     * These are left behind after writing a snapshot, if the system crashed
+     * before deleting them.
+     *
+     * @throws IOException
+     *             if the files can't be deleted
+     */
+    private final void deleteOlderFiles() throws IOException {
+        final DirectoryStream<Path> files; // Files in the directory
+        Long fileGeneration;               // Generation of the file
+
+        files = Files.newDirectoryStream(directory);
+        try {
+            for (final Path file : files) {
+                fileGeneration = getGeneration(file);
+                if ((fileGeneration != null)
+                        && (fileGeneration < generation)) {
+                    Files.delete(file);
+                }
+            }
+        } finally {
+            files.close();
+        }
+    }
+
+    /**
+     * Returns the generation of the specified file.
+     *
+     * @param file
+     *            file to check
+     * @return the generation of the file, or {@code null} if it is not a
+     *         snapshot nor a log
+     */
+    private final Long getGeneration(final Path file) {
+        final String name; // Name of the file
+        String number;     // Generation in the name
+        Long result;       // Parsed generation
+
+        name = file.getFileName().toString();
+        if (name.startsWith(SNAPSHOT_PREFIX)) {
+            number = name.substring(SNAPSHOT_PREFIX.length());
+        } else if (name.startsWith(LOG_PREFIX)) {
+            number = name.substring(LOG_PREFIX.length());
+        } else {
+            number = null;
+        }
+
+        // Temporal files are also included
+        if ((number != null) && (number.endsWith(".tmp"))) {
+            number = number.substring(0, number.length() - 4);
+        }
+
+        try {
+            result = (number == null) ? null : Long.valueOf(number);
+        } catch (final NumberFormatException e) {
+            result = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the log file for the specified generation.
+     *
+     * @param fileGeneration
+     *            generation of the file
+     * @return the log file for the generation
+     */
+    private final Path getLogFile(final long fileGeneration) {
+        return directory.resolve(LOG_PREFIX + fileGeneration);
+    }
+
+    /**
+     * Returns the snapshot file for the specified generation.
+     *
+     * @param fileGeneration
+     *            generation of the file
+     * @return the snapshot file for the generation
+     */
+    private final Path getSnapshotFile(final long fileGeneration) {
+        return directory.resolve(SNAPSHOT_PREFIX + fileGeneration);
+    }
+
+    /**
+     * Opens the log for the specified generation.
+     * <p>
+     * The changes already in it are applied to the entities.
+     *
+     * @param fileGeneration
+     *            generation of the log
+     * @return the log for the generation
+     * @throws IOException
+     *             if the log can't be opened
+     */
+    private final WriteAheadLog openLog(final long fileGeneration)
+            throws IOException {
+        return new WriteAheadLog(getLogFile(fileGeneration), syncInterval,
+                new WriteAheadLog.Handler() {
+
+                    @Override
+                    public final void apply(final byte operation,
+                            final ByteBuffer entity) {
+                        replay(operation, codec.decode(entity));
+                    }
+
+                });
+    }
+
+    /**
+     * Recovers the entities stored in the directory.
+     * <p>
+     * The last snapshot is read, and then the changes in its log are
+     * replayed.
+     *
+     * @throws IOException
+     *             if the files can't be read
+     */
+    private final void recover() throws IOException {
+        final DirectoryStream<Path> files; // Files in the directory
+        Long fileGeneration;               // Generation of the file
+
+        Files.createDirectories(directory);
+
+        // Finds the last snapshot
+        generation = 0;
+        files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*");
+        try {
+            for (final Path file : files) {
+                fileGeneration = getGeneration(file);
+                if ((fileGeneration != null)
+                        && (!file.toString().endsWith(".tmp"))
+                        && (fileGeneration > generation)) {
+                    generation = fileGeneration;
+                }
+            }
+        } finally {
+            files.close();
+        }
+
+        if (Files.exists(getSnapshotFile(generation))) {
+            SnapshotFile.read(getSnapshotFile(generation), codec, data);
+        }
+
+        log = openLog(generation);
+
+        deleteOlderFiles();
+    }
+
+    /**
+     * Applies a change read from the log.
+     *
+     * @param operation
+     *            the operation applied
+     * @param entity
+     *            the entity it was applied to
+     */
+    private final void replay(final byte operation, final V entity) {
+        switch (operation) {
+            case WriteAheadLog.ADD:
+                data.add(entity);
+                break;
+            case WriteAheadLog.UPDATE:
+                data.update(entity);
+                break;
+            case WriteAheadLog.REMOVE:
+                data.remove(entity);
+                break;
+            default:
+                throw new IllegalStateException(
+                        String.format("Unknown operation %s", operation));
+        }
+    }
+
+    /**
+     * Starts the log for the generation of a new snapshot.
+     * <p>
+     * If the log can't be opened, the snapshot and the log are deleted, so
+     * the recovery won't use them in place of the previous generation.
+     *
+     * @param fileGeneration
+     *            generation of the new snapshot
+     * @return the log for the generation
+     * @throws IOException
+     *             if the log can't be opened
+     */
+    private final WriteAheadLog startLog(final long fileGeneration)
+            throws IOException {
+        try {
+            Files.deleteIfExists(getLogFile(fileGeneration));
+
+            return openLog(fileGeneration);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(getSnapshotFile(fileGeneration));
+            try {
+                Files.deleteIfExists(getLogFile(fileGeneration));
+            } catch (final IOException ex) {
+                // The log is ignored without its snapshot
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.durable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+import com.wandrell.pattern.repository.Repository;
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * Reads and writes snapshots, which are files containing all the entities of
+ * a repository.
+ * <p>
+ * A snapshot begins with a marker and the number of entities, followed by
+ * each encoded entity prefixed by its length.
+ * <p>
+ * Snapshots are first written into a temporary file, which is forced to the
+ * disk and then moved to its final name. So a snapshot file is always
+ * complete.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class SnapshotFile {
+
+    /**
+     * Size of the buffer used for reading and writing.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Marker at the start of each snapshot.
+     */
+    private static final int MARKER      = 0x534E4150;
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private SnapshotFile() {
+        super();
+    }
+
+    /**
+     * Reads the entities in a snapshot into a repository.
+     * <p>
+     * The snapshot is read in chunks into a buffer, and each entity is decoded
+     * from there. The buffer only grows for entities bigger than it.
+     *
+     * @param file
+     *            snapshot to read
+     * @param codec
+     *            codec for the entities
+     * @param repository
+     *            repository where the entities are added
+     * @param <V>
+     *            the type of the entities
+     * @throws IOException
+     *             if the snapshot can't be read
+     */
+    public static final <V> void read(final Path file,
+            final EntityCodec<V> codec, final Repository<V> repository)
+            throws IOException {
+        final FileChannel channel; // Channel for the snapshot
+        final int count;           // Number of entities
+        ByteBuffer buffer;         // Buffer for the entities being read
+        ByteBuffer entity;         // Encoded entity
+        int length;                // Length of the encoded entity
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+
+            buffer = fill(channel, buffer, 8);
+            if (buffer.getInt() != MARKER) {
+                throw new IOException(
+                        String.format("%s is not a snapshot", file));
+            }
+
+            count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                buffer = fill(channel, buffer, 4);
+                length = buffer.getInt();
+
+                buffer = fill(channel, buffer, length);
+                entity = buffer.slice();
+                entity.limit(length);
+                buffer.position(buffer.position() + length);
+
+                repository.add(codec.decode(entity));
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a snapshot with the received entities.
+     *
+     * @param file
+     *            file for the snapshot
+     * @param codec
+     *            codec for the entities
+     * @param entities
+     *            entities to write
+     * @param <V>
+     *            the type of the entities
+     * @throws IOException
+     *             if the snapshot can't be written
+     */
+    public static final <V> void write(final Path file,
+            final EntityCodec<V> codec, final Collection<V> entities)
+            throws IOException {
+        final Path temporal;       // Temporal file for writing the snapshot
+        final FileChannel channel; // Channel for the temporal file
+        ByteBuffer buffer;         // Buffer for the entities being written
+        byte[] entity;             // Encoded entity
+
+        temporal = file.resolveSibling(file.getFileName() + ".tmp");
+        channel = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(MARKER);
+            buffer.putInt(entities.size());
+
+            for (final V value : entities) {
+                entity = codec.encode(value);
+                if (buffer.remaining() < entity.length + 4) {
+                    writeFully(channel, buffer);
+                    if (buffer.capacity() < entity.length + 4) {
+                        buffer = ByteBuffer.allocate(entity.length + 4);
+                    }
+                }
+                buffer.putInt(entity.length);
+                buffer.put(entity);
+            }
+            writeFully(channel, buffer);
+
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+
+        Files.move(temporal, file, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads from the channel until the buffer contains the required number of
+     * bytes.
+     * <p>
+     * The bytes not yet consumed are kept at the start of the buffer. If it
+     * is too small for the required bytes, a bigger one is returned.
+     *
+     * @param channel
+     *            channel to read
+     * @param buffer
+     *            buffer ready to be read
+     * @param required
+     *            number of bytes required
+     * @return a buffer ready to be read, containing the required bytes
+     * @throws IOException
+     *             if the channel can't be read, or it ends before the
+     *             required bytes
+     */
+    private static final ByteBuffer fill(final FileChannel channel,
+            final ByteBuffer buffer, final int required) throws IOException {
+        final ByteBuffer filled; // Buffer with the required bytes
+
+        if (buffer.remaining() < required) {
+            if (buffer.capacity() < required) {
+                filled = ByteBuffer.allocate(required);
+                filled.put(buffer);
+            } else {
+                filled = buffer;
+                filled.compact();
+            }
+
+            while (filled.position() < required) {
+                if (channel.read(filled) < 0) {
+                    throw new EOFException("The snapshot is incomplete");
+                }
+            }
+            filled.flip();
+        } else {
+            filled = buffer;
+        }
+
+        return filled;
+    }
+
+    /**
+     * Writes all the contents of the buffer, and then clears it.
+     *
+     * @param channel
+     *            channel where the contents are written
+     * @param buffer
+     *            buffer to write
+     * @throws IOException
+     *             if the contents can't be written
+     */
+    private static final void writeFully(final FileChannel channel,
+            final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
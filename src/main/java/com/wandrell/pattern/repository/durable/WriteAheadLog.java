@@ -0,0 +1,328 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.durable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes applied to a repository.
+ * <p>
+ * Each record stores an operation and the encoded entity it was applied to.
+ * It is written as its length, the operation, the entity and a CRC32 checksum
+ * of the last two. When reading the log, it ends at the first incomplete or
+ * corrupted record, which is what a crash while writing would leave behind.
+ * <p>
+ * Records are written as soon as they are appended, but the file is forced
+ * to the disk only after a number of them, so a group of writes shares the
+ * cost of each sync.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class WriteAheadLog {
+
+    /**
+     * Receives the records read from a log.
+     */
+    static interface Handler {
+
+        /**
+         * Applies a record read from the log.
+         *
+         * @param operation
+         *            the operation stored in the record
+         * @param entity
+         *            the encoded entity stored in the record, which is only
+         *            valid until the method returns
+         */
+        public void apply(final byte operation, final ByteBuffer entity);
+
+    }
+
+    /**
+     * Operation for added entities.
+     */
+    public static final byte  ADD      = 1;
+
+    /**
+     * Operation for removed entities.
+     */
+    public static final byte  REMOVE   = 3;
+
+    /**
+     * Operation for updated entities.
+     */
+    public static final byte  UPDATE   = 2;
+
+    /**
+     * Size of the bytes added to each record, besides the entity.
+     */
+    private static final int  OVERHEAD = 4 + 1 + 4;
+
+    /**
+     * Channel for the log file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Number of records to append before forcing the file to the disk.
+     */
+    private int               syncInterval;
+
+    /**
+     * Number of records appended since the last sync.
+     */
+    private int               unsynced = 0;
+
+    /**
+     * Opens the log in the specified file, creating it if needed.
+     * <p>
+     * The valid records in the file are sent to the handler, and anything
+     * after them is discarded, so new records are appended after the last
+     * valid one. If this fails the file is closed.
+     *
+     * @param file
+     *            file for the log
+     * @param interval
+     *            number of records to append before each sync
+     * @param handler
+     *            handler for the records already in the file
+     * @throws IOException
+     *             if the file can't be read or written
+     */
+    public WriteAheadLog(final Path file, final int interval,
+            final Handler handler) throws IOException {
+        super();
+
+        final long valid; // Length of the valid records
+
+        syncInterval = interval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            valid = replay(handler);
+            channel.truncate(valid);
+            channel.position(valid);
+        } catch (final IOException | RuntimeException e) {
+            // The log can't be used, so its file is not kept open
+            try {
+                channel.close();
+            } catch (final IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param operation
+     *            operation to store
+     * @param entity
+     *            encoded entity to store
+     * @throws IOException
+     *             if the record can't be written
+     */
+    public final void append(final byte operation, final byte[] entity)
+            throws IOException {
+        final ByteBuffer record; // Record to write
+        final CRC32 checksum;    // Checksum for the record
+
+        checksum = new CRC32();
+        checksum.update(operation);
+        checksum.update(entity);
+
+        record = ByteBuffer.allocate(OVERHEAD + entity.length);
+        record.putInt(entity.length);
+        record.put(operation);
+        record.put(entity);
+        record.putInt((int) checksum.getValue());
+        record.flip();
+
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+
+        unsynced++;
+        if (unsynced >= syncInterval) {
+            sync();
+        }
+    }
+
+    /**
+     * Syncs and closes the log.
+     *
+     * @throws IOException
+     *             if the log can't be synced
+     */
+    public final void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sets the number of records to append before forcing the file to the
+     * disk.
+     *
+     * @param interval
+     *            number of records to append before each sync
+     */
+    public final void setSyncInterval(final int interval) {
+        syncInterval = interval;
+    }
+
+    /**
+     * Forces all the appended records to the disk.
+     *
+     * @throws IOException
+     *             if the file can't be synced
+     */
+    public final void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    /**
+     * Reads from the file until the buffer is full, or the file ends.
+     * <p>
+     * The buffer is flipped afterwards, so it can be read.
+     *
+     * @param buffer
+     *            buffer to fill
+     * @param position
+     *            position in the file to read from
+     * @return {@code true} if the buffer was filled, {@code false} if the file
+     *         ended before
+     * @throws IOException
+     *             if the file can't be read
+     */
+    private final boolean readFully(final ByteBuffer buffer,
+            final long position) throws IOException {
+        final boolean complete; // Flag marking if the buffer was filled
+        long read;              // Position of the next read
+        int count;              // Bytes read by the last read
+
+        read = position;
+        count = 0;
+        while ((buffer.hasRemaining()) && (count >= 0)) {
+            count = channel.read(buffer, read);
+            if (count > 0) {
+                read += count;
+            }
+        }
+
+        complete = !buffer.hasRemaining();
+        buffer.flip();
+
+        return complete;
+    }
+
+    /**
+     * Sends all the valid records in the file to the handler.
+     * <p>
+     * Each record is read into a buffer, which is reused for the next ones,
+     * so the entity sent to the handler is only valid until it returns.
+     *
+     * @param handler
+     *            handler for the records
+     * @return the length of the valid records
+     * @throws IOException
+     *             if the file can't be read
+     */
+    private final long replay(final Handler handler) throws IOException {
+        final ByteBuffer header; // Length of the entity
+        final CRC32 checksum;    // Checksum for each record
+        final long size;         // Size of the file
+        ByteBuffer record;       // Record after the length
+        ByteBuffer entity;       // Entity in the record
+        long valid;              // Length of the valid records
+        boolean ended;           // Flag marking the end of the valid records
+        int length;              // Length of the entity
+        byte operation;          // Operation in the record
+
+        header = ByteBuffer.allocate(4);
+        checksum = new CRC32();
+        size = channel.size();
+
+        record = ByteBuffer.allocate(0);
+        valid = 0;
+        ended = false;
+        while (!ended) {
+            header.clear();
+            if (readFully(header, valid)) {
+                length = header.getInt();
+            } else {
+                length = -1;
+            }
+
+            if ((length < 0) || (size - valid < (long) length + OVERHEAD)) {
+                // Incomplete or corrupted record, or the end of the file
+                ended = true;
+            } else {
+                if (record.capacity() < length + OVERHEAD - 4) {
+                    record = ByteBuffer.allocate(length + OVERHEAD - 4);
+                }
+                record.clear();
+                record.limit(length + OVERHEAD - 4);
+
+                if (readFully(record, valid + 4)) {
+                    operation = record.get();
+
+                    checksum.reset();
+                    checksum.update(operation);
+                    checksum.update(record.array(), 1, length);
+
+                    record.position(1 + length);
+                    if ((int) checksum.getValue() == record.getInt()) {
+                        record.position(1);
+                        record.limit(1 + length);
+                        entity = record.slice();
+
+                        handler.apply(operation, entity);
+                        valid += length + OVERHEAD;
+                    } else {
+                        ended = true;
+                    }
+                } else {
+                    ended = true;
+                }
+            }
+        }
+
+        return valid;
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.entity;
+
+import com.google.common.base.Function;
+
+/**
+ * Function generating a key which identifies an entity.
+ * <p>
+ * If the entity is a {@link PersistenceEntity} with an ID assigned, then this
+ * ID will be the key. Otherwise the entity itself will be the key, which means
+ * that the {@code equals} and {@code hashCode} methods will identify it.
+ * <p>
+ * Following the {@code PersistenceEntity} contract, an ID is only considered
+ * to be assigned when it is not {@code null} nor lower than zero.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see PersistenceEntity
+ */
+public final class EntityKeyFunction implements Function<Object, Object> {
+
+    /**
+     * Default constructor.
+     */
+    public EntityKeyFunction() {
+        super();
+    }
+
+    @Override
+    public final Object apply(final Object entity) {
+        final Integer id;
+        final Object key;
+
+        if (entity instanceof PersistenceEntity) {
+            id = ((PersistenceEntity) entity).getId();
+        } else {
+            id = null;
+        }
+
+        if ((id == null) || (id < 0)) {
+            // No ID has been assigned
+            key = entity;
+        } else {
+            key = id;
+        }
+
+        return key;
+    }
+
+}
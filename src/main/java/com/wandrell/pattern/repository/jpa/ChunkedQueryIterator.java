@@ -0,0 +1,184 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.jpa;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.persistence.EntityManager;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.entity.PersistenceEntity;
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+
+/**
+ * Iterator reading the results of a JPA query in chunks.
+ * <p>
+ * Each chunk is read once the previous one has been consumed, by a function
+ * receiving the id of the last entity read, or {@code null} for the first
+ * chunk. This function should seek the entities after that id, sorted by it,
+ * so each chunk starts right where the previous one ended, instead of
+ * skipping all the entities before it. Then the entities of the previous chunk
+ * are detached, so the persistence context does not grow with the number of
+ * entities read.
+ * <p>
+ * The iteration ends with the first chunk which is not full.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the iterated entities
+ */
+final class ChunkedQueryIterator<V extends PersistenceEntity>
+        implements CloseableIterator<V> {
+
+    /**
+     * Entities in the current chunk.
+     */
+    private Collection<V>                                    chunk;
+
+    /**
+     * Reads the chunk after the received id.
+     */
+    private final Function<Integer, ? extends Collection<V>> chunkReader;
+
+    /**
+     * Number of entities read on each chunk.
+     */
+    private final int                                        chunkSize;
+
+    /**
+     * Iterator for the current chunk.
+     */
+    private Iterator<V>                                      entities;
+
+    /**
+     * Entity manager handling the entities.
+     */
+    private final EntityManager                              eManager;
+
+    /**
+     * Flag marking if the last chunk has been read.
+     */
+    private boolean                                          exhausted;
+
+    /**
+     * Id of the last entity read.
+     * <p>
+     * It is {@code null} until the first chunk is read.
+     */
+    private Integer                                          lastId;
+
+    /**
+     * Constructs an iterator reading the chunks with the received function.
+     * 
+     * @param entityManager
+     *            entity manager handling the entities
+     * @param reader
+     *            reads the chunk after the received id, which is
+     *            {@code null} for the first chunk
+     * @param size
+     *            number of entities read on each chunk
+     */
+    public ChunkedQueryIterator(final EntityManager entityManager,
+            final Function<Integer, ? extends Collection<V>> reader,
+            final int size) {
+        super();
+
+        eManager = entityManager;
+        chunkReader = reader;
+        chunkSize = size;
+
+        chunk = Collections.emptyList();
+        entities = chunk.iterator();
+    }
+
+    /**
+     * Closes the iterator, detaching the entities of the current chunk.
+     */
+    @Override
+    public final void close() {
+        detachChunk();
+        exhausted = true;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if (!entities.hasNext()) {
+            if (exhausted) {
+                detachChunk();
+            } else {
+                readChunk();
+            }
+        }
+
+        return entities.hasNext();
+    }
+
+    @Override
+    public final V next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return entities.next();
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Detaches the entities of the current chunk.
+     */
+    private final void detachChunk() {
+        for (final V entity : chunk) {
+            eManager.detach(entity);
+        }
+
+        chunk = Collections.emptyList();
+        entities = chunk.iterator();
+    }
+
+    /**
+     * Reads the next chunk, detaching the previous one.
+     */
+    private final void readChunk() {
+        detachChunk();
+
+        chunk = chunkReader.apply(lastId);
+        entities = chunk.iterator();
+
+        for (final V entity : chunk) {
+            lastId = entity.getId();
+        }
+        if (chunk.size() < chunkSize) {
+            exhausted = true;
+        }
+    }
+
+}
@@ -24,23 +24,49 @@
 
 package com.wandrell.pattern.repository.jpa;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.Query;
 
+import com.google.common.base.Function;
+
 import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.BatchRepository;
 import com.wandrell.pattern.repository.entity.PersistenceEntity;
-import com.wandrell.pattern.repository.pagination.PaginatedRepository;
+import com.wandrell.pattern.repository.pagination.CountCache;
+import com.wandrell.pattern.repository.pagination.CountedPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.DefaultKeysetPaginationData;
+import com.wandrell.pattern.repository.pagination.DefaultPage;
+import com.wandrell.pattern.repository.pagination.DeferredJoinQueries;
+import com.wandrell.pattern.repository.pagination.KeysetPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.KeysetPaginationData;
+import com.wandrell.pattern.repository.pagination.KeysetQueries;
+import com.wandrell.pattern.repository.pagination.Page;
 import com.wandrell.pattern.repository.pagination.PaginationData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortQueries;
+import com.wandrell.pattern.repository.sort.SortedPaginatedRepository;
+import com.wandrell.pattern.repository.spring.TransactionalCountInvalidation;
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+import com.wandrell.pattern.repository.stream.StreamingRepository;
 
 /**
- * {@code Repository} for working with JPA classes and allowing filtering and
- * paginating results.
+ * {@code Repository} for working with JPA classes and allowing filtering,
+ * sorting and paginating results.
  * <p>
  * Entities are acquired with the use of JPQL queries such as this:
  * <p>
@@ -58,6 +84,68 @@ import com.wandrell.pattern.repository.pagination.PaginationData;
  * both will work the same way. If the received entity lacks an identifier said
  * entity will be added into the database, otherwise the entity will be updated
  * in the data source.
+ * <p>
+ * Sorting is added to the JPQL queries as an {@code ORDER BY} clause, so the
+ * properties in the {@code SortData} should be paths valid in the query, such
+ * as {@code employee.name}, and the queries should not be sorted already.
+ * When sorting and paginating at the same time the database returns just the
+ * entities in the page.
+ * <p>
+ * The methods modifying several entities at once flush the changes and clear
+ * the persistence context each time the number of entities set with
+ * {@link #setBatchSize(int) setBatchSize} is reached, so it doesn't grow with
+ * the number of entities. This detaches all the entities handled by the
+ * {@code EntityManager}, including those loaded before the call.
+ * <p>
+ * For the flushed statements to be sent to the database as JDBC batches the
+ * persistence provider should be configured for it, using a batch size
+ * matching the one of the repository. For Hibernate this means setting the
+ * {@code hibernate.jdbc.batch_size} property, and ordering them with
+ * {@code hibernate.order_inserts} and {@code hibernate.order_updates}, while
+ * for Eclipselink this means setting {@code eclipselink.jdbc.batch-writing}
+ * to {@code JDBC} and {@code eclipselink.jdbc.batch-writing.size}. Note that
+ * Hibernate won't batch the inserts of entities using identity columns for
+ * their keys.
+ * <p>
+ * For bulk traffic which doesn't need the persistence context, such as
+ * imports, the repository can be set to a stateless mode with
+ * {@link #setStateless(boolean) setStateless}. Then the entities are not kept
+ * by the {@code EntityManager}: each modification is flushed right away, or at
+ * the end of each batch, and the entities are detached afterwards, while the
+ * queried entities are read as read-only, which avoids Hibernate taking
+ * snapshots of them, and are detached before returning them. The detached
+ * entities should be modified through the repository.
+ * <p>
+ * The streaming methods read the entities in chunks, of the size set with
+ * {@link #setFetchSize(int) setFetchSize}, each of them with its own query
+ * seeking the entities after the id of the last one read, as in keyset
+ * pagination. So reading a chunk doesn't require skipping all the entities
+ * before it, and the entities are streamed sorted by their ids. The entities
+ * of a chunk are detached when the next one is read, so long scans don't grow
+ * the persistence context. The streamed queries should select a single
+ * entity, whose id is mapped to the {@code id} attribute, and should not be
+ * sorted.
+ * <p>
+ * Keyset pagination adds a condition on the key, and an {@code ORDER BY}
+ * clause, to the JPQL query, as described in {@code KeysetQueries}, and limits
+ * the results with {@code setMaxResults}, so the key property should be a
+ * path valid in the query, such as {@code employee.id}.
+ * <p>
+ * Pages containing the total number of entities count them with a query
+ * created by replacing the {@code SELECT} clause with a {@code COUNT} of the
+ * selected entity, so the queries should select a single entity. As JPQL lacks
+ * window functions, and the {@code EntityManager} can't be shared between
+ * threads, the count is queried after the page, but it is kept in a
+ * {@link CountCache}, cleared when the repository modifies its entities, so
+ * the next pages don't count them again.
+ * <p>
+ * For deep pages over wide tables, pagination can use a deferred join, enabled
+ * with {@link #setDeferredJoin(boolean) setDeferredJoin}. Then first the ids
+ * of the entities in the page are read, which the database can do just with
+ * the index of the primary key, and then the entities with those ids. This
+ * requires the queries to select a single entity, whose id is mapped to the
+ * {@code id} attribute, and to have no sorting, as this is added by the
+ * repository.
  *
  * @author Bernardo Martínez Garrido
  * @param <V>
@@ -65,13 +153,70 @@ import com.wandrell.pattern.repository.pagination.PaginationData;
  * @see NamedParameterQueryData
  * @see PersistenceEntity
  */
-public final class JpaRepository<V extends PersistenceEntity>
-        implements PaginatedRepository<V, NamedParameterQueryData> {
+public final class JpaRepository<V extends PersistenceEntity> implements
+        SortedPaginatedRepository<V, NamedParameterQueryData>,
+        CountedPaginatedRepository<V, NamedParameterQueryData>,
+        KeysetPaginatedRepository<V, NamedParameterQueryData>,
+        BatchRepository<V>, StreamingRepository<V, NamedParameterQueryData> {
+
+    /**
+     * Default number of entities handled before flushing and clearing.
+     */
+    public static final int      DEFAULT_BATCH_SIZE  = 1000;
+
+    /**
+     * Default number of entities read on each chunk when streaming.
+     */
+    public static final int      DEFAULT_FETCH_SIZE  = 1000;
+
+    /**
+     * Hibernate hint for reading entities without keeping snapshots of them.
+     */
+    private static final String  HIBERNATE_READ_ONLY = "org.hibernate.readOnly";
+
+    /**
+     * Pattern for finding the {@code ORDER BY} clause in a JPQL query.
+     */
+    private static final Pattern ORDER_BY_CLAUSE     = Pattern
+            .compile("\\s+ORDER\\s+BY\\s", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Pattern for finding the selected entity in a JPQL query.
+     */
+    private static final Pattern SELECT_CLAUSE       = Pattern.compile(
+            "^\\s*SELECT\\s+(DISTINCT\\s+)?(.+?)\\s+FROM\\s",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Flag telling if Spring transactions are in the classpath.
+     */
+    private static final boolean SPRING_TRANSACTIONS = hasSpringTransactions();
+
+    /**
+     * Number of entities handled before flushing and clearing.
+     */
+    private int                  batchSize           = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Cache for the number of entities returned by the paginated queries.
+     */
+    private CountCache           countCache          = new CountCache();
+
+    /**
+     * Flag telling if pagination reads the ids of the page before the
+     * entities.
+     */
+    private boolean              deferredJoin        = false;
 
     /**
      * Entity manager in charge of handling the persistence process.
      */
-    private final EntityManager eManager;
+    private final EntityManager  eManager;
+
+    /**
+     * Number of entities read on each chunk when streaming.
+     */
+    private int                  fetchSize           = DEFAULT_FETCH_SIZE;
 
     /**
      * JPQL query for acquiring all the entities.
@@ -80,7 +225,12 @@ public final class JpaRepository<V extends PersistenceEntity>
      * <p>
      * {@code SELECT employee FROM Employee employee}
      */
-    private final String        selectAllQuery;
+    private final String         selectAllQuery;
+
+    /**
+     * Flag telling if the entities are kept out of the persistence context.
+     */
+    private boolean              stateless           = false;
 
     /**
      * Constructs a {@code JPARepository} with the specified all-data query.
@@ -125,18 +275,53 @@ public final class JpaRepository<V extends PersistenceEntity>
      */
     @Override
     public final void add(final V entity) {
+        final V managed; // Entity handled by the persistence context
 
         checkNotNull(entity, "Received a null pointer as the entity");
 
-        if ((entity.getId() == null) || (entity.getId() < 0)) {
-            // No ID has been assigned
-            // It is a new entity
-            getEntityManager().persist(entity);
-        } else {
-            // ID already assigned
-            // It is an existing entity
-            getEntityManager().merge(entity);
+        managed = write(entity);
+
+        if (stateless) {
+            getEntityManager().flush();
+            getEntityManager().detach(managed);
+        }
+
+        invalidateCounts();
+    }
+
+    /**
+     * Adds the entities to the repository, or updates those which already
+     * exist.
+     * <p>
+     * Each entity is handled as with {@link #add(PersistenceEntity) add}, and
+     * the changes are flushed, and the persistence context cleared, after
+     * each batch.
+     *
+     * @param entities
+     *            the entities to add
+     */
+    @Override
+    public final void addAll(final Collection<? extends V> entities) {
+        final List<V> batch; // Entities in the current batch
+
+        checkNotNull(entities, "Received a null pointer as the entities");
+
+        batch = new ArrayList<V>();
+        for (final V entity : entities) {
+            checkNotNull(entity, "Received a null pointer as the entity");
+
+            batch.add(write(entity));
+
+            if (batch.size() == batchSize) {
+                flushBatch(batch);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
         }
+
+        invalidateCounts();
     }
 
     /**
@@ -146,16 +331,15 @@ public final class JpaRepository<V extends PersistenceEntity>
      *
      * @return all the entities contained in the repository
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final Collection<V> getAll() {
         final Query builtQuery; // Query created from the query data
 
         // Builds the query
-        builtQuery = getEntityManager().createQuery(getAllValuesQuery());
+        builtQuery = createQuery(getAllValuesQuery());
 
         // Processes the query
-        return builtQuery.getResultList();
+        return getResults(builtQuery);
     }
 
     /**
@@ -165,22 +349,79 @@ public final class JpaRepository<V extends PersistenceEntity>
      *
      * @return all the entities contained in the repository paginated
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final Collection<V> getAll(final PaginationData pagination) {
+        final Map<String, Object> parameters; // No parameters
+
+        parameters = Collections.emptyMap();
+
+        return readPage(getAllValuesQuery(), null, parameters, pagination);
+    }
+
+    /**
+     * Returns a page of all the entities contained in the repository, starting
+     * after the key of the pagination data.
+     * <p>
+     * The query used for this operation is the one received by the
+     * constructor, limited to the entities after the key and sorted by it.
+     *
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    @Override
+    public final Collection<V> getAll(final KeysetPaginationData pagination) {
+        final Map<String, Object> parameters; // No parameters
+
+        parameters = Collections.emptyMap();
+
+        return seek(getAllValuesQuery(), parameters, pagination);
+    }
+
+    /**
+     * Returns all the entities contained in the repository sorted.
+     * <p>
+     * The query used for this operation is the one received by the
+     * constructor, with an {@code ORDER BY} clause.
+     *
+     * @param sort
+     *            sorting data
+     * @return all the entities contained in the repository sorted
+     */
+    @Override
+    public final Collection<V> getAll(final SortData sort) {
         final Query builtQuery; // Query created from the query data
 
-        checkNotNull(pagination,
-                "Received a null pointer as the pagination data");
+        builtQuery = createQuery(
+                SortQueries.orderBy(getAllValuesQuery(), sort));
 
-        // Builds the query
-        builtQuery = getEntityManager().createQuery(getAllValuesQuery());
+        return getResults(builtQuery);
+    }
 
-        // Sets the pagination
-        applyPagination(builtQuery, pagination);
+    /**
+     * Returns all the entities contained in the repository sorted and
+     * paginated.
+     * <p>
+     * The query used for this operation is the one received by the
+     * constructor, with an {@code ORDER BY} clause.
+     *
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository sorted and
+     *         paginated
+     */
+    @Override
+    public final Collection<V> getAll(final SortData sort,
+            final PaginationData pagination) {
+        final Map<String, Object> parameters; // No parameters
 
-        // Processes the query
-        return builtQuery.getResultList();
+        checkNotNull(sort, "Received a null pointer as the sorting data");
+
+        parameters = Collections.emptyMap();
+
+        return readPage(getAllValuesQuery(), sort, parameters, pagination);
     }
 
     /**
@@ -193,7 +434,6 @@ public final class JpaRepository<V extends PersistenceEntity>
      *            the query user to acquire the entities
      * @return the queried subset of entities
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final Collection<V>
             getCollection(final NamedParameterQueryData query) {
@@ -201,7 +441,31 @@ public final class JpaRepository<V extends PersistenceEntity>
         checkNotNull(query, "Received a null pointer as the query");
 
         // Processes the query
-        return buildQuery(query).getResultList();
+        return getResults(buildQuery(query));
+    }
+
+    /**
+     * Queries the entities in the repository and returns a page of them,
+     * starting after the key of the pagination data.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, limited to the entities after the key and sorted by
+     * it, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query,
+            final KeysetPaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return seek(query.getQuery(), query.getParameters(), pagination);
     }
 
     /**
@@ -215,24 +479,67 @@ public final class JpaRepository<V extends PersistenceEntity>
      *            the query user to acquire the entities
      * @return the queried and paginated subset of entities
      */
-    @SuppressWarnings("unchecked")
     @Override
     public final Collection<V> getCollection(
             final NamedParameterQueryData query,
             final PaginationData pagination) {
-        final Query builtQuery; // Query created from the query data
 
         checkNotNull(query, "Received a null pointer as the query");
-        checkNotNull(pagination,
-                "Received a null pointer as the pagination data");
 
-        builtQuery = buildQuery(query);
+        return readPage(query.getQuery(), null, query.getParameters(),
+                pagination);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a sorted subset of
+     * them.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, with an {@code ORDER BY} clause, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param sort
+     *            sorting data
+     * @return the queried and sorted subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query, final SortData sort) {
 
-        // Sets the pagination
-        applyPagination(builtQuery, pagination);
+        checkNotNull(query, "Received a null pointer as the query");
 
-        // Processes the query
-        return builtQuery.getResultList();
+        return getResults(buildQuery(
+                SortQueries.orderBy(query.getQuery(), sort),
+                query.getParameters()));
+    }
+
+    /**
+     * Queries the entities in the repository and returns a sorted and
+     * paginated subset of them.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, with an {@code ORDER BY} clause, and executing it.
+     * Only the entities in the page are read from the database.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return the queried, sorted and paginated subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query, final SortData sort,
+            final PaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+        checkNotNull(sort, "Received a null pointer as the sorting data");
+
+        return readPage(query.getQuery(), sort, query.getParameters(),
+                pagination);
     }
 
     /**
@@ -263,18 +570,227 @@ public final class JpaRepository<V extends PersistenceEntity>
             entity = null;
         }
 
+        if (stateless && (entity != null)) {
+            getEntityManager().detach(entity);
+        }
+
         return entity;
     }
 
+    /**
+     * Returns a page of all the entities contained in the repository, along
+     * the total number of entities.
+     * <p>
+     * The query used for this operation is the one received by the
+     * constructor.
+     *
+     * @param pagination
+     *            pagination data
+     * @return a page of all the entities, with their total number
+     */
+    @Override
+    public final Page<V> getPage(final PaginationData pagination) {
+        final Map<String, Object> parameters; // No parameters
+
+        parameters = Collections.emptyMap();
+
+        return getPage(getAllValuesQuery(), parameters, pagination);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a page of them, along
+     * the total number of queried entities.
+     * <p>
+     * The page is read by building a query from the received
+     * {@code QueryData} and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param pagination
+     *            pagination data
+     * @return a page of the queried entities, with their total number
+     */
+    @Override
+    public final Page<V> getPage(final NamedParameterQueryData query,
+            final PaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return getPage(query.getQuery(), query.getParameters(), pagination);
+    }
+
     /**
      * Removes an entity from the repository.
+     * <p>
+     * In the stateless mode the entity may be detached, and the removal is
+     * flushed right away.
      *
      * @param entity
      *            the entity to remove
      */
     @Override
     public final void remove(final V entity) {
-        getEntityManager().remove(entity);
+        if (stateless) {
+            getEntityManager().remove(getManaged(entity));
+            getEntityManager().flush();
+        } else {
+            getEntityManager().remove(entity);
+        }
+
+        invalidateCounts();
+    }
+
+    /**
+     * Removes the entities from the repository.
+     * <p>
+     * The changes are flushed, and the persistence context cleared, after
+     * each batch. Detached entities are merged before removing them.
+     *
+     * @param entities
+     *            the entities to remove
+     */
+    @Override
+    public final void removeAll(final Collection<? extends V> entities) {
+        final List<V> batch; // Entities in the current batch
+
+        checkNotNull(entities, "Received a null pointer as the entities");
+
+        batch = new ArrayList<V>();
+        for (final V entity : entities) {
+            checkNotNull(entity, "Received a null pointer as the entity");
+
+            // Detached entities, possibly by a previous batch, are merged
+            getEntityManager().remove(getManaged(entity));
+            batch.add(entity);
+
+            if (batch.size() == batchSize) {
+                flushBatch(batch);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+
+        invalidateCounts();
+    }
+
+    /**
+     * Sets the number of entities handled before flushing the changes and
+     * clearing the persistence context.
+     * <p>
+     * By default this is {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param size
+     *            the number of entities on each batch
+     */
+    public final void setBatchSize(final int size) {
+        checkArgument(size > 0, "The batch size should be positive");
+
+        batchSize = size;
+    }
+
+    /**
+     * Sets the cache for the number of entities returned by the paginated
+     * queries.
+     * <p>
+     * By default a {@code CountCache} with its default settings is used. It
+     * can be shared with other repositories reading the same entities, so
+     * modifications on any of them clear it.
+     *
+     * @param cache
+     *            the cache for the counts
+     */
+    public final void setCountCache(final CountCache cache) {
+        countCache = checkNotNull(cache,
+                "Received a null pointer as the count cache");
+    }
+
+    /**
+     * Sets if pagination should use a deferred join.
+     * <p>
+     * Then, instead of reading the entities while skipping the offset, first
+     * just the ids of the entities in the page are read, and then the
+     * entities with those ids. This is disabled by default.
+     *
+     * @param enabled
+     *            {@code true} to use deferred joins, {@code false} otherwise
+     */
+    public final void setDeferredJoin(final boolean enabled) {
+        deferredJoin = enabled;
+    }
+
+    /**
+     * Sets the number of entities read on each chunk when streaming.
+     * <p>
+     * By default this is {@link #DEFAULT_FETCH_SIZE}.
+     *
+     * @param size
+     *            the number of entities read on each chunk
+     */
+    public final void setFetchSize(final int size) {
+        checkArgument(size > 0, "The fetch size should be positive");
+
+        fetchSize = size;
+    }
+
+    /**
+     * Sets the stateless mode, where the entities are not kept in the
+     * persistence context.
+     * <p>
+     * In this mode the modifications are flushed right away, or at the end of
+     * each batch, and the entities are detached after being written or read.
+     * The queries are read-only, so Hibernate won't take snapshots of the
+     * entities for dirty checking. The persistence context is not cleared, so
+     * other entities handled by the {@code EntityManager} are kept.
+     * <p>
+     * By default this mode is disabled.
+     *
+     * @param enabled
+     *            {@code true} to enable the stateless mode, {@code false}
+     *            otherwise
+     */
+    public final void setStateless(final boolean enabled) {
+        stateless = enabled;
+    }
+
+    /**
+     * Returns an iterator reading all the entities contained in the repository
+     * in chunks.
+     * <p>
+     * The query used for this operation is the one received by the
+     * constructor, limited to the entities after the last id read and sorted
+     * by the id.
+     *
+     * @return an iterator for all the entities contained in the repository
+     */
+    @Override
+    public final CloseableIterator<V> streamAll() {
+        final Map<String, Object> parameters; // No parameters
+
+        parameters = Collections.emptyMap();
+
+        return stream(getAllValuesQuery(), parameters);
+    }
+
+    /**
+     * Queries the entities in the repository and returns an iterator reading
+     * them in chunks.
+     * <p>
+     * The query is limited to the entities after the last id read, and sorted
+     * by the id, so it should select a single entity and not be sorted.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @return an iterator for the queried subset of entities
+     */
+    @Override
+    public final CloseableIterator<V> streamCollection(
+            final NamedParameterQueryData query) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return stream(query.getQuery(), query.getParameters());
     }
 
     /**
@@ -298,6 +814,19 @@ public final class JpaRepository<V extends PersistenceEntity>
         add(entity);
     }
 
+    /**
+     * Updates the entities on the repository, or adds those which are missing.
+     * <p>
+     * This works the same as {@link #addAll(Collection) addAll}.
+     *
+     * @param entities
+     *            the entities to update
+     */
+    @Override
+    public final void updateAll(final Collection<? extends V> entities) {
+        addAll(entities);
+    }
+
     /**
      * Applies pagination to the query.
      * 
@@ -326,20 +855,77 @@ public final class JpaRepository<V extends PersistenceEntity>
      * @return a {@code Query} created from the received {@code QueryData}
      */
     private final Query buildQuery(final NamedParameterQueryData query) {
+        return buildQuery(query.getQuery(), query.getParameters());
+    }
+
+    /**
+     * Creates a {@code Query} from the received JPQL query and parameters.
+     *
+     * @param query
+     *            the JPQL query
+     * @param parameters
+     *            the parameters to apply
+     * @return a {@code Query} created from the received data
+     */
+    private final Query buildQuery(final String query,
+            final Map<String, Object> parameters) {
         final Query builtQuery; // Query created from the query data
 
         // Builds the base query
-        builtQuery = getEntityManager().createQuery(query.getQuery());
+        builtQuery = createQuery(query);
 
         // Applies the parameters
-        for (final Entry<String, Object> entry : query.getParameters()
-                .entrySet()) {
+        for (final Entry<String, Object> entry : parameters.entrySet()) {
             builtQuery.setParameter(entry.getKey(), entry.getValue());
         }
 
         return builtQuery;
     }
 
+    /**
+     * Creates a {@code Query} from the received JPQL query.
+     * <p>
+     * In the stateless mode the query will be read-only.
+     *
+     * @param query
+     *            the JPQL query
+     * @return a {@code Query} created from the received JPQL query
+     */
+    private final Query createQuery(final String query) {
+        final Query builtQuery; // Query created from the JPQL query
+
+        builtQuery = getEntityManager().createQuery(query);
+
+        if (stateless) {
+            builtQuery.setHint(HIBERNATE_READ_ONLY, true);
+        }
+
+        return builtQuery;
+    }
+
+    /**
+     * Flushes the changes, ending a batch.
+     * <p>
+     * Then the persistence context is cleared, or in the stateless mode the
+     * entities in the batch are detached. The batch is emptied afterwards.
+     *
+     * @param batch
+     *            entities in the batch
+     */
+    private final void flushBatch(final List<V> batch) {
+        getEntityManager().flush();
+
+        if (stateless) {
+            for (final V entity : batch) {
+                getEntityManager().detach(entity);
+            }
+        } else {
+            getEntityManager().clear();
+        }
+
+        batch.clear();
+    }
+
     /**
      * Returns the query used for retrieving all the entities on the repository.
      *
@@ -358,4 +944,307 @@ public final class JpaRepository<V extends PersistenceEntity>
         return eManager;
     }
 
+    /**
+     * Returns the instance of the entity handled by the persistence context,
+     * merging it if it is detached.
+     *
+     * @param entity
+     *            the entity
+     * @return the entity handled by the persistence context
+     */
+    private final V getManaged(final V entity) {
+        final V managed; // Entity handled by the persistence context
+
+        if (getEntityManager().contains(entity)) {
+            managed = entity;
+        } else {
+            managed = getEntityManager().merge(entity);
+        }
+
+        return managed;
+    }
+
+    /**
+     * Returns a JPQL query counting the entities returned by the received
+     * query.
+     * <p>
+     * The {@code SELECT} clause is replaced with a {@code COUNT} of the
+     * selected entity, and any {@code ORDER BY} clause is removed, as some
+     * databases reject sorting an aggregate by a column.
+     *
+     * @param query
+     *            the JPQL query to count
+     * @return a JPQL query counting the entities
+     */
+    private final String getCountQuery(final String query) {
+        final Matcher select; // Matcher for the SELECT clause
+        final Matcher order;  // Matcher for the ORDER BY clause
+        final String from;    // Query from the FROM clause
+
+        select = SELECT_CLAUSE.matcher(query);
+        checkArgument(select.find(),
+                "Couldn't find the selected entity in the query %s", query);
+
+        order = ORDER_BY_CLAUSE.matcher(query);
+        if (order.find(select.end())) {
+            from = query.substring(select.end(), order.start());
+        } else {
+            from = query.substring(select.end());
+        }
+
+        return String.format("SELECT COUNT(%s%s) FROM %s",
+                select.group(1) == null ? "" : select.group(1),
+                select.group(2), from);
+    }
+
+    /**
+     * Reads a page of the entities returned by the JPQL query, along their
+     * total number.
+     * <p>
+     * The count is taken from the cache if possible, otherwise it is queried
+     * after the page.
+     *
+     * @param query
+     *            the JPQL query
+     * @param parameters
+     *            the parameters to apply
+     * @param pagination
+     *            pagination data
+     * @return the page of entities, with their total number
+     */
+    private final Page<V> getPage(final String query,
+            final Map<String, Object> parameters,
+            final PaginationData pagination) {
+        final Collection<V> entities; // Entities in the page
+        Long total;                   // Total number of entities
+
+        entities = readPage(query, null, parameters, pagination);
+
+        total = countCache.getCount(query, parameters);
+        if (total == null) {
+            total = ((Number) buildQuery(getCountQuery(query), parameters)
+                    .getSingleResult()).longValue();
+            countCache.putCount(query, parameters, total);
+        }
+
+        return new DefaultPage<V>(entities, pagination, total);
+    }
+
+    /**
+     * Executes the query and returns its results.
+     * <p>
+     * In the stateless mode the entities are detached before returning them.
+     *
+     * @param query
+     *            the query to execute
+     * @return the results of the query
+     */
+    @SuppressWarnings("unchecked")
+    private final Collection<V> getResults(final Query query) {
+        final Collection<V> results; // Entities returned by the query
+
+        results = query.getResultList();
+
+        if (stateless) {
+            for (final V entity : results) {
+                getEntityManager().detach(entity);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Indicates if the Spring transactions are in the classpath.
+     * <p>
+     * As they are an optional dependency, they are only used if found.
+     *
+     * @return {@code true} if Spring transactions can be used, {@code false}
+     *         otherwise
+     */
+    private static final boolean hasSpringTransactions() {
+        try {
+            Class.forName("org.springframework.transaction.support."
+                    + "TransactionSynchronizationManager", false,
+                    JpaRepository.class.getClassLoader());
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all the cached counts.
+     * <p>
+     * If there is an active Spring transaction, they are removed again once
+     * it ends, in case it is rolled back.
+     */
+    private final void invalidateCounts() {
+        if (SPRING_TRANSACTIONS) {
+            TransactionalCountInvalidation.invalidateAll(countCache);
+        } else {
+            countCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Reads a page of the entities returned by the JPQL query.
+     * <p>
+     * If deferred joins are enabled, first the ids of the entities in the page
+     * are read, and then the entities with those ids.
+     *
+     * @param query
+     *            the JPQL query
+     * @param sort
+     *            sorting data, or {@code null} to keep the query unsorted
+     * @param parameters
+     *            the parameters to apply
+     * @param pagination
+     *            pagination data
+     * @return the entities in the page
+     */
+    @SuppressWarnings("unchecked")
+    private final Collection<V> readPage(final String query,
+            final SortData sort, final Map<String, Object> parameters,
+            final PaginationData pagination) {
+        final String sorted;          // Sorted query
+        final Query builtQuery;       // Query for the page
+        final Query entitiesQuery;    // Query for the entities of the keys
+        final String key;             // Path to the id
+        final List<Integer> keys;     // Ids of the entities in the page
+        final Collection<V> entities; // Entities in the page
+
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+
+        if (sort == null) {
+            sorted = query;
+        } else {
+            sorted = SortQueries.orderBy(query, sort);
+        }
+
+        if (deferredJoin) {
+            key = DeferredJoinQueries.getSelection(query) + ".id";
+
+            // Reads the ids in the page
+            builtQuery = buildQuery(
+                    DeferredJoinQueries.selectKeys(sorted, key), parameters);
+            applyPagination(builtQuery, pagination);
+            keys = builtQuery.getResultList();
+
+            if (keys.isEmpty()) {
+                entities = Collections.emptyList();
+            } else {
+                // Reads the entities for the ids
+                entitiesQuery = buildQuery(
+                        DeferredJoinQueries.restrictToKeys(query, String.format(
+                                "%s IN :%s", key,
+                                DeferredJoinQueries.KEYS_PARAMETER)),
+                        parameters);
+                entitiesQuery.setParameter(DeferredJoinQueries.KEYS_PARAMETER,
+                        keys);
+                entities = DeferredJoinQueries
+                        .orderByKeys(getResults(entitiesQuery), keys);
+            }
+        } else {
+            builtQuery = buildQuery(sorted, parameters);
+            applyPagination(builtQuery, pagination);
+            entities = getResults(builtQuery);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Executes the received JPQL query paginated by a key and returns the
+     * entities in the page.
+     *
+     * @param query
+     *            the JPQL query
+     * @param parameters
+     *            the parameters to apply
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    private final Collection<V> seek(final String query,
+            final Map<String, Object> parameters,
+            final KeysetPaginationData pagination) {
+        final Query builtQuery; // Query created from the query data
+
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+
+        builtQuery = buildQuery(KeysetQueries.seek(query, pagination),
+                parameters);
+
+        if (pagination.getLastKey() != null) {
+            builtQuery.setParameter(KeysetQueries.LAST_KEY_PARAMETER,
+                    pagination.getLastKey());
+        }
+        builtQuery.setMaxResults(pagination.getPageSize());
+
+        return getResults(builtQuery);
+    }
+
+    /**
+     * Returns an iterator reading the entities returned by the JPQL query in
+     * chunks.
+     * <p>
+     * Each chunk seeks the entities after the id of the last one read.
+     *
+     * @param query
+     *            the JPQL query
+     * @param parameters
+     *            the parameters to apply
+     * @return an iterator for the entities returned by the query
+     */
+    private final CloseableIterator<V> stream(final String query,
+            final Map<String, Object> parameters) {
+        final SortOrder order; // Order by the id
+
+        order = new SortOrder(DeferredJoinQueries.getSelection(query) + ".id",
+                SortDirection.ASCENDING);
+
+        return new ChunkedQueryIterator<V>(getEntityManager(),
+                new Function<Integer, Collection<V>>() {
+
+                    @Override
+                    public final Collection<V> apply(final Integer lastId) {
+                        return seek(query, parameters,
+                                new DefaultKeysetPaginationData(order,
+                                        fetchSize, lastId));
+                    }
+
+                }, fetchSize);
+    }
+
+    /**
+     * Adds or merges the entity into the persistence context.
+     * <p>
+     * If the entity lacks an identifier it is persisted, otherwise it is
+     * merged.
+     *
+     * @param entity
+     *            the entity to write
+     * @return the entity handled by the persistence context
+     */
+    private final V write(final V entity) {
+        final V managed; // Entity handled by the persistence context
+
+        if ((entity.getId() == null) || (entity.getId() < 0)) {
+            // No ID has been assigned
+            // It is a new entity
+            getEntityManager().persist(entity);
+            managed = entity;
+        } else {
+            // ID already assigned
+            // It is an existing entity
+            managed = getEntityManager().merge(entity);
+        }
+
+        return managed;
+    }
+
 }
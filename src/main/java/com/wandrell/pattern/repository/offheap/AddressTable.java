@@ -0,0 +1,292 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.offheap;
+
+import java.util.Arrays;
+
+/**
+ * Hash table from keys to the addresses where the entities are stored,
+ * built only from primitive arrays.
+ * <p>
+ * The keys themselves are not kept. Each entry stores the address of an
+ * entity and the hash of its key, and the entries are kept in the order they
+ * were added. When looking for a key, the entries with the same hash are sent
+ * to a {@link Matcher}, which checks the key against the stored entity.
+ * <p>
+ * The entries are found through an open-addressing table, with linear
+ * probing, containing the index of each entry. Removed entries are marked,
+ * and dropped when the table is rebuilt, which happens when it grows or when
+ * at least half of the entries have been removed.
+ * <p>
+ * So each entity takes, besides its stored bytes, an address, a hash and two
+ * table slots, and no object at all.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class AddressTable {
+
+    /**
+     * Checks if the entity at an address has the key being searched.
+     */
+    static interface Matcher {
+
+        /**
+         * Indicates if the entity at the address has the key being searched.
+         *
+         * @param address
+         *            address of the entity
+         * @return {@code true} if the entity has the key, {@code false}
+         *         otherwise
+         */
+        public boolean matches(final long address);
+
+    }
+
+    /**
+     * Initial number of entries.
+     */
+    private static final int  INITIAL_CAPACITY = 16;
+
+    /**
+     * Address marking a removed entry.
+     */
+    private static final long REMOVED          = -1;
+
+    /**
+     * Address of each entry.
+     */
+    private long[]            addresses;
+
+    /**
+     * Number of entries, including the removed ones.
+     */
+    private int               count;
+
+    /**
+     * Hash of the key of each entry.
+     */
+    private int[]             hashes;
+
+    /**
+     * Number of removed entries.
+     */
+    private int               removed;
+
+    /**
+     * Index of an entry, plus one, for each slot of the table.
+     * <p>
+     * Empty slots contain zero.
+     */
+    private int[]             slots;
+
+    /**
+     * Constructs an empty table.
+     */
+    public AddressTable() {
+        super();
+
+        addresses = new long[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Adds an entry at the end of the table.
+     * <p>
+     * It should be checked before that there is no entry for the same key.
+     *
+     * @param hash
+     *            hash of the key
+     * @param address
+     *            address of the entity
+     */
+    public final void add(final int hash, final long address) {
+        if ((count + 1) * 2 > slots.length) {
+            rebuild();
+        }
+        if (count == addresses.length) {
+            addresses = Arrays.copyOf(addresses, count * 2);
+            hashes = Arrays.copyOf(hashes, count * 2);
+        }
+
+        addresses[count] = address;
+        hashes[count] = hash;
+        insert(count);
+        count++;
+    }
+
+    /**
+     * Returns the entry for a key.
+     *
+     * @param hash
+     *            hash of the key
+     * @param matcher
+     *            matcher for the key
+     * @return the index of the entry, or {@code -1} if there is none
+     */
+    public final int find(final int hash, final Matcher matcher) {
+        int slot;  // Current slot
+        int entry; // Entry in the slot
+        int found; // Entry for the key
+
+        found = -1;
+        slot = getSlot(hash);
+        while ((found < 0) && (slots[slot] != 0)) {
+            entry = slots[slot] - 1;
+            if ((hashes[entry] == hash) && (addresses[entry] != REMOVED)
+                    && (matcher.matches(addresses[entry]))) {
+                found = entry;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the address of an entry.
+     * <p>
+     * Removed entries have a negative address.
+     *
+     * @param entry
+     *            index of the entry
+     * @return the address of the entry
+     */
+    public final long getAddress(final int entry) {
+        return addresses[entry];
+    }
+
+    /**
+     * Returns the number of entries, including the removed ones.
+     * <p>
+     * This is the limit for the entry indexes.
+     *
+     * @return the number of entries
+     */
+    public final int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of entries which have not been removed.
+     *
+     * @return the number of entries not removed
+     */
+    public final int getSize() {
+        return count - removed;
+    }
+
+    /**
+     * Removes an entry.
+     * <p>
+     * This may rebuild the table, changing the index of the other entries.
+     *
+     * @param entry
+     *            index of the entry
+     */
+    public final void remove(final int entry) {
+        addresses[entry] = REMOVED;
+        removed++;
+
+        if ((count > INITIAL_CAPACITY) && (removed * 2 >= count)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Changes the address of an entry.
+     *
+     * @param entry
+     *            index of the entry
+     * @param address
+     *            new address of the entity
+     */
+    public final void setAddress(final int entry, final long address) {
+        addresses[entry] = address;
+    }
+
+    /**
+     * Returns the first slot to probe for a hash.
+     *
+     * @param hash
+     *            hash of the key
+     * @return the first slot for the hash
+     */
+    private final int getSlot(final int hash) {
+        // Spreads the higher bits, as only the lower ones are used
+        return (hash ^ (hash >>> 16)) & (slots.length - 1);
+    }
+
+    /**
+     * Adds an entry to the first empty slot for its hash.
+     *
+     * @param entry
+     *            index of the entry
+     */
+    private final void insert(final int entry) {
+        int slot; // Current slot
+
+        slot = getSlot(hashes[entry]);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        slots[slot] = entry + 1;
+    }
+
+    /**
+     * Drops the removed entries, keeping the order of the rest, and rebuilds
+     * the slots, leaving room for at least another entry.
+     */
+    private final void rebuild() {
+        int kept; // Number of entries kept
+        int size; // Number of slots
+
+        kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (addresses[i] != REMOVED) {
+                addresses[kept] = addresses[i];
+                hashes[kept] = hashes[i];
+                kept++;
+            }
+        }
+        count = kept;
+        removed = 0;
+
+        size = INITIAL_CAPACITY * 2;
+        while (size < (count + 1) * 2) {
+            size *= 2;
+        }
+        if (size != slots.length) {
+            slots = new int[size];
+        } else {
+            Arrays.fill(slots, 0);
+        }
+
+        for (int i = 0; i < count; i++) {
+            insert(i);
+        }
+    }
+
+}
@@ -0,0 +1,426 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.offheap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.codec.EntityCodec;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+
+/**
+ * {@link com.wandrell.pattern.repository.FilteredRepository FilteredRepository}
+ * which stores the entities outside the Java heap.
+ * <p>
+ * Entities are encoded into bytes with an {@link EntityCodec}, and these bytes
+ * are stored in slabs of memory which are either direct buffers or regions
+ * mapped from a file. So the garbage collector never has to scan them.
+ * <p>
+ * The keys are not kept either. The address of each entity, and the hash of
+ * its key, are stored in primitive arrays, forming a hash table where the
+ * key is checked against the stored entity. So on the heap each entity only
+ * takes a few bytes in those arrays, and no object.
+ * <p>
+ * Each slab is split into chunks, the size of each one being the smallest
+ * power of two which can store an encoded entity. When an entity is removed
+ * its chunk is reused for the next entities of the same size, and when it is
+ * updated it stays in the same chunk as long as it still fits there.
+ * <p>
+ * Filters are applied to the encoded entities, which are received as a
+ * read-only {@code ByteBuffer} containing only the bytes generated by the
+ * codec. Only those entities which pass the filter are decoded, so the codec
+ * should write the fields most used for filtering in positions easy to read.
+ * <p>
+ * As in the {@link com.wandrell.pattern.repository.ConcurrentCollectionRepository
+ * ConcurrentCollectionRepository}, each entity is identified by the key
+ * generated for it by a function. Only one entity is kept for each key, and
+ * they are returned in the order they were added. As the keys are generated
+ * again from the stored entities, the function should not return the entity
+ * itself, so entities used with the default {@link EntityKeyFunction} should
+ * have an id.
+ * <p>
+ * The bytes being used can be checked with {@link #getAllocatedBytes()
+ * getAllocatedBytes} and {@link #getUsedBytes() getUsedBytes}.
+ * <p>
+ * This class is not thread-safe. Also, direct buffers are only released by
+ * the garbage collector, so the memory is not returned until the repository
+ * itself is collected. When mapping a file, closing its channel is up to the
+ * caller.
+ *
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ */
+public final class OffHeapRepository<V>
+        implements FilteredRepository<V, Predicate<ByteBuffer>> {
+
+    /**
+     * Default size for the slabs.
+     */
+    private static final int             DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * Allocator for the memory where the entities are stored.
+     */
+    private final SlabAllocator          allocator;
+
+    /**
+     * Codec for the entities.
+     */
+    private final EntityCodec<V>         codec;
+
+    /**
+     * Function generating the key for each entity.
+     */
+    private final Function<? super V, ?> keyFunction;
+
+    /**
+     * Address of the entity for each key.
+     * <p>
+     * This is sorted by insertion order.
+     */
+    private final AddressTable           positions;
+
+    /**
+     * Constructs a repository storing the entities in direct buffers.
+     * <p>
+     * Entities will be identified by an {@link EntityKeyFunction}.
+     *
+     * @param entityCodec
+     *            codec for the entities
+     */
+    public OffHeapRepository(final EntityCodec<V> entityCodec) {
+        this(entityCodec, new EntityKeyFunction());
+    }
+
+    /**
+     * Constructs a repository storing the entities in direct buffers, and
+     * identifying them with the specified function.
+     *
+     * @param entityCodec
+     *            codec for the entities
+     * @param function
+     *            function generating the key for each entity
+     */
+    public OffHeapRepository(final EntityCodec<V> entityCodec,
+            final Function<? super V, ?> function) {
+        this(entityCodec, function, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Constructs a repository storing the entities in direct buffers of the
+     * specified size.
+     * <p>
+     * No encoded entity can be bigger than the slab size.
+     *
+     * @param entityCodec
+     *            codec for the entities
+     * @param function
+     *            function generating the key for each entity
+     * @param slabSize
+     *            size for each buffer, which should be a power of two
+     */
+    public OffHeapRepository(final EntityCodec<V> entityCodec,
+            final Function<? super V, ?> function, final int slabSize) {
+        this(entityCodec, function, slabSize, null);
+    }
+
+    /**
+     * Constructs a repository storing the entities in regions of the specified
+     * size mapped from a file.
+     * <p>
+     * No encoded entity can be bigger than the slab size.
+     * <p>
+     * The file contents are overwritten, and it grows as more regions are
+     * needed.
+     *
+     * @param entityCodec
+     *            codec for the entities
+     * @param function
+     *            function generating the key for each entity
+     * @param slabSize
+     *            size for each region, which should be a power of two
+     * @param channel
+     *            read and write channel for the file to map
+     */
+    public OffHeapRepository(final EntityCodec<V> entityCodec,
+            final Function<? super V, ?> function, final int slabSize,
+            final FileChannel channel) {
+        super();
+
+        codec = checkNotNull(entityCodec,
+                "Received a null pointer as the codec");
+        keyFunction = checkNotNull(function,
+                "Received a null pointer as key function");
+
+        allocator = new SlabAllocator(slabSize, channel);
+        positions = new AddressTable();
+    }
+
+    /**
+     * Adds an entity to the repository.
+     * <p>
+     * If there is already an entity with the same key, then nothing is done.
+     *
+     * @param entity
+     *            the entity to add
+     */
+    @Override
+    public final void add(final V entity) {
+        final Object key; // Key for the entity
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        key = getKey(entity);
+
+        if (find(key) < 0) {
+            positions.add(key.hashCode(),
+                    allocator.allocate(codec.encode(entity)));
+        }
+    }
+
+    /**
+     * Returns the size of all the memory taken by the repository.
+     *
+     * @return the bytes taken by the repository
+     */
+    public final long getAllocatedBytes() {
+        return allocator.getAllocatedBytes();
+    }
+
+    /**
+     * Returns all the entities contained in the repository.
+     * <p>
+     * All of them are decoded into a new collection.
+     *
+     * @return all the entities contained in the repository
+     */
+    @Override
+    public final Collection<V> getAll() {
+        final Collection<V> result; // Decoded entities
+
+        result = new ArrayList<V>(positions.getSize());
+        for (int i = 0; i < positions.getCount(); i++) {
+            if (positions.getAddress(i) >= 0) {
+                result.add(decode(positions.getAddress(i)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entities which pass the filter.
+     * <p>
+     * The filter receives each encoded entity, and only those which pass it
+     * are decoded.
+     *
+     * @param filter
+     *            the filter for the encoded entities
+     * @return the entities which pass the filter
+     */
+    @Override
+    public final Collection<V>
+            getCollection(final Predicate<ByteBuffer> filter) {
+        final Collection<V> result; // Decoded entities
+        ByteBuffer record;          // Encoded entity
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        result = new ArrayList<V>();
+        for (int i = 0; i < positions.getCount(); i++) {
+            if (positions.getAddress(i) >= 0) {
+                record = allocator.read(positions.getAddress(i));
+                if (filter.apply(record)) {
+                    record.rewind();
+                    result.add(codec.decode(record));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the first entity which passes the filter.
+     * <p>
+     * The filter receives each encoded entity, and only the first one which
+     * passes it is decoded.
+     *
+     * @param filter
+     *            the filter for the encoded entities
+     * @return the first entity which passes the filter, or {@code null} if
+     *         none does
+     */
+    @Override
+    public final V getEntity(final Predicate<ByteBuffer> filter) {
+        ByteBuffer record; // Encoded entity
+        V entity;          // Decoded entity
+        int i;             // Current entry
+
+        checkNotNull(filter, "Received a null pointer as filter");
+
+        entity = null;
+        i = 0;
+        while ((entity == null) && (i < positions.getCount())) {
+            if (positions.getAddress(i) >= 0) {
+                record = allocator.read(positions.getAddress(i));
+                if (filter.apply(record)) {
+                    record.rewind();
+                    entity = codec.decode(record);
+                }
+            }
+            i++;
+        }
+
+        return entity;
+    }
+
+    /**
+     * Returns the size of the memory used for storing entities.
+     * <p>
+     * This includes the space wasted by rounding up the size of each entity,
+     * but not the space which is free.
+     *
+     * @return the bytes used for storing entities
+     */
+    public final long getUsedBytes() {
+        return allocator.getUsedBytes();
+    }
+
+    /**
+     * Removes the entity with the same key as the received one.
+     * <p>
+     * Its memory is kept, and will be reused for new entities.
+     *
+     * @param entity
+     *            the entity to remove
+     */
+    @Override
+    public final void remove(final V entity) {
+        final int entry; // Entry for the entity
+
+        if (entity != null) {
+            entry = find(getKey(entity));
+            if (entry >= 0) {
+                allocator.free(positions.getAddress(entry));
+                positions.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Updates an entity on the repository.
+     * <p>
+     * The entity stored with the same key is replaced by the received one,
+     * which takes its position. If there is no entity with the same key, then
+     * nothing is done.
+     *
+     * @param entity
+     *            the entity to update
+     */
+    @Override
+    public final void update(final V entity) {
+        final int entry;     // Entry for the entity
+        final long address;  // Address of the entity
+        final byte[] record; // Encoded entity
+
+        checkNotNull(entity, "Received a null pointer as entity");
+
+        entry = find(getKey(entity));
+
+        if (entry >= 0) {
+            address = positions.getAddress(entry);
+            record = codec.encode(entity);
+            if (!allocator.rewrite(address, record)) {
+                // Does not fit in the same chunk
+                positions.setAddress(entry, allocator.allocate(record));
+                allocator.free(address);
+            }
+        }
+    }
+
+    /**
+     * Decodes the entity at the specified address.
+     *
+     * @param address
+     *            address of the entity
+     * @return the decoded entity
+     */
+    private final V decode(final long address) {
+        return codec.decode(allocator.read(address));
+    }
+
+    /**
+     * Returns the entry for the specified key.
+     * <p>
+     * The key is checked against the entities stored with the same hash,
+     * which are decoded for this.
+     *
+     * @param key
+     *            key to search for
+     * @return the index of the entry, or {@code -1} if there is none
+     */
+    private final int find(final Object key) {
+        return positions.find(key.hashCode(), new AddressTable.Matcher() {
+
+            @Override
+            public final boolean matches(final long address) {
+                return key.equals(getKey(decode(address)));
+            }
+
+        });
+    }
+
+    /**
+     * Returns the key for the specified entity.
+     * <p>
+     * The key can't be the entity itself, as then it would be kept on the
+     * heap.
+     *
+     * @param entity
+     *            entity to generate the key for
+     * @return the key for the entity
+     */
+    private final Object getKey(final V entity) {
+        final Object key; // Key for the entity
+
+        key = checkNotNull(keyFunction.apply(entity),
+                "The key function returned a null pointer");
+        checkArgument(key != entity,
+                "The key can't be the entity itself, it should have an id");
+
+        return key;
+    }
+
+}
@@ -0,0 +1,396 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.offheap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocates chunks of memory outside the heap, storing a record in each of
+ * them.
+ * <p>
+ * The memory is requested in slabs of a fixed size, which are either direct
+ * buffers or regions mapped from a file. Each slab is then split into chunks,
+ * the size of which is always a power of two, and big enough to store a
+ * record along an {@code int} header with its length.
+ * <p>
+ * Freed chunks are kept in a free list for their size, and reused before
+ * taking new memory from the slabs.
+ * <p>
+ * Chunks are identified by an address, which contains the index of the slab
+ * on the higher 32 bits and the offset inside it on the lower ones.
+ *
+ * @author Bernardo Martínez Garrido
+ */
+final class SlabAllocator {
+
+    /**
+     * Size of the header stored before each record.
+     */
+    private static final int       HEADER_SIZE     = 4;
+
+    /**
+     * Initial capacity of each free list.
+     */
+    private static final int       INITIAL_FREE    = 16;
+
+    /**
+     * Power of two for the smallest chunk size.
+     */
+    private static final int       MIN_CHUNK_SHIFT = 4;
+
+    /**
+     * Channel to the file being mapped.
+     * <p>
+     * If this is {@code null} then direct buffers are used.
+     */
+    private final FileChannel      channel;
+
+    /**
+     * Number of free chunks for each chunk size.
+     */
+    private final int[]            freeCounts;
+
+    /**
+     * Free chunks for each chunk size.
+     * <p>
+     * Each list is a stack of addresses.
+     */
+    private final long[][]         freeLists;
+
+    /**
+     * Size of each slab.
+     */
+    private final int              slabSize;
+
+    /**
+     * Slabs taken until now.
+     */
+    private final List<ByteBuffer> slabs;
+
+    /**
+     * Offset of the first unused byte in the last slab.
+     */
+    private int                    top;
+
+    /**
+     * Size of all the chunks being used.
+     */
+    private long                   usedBytes;
+
+    /**
+     * Constructs an allocator with the specified slab size.
+     * <p>
+     * If a file channel is received the slabs will be regions mapped from it,
+     * otherwise direct buffers will be used.
+     *
+     * @param size
+     *            size of each slab, which should be a power of two
+     * @param fileChannel
+     *            channel to map the slabs from, may be {@code null}
+     */
+    public SlabAllocator(final int size, final FileChannel fileChannel) {
+        super();
+
+        checkArgument(Integer.bitCount(size) == 1,
+                "The slab size should be a power of two");
+        checkArgument(size >= (1 << MIN_CHUNK_SHIFT),
+                "The slab size should be at least %s bytes",
+                1 << MIN_CHUNK_SHIFT);
+
+        slabSize = size;
+        channel = fileChannel;
+        slabs = new ArrayList<ByteBuffer>();
+
+        freeLists = new long[getSizeClass(size) + 1][];
+        freeCounts = new int[freeLists.length];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new long[INITIAL_FREE];
+        }
+
+        // The first slab is taken when needed
+        top = size;
+    }
+
+    /**
+     * Stores the received record in a new chunk.
+     *
+     * @param record
+     *            record to store
+     * @return the address of the chunk
+     */
+    public final long allocate(final byte[] record) {
+        final int chunkSize; // Size of the chunk to use
+        final int sizeClass; // Size class of the chunk
+        final long address;  // Address of the chunk
+
+        chunkSize = getChunkSize(record.length);
+        checkArgument(chunkSize <= slabSize,
+                "The record needs %s bytes, but slabs have %s", chunkSize,
+                slabSize);
+
+        sizeClass = getSizeClass(chunkSize);
+        if (freeCounts[sizeClass] > 0) {
+            freeCounts[sizeClass]--;
+            address = freeLists[sizeClass][freeCounts[sizeClass]];
+        } else {
+            if (top + chunkSize > slabSize) {
+                addSlab();
+            }
+            address = getAddress(slabs.size() - 1, top);
+            top += chunkSize;
+        }
+
+        write(address, record);
+        usedBytes += chunkSize;
+
+        return address;
+    }
+
+    /**
+     * Frees the chunk at the specified address.
+     * <p>
+     * It will be reused on later allocations.
+     *
+     * @param address
+     *            address of the chunk to free
+     */
+    public final void free(final long address) {
+        final int chunkSize; // Size of the chunk to free
+
+        chunkSize = getChunkSize(getSlab(address).getInt(getOffset(address)));
+        usedBytes -= chunkSize;
+        pushFree(address, getSizeClass(chunkSize));
+    }
+
+    /**
+     * Returns the size of all the slabs taken.
+     *
+     * @return the size of all the slabs
+     */
+    public final long getAllocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    /**
+     * Returns the size of all the chunks being used.
+     * <p>
+     * This includes the headers, and the space wasted by rounding up the size
+     * of each record.
+     *
+     * @return the size of all the chunks being used
+     */
+    public final long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns a read-only view of the record in the chunk at the specified
+     * address.
+     * <p>
+     * The view begins at the start of the record, and its limit is the end of
+     * the record.
+     *
+     * @param address
+     *            address of the chunk
+     * @return a view of the record in the chunk
+     */
+    public final ByteBuffer read(final long address) {
+        final ByteBuffer view; // View of the slab
+        final int offset;      // Offset of the chunk
+
+        offset = getOffset(address);
+        view = getSlab(address).asReadOnlyBuffer();
+        view.position(offset + HEADER_SIZE);
+        view.limit(offset + HEADER_SIZE + view.getInt(offset));
+
+        return view.slice();
+    }
+
+    /**
+     * Stores the received record in place of the one in the chunk at the
+     * specified address, if it fits in the same size of chunk.
+     *
+     * @param address
+     *            address of the chunk
+     * @param record
+     *            record to store
+     * @return {@code true} if the record was stored, {@code false} otherwise
+     */
+    public final boolean rewrite(final long address, final byte[] record) {
+        final int stored;   // Length of the stored record
+        final boolean fits; // Flag marking if the record fits
+
+        stored = getSlab(address).getInt(getOffset(address));
+        fits = getChunkSize(stored) == getChunkSize(record.length);
+        if (fits) {
+            write(address, record);
+        }
+
+        return fits;
+    }
+
+    /**
+     * Takes a new slab.
+     * <p>
+     * The unused space at the end of the current slab is split into chunks,
+     * which are added to the free lists.
+     */
+    private final void addSlab() {
+        final ByteBuffer slab; // New slab
+        final long position;   // Position of the slab in the file
+        int chunkSize;         // Size of the chunk to free
+
+        // Frees the unused space, as the biggest chunks which fit
+        while (top < slabSize) {
+            chunkSize = Integer.highestOneBit(slabSize - top);
+            pushFree(getAddress(slabs.size() - 1, top),
+                    getSizeClass(chunkSize));
+            top += chunkSize;
+        }
+
+        if (channel == null) {
+            slab = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            position = (long) slabs.size() * slabSize;
+            try {
+                slab = channel.map(MapMode.READ_WRITE, position, slabSize);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        slabs.add(slab);
+        top = 0;
+    }
+
+    /**
+     * Returns the address for the specified chunk.
+     *
+     * @param slab
+     *            index of the slab
+     * @param offset
+     *            offset of the chunk in the slab
+     * @return the address of the chunk
+     */
+    private final long getAddress(final int slab, final int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    /**
+     * Returns the size of the chunk used for a record of the specified length.
+     *
+     * @param length
+     *            length of the record
+     * @return the size of the chunk for the record
+     */
+    private final int getChunkSize(final int length) {
+        final int required; // Bytes required by the record
+
+        required = Math.max(length + HEADER_SIZE, 1 << MIN_CHUNK_SHIFT);
+
+        return Integer.highestOneBit(required - 1) << 1;
+    }
+
+    /**
+     * Returns the offset of the chunk at the specified address.
+     *
+     * @param address
+     *            address of the chunk
+     * @return the offset of the chunk
+     */
+    private final int getOffset(final long address) {
+        return (int) address;
+    }
+
+    /**
+     * Returns the size class for the specified chunk size.
+     * <p>
+     * This is the index of its free list.
+     *
+     * @param chunkSize
+     *            size of the chunk
+     * @return the size class of the chunk
+     */
+    private final int getSizeClass(final int chunkSize) {
+        return Integer.numberOfTrailingZeros(chunkSize) - MIN_CHUNK_SHIFT;
+    }
+
+    /**
+     * Returns the slab containing the chunk at the specified address.
+     *
+     * @param address
+     *            address of the chunk
+     * @return the slab containing the chunk
+     */
+    private final ByteBuffer getSlab(final long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    /**
+     * Adds a chunk to the free list for its size.
+     *
+     * @param address
+     *            address of the chunk
+     * @param sizeClass
+     *            size class of the chunk
+     */
+    private final void pushFree(final long address, final int sizeClass) {
+        if (freeCounts[sizeClass] == freeLists[sizeClass].length) {
+            freeLists[sizeClass] = Arrays.copyOf(freeLists[sizeClass],
+                    freeCounts[sizeClass] * 2);
+        }
+        freeLists[sizeClass][freeCounts[sizeClass]] = address;
+        freeCounts[sizeClass]++;
+    }
+
+    /**
+     * Writes a record, along its header, into the chunk at the specified
+     * address.
+     *
+     * @param address
+     *            address of the chunk
+     * @param record
+     *            record to write
+     */
+    private final void write(final long address, final byte[] record) {
+        final ByteBuffer view; // View of the slab
+        final int offset;      // Offset of the chunk
+
+        offset = getOffset(address);
+        view = getSlab(address).duplicate();
+        view.putInt(offset, record.length);
+        view.position(offset + HEADER_SIZE);
+        view.put(record);
+    }
+
+}
@@ -39,12 +39,27 @@
  * But the {@link com.wandrell.pattern.repository.FilteredRepository
  * FilteredRepository} additionally allows acquiring just a subset of data from
  * the repository, with the use of a filter class.
+ * <p>
+ * The {@link com.wandrell.pattern.repository.BatchRepository BatchRepository}
+ * allows modifying several entities at once, which the implementations can
+ * use to group the operations.
  * <h2>Implementations</h2>
  * <p>
  * A basic implementation of the {@code FilteredRepository},
  * {@link com.wandrell.pattern.repository.CollectionRepository
  * CollectionRepository}, serves as a working stub, allowing to use a repository
  * witout setting up any persistence system.
+ * <p>
+ * When the repository is shared between threads, the
+ * {@link com.wandrell.pattern.repository.ConcurrentCollectionRepository
+ * ConcurrentCollectionRepository} and the
+ * {@link com.wandrell.pattern.repository.SnapshotCollectionRepository
+ * SnapshotCollectionRepository} can be used instead. The first allows reading
+ * without locks, while the second reads from immutable snapshots.
+ * <p>
+ * For entities looked up by their identifiers, the
+ * {@link com.wandrell.pattern.repository.IntKeyedRepository
+ * IntKeyedRepository} stores them by their primitive {@code int} identifiers.
  */
 
 package com.wandrell.pattern.repository;
@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache for the total number of entities returned by queries, so paginating
+ * them doesn't require counting the entities for each page.
+ * <p>
+ * The counts are stored by the fingerprint of the query, which is made of the
+ * query and its parameters, for a limited time. As the cache doesn't know when
+ * the data changes, the repositories using it should invalidate it when
+ * modifying their entities. Changes made from elsewhere are only seen once
+ * the counts expire.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class CountCache {
+
+    /**
+     * Default time the counts are kept, in seconds.
+     */
+    public static final long          DEFAULT_EXPIRATION = 60;
+
+    /**
+     * Default maximum number of counts kept.
+     */
+    public static final long          DEFAULT_SIZE       = 1000;
+
+    /**
+     * Cached counts, by query fingerprint.
+     */
+    private final Cache<String, Long> counts;
+
+    /**
+     * Constructs a {@code CountCache} with the default expiration and size.
+     */
+    public CountCache() {
+        this(DEFAULT_EXPIRATION, TimeUnit.SECONDS, DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a {@code CountCache} with the specified expiration and size.
+     * 
+     * @param expiration
+     *            time the counts are kept
+     * @param unit
+     *            unit of the expiration time
+     * @param size
+     *            maximum number of counts kept
+     */
+    public CountCache(final long expiration, final TimeUnit unit,
+            final long size) {
+        super();
+
+        checkArgument(expiration >= 0, "The expiration can't be negative");
+        checkNotNull(unit, "Received a null pointer as time unit");
+        checkArgument(size >= 0, "The size can't be negative");
+
+        counts = CacheBuilder.newBuilder().expireAfterWrite(expiration, unit)
+                .maximumSize(size).build();
+    }
+
+    /**
+     * Returns the cached count for the query, or {@code null} if there is
+     * none.
+     * 
+     * @param query
+     *            counted query
+     * @param parameters
+     *            parameters of the query
+     * @return the count of the query, or {@code null} if not cached
+     */
+    public final Long getCount(final String query,
+            final Map<String, ?> parameters) {
+        return counts.getIfPresent(getFingerprint(query, parameters));
+    }
+
+    /**
+     * Removes all the cached counts.
+     */
+    public final void invalidateAll() {
+        counts.invalidateAll();
+    }
+
+    /**
+     * Stores the count for the query.
+     * 
+     * @param query
+     *            counted query
+     * @param parameters
+     *            parameters of the query
+     * @param count
+     *            number of entities returned by the query
+     */
+    public final void putCount(final String query,
+            final Map<String, ?> parameters, final Long count) {
+        checkNotNull(count, "Received a null pointer as count");
+
+        counts.put(getFingerprint(query, parameters), count);
+    }
+
+    /**
+     * Returns the fingerprint for the query.
+     * <p>
+     * The parameters are sorted by name, so their order doesn't change it.
+     * 
+     * @param query
+     *            query to identify
+     * @param parameters
+     *            parameters of the query
+     * @return the fingerprint of the query
+     */
+    private final String getFingerprint(final String query,
+            final Map<String, ?> parameters) {
+        checkNotNull(query, "Received a null pointer as query");
+        checkNotNull(parameters, "Received a null pointer as parameters");
+
+        return query + '\n' + new TreeMap<String, Object>(parameters);
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+/**
+ * Extension of {@link PaginatedRepository} returning pages which contain the
+ * total number of entities which could be paginated.
+ * <p>
+ * Implementations should avoid querying the data source twice for this, for
+ * example by reading the count along the page, or reusing the count from
+ * previous pages.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ * @param <F>
+ *            the type being used to filter the entities
+ * @see Page
+ */
+public interface CountedPaginatedRepository<V, F>
+        extends PaginatedRepository<V, F> {
+
+    /**
+     * Returns a page of all the entities contained in the repository, along
+     * the total number of entities.
+     * 
+     * @param pagination
+     *            pagination data
+     * @return a page of all the entities, with their total number
+     */
+    public Page<V> getPage(final PaginationData pagination);
+
+    /**
+     * Queries the entities in the repository and returns a page of them, along
+     * the total number of queried entities.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param pagination
+     *            pagination data
+     * @return a page of the filtered entities, with their total number
+     */
+    public Page<V> getPage(final F filter, final PaginationData pagination);
+
+}
@@ -0,0 +1,230 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.Charset;
+
+import com.google.common.io.BaseEncoding;
+import com.wandrell.pattern.repository.sort.SortOrder;
+
+/**
+ * Default implementation of {@code KeysetPaginationData}.
+ * <p>
+ * The key of the last entity can be transformed into an opaque cursor with
+ * {@link #getCursor() getCursor}, which can be sent to a client, and back
+ * with {@link #fromCursor(SortOrder, Integer, String) fromCursor}. Cursors
+ * support {@code Integer}, {@code Long} and {@code String} keys.
+ * <p>
+ * This is an immutable class.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class DefaultKeysetPaginationData implements KeysetPaginationData {
+
+    /**
+     * Charset for the cursors.
+     */
+    private static final Charset      CHARSET  = Charset.forName("UTF-8");
+
+    /**
+     * Encoding for the cursors.
+     */
+    private static final BaseEncoding ENCODING = BaseEncoding.base64Url()
+            .omitPadding();
+
+    /**
+     * Returns the pagination data for the page following the key stored in
+     * the cursor.
+     * 
+     * @param order
+     *            key property and direction
+     * @param size
+     *            size of the page
+     * @param cursor
+     *            cursor created by {@link #getCursor() getCursor}, or
+     *            {@code null} for the first page
+     * @return the pagination data for the page after the cursor
+     */
+    public static final DefaultKeysetPaginationData fromCursor(
+            final SortOrder order, final Integer size, final String cursor) {
+        final Object key;     // Key stored in the cursor
+        final String decoded; // Decoded cursor
+        final String value;   // Value of the key
+
+        if (cursor == null) {
+            key = null;
+        } else {
+            try {
+                decoded = new String(ENCODING.decode(cursor), CHARSET);
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid cursor %s", cursor), e);
+            }
+
+            checkArgument(decoded.length() > 1 && decoded.charAt(1) == ':',
+                    "Invalid cursor %s", cursor);
+
+            value = decoded.substring(2);
+            try {
+                switch (decoded.charAt(0)) {
+                    case 'I':
+                        key = Integer.valueOf(value);
+                        break;
+                    case 'L':
+                        key = Long.valueOf(value);
+                        break;
+                    case 'S':
+                        key = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(
+                                String.format("Invalid cursor %s", cursor));
+                }
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid cursor %s", cursor), e);
+            }
+        }
+
+        return new DefaultKeysetPaginationData(order, size, key);
+    }
+
+    /**
+     * Key of the last entity of the previous page.
+     */
+    private final Object    lastKey;
+
+    /**
+     * Key property and direction.
+     */
+    private final SortOrder order;
+
+    /**
+     * Size of the page.
+     */
+    private final Integer   pageSize;
+
+    /**
+     * Constructs a {@code DefaultKeysetPaginationData} for the first page.
+     * 
+     * @param keyOrder
+     *            key property and direction
+     * @param size
+     *            size of the page
+     */
+    public DefaultKeysetPaginationData(final SortOrder keyOrder,
+            final Integer size) {
+        this(keyOrder, size, null);
+    }
+
+    /**
+     * Constructs a {@code DefaultKeysetPaginationData} for the page following
+     * the specified key.
+     * 
+     * @param keyOrder
+     *            key property and direction
+     * @param size
+     *            size of the page
+     * @param key
+     *            key of the last entity of the previous page, or {@code null}
+     *            for the first page
+     */
+    public DefaultKeysetPaginationData(final SortOrder keyOrder,
+            final Integer size, final Object key) {
+        super();
+
+        order = checkNotNull(keyOrder, "Received a null pointer as order");
+        pageSize = checkNotNull(size, "Received a null pointer as page size");
+        checkArgument(size > 0, "The page size should be positive");
+
+        lastKey = key;
+    }
+
+    /**
+     * Returns an opaque cursor storing the key of the last entity.
+     * <p>
+     * For the first page this is {@code null}.
+     * 
+     * @return a cursor storing the key of the last entity
+     */
+    public final String getCursor() {
+        final String cursor; // Cursor for the key
+        final char type;     // Type of the key
+
+        if (lastKey == null) {
+            cursor = null;
+        } else {
+            if (lastKey instanceof Integer) {
+                type = 'I';
+            } else if (lastKey instanceof Long) {
+                type = 'L';
+            } else if (lastKey instanceof String) {
+                type = 'S';
+            } else {
+                throw new IllegalStateException(String.format(
+                        "Keys of type %s can't be stored in a cursor",
+                        lastKey.getClass().getName()));
+            }
+
+            cursor = ENCODING
+                    .encode((type + ":" + lastKey).getBytes(CHARSET));
+        }
+
+        return cursor;
+    }
+
+    @Override
+    public final Object getLastKey() {
+        return lastKey;
+    }
+
+    @Override
+    public final SortOrder getOrder() {
+        return order;
+    }
+
+    @Override
+    public final Integer getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the pagination data for the page following the specified key,
+     * with the same order and size as this one.
+     * 
+     * @param key
+     *            key of the last entity of this page
+     * @return the pagination data for the next page
+     */
+    public final DefaultKeysetPaginationData next(final Object key) {
+        checkNotNull(key, "Received a null pointer as key");
+
+        return new DefaultKeysetPaginationData(order, pageSize, key);
+    }
+
+}
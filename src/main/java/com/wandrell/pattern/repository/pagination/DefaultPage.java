@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Default implementation of {@code Page}.
+ * <p>
+ * This is an immutable class, the collection of entities can't be modified.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities in the page
+ */
+public final class DefaultPage<V> implements Page<V> {
+
+    /**
+     * Entities in the page.
+     */
+    private final Collection<V>  entities;
+
+    /**
+     * Pagination data for the page.
+     */
+    private final PaginationData pagination;
+
+    /**
+     * Total number of entities.
+     */
+    private final Long           totalCount;
+
+    /**
+     * Constructs a {@code DefaultPage} with the specified data.
+     * 
+     * @param content
+     *            entities in the page
+     * @param paginationData
+     *            pagination data for the page
+     * @param total
+     *            total number of entities
+     */
+    public DefaultPage(final Collection<V> content,
+            final PaginationData paginationData, final Long total) {
+        super();
+
+        entities = Collections.unmodifiableCollection(checkNotNull(content,
+                "Received a null pointer as entities"));
+        pagination = checkNotNull(paginationData,
+                "Received a null pointer as pagination data");
+        totalCount = checkNotNull(total,
+                "Received a null pointer as total count");
+    }
+
+    @Override
+    public final Collection<V> getEntities() {
+        return entities;
+    }
+
+    @Override
+    public final Integer getPageNumber() {
+        return pagination.getPageNumber();
+    }
+
+    @Override
+    public final Integer getPageSize() {
+        return pagination.getPageSize();
+    }
+
+    @Override
+    public final Long getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public final Long getTotalPages() {
+        return (totalCount + getPageSize() - 1) / getPageSize();
+    }
+
+}
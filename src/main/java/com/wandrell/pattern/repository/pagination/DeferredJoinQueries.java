@@ -0,0 +1,198 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.wandrell.pattern.repository.entity.PersistenceEntity;
+
+/**
+ * Utilities for paginating queries with a deferred join.
+ * <p>
+ * Instead of reading the full rows while skipping the offset, first the keys
+ * of the entities in the page are read, which the database can do using just
+ * an index, and then the full rows are read only for those keys. On wide
+ * tables this avoids reading all the skipped rows.
+ * <p>
+ * The queries should select a single table, or entity, and should not be
+ * grouped or contain subqueries before their {@code WHERE} clause.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class DeferredJoinQueries {
+
+    /**
+     * Name of the parameter receiving the keys of the entities in the page.
+     */
+    public static final String   KEYS_PARAMETER = "deferredKeys";
+
+    /**
+     * Pattern for finding the {@code SELECT} clause.
+     */
+    private static final Pattern SELECT         = Pattern.compile(
+            "^\\s*SELECT\\s+(DISTINCT\\s+)?(.+?)\\s+FROM\\s",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Returns what is selected by the query.
+     * <p>
+     * For a JPQL query this is the identification variable of the entity,
+     * such as {@code employee} in
+     * {@code SELECT employee FROM Employee employee}.
+     * 
+     * @param query
+     *            query to read
+     * @return what is selected by the query
+     */
+    public static final String getSelection(final String query) {
+        return getSelectClause(query).group(2);
+    }
+
+    /**
+     * Sorts the entities in the same order as their keys.
+     * <p>
+     * The entities read by the second query are not sorted, so this restores
+     * the order of the page.
+     * 
+     * @param <V>
+     *            the type of the entities
+     * @param entities
+     *            entities to sort
+     * @param keys
+     *            keys of the entities, in the order of the page
+     * @return the entities sorted as their keys
+     */
+    public static final <V extends PersistenceEntity> List<V> orderByKeys(
+            final Collection<V> entities, final List<Integer> keys) {
+        final Map<Integer, V> byKey; // Entities by their keys
+        final List<V> sorted;        // Sorted entities
+        V entity;                    // Entity for the current key
+
+        checkNotNull(entities, "Received a null pointer as entities");
+        checkNotNull(keys, "Received a null pointer as keys");
+
+        byKey = new HashMap<Integer, V>();
+        for (final V read : entities) {
+            byKey.put(read.getId(), read);
+        }
+
+        sorted = new ArrayList<V>(keys.size());
+        for (final Integer key : keys) {
+            entity = byKey.get(key);
+            // Entities removed between both queries are skipped
+            if (entity != null) {
+                sorted.add(entity);
+            }
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Returns the received query with an additional condition, which should
+     * restrict it to the keys of the page.
+     * <p>
+     * The condition is combined with the {@code WHERE} clause of the query if
+     * it has one. It should compare the key with the {@link #KEYS_PARAMETER}
+     * named parameter, using the syntax for collection parameters of the query
+     * language, such as {@code id IN (:deferredKeys)} for Spring JDBC, or
+     * {@code employee.id IN :deferredKeys} for JPQL.
+     * <p>
+     * The query should not be sorted.
+     * 
+     * @param query
+     *            query to restrict
+     * @param condition
+     *            condition restricting the query to the keys
+     * @return the query restricted to the keys
+     */
+    public static final String restrictToKeys(final String query,
+            final String condition) {
+        checkNotNull(query, "Received a null pointer as query");
+        checkNotNull(condition, "Received a null pointer as condition");
+
+        return QueryConditions.and(query, condition);
+    }
+
+    /**
+     * Returns the received query selecting just the key.
+     * <p>
+     * Any {@code DISTINCT} modifier is kept.
+     * 
+     * @param query
+     *            query to transform
+     * @param key
+     *            key column, or path, to select
+     * @return the query selecting the key
+     */
+    public static final String selectKeys(final String query,
+            final String key) {
+        final Matcher select; // Matcher for the SELECT clause
+
+        checkNotNull(key, "Received a null pointer as key");
+
+        select = getSelectClause(query);
+
+        return String.format("SELECT %s%s FROM %s",
+                select.group(1) == null ? "" : select.group(1), key,
+                query.substring(select.end()));
+    }
+
+    /**
+     * Returns a matcher positioned on the {@code SELECT} clause of the query.
+     * 
+     * @param query
+     *            query to read
+     * @return a matcher for the {@code SELECT} clause
+     */
+    private static final Matcher getSelectClause(final String query) {
+        final Matcher select; // Matcher for the SELECT clause
+
+        checkNotNull(query, "Received a null pointer as query");
+
+        select = SELECT.matcher(query);
+        checkArgument(select.find(),
+                "Couldn't find the SELECT clause in the query %s", query);
+
+        return select;
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private DeferredJoinQueries() {
+        super();
+    }
+
+}
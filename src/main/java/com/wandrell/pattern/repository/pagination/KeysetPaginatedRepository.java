@@ -0,0 +1,73 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import java.util.Collection;
+
+import com.wandrell.pattern.repository.FilteredRepository;
+
+/**
+ * Extension of {@link com.wandrell.pattern.repository.FilteredRepository
+ * FilteredRepository} allowing paginating it's contents by a key, instead of
+ * by the number of the page.
+ * <p>
+ * Each page is acquired from the key of the last entity of the previous one,
+ * which avoids reading and discarding the entities before the page, as an
+ * offset does.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ * @param <F>
+ *            the type being used to filter the entities
+ * @see KeysetPaginationData
+ */
+public interface KeysetPaginatedRepository<V, F>
+        extends FilteredRepository<V, F> {
+
+    /**
+     * Returns a page of all the entities contained in the repository, starting
+     * after the key of the pagination data.
+     * 
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    public Collection<V> getAll(final KeysetPaginationData pagination);
+
+    /**
+     * Queries the entities in the repository and returns a page of them,
+     * starting after the key of the pagination data.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    public Collection<V> getCollection(final F filter,
+            final KeysetPaginationData pagination);
+
+}
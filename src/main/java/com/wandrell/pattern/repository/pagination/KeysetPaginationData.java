@@ -0,0 +1,70 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import com.wandrell.pattern.repository.sort.SortOrder;
+
+/**
+ * Interface for keyset pagination data.
+ * <p>
+ * Instead of the number of the page, this carries the key of the last entity
+ * of the previous page. The page contains the entities following it in the
+ * order of the key, which is found by the database through the index of the
+ * key, so reading any page takes the same time, no matter how deep it is.
+ * <p>
+ * The key should be unique, such as the id, otherwise the entities sharing
+ * the key of the last entity of a page will be skipped.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see com.wandrell.pattern.repository.pagination.KeysetPaginatedRepository
+ *      KeysetPaginatedRepository
+ */
+public interface KeysetPaginationData {
+
+    /**
+     * Returns the key of the last entity of the previous page.
+     * <p>
+     * For the first page this is {@code null}.
+     * 
+     * @return the key of the last entity of the previous page
+     */
+    public Object getLastKey();
+
+    /**
+     * Returns the property used as key, and the direction in which the
+     * entities are sorted by it.
+     * 
+     * @return the key property and direction
+     */
+    public SortOrder getOrder();
+
+    /**
+     * Returns the size of the page.
+     * 
+     * @return the size of the page
+     */
+    public Integer getPageSize();
+
+}
@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+
+/**
+ * Utilities for adding keyset pagination to the queries sent to a database.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class KeysetQueries {
+
+    /**
+     * Name of the parameter receiving the key of the last entity.
+     */
+    public static final String LAST_KEY_PARAMETER = "keysetLastKey";
+
+    /**
+     * Returns the received query limited to the entities after the last key,
+     * and sorted by the key.
+     * <p>
+     * For the first page the query is just sorted. Otherwise a condition
+     * comparing the key with the {@link #LAST_KEY_PARAMETER} named parameter
+     * is added, combined with the {@code WHERE} clause of the query if it has
+     * one. The size of the page should be applied by the repository.
+     * <p>
+     * The query should not be sorted or grouped, and should not contain
+     * subqueries before its {@code WHERE} clause.
+     * 
+     * @param query
+     *            query to paginate
+     * @param pagination
+     *            keyset pagination data
+     * @return the query for the page
+     */
+    public static final String seek(final String query,
+            final KeysetPaginationData pagination) {
+        final StringBuilder paginated; // Paginated query
+        final SortOrder order;         // Key property and direction
+        final String operator;         // Comparison with the last key
+
+        checkNotNull(query, "Received a null pointer as query");
+        checkNotNull(pagination, "Received a null pointer as pagination");
+
+        order = pagination.getOrder();
+
+        if (pagination.getLastKey() == null) {
+            paginated = new StringBuilder(query);
+        } else {
+            if (order.getDirection() == SortDirection.DESCENDING) {
+                operator = " < :";
+            } else {
+                operator = " > :";
+            }
+
+            paginated = new StringBuilder(QueryConditions.and(query,
+                    order.getProperty() + operator + LAST_KEY_PARAMETER));
+        }
+
+        paginated.append(" ORDER BY ");
+        paginated.append(order.getProperty());
+        paginated.append(' ');
+        paginated.append(order.getDirection().getKeyword());
+
+        return paginated.toString();
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private KeysetQueries() {
+        super();
+    }
+
+}
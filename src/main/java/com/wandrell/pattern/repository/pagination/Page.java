@@ -0,0 +1,78 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import java.util.Collection;
+
+/**
+ * Page of entities, along the total number of entities which could be
+ * paginated.
+ * <p>
+ * This allows showing the number of pages without querying the repository
+ * again.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities in the page
+ * @see CountedPaginatedRepository
+ */
+public interface Page<V> {
+
+    /**
+     * Returns the entities in the page.
+     * 
+     * @return the entities in the page
+     */
+    public Collection<V> getEntities();
+
+    /**
+     * Returns the number of the page.
+     * 
+     * @return the number of the page
+     */
+    public Integer getPageNumber();
+
+    /**
+     * Returns the size of the page.
+     * 
+     * @return the size of the page
+     */
+    public Integer getPageSize();
+
+    /**
+     * Returns the total number of entities, in all the pages.
+     * 
+     * @return the total number of entities
+     */
+    public Long getTotalCount();
+
+    /**
+     * Returns the total number of pages.
+     * 
+     * @return the total number of pages
+     */
+    public Long getTotalPages();
+
+}
@@ -0,0 +1,325 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.base.Throwables;
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+
+/**
+ * Iterator over the pages of a {@link PaginatedRepository}, which reads the
+ * following pages in the background while the current one is processed.
+ * <p>
+ * The pages are read in order, one after the other, by a single task running
+ * on the received executor. This task reads ahead at most the number of pages
+ * set as the prefetch depth, and then waits until the iterator returns one of
+ * them. The iteration ends with the first page which is not full.
+ * <p>
+ * As the pages are read on another thread, the repository should not share
+ * its resources with the code using the iterator. A {@code JpaRepository}
+ * should use its own {@code EntityManager}, or one shared by Spring, which
+ * gives each thread its own one. A {@code SpringJdbcRepository} takes a
+ * connection from the data source for each page. In both cases the pages are
+ * read outside of the transaction of the code using the iterator.
+ * <p>
+ * Closing the iterator cancels the task, interrupting it, and drops the pages
+ * already read. A page being read when it is cancelled is still finished by
+ * the repository, but it is not kept. If reading a page fails, the exception
+ * or error is thrown by the iterator once it reaches that page.
+ * <p>
+ * For example, to process all the entities in pages of 100, reading up to two
+ * pages ahead:
+ * <p>
+ * {@code pages = new PrefetchingPageIterator<Employee, Query>(repository,}
+ * <br>
+ * {@code         executor, 100, 2);}
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ * @param <F>
+ *            the type being used to filter the entities
+ * @see PaginatedRepository
+ */
+public final class PrefetchingPageIterator<V, F>
+        implements CloseableIterator<Collection<V>> {
+
+    /**
+     * Result of reading a page.
+     * <p>
+     * If it contains no entities, and no failure, the iteration has ended.
+     * 
+     * @param <V>
+     *            the type of the entities in the page
+     */
+    private static final class Fetched<V> {
+
+        /**
+         * Entities in the page.
+         */
+        private final Collection<V> entities;
+
+        /**
+         * Exception or error thrown when reading the page.
+         */
+        private final Throwable     failure;
+
+        /**
+         * Constructs the result of reading a page.
+         * 
+         * @param page
+         *            entities in the page, or {@code null} if there are no
+         *            more pages
+         * @param exception
+         *            exception or error thrown when reading the page, or
+         *            {@code null} if it was read
+         */
+        public Fetched(final Collection<V> page, final Throwable exception) {
+            super();
+
+            entities = page;
+            failure = exception;
+        }
+
+    }
+
+    /**
+     * Default number of pages read ahead.
+     */
+    public static final int                 DEFAULT_DEPTH = 1;
+
+    /**
+     * Flag marking if the iterator has been closed.
+     */
+    private boolean                         closed;
+
+    /**
+     * Task reading the pages.
+     */
+    private final Future<?>                 fetching;
+
+    /**
+     * Next page to return.
+     * <p>
+     * It is {@code null} if it has not been taken from the queue yet.
+     */
+    private Fetched<V>                      next;
+
+    /**
+     * Pages read, waiting to be returned.
+     */
+    private final BlockingQueue<Fetched<V>> pages;
+
+    /**
+     * Permits for reading pages ahead.
+     * <p>
+     * The reading task takes one before reading each page, and the iterator
+     * gives it back after returning it.
+     */
+    private final Semaphore                 permits;
+
+    /**
+     * Constructs an iterator over the pages of all the entities in the
+     * repository.
+     * <p>
+     * The reading starts as soon as the iterator is created.
+     * 
+     * @param repository
+     *            repository to read
+     * @param executor
+     *            executor for reading the pages
+     * @param pageSize
+     *            number of entities in each page
+     * @param depth
+     *            maximum number of pages read ahead
+     */
+    public PrefetchingPageIterator(final PaginatedRepository<V, F> repository,
+            final ExecutorService executor, final Integer pageSize,
+            final Integer depth) {
+        this(repository, null, executor, pageSize, depth);
+    }
+
+    /**
+     * Constructs an iterator over the pages of the entities in the repository
+     * accepted by the filter.
+     * <p>
+     * The reading starts as soon as the iterator is created.
+     * 
+     * @param repository
+     *            repository to read
+     * @param filter
+     *            filter for the entities, or {@code null} to read all of them
+     * @param executor
+     *            executor for reading the pages
+     * @param pageSize
+     *            number of entities in each page
+     * @param depth
+     *            maximum number of pages read ahead
+     */
+    public PrefetchingPageIterator(final PaginatedRepository<V, F> repository,
+            final F filter, final ExecutorService executor,
+            final Integer pageSize, final Integer depth) {
+        super();
+
+        checkNotNull(repository, "Received a null pointer as the repository");
+        checkNotNull(executor, "Received a null pointer as the executor");
+        checkNotNull(pageSize, "Received a null pointer as the page size");
+        checkNotNull(depth, "Received a null pointer as the prefetch depth");
+        checkArgument(pageSize > 0, "The page size should be positive");
+        checkArgument(depth > 0, "The prefetch depth should be positive");
+
+        pages = new LinkedBlockingQueue<Fetched<V>>();
+        permits = new Semaphore(depth);
+
+        fetching = executor.submit(new Runnable() {
+
+            @Override
+            public final void run() {
+                fetch(repository, filter, pageSize);
+            }
+
+        });
+    }
+
+    @Override
+    public final void close() {
+        if (!closed) {
+            closed = true;
+            fetching.cancel(true);
+            pages.clear();
+        }
+
+        next = new Fetched<V>(null, null);
+    }
+
+    @Override
+    public final boolean hasNext() {
+        final Throwable failure; // Exception or error thrown by the task
+
+        if (next == null) {
+            try {
+                next = pages.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw Throwables.propagate(e);
+            }
+
+            if (next.entities == null) {
+                // There are no more pages
+                failure = next.failure;
+                close();
+
+                if (failure != null) {
+                    throw Throwables.propagate(failure);
+                }
+            }
+        }
+
+        return next.entities != null;
+    }
+
+    @Override
+    public final Collection<V> next() {
+        final Collection<V> entities; // Entities in the page
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        entities = next.entities;
+        next = null;
+
+        // The task can read another page
+        permits.release();
+
+        return entities;
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads the pages in order, until finding one which is not full.
+     * <p>
+     * This is run by the background task.
+     * 
+     * @param repository
+     *            repository to read
+     * @param filter
+     *            filter for the entities, or {@code null} to read all of them
+     * @param pageSize
+     *            number of entities in each page
+     */
+    private final void fetch(final PaginatedRepository<V, F> repository,
+            final F filter, final Integer pageSize) {
+        PaginationData pagination; // Data for the current page
+        Collection<V> entities;    // Entities in the current page
+        Integer pageNumber;        // Number of the current page
+
+        pageNumber = 1;
+        try {
+            do {
+                // Waits until there is room for another page
+                permits.acquire();
+
+                pagination = new DefaultPaginationData(pageSize, pageNumber);
+                if (filter == null) {
+                    entities = repository.getAll(pagination);
+                } else {
+                    entities = repository.getCollection(filter, pagination);
+                }
+
+                if (!entities.isEmpty()) {
+                    pages.add(new Fetched<V>(entities, null));
+                }
+
+                pageNumber++;
+            } while ((entities.size() == pageSize)
+                    && !Thread.currentThread().isInterrupted());
+
+            pages.add(new Fetched<V>(null, null));
+        } catch (final InterruptedException e) {
+            // Cancelled by closing the iterator
+            Thread.currentThread().interrupt();
+        } catch (final Throwable e) {
+            // Errors are also kept, otherwise the iterator would wait forever
+            pages.add(new Fetched<V>(null, e));
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.pagination;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utilities for adding conditions to the queries used for pagination.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+final class QueryConditions {
+
+    /**
+     * Pattern for finding the {@code WHERE} clause.
+     */
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Returns the received query with a new condition at the end.
+     * <p>
+     * If the query has a {@code WHERE} clause its conditions are kept
+     * together, and combined with the new one with {@code AND}. Otherwise a
+     * {@code WHERE} clause is added.
+     * 
+     * @param query
+     *            query to restrict
+     * @param condition
+     *            condition to add
+     * @return the query with the new condition
+     */
+    public static final String and(final String query,
+            final String condition) {
+        final StringBuilder restricted; // Query with the new condition
+        final Matcher where;            // Matcher for the WHERE clause
+        int conditions;                 // Start of the original conditions
+
+        restricted = new StringBuilder(query);
+
+        where = WHERE.matcher(query);
+        if (where.find()) {
+            // The original conditions are kept together
+            conditions = where.end();
+            while ((conditions < query.length())
+                    && Character.isWhitespace(query.charAt(conditions))) {
+                conditions++;
+            }
+            restricted.insert(conditions, '(');
+            restricted.append(") AND ");
+        } else {
+            restricted.append(" WHERE ");
+        }
+
+        restricted.append(condition);
+
+        return restricted.toString();
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private QueryConditions() {
+        super();
+    }
+
+}
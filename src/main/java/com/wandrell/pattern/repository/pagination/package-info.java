@@ -33,11 +33,44 @@
  * <p>
  * The {@link com.wandrell.pattern.repository.pagination.PaginationData
  * PaginationData} represents the data required to generate a page.
+ * <p>
+ * The
+ * {@link com.wandrell.pattern.repository.pagination.CountedPaginatedRepository
+ * CountedPaginatedRepository} returns a
+ * {@link com.wandrell.pattern.repository.pagination.Page Page}, which also
+ * contains the total number of entities.
+ * <p>
+ * For keyset pagination, where each page starts after the key of the last
+ * entity of the previous one, the
+ * {@link com.wandrell.pattern.repository.pagination.KeysetPaginatedRepository
+ * KeysetPaginatedRepository} receives a
+ * {@link com.wandrell.pattern.repository.pagination.KeysetPaginationData
+ * KeysetPaginationData}.
  * <h2>Implementations</h2>
  * <p>
  * A basic implementation of the interface, the
  * {@link com.wandrell.pattern.repository.pagination.DefaultPaginationData
- * DefaultPaginationData}, is contained in the package.
+ * DefaultPaginationData}, is contained in the package, along the
+ * {@link com.wandrell.pattern.repository.pagination.DefaultPage DefaultPage},
+ * the
+ * {@link com.wandrell.pattern.repository.pagination.DefaultKeysetPaginationData
+ * DefaultKeysetPaginationData} and the
+ * {@link com.wandrell.pattern.repository.pagination.KeysetQueries
+ * KeysetQueries} used to create the queries for keyset pagination.
+ * <p>
+ * The {@link com.wandrell.pattern.repository.pagination.CountCache CountCache}
+ * keeps the total number of entities of the paginated queries, so they are
+ * not counted for each page.
+ * <p>
+ * The
+ * {@link com.wandrell.pattern.repository.pagination.DeferredJoinQueries
+ * DeferredJoinQueries} create the queries for reading a page with a deferred
+ * join, first reading the keys in the page and then the entities for them.
+ * <p>
+ * The
+ * {@link com.wandrell.pattern.repository.pagination.PrefetchingPageIterator
+ * PrefetchingPageIterator} iterates over the pages of a repository, reading
+ * the next ones in the background.
  */
 
 package com.wandrell.pattern.repository.pagination;
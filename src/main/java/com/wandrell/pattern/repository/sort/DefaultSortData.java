@@ -0,0 +1,84 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default implementation of {@code SortData}.
+ * <p>
+ * This is an immutable class, which does not allow changing the contained data.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class DefaultSortData implements SortData {
+
+    /**
+     * Orders to apply.
+     */
+    private final List<SortOrder> orders;
+
+    /**
+     * Constructs a {@code DefaultSortData} with the specified orders.
+     * 
+     * @param sortOrders
+     *            orders to apply, from the most significant
+     */
+    public DefaultSortData(final List<SortOrder> sortOrders) {
+        super();
+
+        checkNotNull(sortOrders, "Received a null pointer as orders");
+        checkArgument(!sortOrders.isEmpty(), "Received no orders");
+
+        for (final SortOrder order : sortOrders) {
+            checkNotNull(order, "Received a null pointer as order");
+        }
+
+        orders = Collections
+                .unmodifiableList(new ArrayList<SortOrder>(sortOrders));
+    }
+
+    /**
+     * Constructs a {@code DefaultSortData} with the specified orders.
+     * 
+     * @param sortOrders
+     *            orders to apply, from the most significant
+     */
+    public DefaultSortData(final SortOrder... sortOrders) {
+        this(Arrays.asList(sortOrders));
+    }
+
+    @Override
+    public final List<SortOrder> getOrders() {
+        return orders;
+    }
+
+}
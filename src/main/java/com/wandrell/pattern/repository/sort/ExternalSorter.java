@@ -0,0 +1,459 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * Sorts entities which may not fit in memory, spilling them to disk.
+ * <p>
+ * The entities are read into a buffer until it reaches the memory budget.
+ * Then the buffer is sorted and written into a temporary file, a run, and
+ * emptied. Once all the entities are read the runs are merged back while
+ * iterating over the result, so the sorted entities are never all in memory.
+ * <p>
+ * If all the entities fit in the budget, nothing is written to disk.
+ * <p>
+ * The runs are written with the {@link EntityCodec} received, each entity
+ * preceded by its length. The memory used by the buffer is estimated from the
+ * encoded size of the entities, counting each of them twice, as it is kept
+ * both decoded and encoded, plus a fixed overhead. When merging, each run
+ * uses a read buffer, and runs are merged in several passes if reading all of
+ * them at once would exceed the budget.
+ * <p>
+ * The sort is stable, entities which are equal keep the order in which they
+ * were received.
+ * <p>
+ * For example, to sort the entities queried from a repository:
+ * <p>
+ * {@code sorter = new ExternalSorter<Employee>(codec, comparator, budget);}
+ * <br>
+ * {@code entities = sorter.sort(repository.getCollection(query));}
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the sorted entities
+ * @see SortedIterator
+ */
+public final class ExternalSorter<V> {
+
+    /**
+     * Buffered entity, kept both decoded and encoded.
+     * 
+     * @param <V>
+     *            the type of the buffered entity
+     */
+    private static final class Entry<V> {
+
+        /**
+         * Encoded entity.
+         */
+        private final byte[] bytes;
+
+        /**
+         * Decoded entity.
+         */
+        private final V      entity;
+
+        /**
+         * Constructs an entry for the specified entity.
+         * 
+         * @param decoded
+         *            the entity
+         * @param encoded
+         *            the encoded entity
+         */
+        public Entry(final V decoded, final byte[] encoded) {
+            super();
+
+            entity = decoded;
+            bytes = encoded;
+        }
+
+    }
+
+    /**
+     * Default memory budget, in bytes.
+     */
+    public static final long            DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * Size of the buffers for reading and writing runs.
+     */
+    private static final int            BUFFER_SIZE    = 8192;
+
+    /**
+     * Estimated memory used by each buffered entity, besides its data.
+     */
+    private static final int            ENTRY_OVERHEAD = 64;
+
+    /**
+     * Maximum number of runs merged at once.
+     */
+    private static final int            MAX_FAN_IN     = 64;
+
+    /**
+     * Prefix for the run file names.
+     */
+    private static final String         RUN_PREFIX     = "sort-run-";
+
+    /**
+     * Memory budget, in bytes.
+     */
+    private final long                  budget;
+
+    /**
+     * Codec for writing and reading the runs.
+     */
+    private final EntityCodec<V>        codec;
+
+    /**
+     * Comparator for sorting the entities.
+     */
+    private final Comparator<? super V> comparator;
+
+    /**
+     * Comparator for sorting the buffered entries.
+     */
+    private final Comparator<Entry<V>>  entryComparator;
+
+    /**
+     * Directory where the runs are written.
+     */
+    private final Path                  directory;
+
+    /**
+     * Number of runs merged at once.
+     */
+    private final int                   fanIn;
+
+    /**
+     * Constructs a sorter with the default memory budget, writing the runs
+     * into the default temporary directory.
+     * 
+     * @param entityCodec
+     *            codec for writing and reading the runs
+     * @param entityComparator
+     *            comparator for sorting the entities
+     */
+    public ExternalSorter(final EntityCodec<V> entityCodec,
+            final Comparator<? super V> entityComparator) {
+        this(entityCodec, entityComparator, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructs a sorter with the specified memory budget, writing the runs
+     * into the default temporary directory.
+     * 
+     * @param entityCodec
+     *            codec for writing and reading the runs
+     * @param entityComparator
+     *            comparator for sorting the entities
+     * @param memoryBudget
+     *            memory which can be used, in bytes
+     */
+    public ExternalSorter(final EntityCodec<V> entityCodec,
+            final Comparator<? super V> entityComparator,
+            final long memoryBudget) {
+        this(entityCodec, entityComparator, memoryBudget,
+                Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Constructs a sorter with the specified memory budget, writing the runs
+     * into the specified directory.
+     * 
+     * @param entityCodec
+     *            codec for writing and reading the runs
+     * @param entityComparator
+     *            comparator for sorting the entities
+     * @param memoryBudget
+     *            memory which can be used, in bytes
+     * @param runsDirectory
+     *            directory where the runs are written
+     */
+    public ExternalSorter(final EntityCodec<V> entityCodec,
+            final Comparator<? super V> entityComparator,
+            final long memoryBudget, final Path runsDirectory) {
+        super();
+
+        codec = checkNotNull(entityCodec, "Received a null pointer as codec");
+        comparator = checkNotNull(entityComparator,
+                "Received a null pointer as comparator");
+        directory = checkNotNull(runsDirectory,
+                "Received a null pointer as directory");
+
+        checkArgument(memoryBudget > 0, "The budget should be positive");
+
+        budget = memoryBudget;
+        fanIn = (int) Math.max(2,
+                Math.min(MAX_FAN_IN, memoryBudget / BUFFER_SIZE));
+
+        entryComparator = new Comparator<Entry<V>>() {
+
+            @Override
+            public final int compare(final Entry<V> a, final Entry<V> b) {
+                return comparator.compare(a.entity, b.entity);
+            }
+
+        };
+    }
+
+    /**
+     * Sorts the received entities.
+     * <p>
+     * All the entities are read before returning. The returned iterator
+     * should be closed if it is not read to the end, to delete the runs.
+     * 
+     * @param entities
+     *            entities to sort
+     * @return an iterator for the sorted entities
+     */
+    public final SortedIterator<V> sort(
+            final Iterable<? extends V> entities) {
+        checkNotNull(entities, "Received a null pointer as entities");
+
+        return sort(entities.iterator());
+    }
+
+    /**
+     * Sorts the entities returned by the received iterator.
+     * <p>
+     * All the entities are read before returning. The returned iterator
+     * should be closed if it is not read to the end, to delete the runs.
+     * 
+     * @param entities
+     *            iterator for the entities to sort
+     * @return an iterator for the sorted entities
+     */
+    public final SortedIterator<V> sort(final Iterator<? extends V> entities) {
+        final List<Entry<V>> buffer;      // Entities not yet written
+        final List<Path> runs;            // Sorted runs
+        final List<V> sorted;             // Sorted entities, if none written
+        final SortedIterator<V> iterator; // Iterator for the result
+        long used;                        // Estimated memory used by buffer
+        V entity;                         // Entity read
+        byte[] bytes;                     // Encoded entity
+
+        checkNotNull(entities, "Received a null pointer as entities");
+
+        buffer = new ArrayList<Entry<V>>();
+        runs = new ArrayList<Path>();
+        used = 0;
+
+        try {
+            while (entities.hasNext()) {
+                entity = checkNotNull(entities.next(),
+                        "Received a null pointer as entity");
+                bytes = codec.encode(entity);
+
+                buffer.add(new Entry<V>(entity, bytes));
+                used += ENTRY_OVERHEAD + 2L * bytes.length;
+
+                if (used >= budget) {
+                    runs.add(writeRun(buffer));
+                    buffer.clear();
+                    used = 0;
+                }
+            }
+
+            if (runs.isEmpty()) {
+                Collections.sort(buffer, entryComparator);
+                sorted = new ArrayList<V>(buffer.size());
+                for (final Entry<V> entry : buffer) {
+                    sorted.add(entry.entity);
+                }
+                iterator = new SortedIterator<V>(sorted.iterator());
+            } else {
+                if (!buffer.isEmpty()) {
+                    runs.add(writeRun(buffer));
+                    buffer.clear();
+                }
+                iterator = new SortedIterator<V>(mergeAll(runs));
+            }
+        } catch (final RuntimeException e) {
+            deleteRuns(runs);
+            throw e;
+        }
+
+        return iterator;
+    }
+
+    /**
+     * Creates a new run file.
+     * 
+     * @return the path to the run file
+     */
+    private final Path createRun() {
+        try {
+            return Files.createTempFile(directory, RUN_PREFIX, ".tmp");
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deletes the received runs, if they still exist.
+     * 
+     * @param runs
+     *            runs to delete
+     */
+    private final void deleteRuns(final List<Path> runs) {
+        for (final Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (final IOException e) {
+                // The run will be left in the temporary directory
+            }
+        }
+    }
+
+    /**
+     * Merges runs until there are few enough for merging them all at once,
+     * and returns a merger for those.
+     * <p>
+     * The merged runs are replaced in the received list.
+     * 
+     * @param runs
+     *            sorted runs to merge
+     * @return a merger for the runs left
+     */
+    private final RunMerger<V> mergeAll(final List<Path> runs) {
+        final int bufferSize; // Read buffer for each run
+        List<Path> group;     // Runs merged together
+        RunMerger<V> merger;  // Merger for a group
+        Path merged;          // Run created by a merge
+        OutputStream output;  // Stream for writing the merged run
+        int position;         // Position of the next group
+
+        bufferSize = (int) Math.max(512, Math.min(BUFFER_SIZE, budget / fanIn));
+
+        position = 0;
+        while (runs.size() > fanIn) {
+            if (position + 1 >= runs.size()) {
+                // Starts a new pass
+                position = 0;
+            }
+
+            // Consecutive runs are replaced by their merge, which keeps the
+            // sort stable
+            group = runs.subList(position,
+                    Math.min(position + fanIn, runs.size()));
+            merged = createRun();
+
+            merger = new RunMerger<V>(new ArrayList<Path>(group), codec,
+                    comparator, bufferSize);
+            try {
+                output = new BufferedOutputStream(Files.newOutputStream(merged),
+                        BUFFER_SIZE);
+                try {
+                    while (merger.hasNext()) {
+                        merger.next();
+                        writeRecord(output, merger.getBytes());
+                    }
+                } finally {
+                    output.close();
+                }
+            } catch (final IOException e) {
+                deleteRuns(Collections.singletonList(merged));
+                throw new IllegalStateException(e);
+            } finally {
+                merger.close();
+            }
+
+            group.clear();
+            runs.add(position, merged);
+            position++;
+        }
+
+        return new RunMerger<V>(runs, codec, comparator, bufferSize);
+    }
+
+    /**
+     * Writes an encoded entity, preceded by its length.
+     * 
+     * @param output
+     *            stream to write into
+     * @param bytes
+     *            the encoded entity
+     * @throws IOException
+     *             if the entity can't be written
+     */
+    private final void writeRecord(final OutputStream output,
+            final byte[] bytes) throws IOException {
+        int length; // Length left to write
+
+        length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            output.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        output.write(length);
+
+        output.write(bytes);
+    }
+
+    /**
+     * Sorts the buffered entities and writes them into a new run.
+     * 
+     * @param buffer
+     *            buffered entities
+     * @return the path to the run
+     */
+    private final Path writeRun(final List<Entry<V>> buffer) {
+        final Path run; // Run file
+
+        Collections.sort(buffer, entryComparator);
+
+        run = createRun();
+        try (OutputStream output = new BufferedOutputStream(
+                Files.newOutputStream(run), BUFFER_SIZE)) {
+            for (final Entry<V> entry : buffer) {
+                writeRecord(output, entry.bytes);
+            }
+        } catch (final IOException e) {
+            deleteRuns(Collections.singletonList(run));
+            throw new IllegalStateException(e);
+        }
+
+        return run;
+    }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * Merges several sorted run files into a single sorted sequence.
+ * <p>
+ * The readers for the runs are kept in a priority queue ordered by their
+ * heads, so each entity is taken with logarithmic cost over the number of
+ * runs. Heads which are equal are taken from the earliest run, which keeps the
+ * sort stable.
+ * <p>
+ * Each run is deleted as soon as it is fully read, and the rest when the
+ * merger is closed.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities in the runs
+ */
+final class RunMerger<V> implements Closeable {
+
+    /**
+     * Encoded entity taken last.
+     */
+    private byte[]                            bytes;
+
+    /**
+     * Entity taken last.
+     */
+    private V                                 entity;
+
+    /**
+     * Readers for the runs which still have entities.
+     */
+    private final PriorityQueue<RunReader<V>> readers;
+
+    /**
+     * Constructs a merger for the specified runs.
+     * 
+     * @param runs
+     *            sorted run files, in the order they were written
+     * @param codec
+     *            codec for decoding the entities
+     * @param comparator
+     *            comparator used for sorting the runs
+     * @param bufferSize
+     *            size of the read buffer for each run
+     */
+    public RunMerger(final List<Path> runs, final EntityCodec<V> codec,
+            final Comparator<? super V> comparator, final int bufferSize) {
+        super();
+
+        RunReader<V> reader; // Reader for a run
+
+        readers = new PriorityQueue<RunReader<V>>(Math.max(1, runs.size()),
+                new Comparator<RunReader<V>>() {
+
+                    @Override
+                    public final int compare(final RunReader<V> a,
+                            final RunReader<V> b) {
+                        int result; // Comparison result
+
+                        result = comparator.compare(a.getHead(), b.getHead());
+                        if (result == 0) {
+                            result = Integer.compare(a.getIndex(),
+                                    b.getIndex());
+                        }
+
+                        return result;
+                    }
+
+                });
+
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                reader = new RunReader<V>(runs.get(i), codec, i, bufferSize);
+                if (reader.advance()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes all the readers, deleting their runs.
+     * <p>
+     * All of them are closed even if one fails, and then the first exception
+     * is thrown.
+     */
+    @Override
+    public final void close() {
+        RuntimeException failure; // First exception thrown by a reader
+
+        failure = null;
+        while (!readers.isEmpty()) {
+            try {
+                readers.poll().close();
+            } catch (final RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the encoded entity taken last.
+     * 
+     * @return the encoded entity taken last
+     */
+    public final byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the entity taken last.
+     * 
+     * @return the entity taken last
+     */
+    public final V getEntity() {
+        return entity;
+    }
+
+    /**
+     * Indicates if there are entities left to take.
+     * 
+     * @return {@code true} if there are entities left, {@code false}
+     *         otherwise
+     */
+    public final boolean hasNext() {
+        return !readers.isEmpty();
+    }
+
+    /**
+     * Takes the lowest entity left, which can be then acquired with
+     * {@link #getEntity() getEntity}.
+     */
+    public final void next() {
+        final RunReader<V> reader; // Reader with the lowest head
+
+        reader = readers.poll();
+
+        entity = reader.getHead();
+        bytes = reader.getHeadBytes();
+
+        try {
+            if (reader.advance()) {
+                readers.add(reader);
+            } else {
+                reader.close();
+            }
+        } catch (final RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+}
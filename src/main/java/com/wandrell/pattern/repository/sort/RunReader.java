@@ -0,0 +1,235 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * Reads the entities from a sorted run file, one at a time.
+ * <p>
+ * Each record in the file is the length of the encoded entity, written as a
+ * variable length integer, followed by the encoded entity. The last entity
+ * read, the head, is kept both decoded and encoded.
+ * <p>
+ * Closing the reader deletes the file.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the entities in the run
+ */
+final class RunReader<V> implements Closeable {
+
+    /**
+     * Codec for decoding the entities.
+     */
+    private final EntityCodec<V> codec;
+
+    /**
+     * Run file being read.
+     */
+    private final Path           file;
+
+    /**
+     * Last entity read.
+     */
+    private V                    head;
+
+    /**
+     * Encoded last entity read.
+     */
+    private byte[]               headBytes;
+
+    /**
+     * Position of the run, used for keeping the sort stable.
+     */
+    private final int            index;
+
+    /**
+     * Stream for reading the file.
+     */
+    private final InputStream    input;
+
+    /**
+     * Constructs a reader for the specified run file.
+     * 
+     * @param run
+     *            run file to read
+     * @param entityCodec
+     *            codec for decoding the entities
+     * @param position
+     *            position of the run, in the order the runs were written
+     * @param bufferSize
+     *            size of the read buffer
+     */
+    public RunReader(final Path run, final EntityCodec<V> entityCodec,
+            final int position, final int bufferSize) {
+        super();
+
+        file = run;
+        codec = entityCodec;
+        index = position;
+
+        try {
+            input = new BufferedInputStream(Files.newInputStream(file),
+                    bufferSize);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the next entity, which becomes the head.
+     * 
+     * @return {@code true} if there was another entity, {@code false} if the
+     *         end of the run was reached
+     */
+    public final boolean advance() {
+        final int length;       // Length of the encoded entity
+        int read;               // Bytes read
+        int count;              // Bytes read in a single call
+        final boolean advanced; // Flag marking if an entity was read
+
+        try {
+            length = readLength();
+            if (length < 0) {
+                head = null;
+                headBytes = null;
+                advanced = false;
+            } else {
+                headBytes = new byte[length];
+                read = 0;
+                while (read < length) {
+                    count = input.read(headBytes, read, length - read);
+                    if (count < 0) {
+                        throw new IllegalStateException(
+                                String.format("Truncated run %s", file));
+                    }
+                    read += count;
+                }
+                head = codec.decode(ByteBuffer.wrap(headBytes));
+                advanced = true;
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return advanced;
+    }
+
+    /**
+     * Closes the file and deletes it.
+     * <p>
+     * If the file can't be deleted it is left in the temporary directory.
+     */
+    @Override
+    public final void close() {
+        IOException failure; // Exception thrown when closing the file
+
+        try {
+            input.close();
+            failure = null;
+        } catch (final IOException e) {
+            failure = e;
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            // The run will be left in the temporary directory
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Returns the last entity read.
+     * 
+     * @return the last entity read
+     */
+    public final V getHead() {
+        return head;
+    }
+
+    /**
+     * Returns the encoded last entity read.
+     * 
+     * @return the encoded last entity read
+     */
+    public final byte[] getHeadBytes() {
+        return headBytes;
+    }
+
+    /**
+     * Returns the position of the run, in the order the runs were written.
+     * 
+     * @return the position of the run
+     */
+    public final int getIndex() {
+        return index;
+    }
+
+    /**
+     * Reads the length of the next record.
+     * 
+     * @return the length of the next record, or -1 if the end of the file
+     *         was reached
+     * @throws IOException
+     *             if the file can't be read
+     */
+    private final int readLength() throws IOException {
+        int length; // Length read
+        int shift;  // Bits already read
+        int next;   // Next byte
+
+        length = 0;
+        shift = 0;
+        do {
+            next = input.read();
+            if (next < 0) {
+                if (shift > 0) {
+                    throw new IllegalStateException(
+                            String.format("Truncated run %s", file));
+                }
+                length = -1;
+            } else {
+                length |= (next & 0x7F) << shift;
+                shift += 7;
+            }
+        } while ((next >= 0) && ((next & 0x80) != 0));
+
+        return length;
+    }
+
+}
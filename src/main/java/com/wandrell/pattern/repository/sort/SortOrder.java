@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.regex.Pattern;
+
+/**
+ * Property by which the entities are sorted, along the direction to use.
+ * <p>
+ * The property is the name of a field, or a path such as
+ * {@code entity.name}, and its meaning depends on the repository. For a JPA
+ * repository it is a path in the JPQL query, for a JDBC repository it is a
+ * column, and for an in-memory repository it is the name of a registered
+ * sort key.
+ * <p>
+ * As the property ends in the query, only letters, digits, underscores and
+ * dots are accepted on it.
+ * <p>
+ * This is an immutable class.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class SortOrder {
+
+    /**
+     * Pattern which the properties should match.
+     */
+    private static final Pattern PROPERTY = Pattern
+            .compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    /**
+     * Direction in which the entities are sorted.
+     */
+    private final SortDirection  direction;
+
+    /**
+     * Property by which the entities are sorted.
+     */
+    private final String         property;
+
+    /**
+     * Constructs an ascending {@code SortOrder} for the specified property.
+     * 
+     * @param prop
+     *            property by which the entities are sorted
+     */
+    public SortOrder(final String prop) {
+        this(prop, SortDirection.ASCENDING);
+    }
+
+    /**
+     * Constructs a {@code SortOrder} with the specified parameters.
+     * 
+     * @param prop
+     *            property by which the entities are sorted
+     * @param dir
+     *            direction in which the entities are sorted
+     */
+    public SortOrder(final String prop, final SortDirection dir) {
+        super();
+
+        checkNotNull(prop, "Received a null pointer as property");
+        checkArgument(PROPERTY.matcher(prop).matches(),
+                "Invalid sort property %s", prop);
+
+        property = prop;
+        direction = checkNotNull(dir, "Received a null pointer as direction");
+    }
+
+    /**
+     * Returns the direction in which the entities are sorted.
+     * 
+     * @return the direction in which the entities are sorted
+     */
+    public final SortDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the property by which the entities are sorted.
+     * 
+     * @return the property by which the entities are sorted
+     */
+    public final String getProperty() {
+        return property;
+    }
+
+}
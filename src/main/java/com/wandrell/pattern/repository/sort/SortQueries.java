@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utilities for adding sorting to the queries sent to a database.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class SortQueries {
+
+    /**
+     * Returns the received query with an {@code ORDER BY} clause for the
+     * received sorting data.
+     * <p>
+     * The clause is appended at the end of the query, which should not
+     * contain another one. The properties are used as they are, so they
+     * should be valid in the query.
+     * 
+     * @param query
+     *            query to sort
+     * @param sort
+     *            sorting data
+     * @return the query with the {@code ORDER BY} clause
+     */
+    public static final String orderBy(final String query,
+            final SortData sort) {
+        final StringBuilder sorted; // Sorted query
+        String separator;           // Separator before the next order
+
+        checkNotNull(query, "Received a null pointer as query");
+        checkNotNull(sort, "Received a null pointer as sorting data");
+
+        sorted = new StringBuilder(query);
+        sorted.append(" ORDER BY ");
+
+        separator = "";
+        for (final SortOrder order : sort.getOrders()) {
+            sorted.append(separator);
+            sorted.append(order.getProperty());
+            sorted.append(' ');
+            sorted.append(order.getDirection().getKeyword());
+            separator = ", ";
+        }
+
+        return sorted.toString();
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private SortQueries() {
+        super();
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+
+/**
+ * Iterator for the entities sorted by an {@link ExternalSorter}.
+ * <p>
+ * If the entities didn't fit in memory they are read from the sorted runs
+ * while iterating, merging them. The run files are deleted once all the
+ * entities are read, or when the iterator is closed, which should be done if
+ * it is abandoned before reaching the end.
+ * <p>
+ * Entities can't be removed through this iterator.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the sorted entities
+ */
+public final class SortedIterator<V> implements CloseableIterator<V> {
+
+    /**
+     * Sorted entities, when they were kept in memory.
+     */
+    private final Iterator<V>  entities;
+
+    /**
+     * Merger for the sorted runs, when the entities were spilled to disk.
+     */
+    private final RunMerger<V> merger;
+
+    /**
+     * Constructs an iterator for entities sorted in memory.
+     * 
+     * @param sorted
+     *            the sorted entities
+     */
+    SortedIterator(final Iterator<V> sorted) {
+        super();
+
+        entities = sorted;
+        merger = null;
+    }
+
+    /**
+     * Constructs an iterator merging sorted runs.
+     * 
+     * @param runMerger
+     *            merger for the sorted runs
+     */
+    SortedIterator(final RunMerger<V> runMerger) {
+        super();
+
+        entities = null;
+        merger = runMerger;
+    }
+
+    /**
+     * Closes the iterator, deleting any run file left.
+     */
+    @Override
+    public final void close() {
+        if (merger != null) {
+            merger.close();
+        }
+    }
+
+    @Override
+    public final boolean hasNext() {
+        final boolean next; // Flag marking if there are entities left
+
+        if (merger == null) {
+            next = entities.hasNext();
+        } else {
+            next = merger.hasNext();
+        }
+
+        return next;
+    }
+
+    @Override
+    public final V next() {
+        final V entity; // Next entity
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        if (merger == null) {
+            entity = entities.next();
+        } else {
+            merger.next();
+            entity = merger.getEntity();
+        }
+
+        return entity;
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
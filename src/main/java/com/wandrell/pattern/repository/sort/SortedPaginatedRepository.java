@@ -0,0 +1,79 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.sort;
+
+import java.util.Collection;
+
+import com.wandrell.pattern.repository.pagination.PaginatedRepository;
+import com.wandrell.pattern.repository.pagination.PaginationData;
+
+/**
+ * Repository which can be both sorted and paginated at the same time.
+ * <p>
+ * The entities are sorted before taking the page. So the first page, with a
+ * size of {@code k}, contains the top {@code k} entities for the sorting.
+ * Repositories should take advantage of this, and avoid sorting all the
+ * entities just to return a few of them.
+ * 
+ * @author Bernardo Martínez Garrido
+ *
+ * @param <V>
+ *            the type stored on the repository
+ * @param <F>
+ *            the type being used to filter the entities
+ */
+public interface SortedPaginatedRepository<V, F>
+        extends SortedRepository<V, F>, PaginatedRepository<V, F> {
+
+    /**
+     * Returns all the entities contained in the repository sorted and
+     * paginated.
+     * 
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository sorted and
+     *         paginated
+     */
+    public Collection<V> getAll(final SortData sort,
+            final PaginationData pagination);
+
+    /**
+     * Queries the entities in the repository and returns a sorted and
+     * paginated subset of them.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return the filtered, sorted and paginated subset of entities
+     */
+    public Collection<V> getCollection(final F filter, final SortData sort,
+            final PaginationData pagination);
+
+}
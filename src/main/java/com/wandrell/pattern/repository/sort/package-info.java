@@ -0,0 +1,56 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Sorting support.
+ * <p>
+ * These are thought to be used with the
+ * {@link com.wandrell.pattern.repository.sort.SortedRepository
+ * SortedRepository}, allowing the repository to sort the entities before
+ * returning them, and with the
+ * {@link com.wandrell.pattern.repository.sort.SortedPaginatedRepository
+ * SortedPaginatedRepository}, which also paginates them, so the top entities
+ * can be acquired without sorting all of them.
+ * <h2>Interfaces</h2>
+ * <p>
+ * The {@link com.wandrell.pattern.repository.sort.SortData SortData}
+ * represents the data required to sort the entities, as a list of
+ * {@link com.wandrell.pattern.repository.sort.SortOrder SortOrder}.
+ * <h2>Implementations</h2>
+ * <p>
+ * A basic implementation of the interface, the
+ * {@link com.wandrell.pattern.repository.sort.DefaultSortData
+ * DefaultSortData}, is contained in the package.
+ * <p>
+ * Repositories backed by a database can add the sorting to their queries with
+ * {@link com.wandrell.pattern.repository.sort.SortQueries SortQueries}.
+ * <p>
+ * Entities which don't fit in memory can be sorted with the
+ * {@link com.wandrell.pattern.repository.sort.ExternalSorter ExternalSorter},
+ * which writes sorted runs into temporary files and merges them while the
+ * returned {@link com.wandrell.pattern.repository.sort.SortedIterator
+ * SortedIterator} is read.
+ */
+
+package com.wandrell.pattern.repository.sort;
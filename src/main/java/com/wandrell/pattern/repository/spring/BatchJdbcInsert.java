@@ -0,0 +1,186 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.spring;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * {@code SimpleJdbcInsert} which can insert a batch of rows and return the
+ * keys generated for each of them.
+ * <p>
+ * Spring's batch inserts don't return the generated keys, so the batch is
+ * executed through a single {@code PreparedStatement}, reading the keys from
+ * it afterwards. This requires the JDBC driver to return the keys for all the
+ * rows in the batch, and not just for the last one, which can be checked with
+ * {@link SqlDialect#isBatchKeysSupported()}.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+final class BatchJdbcInsert extends SimpleJdbcInsert {
+
+    /**
+     * Constructs an insert handler using the specified data source.
+     * 
+     * @param source
+     *            source of the data
+     */
+    public BatchJdbcInsert(final DataSource source) {
+        super(source);
+    }
+
+    /**
+     * Constructs an insert handler using the specified JDBC template.
+     * 
+     * @param template
+     *            JDBC template with access to the data
+     */
+    public BatchJdbcInsert(final JdbcTemplate template) {
+        super(template);
+    }
+
+    /**
+     * Inserts the received rows as a single batch and returns the keys
+     * generated for them.
+     * <p>
+     * The keys are returned in the same order as the rows.
+     * 
+     * @param batch
+     *            parameters for each of the rows
+     * @return the keys generated for the rows
+     */
+    public final List<Number> executeBatchAndReturnKeys(
+            final List<? extends SqlParameterSource> batch) {
+        checkCompiled();
+
+        return getJdbcTemplate()
+                .execute(new ConnectionCallback<List<Number>>() {
+
+                    @Override
+                    public final List<Number> doInConnection(
+                            final Connection connection)
+                            throws SQLException, DataAccessException {
+                        final PreparedStatement statement; // Batch statement
+
+                        statement = connection.prepareStatement(
+                                getInsertString(), getGeneratedKeyNames());
+                        try {
+                            for (final SqlParameterSource row : batch) {
+                                setValues(statement, row);
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+
+                            return readKeys(statement, batch.size());
+                        } finally {
+                            JdbcUtils.closeStatement(statement);
+                        }
+                    }
+
+                });
+    }
+
+    /**
+     * Reads the keys generated by the statement.
+     * 
+     * @param statement
+     *            the executed statement
+     * @param expected
+     *            number of keys expected
+     * @return the keys generated by the statement
+     * @throws SQLException
+     *             if the keys can't be read
+     */
+    private final List<Number> readKeys(final PreparedStatement statement,
+            final int expected) throws SQLException {
+        final List<Number> keys; // Generated keys
+        final ResultSet results; // Generated keys results
+
+        keys = new ArrayList<Number>(expected);
+        results = statement.getGeneratedKeys();
+        try {
+            while (results.next()) {
+                keys.add((Number) results.getObject(1));
+            }
+        } finally {
+            JdbcUtils.closeResultSet(results);
+        }
+
+        if (keys.size() != expected) {
+            throw new IllegalStateException(String.format(
+                    "Expected %d generated keys but the driver returned %d",
+                    expected, keys.size()));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Sets the values for a row into the statement.
+     * 
+     * @param statement
+     *            the statement where the values are set
+     * @param row
+     *            parameters for the row
+     * @throws SQLException
+     *             if the values can't be set
+     */
+    private final void setValues(final PreparedStatement statement,
+            final SqlParameterSource row) throws SQLException {
+        final List<Object> values; // Values for the insert columns
+        final int[] types;         // SQL types for the insert columns
+        int type;                  // SQL type for a value
+
+        values = matchInParameterValuesWithInsertColumns(row);
+        types = getInsertTypes();
+
+        for (int i = 0; i < values.size(); i++) {
+            if ((types == null) || (i >= types.length)) {
+                type = SqlTypeValue.TYPE_UNKNOWN;
+            } else {
+                type = types[i];
+            }
+
+            StatementCreatorUtils.setParameterValue(statement, i + 1, type,
+                    values.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.spring;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+
+/**
+ * Iterator mapping the rows of an open {@code ResultSet} into entities.
+ * <p>
+ * The query is executed when the iterator is created, and the rows are read
+ * as the iterator advances, so only the rows fetched by the driver are kept
+ * in memory. The statement, and the connection, are released once the last
+ * row is read, or when closing the iterator.
+ * <p>
+ * Some drivers need additional settings to stream the rows, instead of
+ * reading all of them when executing the query:
+ * <ul>
+ * <li>MySQL only streams them when the fetch size is
+ * {@code Integer.MIN_VALUE}, so this size is used for it instead of the
+ * received one.</li>
+ * <li>PostgreSQL only uses the fetch size outside of auto-commit mode, so
+ * auto-commit is disabled until the iterator is closed.</li>
+ * </ul>
+ * <p>
+ * The number of rows can be limited, in which case the statement won't return
+ * more than those.
+ * <p>
+ * The connection is acquired through {@code DataSourceUtils}, so inside a
+ * Spring transaction the connection of the transaction is used.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the iterated entities
+ */
+final class ResultSetIterator<V> implements CloseableIterator<V> {
+
+    /**
+     * Connection for the query.
+     */
+    private Connection                   connection;
+
+    /**
+     * Source of the connection.
+     */
+    private final DataSource             dataSource;
+
+    /**
+     * Flag marking if the next row has been read already.
+     */
+    private boolean                      fetched;
+
+    /**
+     * Mapper for transforming the rows into entities.
+     */
+    private final RowMapper<V>           mapper;
+
+    /**
+     * Flag marking if there is a row to return.
+     */
+    private boolean                      pending;
+
+    /**
+     * Flag marking if auto-commit should be enabled again when closing.
+     */
+    private boolean                      restoreAutoCommit;
+
+    /**
+     * Rows returned by the query.
+     */
+    private ResultSet                    results;
+
+    /**
+     * Number of rows read.
+     */
+    private int                          rowNumber;
+
+    /**
+     * The SQL query.
+     */
+    private final String                 sql;
+
+    /**
+     * Statement for the query.
+     */
+    private PreparedStatement            statement;
+
+    /**
+     * Translator for the JDBC exceptions.
+     */
+    private final SQLExceptionTranslator translator;
+
+    /**
+     * Executes the query and constructs an iterator for its rows.
+     * 
+     * @param source
+     *            source of the connection
+     * @param exceptionTranslator
+     *            translator for the JDBC exceptions
+     * @param query
+     *            SQL query, with {@code ?} placeholders
+     * @param values
+     *            values for the placeholders
+     * @param rowMapper
+     *            mapper for transforming the rows into entities
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @param maxRows
+     *            maximum number of rows returned, or zero for no limit
+     */
+    public ResultSetIterator(final DataSource source,
+            final SQLExceptionTranslator exceptionTranslator,
+            final String query, final Object[] values,
+            final RowMapper<V> rowMapper, final int fetchSize,
+            final int maxRows) {
+        super();
+
+        dataSource = source;
+        translator = exceptionTranslator;
+        sql = query;
+        mapper = rowMapper;
+
+        connection = DataSourceUtils.getConnection(source);
+        try {
+            open(values, fetchSize, maxRows);
+        } catch (final SQLException e) {
+            close();
+            throw translator.translate("ResultSetIterator", sql, e);
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public final void close() {
+        JdbcUtils.closeResultSet(results);
+        results = null;
+        JdbcUtils.closeStatement(statement);
+        statement = null;
+
+        if (connection != null) {
+            try {
+                if (restoreAutoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            } catch (final SQLException e) {
+                // The connection is released anyway
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+                connection = null;
+            }
+        }
+
+        fetched = true;
+        pending = false;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if (!fetched) {
+            try {
+                pending = results.next();
+            } catch (final SQLException e) {
+                close();
+                throw translator.translate("ResultSetIterator", sql, e);
+            }
+            fetched = true;
+
+            if (!pending) {
+                close();
+            }
+        }
+
+        return pending;
+    }
+
+    @Override
+    public final V next() {
+        final V entity; // Entity mapped from the row
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            entity = mapper.mapRow(results, rowNumber);
+        } catch (final SQLException e) {
+            close();
+            throw translator.translate("ResultSetIterator", sql, e);
+        }
+
+        rowNumber++;
+        fetched = false;
+
+        return entity;
+    }
+
+    @Override
+    public final void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Prepares the statement, applying the driver settings for streaming, and
+     * executes it.
+     * 
+     * @param values
+     *            values for the placeholders
+     * @param fetchSize
+     *            number of rows fetched from the database at once
+     * @param maxRows
+     *            maximum number of rows returned, or zero for no limit
+     * @throws SQLException
+     *             if the query can't be executed
+     */
+    private final void open(final Object[] values, final int fetchSize,
+            final int maxRows) throws SQLException {
+        final String product; // Database product name
+
+        product = connection.getMetaData().getDatabaseProductName();
+
+        if ("PostgreSQL".equals(product) && connection.getAutoCommit()) {
+            // PostgreSQL ignores the fetch size in auto-commit mode
+            connection.setAutoCommit(false);
+            restoreAutoCommit = true;
+        }
+
+        statement = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+        if ("MySQL".equals(product)) {
+            // MySQL only streams the rows with this fetch size
+            statement.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            statement.setFetchSize(fetchSize);
+        }
+        statement.setMaxRows(maxRows);
+
+        for (int i = 0; i < values.length; i++) {
+            StatementCreatorUtils.setParameterValue(statement, i + 1,
+                    SqlTypeValue.TYPE_UNKNOWN, values[i]);
+        }
+
+        results = statement.executeQuery();
+    }
+
+}
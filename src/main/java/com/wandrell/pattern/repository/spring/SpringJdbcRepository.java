@@ -24,28 +24,58 @@
 
 package com.wandrell.pattern.repository.spring;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.sql.DataSource;
 
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsertOperations;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.wandrell.pattern.query.NamedParameterQueryData;
-import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.BatchRepository;
 import com.wandrell.pattern.repository.entity.PersistenceEntity;
+import com.wandrell.pattern.repository.pagination.CountCache;
+import com.wandrell.pattern.repository.pagination.CountedPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.DefaultPage;
+import com.wandrell.pattern.repository.pagination.DeferredJoinQueries;
+import com.wandrell.pattern.repository.pagination.KeysetPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.KeysetPaginationData;
+import com.wandrell.pattern.repository.pagination.KeysetQueries;
+import com.wandrell.pattern.repository.pagination.Page;
+import com.wandrell.pattern.repository.pagination.PaginationData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortQueries;
+import com.wandrell.pattern.repository.sort.SortedPaginatedRepository;
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+import com.wandrell.pattern.repository.stream.StreamingRepository;
 
 /**
- * {@code FilteredRepository} for working with Spring's JDBC framework and Java
+ * {@code SortedRepository} for working with Spring's JDBC framework and Java
  * beans.
  * <p>
  * Entities are acquired with the use of templated SQL queries such as this:
@@ -65,6 +95,49 @@ import com.wandrell.pattern.repository.entity.PersistenceEntity;
  * both will work the same. If the received entity lacks an identifier said
  * entity will be added into the database, otherwise the entity will be updated
  * in the data source.
+ * <p>
+ * Sorting is added to the SQL queries as an {@code ORDER BY} clause, so the
+ * properties in the {@code SortData} should be columns, and the queries should
+ * not be sorted already.
+ * <p>
+ * Pagination is added at the end of the SQL queries, using the clause
+ * supported by the database, so only the entities in the page are read. The
+ * {@link SqlDialect} for this is found from the database product name, unless
+ * it is set with {@link #setDialect(SqlDialect) setDialect}.
+ * <p>
+ * Pages containing the total number of entities read the count along the
+ * page, with a window function, when the dialect supports it for the query,
+ * which should be a single {@code SELECT} without {@code DISTINCT}. Otherwise
+ * the count is queried apart, in the executor set with
+ * {@link #setCountExecutor(ExecutorService) setCountExecutor}, if any, while
+ * the page is read. Note that then the count uses its own connection, outside
+ * of the current transaction. In both cases the counts are kept in a
+ * {@link CountCache}, which is cleared when the repository modifies its
+ * entities, so the next pages don't count them again.
+ * <p>
+ * Deep pages can be read with a deferred join, enabled with
+ * {@link #setDeferredJoin(boolean) setDeferredJoin}. Then first the keys of
+ * the entities in the page are read, which the database can do just with the
+ * index of the primary key, and then the entities with those keys. This
+ * requires a table with a single key column, and queries without sorting, as
+ * this is added by the repository. The window count is not used with them.
+ * <p>
+ * The methods modifying several entities at once send them to the database in
+ * JDBC batches, of the size set with {@link #setBatchSize(int) setBatchSize}.
+ * The keys generated for the new entities are read back from each batch, which
+ * requires a JDBC driver returning the keys for all the rows in a batch. When
+ * the dialect doesn't support this the new entities are inserted one by one.
+ * <p>
+ * The streaming methods keep the {@code ResultSet} open while the returned
+ * iterator is read, fetching the rows in groups of the size set with
+ * {@link #setFetchSize(int) setFetchSize}. For MySQL and PostgreSQL the
+ * driver settings they require for streaming are applied, so the memory used
+ * does not depend on the size of the table. The iterator holds a connection
+ * until it reaches the end, so it should be closed if abandoned before.
+ * <p>
+ * Keyset pagination adds a condition on the key, and an {@code ORDER BY}
+ * clause, to the SQL query, as described in {@code KeysetQueries}, and limits
+ * the rows with {@code setMaxRows}, so it works the same on any database.
  *
  * @author Bernardo Martínez Garrido
  * @param <V>
@@ -72,8 +145,34 @@ import com.wandrell.pattern.repository.entity.PersistenceEntity;
  * @see NamedParameterQueryData
  * @see PersistenceEntity
  */
-public final class SpringJdbcRepository<V extends PersistenceEntity>
-        implements FilteredRepository<V, NamedParameterQueryData> {
+public final class SpringJdbcRepository<V extends PersistenceEntity> implements
+        SortedPaginatedRepository<V, NamedParameterQueryData>,
+        CountedPaginatedRepository<V, NamedParameterQueryData>,
+        KeysetPaginatedRepository<V, NamedParameterQueryData>,
+        BatchRepository<V>, StreamingRepository<V, NamedParameterQueryData> {
+
+    /**
+     * Default number of entities sent to the database on each batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Default number of rows fetched at once when streaming.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Plain JDBC template.
+     * <p>
+     * This gives access to the data source and the exception translation when
+     * streaming entities.
+     */
+    private final JdbcTemplate baseTemplate;
+
+    /**
+     * Number of entities sent to the database on each batch.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
     /**
      * The class of the objects to be returned by the repository.
@@ -82,6 +181,26 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
      */
     private final Class<V> classType;
 
+    /**
+     * Cache for the number of entities returned by the paginated queries.
+     */
+    private CountCache countCache = new CountCache();
+
+    /**
+     * Executor for counting the entities while reading a page.
+     * <p>
+     * If it is {@code null} the entities are counted after reading the page.
+     */
+    private ExecutorService countExecutor;
+
+    /**
+     * SQL dialect used for pagination.
+     * <p>
+     * If not set, it will be found from the database the first time it is
+     * needed.
+     */
+    private SqlDialect dialect;
+
     /**
      * SQL query template for deleting entities.
      * <p>
@@ -98,13 +217,23 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
      */
     private final String deleteQueryTemplate;
 
+    /**
+     * Flag telling if the pages are read with a deferred join.
+     */
+    private boolean deferredJoin = false;
+
+    /**
+     * Number of rows fetched at once when streaming.
+     */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
     /**
      * Insert operation handler.
      * <p>
      * This takes care of inserting entities into the database, and is generated
      * from the parameters received by the constructor.
      */
-    private final SimpleJdbcInsertOperations insertHandler;
+    private final BatchJdbcInsert insertHandler;
 
     /**
      * Named JDBC operations handler.
@@ -114,6 +243,13 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
      */
     private final NamedParameterJdbcOperations jdbcTemplate;
 
+    /**
+     * Primary key column, used for the deferred joins.
+     * <p>
+     * It is {@code null} if the table does not have a single key column.
+     */
+    private final String keyColumn;
+
     /**
      * SQL query for acquiring all the entities.
      * <p>
@@ -192,10 +328,17 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         updateQueryTemplate = update;
         deleteQueryTemplate = delete;
 
-        insertHandler = new SimpleJdbcInsert(source).withTableName(table)
-                .usingGeneratedKeyColumns(keys);
+        if (keys.length == 1) {
+            keyColumn = keys[0];
+        } else {
+            keyColumn = null;
+        }
+
+        insertHandler = new BatchJdbcInsert(source);
+        insertHandler.withTableName(table).usingGeneratedKeyColumns(keys);
 
-        jdbcTemplate = new NamedParameterJdbcTemplate(source);
+        baseTemplate = new JdbcTemplate(source);
+        jdbcTemplate = new NamedParameterJdbcTemplate(baseTemplate);
     }
 
     /**
@@ -250,9 +393,16 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         updateQueryTemplate = update;
         deleteQueryTemplate = delete;
 
-        insertHandler = new SimpleJdbcInsert(template).withTableName(table)
-                .usingGeneratedKeyColumns(keys);
+        if (keys.length == 1) {
+            keyColumn = keys[0];
+        } else {
+            keyColumn = null;
+        }
 
+        insertHandler = new BatchJdbcInsert(template);
+        insertHandler.withTableName(table).usingGeneratedKeyColumns(keys);
+
+        baseTemplate = template;
         jdbcTemplate = new NamedParameterJdbcTemplate(template);
     }
 
@@ -293,6 +443,45 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
             // It is an existing entity
             getTemplate().update(getUpdateQueryTemplate(), parameterSource);
         }
+
+        TransactionalCountInvalidation.invalidateAll(countCache);
+    }
+
+    /**
+     * Adds the entities to the repository, or updates those which already
+     * exist.
+     * <p>
+     * As with {@link #add(PersistenceEntity) add}, the entities lacking an
+     * identifier are inserted, and the rest are updated. Both are sent to the
+     * database in batches, and the keys generated for the inserted entities
+     * are assigned to them.
+     *
+     * @param entities
+     *            the entities to add
+     */
+    @Override
+    public final void addAll(final Collection<? extends V> entities) {
+        final List<V> inserted;                 // Entities to insert
+        final List<SqlParameterSource> updated; // Entities to update
+
+        checkNotNull(entities, "Received a null pointer as the entities");
+
+        inserted = new ArrayList<V>();
+        updated = new ArrayList<SqlParameterSource>();
+        for (final V entity : entities) {
+            checkNotNull(entity, "Received a null pointer as the entity");
+
+            if ((entity.getId() == null) || (entity.getId() < 0)) {
+                inserted.add(entity);
+            } else {
+                updated.add(new BeanPropertySqlParameterSource(entity));
+            }
+        }
+
+        insertBatches(inserted);
+        updateBatches(getUpdateQueryTemplate(), updated);
+
+        TransactionalCountInvalidation.invalidateAll(countCache);
     }
 
     /**
@@ -309,6 +498,80 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
                 BeanPropertyRowMapper.newInstance(getType()));
     }
 
+    /**
+     * Returns all the entities contained in the repository paginated.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor, limited to the page.
+     *
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository paginated
+     */
+    @Override
+    public final Collection<V> getAll(final PaginationData pagination) {
+        return readPage(getSelectAllValuesQuery(), null,
+                new MapSqlParameterSource(), pagination);
+    }
+
+    /**
+     * Returns a page of all the entities contained in the repository, starting
+     * after the key of the pagination data.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor, limited to the entities after the key and sorted by it.
+     *
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    @Override
+    public final Collection<V> getAll(final KeysetPaginationData pagination) {
+        return seek(getSelectAllValuesQuery(), new MapSqlParameterSource(),
+                pagination);
+    }
+
+    /**
+     * Returns all the entities contained in the repository sorted.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor, with an {@code ORDER BY} clause.
+     *
+     * @param sort
+     *            sorting data
+     * @return all the entities contained in the repository sorted
+     */
+    @Override
+    public final Collection<V> getAll(final SortData sort) {
+        return getTemplate().query(
+                SortQueries.orderBy(getSelectAllValuesQuery(), sort),
+                BeanPropertyRowMapper.newInstance(getType()));
+    }
+
+    /**
+     * Returns all the entities contained in the repository sorted and
+     * paginated.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor, with an {@code ORDER BY} clause, limited to the page.
+     *
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return all the entities contained in the repository sorted and
+     *         paginated
+     */
+    @Override
+    public final Collection<V> getAll(final SortData sort,
+            final PaginationData pagination) {
+
+        checkNotNull(sort, "Received a null pointer as the sorting data");
+
+        return readPage(getSelectAllValuesQuery(), sort,
+                new MapSqlParameterSource(), pagination);
+    }
+
     /**
      * Queries the entities in the repository and returns a subset of them.
      * <p>
@@ -329,6 +592,108 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
                 BeanPropertyRowMapper.newInstance(getType()));
     }
 
+    /**
+     * Queries the entities in the repository and returns a page of them,
+     * starting after the key of the pagination data.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, limited to the entities after the key and sorted by
+     * it, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query,
+            final KeysetPaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return seek(query.getQuery(),
+                new MapSqlParameterSource(query.getParameters()), pagination);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a paginated subset of
+     * them.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, limited to the page, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param pagination
+     *            pagination data
+     * @return the queried and paginated subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query,
+            final PaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return readPage(query.getQuery(), null,
+                new MapSqlParameterSource(query.getParameters()), pagination);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a sorted subset of
+     * them.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, with an {@code ORDER BY} clause, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param sort
+     *            sorting data
+     * @return the queried and sorted subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query, final SortData sort) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return getTemplate().query(
+                SortQueries.orderBy(query.getQuery(), sort),
+                query.getParameters(),
+                BeanPropertyRowMapper.newInstance(getType()));
+    }
+
+    /**
+     * Queries the entities in the repository and returns a sorted and
+     * paginated subset of them.
+     * <p>
+     * The collection is created by building a query from the received
+     * {@code QueryData}, with an {@code ORDER BY} clause, limited to the page,
+     * and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param sort
+     *            sorting data
+     * @param pagination
+     *            pagination data
+     * @return the queried, sorted and paginated subset of entities
+     */
+    @Override
+    public final Collection<V> getCollection(
+            final NamedParameterQueryData query, final SortData sort,
+            final PaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+        checkNotNull(sort, "Received a null pointer as the sorting data");
+
+        return readPage(query.getQuery(), sort,
+                new MapSqlParameterSource(query.getParameters()), pagination);
+    }
+
     /**
      * Queries the entities in the repository and returns a single one.
      * <p>
@@ -357,6 +722,46 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         return entity;
     }
 
+    /**
+     * Returns a page of all the entities contained in the repository, along
+     * the total number of entities.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor, limited to the page.
+     *
+     * @param pagination
+     *            pagination data
+     * @return a page of all the entities, with their total number
+     */
+    @Override
+    public final Page<V> getPage(final PaginationData pagination) {
+        return getPage(getSelectAllValuesQuery(), new MapSqlParameterSource(),
+                pagination);
+    }
+
+    /**
+     * Queries the entities in the repository and returns a page of them, along
+     * the total number of queried entities.
+     * <p>
+     * The page is read by building a query from the received
+     * {@code QueryData}, limited to the page, and executing it.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @param pagination
+     *            pagination data
+     * @return a page of the queried entities, with their total number
+     */
+    @Override
+    public final Page<V> getPage(final NamedParameterQueryData query,
+            final PaginationData pagination) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return getPage(query.getQuery(),
+                new MapSqlParameterSource(query.getParameters()), pagination);
+    }
+
     /**
      * Removes an entity from the repository.
      * <p>
@@ -373,6 +778,158 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         parameterSource = new BeanPropertySqlParameterSource(entity);
 
         getTemplate().update(getDeleteQueryTemplate(), parameterSource);
+
+        TransactionalCountInvalidation.invalidateAll(countCache);
+    }
+
+    /**
+     * Removes the entities from the repository.
+     * <p>
+     * The delete query received on the constructor is sent to the database in
+     * batches, once for each entity.
+     *
+     * @param entities
+     *            the entities to remove
+     */
+    @Override
+    public final void removeAll(final Collection<? extends V> entities) {
+        final List<SqlParameterSource> removed; // Entities to remove
+
+        checkNotNull(entities, "Received a null pointer as the entities");
+
+        removed = new ArrayList<SqlParameterSource>(entities.size());
+        for (final V entity : entities) {
+            checkNotNull(entity, "Received a null pointer as the entity");
+
+            removed.add(new BeanPropertySqlParameterSource(entity));
+        }
+
+        updateBatches(getDeleteQueryTemplate(), removed);
+
+        TransactionalCountInvalidation.invalidateAll(countCache);
+    }
+
+    /**
+     * Sets the number of entities sent to the database on each batch.
+     * <p>
+     * By default this is {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param size
+     *            the number of entities on each batch
+     */
+    public final void setBatchSize(final int size) {
+        checkArgument(size > 0, "The batch size should be positive");
+
+        batchSize = size;
+    }
+
+    /**
+     * Sets the cache for the number of entities returned by the paginated
+     * queries.
+     * <p>
+     * By default a {@code CountCache} with its default settings is used. It
+     * can be shared with other repositories reading the same tables, so
+     * modifications on any of them clear it.
+     *
+     * @param cache
+     *            the cache for the counts
+     */
+    public final void setCountCache(final CountCache cache) {
+        countCache = checkNotNull(cache,
+                "Received a null pointer as the count cache");
+    }
+
+    /**
+     * Sets the executor used for counting the entities while reading a page.
+     * <p>
+     * By default there is none, and the entities are counted after reading
+     * the page. It is not used if the dialect supports window counts.
+     *
+     * @param executor
+     *            the executor for counting the entities, or {@code null} to
+     *            count them after reading the page
+     */
+    public final void setCountExecutor(final ExecutorService executor) {
+        countExecutor = executor;
+    }
+
+    /**
+     * Sets the SQL dialect used for pagination.
+     * <p>
+     * By default it is found from the database product name.
+     *
+     * @param sqlDialect
+     *            the SQL dialect of the database
+     */
+    public final void setDialect(final SqlDialect sqlDialect) {
+        dialect = checkNotNull(sqlDialect,
+                "Received a null pointer as the dialect");
+    }
+
+    /**
+     * Sets if the pages should be read with a deferred join.
+     * <p>
+     * By default this is disabled. It requires the table to have a single key
+     * column.
+     *
+     * @param enabled
+     *            {@code true} to read the pages with a deferred join,
+     *            {@code false} otherwise
+     */
+    public final void setDeferredJoin(final boolean enabled) {
+        checkState(!enabled || keyColumn != null,
+                "Deferred joins require a single key column");
+
+        deferredJoin = enabled;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database at once when
+     * streaming.
+     * <p>
+     * By default this is {@link #DEFAULT_FETCH_SIZE}. MySQL ignores it, as it
+     * only streams the rows one by one.
+     *
+     * @param size
+     *            the number of rows fetched at once
+     */
+    public final void setFetchSize(final int size) {
+        checkArgument(size > 0, "The fetch size should be positive");
+
+        fetchSize = size;
+    }
+
+    /**
+     * Returns an iterator reading all the entities contained in the
+     * repository from an open {@code ResultSet}.
+     * <p>
+     * The query used for this operation just queries the table received by the
+     * constructor.
+     *
+     * @return an iterator for all the entities contained in the repository
+     */
+    @Override
+    public final CloseableIterator<V> streamAll() {
+        return stream(getSelectAllValuesQuery(), new EmptySqlParameterSource(),
+                fetchSize, 0);
+    }
+
+    /**
+     * Queries the entities in the repository and returns an iterator reading
+     * them from an open {@code ResultSet}.
+     *
+     * @param query
+     *            the query user to acquire the entities
+     * @return an iterator for the queried subset of entities
+     */
+    @Override
+    public final CloseableIterator<V> streamCollection(
+            final NamedParameterQueryData query) {
+
+        checkNotNull(query, "Received a null pointer as the query");
+
+        return stream(query.getQuery(),
+                new MapSqlParameterSource(query.getParameters()), fetchSize, 0);
     }
 
     /**
@@ -396,6 +953,19 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         add(entity);
     }
 
+    /**
+     * Updates the entities on the repository, or adds those which are missing.
+     * <p>
+     * This works the same as {@link #addAll(Collection) addAll}.
+     *
+     * @param entities
+     *            the entities to update
+     */
+    @Override
+    public final void updateAll(final Collection<? extends V> entities) {
+        addAll(entities);
+    }
+
     /**
      * Returns the SQL query template used for deleting an entity.
      * <p>
@@ -410,6 +980,150 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         return deleteQueryTemplate;
     }
 
+    /**
+     * Counts the entities returned by the query.
+     *
+     * @param query
+     *            query template to count
+     * @param parameters
+     *            parameters for the query
+     * @return the number of entities returned by the query
+     */
+    private final Long count(final String query,
+            final SqlParameterSource parameters) {
+        return getTemplate().queryForObject(getDialect().count(query),
+                parameters, Long.class);
+    }
+
+    /**
+     * Returns the SQL dialect used for pagination.
+     * <p>
+     * If it was not set, it is found from the database product name.
+     *
+     * @return the SQL dialect of the database
+     */
+    private final SqlDialect getDialect() {
+        final String product; // Database product name
+
+        if (dialect == null) {
+            try {
+                product = (String) JdbcUtils.extractDatabaseMetaData(
+                        baseTemplate.getDataSource(), "getDatabaseProductName");
+            } catch (final MetaDataAccessException e) {
+                throw new DataAccessResourceFailureException(
+                        "Couldn't read the database product name", e);
+            }
+
+            dialect = SqlDialect.fromProductName(product);
+        }
+
+        return dialect;
+    }
+
+    /**
+     * Reads a page of the entities returned by the query, along their total
+     * number.
+     * <p>
+     * The count is taken from the cache, read along the page, or queried
+     * apart, in that order of preference.
+     *
+     * @param query
+     *            query template to paginate
+     * @param parameters
+     *            parameters for the query
+     * @param pagination
+     *            pagination data
+     * @return the page of entities, with their total number
+     */
+    private final Page<V> getPage(final String query,
+            final MapSqlParameterSource parameters,
+            final PaginationData pagination) {
+        final Collection<V> entities;            // Entities in the page
+        final Long cached;                       // Cached count
+        final Future<Long> counting;             // Count queried apart
+        final WindowCountExtractor<V> extractor; // Reads the window count
+        Long total;                              // Total number of entities
+
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+
+        cached = countCache.getCount(query, parameters.getValues());
+        if (cached != null) {
+            // The count is already known
+            entities = readPage(query, null, parameters, pagination);
+            total = cached;
+        } else if (!deferredJoin && getDialect().canCountOver(query)) {
+            // The count is read along the page
+            extractor = new WindowCountExtractor<V>(
+                    BeanPropertyRowMapper.newInstance(getType()));
+            entities = getTemplate().query(
+                    paginate(getDialect().countOver(query), pagination),
+                    parameters, extractor);
+            total = extractor.getTotalCount();
+            if (total == null) {
+                // Page out of the entities, so there are no rows to read it
+                total = count(query, parameters);
+            }
+        } else if (countExecutor != null) {
+            // The count is queried while reading the page
+            counting = countExecutor.submit(new Callable<Long>() {
+
+                @Override
+                public final Long call() {
+                    return count(query, parameters);
+                }
+
+            });
+            try {
+                entities = readPage(query, null, parameters, pagination);
+            } catch (final RuntimeException e) {
+                counting.cancel(true);
+                throw e;
+            }
+            total = awaitCount(counting);
+        } else {
+            entities = readPage(query, null, parameters, pagination);
+            total = count(query, parameters);
+        }
+
+        if (cached == null) {
+            countCache.putCount(query, parameters.getValues(), total);
+        }
+
+        return new DefaultPage<V>(entities, pagination, total);
+    }
+
+    /**
+     * Waits for the count being queried apart and returns it.
+     *
+     * @param counting
+     *            count being queried
+     * @return the number of entities
+     */
+    private final Long awaitCount(final Future<Long> counting) {
+        try {
+            return counting.get();
+        } catch (final InterruptedException e) {
+            counting.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while counting the entities", e);
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the condition restricting a query to the keys read for a
+     * deferred join.
+     *
+     * @return the condition for the keys
+     */
+    private final String getKeysCondition() {
+        return String.format("%s IN (:%s)", keyColumn,
+                DeferredJoinQueries.KEYS_PARAMETER);
+    }
+
     /**
      * Returns the handler of the insert operations.
      * <p>
@@ -417,7 +1131,7 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
      *
      * @return the handler of the insert operations
      */
-    private final SimpleJdbcInsertOperations getInsertHandler() {
+    private final BatchJdbcInsert getInsertHandler() {
         return insertHandler;
     }
 
@@ -451,6 +1165,211 @@ public final class SpringJdbcRepository<V extends PersistenceEntity>
         return classType;
     }
 
+    /**
+     * Inserts the entities in batches, and assigns them the generated keys.
+     * <p>
+     * If the dialect can't read the keys generated by a batch, the entities
+     * are inserted one by one instead.
+     *
+     * @param entities
+     *            the entities to insert
+     */
+    private final void insertBatches(final List<V> entities) {
+        final List<SqlParameterSource> parameters; // Parameters for a batch
+        List<Number> keys;                         // Keys for a batch
+        Number key;                                // Key for an entity
+
+        if (getDialect().isBatchKeysSupported()) {
+            parameters = new ArrayList<SqlParameterSource>();
+            for (final List<V> batch : Lists.partition(entities, batchSize)) {
+                parameters.clear();
+                for (final V entity : batch) {
+                    parameters.add(new BeanPropertySqlParameterSource(entity));
+                }
+
+                keys = getInsertHandler()
+                        .executeBatchAndReturnKeys(parameters);
+
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).setId(keys.get(i).intValue());
+                }
+            }
+        } else {
+            for (final V entity : entities) {
+                key = getInsertHandler().executeAndReturnKey(
+                        new BeanPropertySqlParameterSource(entity));
+
+                entity.setId(key.intValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the received SQL query limited to the page.
+     *
+     * @param query
+     *            query to paginate
+     * @param pagination
+     *            pagination data
+     * @return the query limited to the page
+     */
+    private final String paginate(final String query,
+            final PaginationData pagination) {
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+
+        return getDialect().paginate(query, pagination);
+    }
+
+    /**
+     * Reads a page of the entities returned by the query.
+     * <p>
+     * If deferred joins are enabled, first the keys of the entities in the
+     * page are read, and then the entities with those keys.
+     *
+     * @param query
+     *            query template to paginate
+     * @param sort
+     *            sorting data, or {@code null} to keep the query unsorted
+     * @param parameters
+     *            parameters for the query
+     * @param pagination
+     *            pagination data
+     * @return the entities in the page
+     */
+    private final Collection<V> readPage(final String query,
+            final SortData sort, final MapSqlParameterSource parameters,
+            final PaginationData pagination) {
+        final String sorted;                       // Sorted query
+        final List<Integer> keys;                  // Keys of the page
+        final MapSqlParameterSource keyParameters; // Parameters with the keys
+        final Collection<V> entities;              // Entities in the page
+
+        if (sort == null) {
+            sorted = query;
+        } else {
+            sorted = SortQueries.orderBy(query, sort);
+        }
+
+        if (deferredJoin) {
+            // Reads the keys in the page
+            keys = getTemplate().queryForList(
+                    paginate(DeferredJoinQueries.selectKeys(sorted, keyColumn),
+                            pagination),
+                    parameters, Integer.class);
+
+            if (keys.isEmpty()) {
+                entities = Collections.emptyList();
+            } else {
+                // Reads the entities for the keys
+                keyParameters = new MapSqlParameterSource(
+                        parameters.getValues());
+                keyParameters.addValue(DeferredJoinQueries.KEYS_PARAMETER,
+                        keys);
+                entities = DeferredJoinQueries.orderByKeys(
+                        getTemplate().query(
+                                DeferredJoinQueries.restrictToKeys(query,
+                                        getKeysCondition()),
+                                keyParameters,
+                                BeanPropertyRowMapper.newInstance(getType())),
+                        keys);
+            }
+        } else {
+            entities = getTemplate().query(paginate(sorted, pagination),
+                    parameters, BeanPropertyRowMapper.newInstance(getType()));
+        }
+
+        return entities;
+    }
+
+    /**
+     * Executes the received SQL query paginated by a key and returns the
+     * entities in the page.
+     *
+     * @param query
+     *            query template to execute
+     * @param parameters
+     *            parameters for the query
+     * @param pagination
+     *            keyset pagination data
+     * @return the entities in the page, sorted by the key
+     */
+    private final Collection<V> seek(final String query,
+            final MapSqlParameterSource parameters,
+            final KeysetPaginationData pagination) {
+        final Collection<V> entities;    // Entities in the page
+        final CloseableIterator<V> rows; // Iterator for the page
+
+        checkNotNull(pagination,
+                "Received a null pointer as the pagination data");
+
+        if (pagination.getLastKey() != null) {
+            parameters.addValue(KeysetQueries.LAST_KEY_PARAMETER,
+                    pagination.getLastKey());
+        }
+
+        rows = stream(KeysetQueries.seek(query, pagination), parameters,
+                Math.min(fetchSize, pagination.getPageSize()),
+                pagination.getPageSize());
+        entities = new ArrayList<V>(pagination.getPageSize());
+        try {
+            while (rows.hasNext()) {
+                entities.add(rows.next());
+            }
+        } finally {
+            rows.close();
+        }
+
+        return entities;
+    }
+
+    /**
+     * Executes the query and returns an iterator reading the entities from
+     * its {@code ResultSet}.
+     *
+     * @param query
+     *            query template to execute
+     * @param parameters
+     *            parameters for the query
+     * @param fetch
+     *            number of rows fetched from the database at once
+     * @param maxRows
+     *            maximum number of rows read, or zero for no limit
+     * @return an iterator for the queried entities
+     */
+    private final CloseableIterator<V> stream(final String query,
+            final SqlParameterSource parameters, final int fetch,
+            final int maxRows) {
+        final ParsedSql parsed; // Query with the named parameters parsed
+
+        parsed = NamedParameterUtils.parseSqlStatement(query);
+
+        return new ResultSetIterator<V>(baseTemplate.getDataSource(),
+                baseTemplate.getExceptionTranslator(),
+                NamedParameterUtils.substituteNamedParameters(parsed,
+                        parameters),
+                NamedParameterUtils.buildValueArray(parsed, parameters, null),
+                BeanPropertyRowMapper.newInstance(getType()), fetch, maxRows);
+    }
+
+    /**
+     * Executes the query in batches, once for each of the received
+     * parameters.
+     *
+     * @param query
+     *            query template to execute
+     * @param parameters
+     *            parameters for each execution of the query
+     */
+    private final void updateBatches(final String query,
+            final List<SqlParameterSource> parameters) {
+        for (final List<SqlParameterSource> batch : Lists
+                .partition(parameters, batchSize)) {
+            getTemplate().batchUpdate(query,
+                    batch.toArray(new SqlParameterSource[batch.size()]));
+        }
+    }
+
     /**
      * Returns the query used for updating an entity.
      * <p>
@@ -0,0 +1,282 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.spring;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.wandrell.pattern.repository.pagination.PaginationData;
+
+/**
+ * SQL dialects, used for adding pagination, and counting the paginated
+ * entities, to the queries.
+ * <p>
+ * The page is added at the end of the query, using the clause supported by
+ * the database. For H2, HSQLDB and PostgreSQL this is the standard
+ * {@code OFFSET ... ROWS FETCH FIRST ... ROWS ONLY} clause, while for MySQL
+ * and SQLite this is the {@code LIMIT ... OFFSET ...} clause. Databases
+ * without a dialect of their own use the standard clause.
+ * <p>
+ * The total number of entities can be read along the page, with a
+ * {@code COUNT(*) OVER()} window function, on the databases supporting it,
+ * which for the versions handled by the project is just PostgreSQL. The rest
+ * require a separate count query. The count is added to the select list of the
+ * query, which keeps its sorting, so this is limited to single {@code SELECT}
+ * queries without {@code DISTINCT}.
+ * <p>
+ * The keys generated when inserting a batch of rows can be read back just on
+ * the databases whose JDBC driver returns the keys for all of the rows, which
+ * are H2, MySQL and PostgreSQL. The rest should insert the rows one by one.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public enum SqlDialect {
+
+    /**
+     * H2 dialect.
+     */
+    H2("H2", " OFFSET %2$d ROWS FETCH FIRST %1$d ROWS ONLY", false, true),
+    /**
+     * HSQLDB dialect.
+     */
+    HSQLDB("HSQL Database Engine",
+            " OFFSET %2$d ROWS FETCH FIRST %1$d ROWS ONLY", false, false),
+    /**
+     * MySQL dialect.
+     */
+    MYSQL("MySQL", " LIMIT %1$d OFFSET %2$d", false, true),
+    /**
+     * PostgreSQL dialect.
+     */
+    POSTGRESQL("PostgreSQL", " OFFSET %2$d ROWS FETCH FIRST %1$d ROWS ONLY",
+            true, true),
+    /**
+     * SQLite dialect.
+     */
+    SQLITE("SQLite", " LIMIT %1$d OFFSET %2$d", false, false),
+    /**
+     * Standard SQL dialect, for any other database.
+     */
+    STANDARD("", " OFFSET %2$d ROWS FETCH FIRST %1$d ROWS ONLY", false,
+            false);
+
+    /**
+     * Column receiving the total number of entities in the window count
+     * queries.
+     */
+    public static final String   TOTAL_COUNT_COLUMN = "page_total_count";
+
+    /**
+     * Pattern for finding set operations joining several queries.
+     */
+    private static final Pattern COMPOUND_QUERY     = Pattern.compile(
+            "\\s(UNION|INTERSECT|EXCEPT)\\s", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Pattern for finding the start of a {@code SELECT} without
+     * {@code DISTINCT}.
+     */
+    private static final Pattern PLAIN_SELECT       = Pattern.compile(
+            "^\\s*SELECT\\s+(?!DISTINCT\\s)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Returns the dialect for the database with the specified product name.
+     * <p>
+     * This is the name returned by the JDBC {@code DatabaseMetaData}. If there
+     * is no dialect for the database the standard one is returned.
+     * 
+     * @param name
+     *            database product name
+     * @return the dialect for the database
+     */
+    public static final SqlDialect fromProductName(final String name) {
+        SqlDialect dialect; // Dialect for the database
+
+        checkNotNull(name, "Received a null pointer as product name");
+
+        dialect = STANDARD;
+        for (final SqlDialect value : values()) {
+            if (value.productName.equals(name)) {
+                dialect = value;
+            }
+        }
+
+        return dialect;
+    }
+
+    /**
+     * Flag marking if the keys generated by a batch of inserts can be read.
+     */
+    private final boolean batchKeys;
+
+    /**
+     * Template for the pagination clause.
+     * <p>
+     * It receives the page size and the offset, in that order.
+     */
+    private final String  pageClause;
+
+    /**
+     * Database product name.
+     */
+    private final String  productName;
+
+    /**
+     * Flag marking if the database supports counting with window functions.
+     */
+    private final boolean windowCount;
+
+    /**
+     * Constructs a {@code SqlDialect} with the specified data.
+     * 
+     * @param name
+     *            database product name
+     * @param clause
+     *            template for the pagination clause
+     * @param window
+     *            flag marking if window functions are supported
+     * @param keys
+     *            flag marking if the keys generated by a batch can be read
+     */
+    private SqlDialect(final String name, final String clause,
+            final boolean window, final boolean keys) {
+        productName = name;
+        pageClause = clause;
+        windowCount = window;
+        batchKeys = keys;
+    }
+
+    /**
+     * Returns a query counting the entities returned by the received query.
+     * 
+     * @param query
+     *            query to count
+     * @return a query counting the entities
+     */
+    public final String count(final String query) {
+        checkNotNull(query, "Received a null pointer as query");
+
+        return String.format("SELECT COUNT(*) FROM (%s) counted", query);
+    }
+
+    /**
+     * Indicates if the entities returned by the query can be counted with a
+     * window function, along the page.
+     * <p>
+     * This requires a dialect supporting window counts, and a single
+     * {@code SELECT} query without {@code DISTINCT}.
+     * 
+     * @param query
+     *            query to count
+     * @return {@code true} if the query can be counted with a window
+     *         function, {@code false} otherwise
+     */
+    public final boolean canCountOver(final String query) {
+        checkNotNull(query, "Received a null pointer as query");
+
+        return windowCount && PLAIN_SELECT.matcher(query).find()
+                && !COMPOUND_QUERY.matcher(query).find();
+    }
+
+    /**
+     * Returns the received query adding the total number of entities to each
+     * row, in the {@link #TOTAL_COUNT_COLUMN} column.
+     * <p>
+     * The count is added at the start of the select list, so the query keeps
+     * its sorting. It is computed before the pagination, so the paginated
+     * query still contains the total number of entities.
+     * 
+     * @param query
+     *            query to count
+     * @return the query with the total number of entities
+     */
+    public final String countOver(final String query) {
+        final Matcher select; // Matcher for the start of the query
+
+        checkState(windowCount, "The %s dialect doesn't support window counts",
+                this);
+        checkArgument(canCountOver(query),
+                "The query should be a single SELECT without DISTINCT");
+
+        select = PLAIN_SELECT.matcher(query);
+        select.find();
+
+        return String.format("%sCOUNT(*) OVER() AS %s, %s",
+                query.substring(0, select.end()), TOTAL_COUNT_COLUMN,
+                query.substring(select.end()));
+    }
+
+    /**
+     * Indicates if the keys generated when inserting a batch of rows can be
+     * read back for all the rows.
+     * 
+     * @return {@code true} if the batch keys are supported, {@code false}
+     *         otherwise
+     */
+    public final boolean isBatchKeysSupported() {
+        return batchKeys;
+    }
+
+    /**
+     * Indicates if the entities can be counted with a window function, along
+     * the page.
+     * 
+     * @return {@code true} if window counts are supported, {@code false}
+     *         otherwise
+     */
+    public final boolean isWindowCountSupported() {
+        return windowCount;
+    }
+
+    /**
+     * Returns the received query limited to the specified page.
+     * <p>
+     * The query should not end with a clause which can't be followed by the
+     * pagination, such as {@code FOR UPDATE}.
+     * 
+     * @param query
+     *            query to paginate
+     * @param pagination
+     *            pagination data
+     * @return the query limited to the page
+     */
+    public final String paginate(final String query,
+            final PaginationData pagination) {
+        final Integer offset; // First row of the page
+
+        checkNotNull(query, "Received a null pointer as query");
+        checkNotNull(pagination, "Received a null pointer as pagination");
+
+        offset = (pagination.getPageNumber() - 1) * pagination.getPageSize();
+
+        return query + String.format(pageClause, pagination.getPageSize(),
+                offset);
+    }
+
+}
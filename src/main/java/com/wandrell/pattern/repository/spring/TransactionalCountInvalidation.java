@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.spring;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.wandrell.pattern.repository.pagination.CountCache;
+
+/**
+ * Clears a {@link CountCache} taking into account the current Spring
+ * transaction.
+ * <p>
+ * Inside a transaction the counts read after modifying the entities include
+ * the uncommitted changes, so the cache is cleared again when the transaction
+ * ends, in case it is rolled back.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TransactionalCountInvalidation {
+
+    /**
+     * Removes all the counts in the cache.
+     * <p>
+     * If there is an active Spring transaction, they are removed again once
+     * it ends.
+     * 
+     * @param cache
+     *            the cache to clear
+     */
+    public static final void invalidateAll(final CountCache cache) {
+        checkNotNull(cache, "Received a null pointer as the count cache");
+
+        cache.invalidateAll();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+
+                        @Override
+                        public final void afterCompletion(final int status) {
+                            cache.invalidateAll();
+                        }
+
+                    });
+        }
+    }
+
+    /**
+     * Private constructor to avoid initialization.
+     */
+    private TransactionalCountInvalidation() {
+        super();
+    }
+
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.spring;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Extractor mapping the rows of a window count query into entities, while
+ * reading the total number of entities from them.
+ * <p>
+ * The total is read from the {@link SqlDialect#TOTAL_COUNT_COLUMN} column of
+ * the first row. If there are no rows it stays as {@code null}.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the mapped entities
+ */
+final class WindowCountExtractor<V> implements ResultSetExtractor<List<V>> {
+
+    /**
+     * Mapper for transforming the rows into entities.
+     */
+    private final RowMapper<V> mapper;
+
+    /**
+     * Total number of entities.
+     */
+    private Long               totalCount;
+
+    /**
+     * Constructs an extractor with the specified mapper.
+     * 
+     * @param rowMapper
+     *            mapper for transforming the rows into entities
+     */
+    public WindowCountExtractor(final RowMapper<V> rowMapper) {
+        super();
+
+        mapper = rowMapper;
+    }
+
+    @Override
+    public final List<V> extractData(final ResultSet rs) throws SQLException {
+        final List<V> entities; // Mapped entities
+        int rowNumber;          // Number of the current row
+
+        entities = new ArrayList<V>();
+        rowNumber = 0;
+        while (rs.next()) {
+            if (rowNumber == 0) {
+                totalCount = rs.getLong(SqlDialect.TOTAL_COUNT_COLUMN);
+            }
+            entities.add(mapper.mapRow(rs, rowNumber));
+            rowNumber++;
+        }
+
+        return entities;
+    }
+
+    /**
+     * Returns the total number of entities, or {@code null} if there were no
+     * rows.
+     * 
+     * @return the total number of entities
+     */
+    public final Long getTotalCount() {
+        return totalCount;
+    }
+
+}
@@ -29,6 +29,9 @@
  * <p>
  * Only the {@link com.wandrell.pattern.repository.spring.SpringJdbcRepository
  * SpringJDBCRepository} is offered.
+ * <p>
+ * The {@link com.wandrell.pattern.repository.spring.SqlDialect SqlDialect}
+ * adds the pagination clause supported by each database to its queries.
  */
 
 package com.wandrell.pattern.repository.spring;
@@ -0,0 +1,50 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.stream;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator holding resources, such as an open cursor on a database, which
+ * should be released by closing it.
+ * <p>
+ * Implementations should release the resources by themselves once all the
+ * entities have been read, so closing is only required when abandoning the
+ * iterator before reaching the end. Closing it more than once has no effect.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type of the iterated entities
+ */
+public interface CloseableIterator<V> extends Iterator<V>, Closeable {
+
+    /**
+     * Closes the iterator, releasing its resources.
+     */
+    @Override
+    public void close();
+
+}
@@ -0,0 +1,69 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.repository.stream;
+
+import com.wandrell.pattern.repository.FilteredRepository;
+
+/**
+ * Extension of {@link com.wandrell.pattern.repository.FilteredRepository
+ * FilteredRepository} allowing to read it's contents as a stream, instead of
+ * loading all of them at once.
+ * <p>
+ * The entities are returned through a {@link CloseableIterator}, which reads
+ * them from the source as it advances, so the memory used does not depend on
+ * the number of entities. The iterator should be closed if it is abandoned
+ * before reaching the end.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <V>
+ *            the type stored on the repository
+ * @param <F>
+ *            the type being used to filter the entities
+ */
+public interface StreamingRepository<V, F> extends FilteredRepository<V, F> {
+
+    /**
+     * Returns an iterator reading all the entities contained in the
+     * repository.
+     * 
+     * @return an iterator for all the entities contained in the repository
+     */
+    public CloseableIterator<V> streamAll();
+
+    /**
+     * Queries the entities in the repository and returns an iterator reading
+     * a subset of them.
+     * <p>
+     * The subset is created filtering the stored data with the specified
+     * filter, the same way as with {@link #getCollection(Object)
+     * getCollection}.
+     * 
+     * @param filter
+     *            the filter which discriminates the entities to be returned
+     * @return an iterator for the filtered subset of entities
+     */
+    public CloseableIterator<V> streamCollection(final F filter);
+
+}
@@ -0,0 +1,200 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.benchmark.repository;
+
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.and;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.between;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.equal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.columnar.ColumnFilter;
+import com.wandrell.pattern.repository.columnar.ColumnarRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Filtering benchmark for {@link ColumnarRepository}.
+ * <p>
+ * Both repositories are filtered by a range on the identifiers and a name.
+ * The {@link CollectionRepository} applies a predicate to each entity, which
+ * are added in a shuffled order so they are scattered through the heap, as
+ * happens with entities loaded over time.
+ * <p>
+ * These are not part of the tests suites. To run them, compile the tests and
+ * launch JMH with the tests classpath, for example:
+ * <p>
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BenchmarkColumnar}
+ * <p>
+ * JMH requires the benchmark state classes to be public and extensible, so
+ * this class is not final.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ColumnarRepository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkColumnarRepository {
+
+    /**
+     * Names given to the entities.
+     */
+    private static final String[]            NAMES = { "a", "b", "c", "d" };
+
+    /**
+     * Number of entities in the repositories.
+     */
+    @Param({ "1000000" })
+    public int                               size;
+
+    /**
+     * Repository filtered through predicates.
+     */
+    private CollectionRepository<TestEntity> collection;
+
+    /**
+     * Repository being benchmarked.
+     */
+    private ColumnarRepository<TestEntity>   columnar;
+
+    /**
+     * Filter for the columnar repository.
+     */
+    private ColumnFilter                     columnFilter;
+
+    /**
+     * Filter for the collection repository.
+     */
+    private Predicate<TestEntity>            predicate;
+
+    /**
+     * Default constructor.
+     */
+    public BenchmarkColumnarRepository() {
+        super();
+    }
+
+    /**
+     * Filters the collection repository.
+     * 
+     * @return the filtered entities
+     */
+    @Benchmark
+    public Collection<TestEntity> filterCollection() {
+        return collection.getCollection(predicate);
+    }
+
+    /**
+     * Filters the columnar repository.
+     * 
+     * @return the filtered entities
+     */
+    @Benchmark
+    public Collection<TestEntity> filterColumnar() {
+        return columnar.getCollection(columnFilter);
+    }
+
+    /**
+     * Fills the repositories before the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        final List<TestEntity> entities; // Entities to store
+        TestEntity entity;               // Entity to store
+
+        predicate = new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity input) {
+                return (input.getId() >= size / 4)
+                        && (input.getId() < size / 2)
+                        && ("a".equals(input.getName()));
+            }
+
+        };
+        columnFilter = and(between("id", size / 4, (size / 2) - 1),
+                equal("name", "a"));
+
+        collection = new CollectionRepository<TestEntity>(
+                new EntityKeyFunction());
+        columnar = new ColumnarRepository<TestEntity>();
+        columnar.addIntColumn("id", new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity input) {
+                return input.getId();
+            }
+
+        });
+        columnar.addStringColumn("name", new Function<TestEntity, String>() {
+
+            @Override
+            public final String apply(final TestEntity input) {
+                return input.getName();
+            }
+
+        });
+
+        entities = new ArrayList<TestEntity>(size);
+        for (Integer i = 0; i < size; i++) {
+            entity = new TestEntityBean();
+            entity.setId(i);
+            entity.setName(new String(NAMES[i % NAMES.length]));
+            entities.add(entity);
+        }
+        Collections.shuffle(entities, new Random(42));
+
+        for (final TestEntity stored : entities) {
+            collection.add(stored);
+            columnar.add(stored);
+        }
+    }
+
+}
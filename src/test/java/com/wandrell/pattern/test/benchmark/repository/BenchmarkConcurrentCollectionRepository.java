@@ -0,0 +1,241 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.benchmark.repository;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.ConcurrentCollectionRepository;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Contention benchmark for {@link ConcurrentCollectionRepository}.
+ * <p>
+ * It is compared against a {@link CollectionRepository} guarded by a single
+ * lock, which is how a repository shared between threads had to be used
+ * before.
+ * <p>
+ * The {@code read} benchmarks only query the repository, and should be run
+ * with an increasing number of threads to check how reads scale across cores.
+ * The {@code mixed} groups query the repository from three threads while a
+ * fourth one keeps updating it.
+ * <p>
+ * These are not part of the tests suites. To run them, compile the tests and
+ * launch JMH with the tests classpath, for example:
+ * <p>
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BenchmarkConcurrent -t 4}
+ * <p>
+ * JMH requires the benchmark state classes to be public and extensible, so
+ * this class is not final.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ConcurrentCollectionRepository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkConcurrentCollectionRepository {
+
+    /**
+     * Number of entities in the repositories.
+     */
+    @Param({ "10000" })
+    public int                                             size;
+
+    /**
+     * Repository being benchmarked.
+     */
+    private FilteredRepository<TestEntity, Predicate<TestEntity>> concurrent;
+
+    /**
+     * Filter used for the queries.
+     * <p>
+     * It accepts one of each hundred entities.
+     */
+    private Predicate<TestEntity>                          filter;
+
+    /**
+     * Lock guarding the baseline repository.
+     */
+    private final Object                                   lock   = new Object();
+
+    /**
+     * Baseline repository, guarded by a single lock.
+     */
+    private FilteredRepository<TestEntity, Predicate<TestEntity>> locked;
+
+    /**
+     * Default constructor.
+     */
+    public BenchmarkConcurrentCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Queries the concurrent repository while it is being updated.
+     * 
+     * @return the queried entities
+     */
+    @Benchmark
+    @Group("mixedConcurrent")
+    @GroupThreads(3)
+    public Collection<TestEntity> mixedConcurrentRead() {
+        return concurrent.getCollection(filter);
+    }
+
+    /**
+     * Updates the concurrent repository while it is being queried.
+     */
+    @Benchmark
+    @Group("mixedConcurrent")
+    @GroupThreads(1)
+    public void mixedConcurrentWrite() {
+        concurrent.update(getRandomEntity());
+    }
+
+    /**
+     * Queries the locked repository while it is being updated.
+     * 
+     * @return the queried entities
+     */
+    @Benchmark
+    @Group("mixedLocked")
+    @GroupThreads(3)
+    public Collection<TestEntity> mixedLockedRead() {
+        synchronized (lock) {
+            return locked.getCollection(filter);
+        }
+    }
+
+    /**
+     * Updates the locked repository while it is being queried.
+     */
+    @Benchmark
+    @Group("mixedLocked")
+    @GroupThreads(1)
+    public void mixedLockedWrite() {
+        final TestEntity entity; // Entity to update
+
+        entity = getRandomEntity();
+        synchronized (lock) {
+            locked.update(entity);
+        }
+    }
+
+    /**
+     * Queries the concurrent repository.
+     * 
+     * @return the queried entities
+     */
+    @Benchmark
+    public Collection<TestEntity> readConcurrent() {
+        return concurrent.getCollection(filter);
+    }
+
+    /**
+     * Queries the locked repository.
+     * 
+     * @return the queried entities
+     */
+    @Benchmark
+    public Collection<TestEntity> readLocked() {
+        synchronized (lock) {
+            return locked.getCollection(filter);
+        }
+    }
+
+    /**
+     * Fills the repositories before the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        filter = new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId() % 100 == 0;
+            }
+
+        };
+
+        concurrent = new ConcurrentCollectionRepository<TestEntity>();
+        locked = new CollectionRepository<TestEntity>(new EntityKeyFunction());
+
+        for (Integer i = 0; i < size; i++) {
+            concurrent.add(getEntity(i));
+            locked.add(getEntity(i));
+        }
+    }
+
+    /**
+     * Creates an entity with the specified ID.
+     * 
+     * @param id
+     *            ID for the entity
+     * @return an entity with the specified ID
+     */
+    private final TestEntity getEntity(final Integer id) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(String.valueOf(id));
+
+        return entity;
+    }
+
+    /**
+     * Creates an entity with a random ID from those stored.
+     * 
+     * @return an entity with a random ID
+     */
+    private final TestEntity getRandomEntity() {
+        return getEntity(ThreadLocalRandom.current().nextInt(size));
+    }
+
+}
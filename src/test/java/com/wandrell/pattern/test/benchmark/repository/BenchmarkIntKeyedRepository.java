@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.benchmark.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.IntKeyedRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Lookup benchmark for {@link IntKeyedRepository}.
+ * <p>
+ * Each benchmark looks up all the stored entities by their identifiers, in a
+ * shuffled order. It is compared against a {@code HashMap<Integer, V>}, and
+ * against a {@link CollectionRepository} keyed by identifier and with an
+ * index on it, both of which box the identifiers.
+ * <p>
+ * These are not part of the tests suites. To run them, compile the tests and
+ * launch JMH with the tests classpath, for example:
+ * <p>
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BenchmarkIntKeyed -prof gc}
+ * <p>
+ * The {@code gc} profiler shows the bytes allocated on each lookup.
+ * <p>
+ * JMH requires the benchmark state classes to be public and extensible, so
+ * this class is not final.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see IntKeyedRepository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkIntKeyedRepository {
+
+    /**
+     * Name of the index on the identifiers.
+     */
+    private static final String              ID_INDEX = "id";
+
+    /**
+     * Number of entities in the repositories.
+     */
+    @Param({ "100000" })
+    public int                               size;
+
+    /**
+     * Repository keyed by the boxed identifiers.
+     */
+    private CollectionRepository<TestEntity> collection;
+
+    /**
+     * Identifiers to look up, in a shuffled order.
+     */
+    private int[]                            ids;
+
+    /**
+     * Map from the boxed identifiers to the entities.
+     */
+    private Map<Integer, TestEntity>         map;
+
+    /**
+     * Repository being benchmarked.
+     */
+    private IntKeyedRepository<TestEntity>   primitive;
+
+    /**
+     * Default constructor.
+     */
+    public BenchmarkIntKeyedRepository() {
+        super();
+    }
+
+    /**
+     * Looks up the entities in the indexed collection repository.
+     * 
+     * @param blackhole
+     *            sink for the entities
+     */
+    @Benchmark
+    public void getCollectionIndexed(final Blackhole blackhole) {
+        for (final int id : ids) {
+            blackhole.consume(collection.getEntity(ID_INDEX, id));
+        }
+    }
+
+    /**
+     * Looks up the entities in the map.
+     * 
+     * @param blackhole
+     *            sink for the entities
+     */
+    @Benchmark
+    public void getHashMap(final Blackhole blackhole) {
+        for (final int id : ids) {
+            blackhole.consume(map.get(id));
+        }
+    }
+
+    /**
+     * Looks up the entities in the primitive repository.
+     * 
+     * @param blackhole
+     *            sink for the entities
+     */
+    @Benchmark
+    public void getPrimitive(final Blackhole blackhole) {
+        for (final int id : ids) {
+            blackhole.consume(primitive.getById(id));
+        }
+    }
+
+    /**
+     * Fills the repositories before the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        final Random random; // Random for shuffling
+        TestEntity entity;   // Entity to store
+        int swap;            // Position to swap
+        int id;              // Swapped identifier
+
+        primitive = new IntKeyedRepository<TestEntity>(size);
+        map = new HashMap<Integer, TestEntity>();
+        collection = new CollectionRepository<TestEntity>(
+                new EntityKeyFunction());
+        collection.addIndex(ID_INDEX, new Function<TestEntity, Object>() {
+
+            @Override
+            public final Object apply(final TestEntity input) {
+                return input.getId();
+            }
+
+        });
+
+        ids = new int[size];
+        for (Integer i = 0; i < size; i++) {
+            entity = new TestEntityBean();
+            entity.setId(i * 7);
+            entity.setName(String.valueOf(i));
+
+            primitive.add(entity);
+            map.put(entity.getId(), entity);
+            collection.add(entity);
+            ids[i] = entity.getId();
+        }
+
+        random = new Random(42);
+        for (int i = ids.length - 1; i > 0; i--) {
+            swap = random.nextInt(i + 1);
+            id = ids[i];
+            ids[i] = ids[swap];
+            ids[swap] = id;
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.benchmark.repository;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.pagination.PaginationData;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Pagination benchmark for {@link CollectionRepository}.
+ * <p>
+ * Each benchmark reads a page deep into the repository. A repository built
+ * with a key function finds the first entity of the page directly, while one
+ * built with a {@code LinkedList} skips all the entities before it.
+ * <p>
+ * Every tenth entity is removed before the benchmark, so the keyed repository
+ * has empty slots to skip.
+ * <p>
+ * These are not part of the tests suites. To run them, compile the tests and
+ * launch JMH with the tests classpath, for example:
+ * <p>
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BenchmarkPaginated}
+ * <p>
+ * JMH requires the benchmark state classes to be public and extensible, so
+ * this class is not final.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkPaginatedCollectionRepository {
+
+    /**
+     * Size of the pages.
+     */
+    private static final int                 PAGE_SIZE = 20;
+
+    /**
+     * Repository keyed by the identifiers.
+     */
+    private CollectionRepository<TestEntity> keyed;
+
+    /**
+     * Repository using a {@code LinkedList}.
+     */
+    private CollectionRepository<TestEntity> linked;
+
+    /**
+     * Page to read.
+     */
+    private PaginationData                   page;
+
+    /**
+     * Number of the page to read.
+     */
+    @Param({ "5000" })
+    public int                               pageNumber;
+
+    /**
+     * Default constructor.
+     */
+    public BenchmarkPaginatedCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Reads the page from the keyed repository.
+     * 
+     * @return the entities in the page
+     */
+    @Benchmark
+    public Collection<TestEntity> getPageKeyed() {
+        return keyed.getAll(page);
+    }
+
+    /**
+     * Reads the page from the linked list repository.
+     * 
+     * @return the entities in the page
+     */
+    @Benchmark
+    public Collection<TestEntity> getPageLinked() {
+        return linked.getAll(page);
+    }
+
+    /**
+     * Fills the repositories before the benchmark.
+     */
+    @Setup
+    public void setUp() {
+        final int size;    // Number of entities to add
+        TestEntity entity; // Entity to store
+
+        keyed = new CollectionRepository<TestEntity>(new EntityKeyFunction());
+        linked = new CollectionRepository<TestEntity>(
+                new LinkedList<TestEntity>());
+        page = new DefaultPaginationData(PAGE_SIZE, pageNumber);
+
+        // Enough entities for the page to be in the middle
+        size = PAGE_SIZE * pageNumber * 2;
+        for (Integer i = 0; i < size; i++) {
+            entity = new TestEntityBean();
+            entity.setId(i);
+            entity.setName(String.valueOf(i));
+
+            keyed.add(entity);
+            linked.add(entity);
+        }
+
+        for (Integer i = 0; i < size; i += 10) {
+            entity = new TestEntityBean();
+            entity.setId(i);
+
+            keyed.remove(entity);
+            linked.remove(entity);
+        }
+    }
+
+}
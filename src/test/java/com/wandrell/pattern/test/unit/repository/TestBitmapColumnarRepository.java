@@ -0,0 +1,262 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.and;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.between;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.equal;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.in;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.not;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.columnar.ColumnarRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for the bitmap columns of {@link ColumnarRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Values are filtered through their bitmaps</li>
+ * <li>Bitmap filters are combined with other filters</li>
+ * <li>Rows with null values are not accepted by negated filters</li>
+ * <li>Counts are kept while the bitmaps grow and shrink</li>
+ * <li>Updated entities move to the bitmap of their new value</li>
+ * <li>Bitmaps are kept when compacting</li>
+ * <li>Views know their size and read the entities lazily</li>
+ * <li>Views can't be iterated after modifying the repository</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ColumnarRepository
+ */
+public final class TestBitmapColumnarRepository {
+
+    /**
+     * The repository being tested.
+     */
+    private ColumnarRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestBitmapColumnarRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new ColumnarRepository<TestEntity>();
+
+        repository.addIntColumn("id", new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity entity) {
+                return entity.getId();
+            }
+
+        });
+        repository.addBitmapColumn("name",
+                new Function<TestEntity, String>() {
+
+                    @Override
+                    public final String apply(final TestEntity entity) {
+                        return entity.getName();
+                    }
+
+                });
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "a"));
+        repository.add(getEntity(4, "c"));
+    }
+
+    /**
+     * Tests that counts are kept while the bitmaps grow and shrink.
+     */
+    @Test
+    public final void testCount_ManyRows_Consistent() {
+        for (Integer i = 10; i < 100010; i++) {
+            repository.add(getEntity(i, String.valueOf(i % 3)));
+        }
+
+        Assert.assertEquals(repository.count(equal("name", "0")), 33333);
+        Assert.assertEquals(repository.count(in("name", "1", "2")), 66667);
+
+        // Leaves few rows for each value
+        for (Integer i = 10; i < 99010; i++) {
+            repository.remove(getEntity(i, ""));
+        }
+
+        Assert.assertEquals(repository.count(equal("name", "0")), 333);
+        Assert.assertEquals(repository.count(not(equal("name", "a"))), 1002);
+        Assert.assertEquals(getIds(repository.getCollection(
+                and(equal("name", "1"), between("id", 99000, 99020)))),
+                "99010990139901699019");
+    }
+
+    /**
+     * Tests that bitmap filters are combined with other filters.
+     */
+    @Test
+    public final void testGetCollection_Combined_Filters() {
+        Assert.assertEquals(getIds(repository.getCollection(
+                and(equal("name", "a"), between("id", 2, 4)))), "3");
+        Assert.assertEquals(getIds(repository
+                .getCollection(not(in("name", "a", "c")))), "2");
+    }
+
+    /**
+     * Tests that rows with null values are not accepted by negated filters.
+     */
+    @Test
+    public final void testGetCollection_Null_NotNegated() {
+        repository.add(getEntity(5, null));
+
+        Assert.assertEquals(getIds(repository
+                .getCollection(not(in("name", "a", "c")))), "2");
+        Assert.assertEquals(getIds(repository.getCollection(
+                not(and(equal("name", "a"), between("id", 1, 2))))), "234");
+    }
+
+    /**
+     * Tests that values are filtered through their bitmaps.
+     */
+    @Test
+    public final void testGetCollection_Value_Filters() {
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "a"))), "13");
+        Assert.assertEquals(repository.count(equal("name", "d")), 0);
+    }
+
+    /**
+     * Tests that bitmaps are kept when compacting.
+     */
+    @Test
+    public final void testRemove_Compacted_BitmapsKept() {
+        for (Integer i = 10; i < 100; i++) {
+            repository.add(getEntity(i, "x"));
+        }
+        for (Integer i = 10; i < 99; i++) {
+            repository.remove(getEntity(i, ""));
+        }
+        repository.remove(getEntity(1, ""));
+        repository.add(getEntity(5, "a"));
+
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "a"))), "35");
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "x"))), "99");
+    }
+
+    /**
+     * Tests that updated entities move to the bitmap of their new value.
+     */
+    @Test
+    public final void testUpdate_MovedToNewValue() {
+        repository.update(getEntity(1, "b"));
+        repository.update(getEntity(3, null));
+
+        Assert.assertEquals(repository.count(equal("name", "a")), 0);
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "b"))), "12");
+    }
+
+    /**
+     * Tests that views can't be iterated after modifying the repository.
+     */
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public final void testView_Modified_Exception() {
+        final Collection<TestEntity> view; // View being tested
+
+        view = repository.getView(equal("name", "a"));
+        repository.add(getEntity(5, "a"));
+
+        view.iterator().next();
+    }
+
+    /**
+     * Tests that views know their size and read the entities lazily.
+     */
+    @Test
+    public final void testView_SizeAndEntities() {
+        final Collection<TestEntity> view; // View being tested
+
+        view = repository.getView(in("name", "a", "c"));
+
+        Assert.assertEquals(view.size(), 3);
+        Assert.assertEquals(getIds(view), "134");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Joins the identifiers of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the identifiers of the entities, joined in the iteration order
+     */
+    private final String getIds(final Collection<TestEntity> entities) {
+        final StringBuilder ids; // Joined identifiers
+
+        ids = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            ids.append(entity.getId());
+        }
+
+        return ids.toString();
+    }
+
+}
@@ -0,0 +1,259 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.and;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.between;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.equal;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.in;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.not;
+import static com.wandrell.pattern.repository.columnar.ColumnFilters.or;
+
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.columnar.ColumnarRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link ColumnarRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Ranges on numeric columns are filtered correctly</li>
+ * <li>Values on text columns are filtered correctly</li>
+ * <li>Filters are combined correctly</li>
+ * <li>Rows with null values are never accepted</li>
+ * <li>Updated entities are filtered by their new values</li>
+ * <li>Removed entities are not returned, even after compacting</li>
+ * <li>Columns added later take the existing entities</li>
+ * <li>Filtering on a missing column throws an exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ColumnarRepository
+ */
+public final class TestColumnarRepository {
+
+    /**
+     * The repository being tested.
+     */
+    private ColumnarRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestColumnarRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new ColumnarRepository<TestEntity>();
+
+        repository.addIntColumn("id", new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity entity) {
+                return entity.getId();
+            }
+
+        });
+        repository.addStringColumn("name",
+                new Function<TestEntity, String>() {
+
+                    @Override
+                    public final String apply(final TestEntity entity) {
+                        return entity.getName();
+                    }
+
+                });
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "a"));
+        repository.add(getEntity(4, "c"));
+    }
+
+    /**
+     * Tests that columns added later take the existing entities.
+     */
+    @Test
+    public final void testAddColumn_Existing_Filled() {
+        repository.addLongColumn("double",
+                new Function<TestEntity, Long>() {
+
+                    @Override
+                    public final Long apply(final TestEntity entity) {
+                        return entity.getId() * 2L;
+                    }
+
+                });
+
+        Assert.assertEquals(getIds(repository
+                .getCollection(between("double", 4, 6))), "23");
+    }
+
+    /**
+     * Tests that filters are combined correctly.
+     */
+    @Test
+    public final void testGetCollection_Combined_Filters() {
+        Assert.assertEquals(getIds(repository.getCollection(
+                and(between("id", 2, 4), not(equal("name", "b"))))), "34");
+        Assert.assertEquals(getIds(repository.getCollection(
+                or(equal("id", 1), in("name", "b", "c")))), "124");
+    }
+
+    /**
+     * Tests that filtering on a missing column throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetCollection_MissingColumn_Exception() {
+        repository.getCollection(equal("missing", 1));
+    }
+
+    /**
+     * Tests that rows with null values are never accepted.
+     */
+    @Test
+    public final void testGetCollection_Null_NotAccepted() {
+        repository.add(getEntity(5, null));
+
+        Assert.assertEquals(getIds(repository
+                .getCollection(not(equal("name", "a")))), "24");
+        Assert.assertEquals(
+                repository.count(or(equal("name", "a"), equal("name", "b"),
+                        equal("name", "c"))),
+                4);
+    }
+
+    /**
+     * Tests that ranges on numeric columns are filtered correctly.
+     */
+    @Test
+    public final void testGetCollection_Range_Filters() {
+        Assert.assertEquals(
+                getIds(repository.getCollection(between("id", 2, 3))), "23");
+        Assert.assertEquals(repository.count(between("id", 5, 10)), 0);
+    }
+
+    /**
+     * Tests that values on text columns are filtered correctly.
+     */
+    @Test
+    public final void testGetCollection_Text_Filters() {
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "a"))), "13");
+        Assert.assertEquals(repository.count(equal("name", "d")), 0);
+        Assert.assertEquals(
+                repository.getEntity(equal("name", "c")).getId(),
+                (Integer) 4);
+    }
+
+    /**
+     * Tests that removed entities are not returned, even after compacting.
+     */
+    @Test
+    public final void testRemove_Compacted_NotReturned() {
+        for (Integer i = 10; i < 100; i++) {
+            repository.add(getEntity(i, "x"));
+        }
+        for (Integer i = 10; i < 100; i++) {
+            if (i != 50) {
+                repository.remove(getEntity(i, ""));
+            }
+        }
+        repository.remove(getEntity(2, ""));
+
+        Assert.assertEquals(getIds(repository.getAll()), "13450");
+        Assert.assertEquals(
+                getIds(repository.getCollection(between("id", 3, 60))),
+                "3450");
+
+        repository.update(getEntity(50, "a"));
+
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "a"))),
+                "1350");
+    }
+
+    /**
+     * Tests that updated entities are filtered by their new values.
+     */
+    @Test
+    public final void testUpdate_FilteredByNewValues() {
+        repository.update(getEntity(2, "a"));
+
+        Assert.assertEquals(
+                getIds(repository.getCollection(equal("name", "a"))), "123");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Joins the identifiers of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the identifiers of the entities, joined in the iteration order
+     */
+    private final String getIds(final Collection<TestEntity> entities) {
+        final StringBuilder ids; // Joined identifiers
+
+        ids = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            ids.append(entity.getId());
+        }
+
+        return ids.toString();
+    }
+
+}
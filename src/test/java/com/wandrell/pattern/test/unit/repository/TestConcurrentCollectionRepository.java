@@ -0,0 +1,244 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.ConcurrentCollectionRepository;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link ConcurrentCollectionRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities are returned in the order they were added</li>
+ * <li>Adding an entity with an existing key does not add it</li>
+ * <li>Entities are updated in place</li>
+ * <li>Updating a non existing entity does not add it</li>
+ * <li>Entities are removed correctly</li>
+ * <li>The {@code getEntity} method filters the entities correctly</li>
+ * <li>Entities added and removed concurrently are kept consistent</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ConcurrentCollectionRepository
+ */
+public final class TestConcurrentCollectionRepository {
+
+    /**
+     * The repository being tested.
+     */
+    private FilteredRepository<TestEntity, Predicate<TestEntity>> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestConcurrentCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new ConcurrentCollectionRepository<TestEntity>();
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "c"));
+    }
+
+    /**
+     * Tests that adding an entity with an existing key does not add it.
+     */
+    @Test
+    public final void testAdd_ExistingKey_NoAdd() {
+        repository.add(getEntity(2, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abc");
+    }
+
+    /**
+     * Tests that entities added and removed concurrently are kept consistent.
+     * 
+     * @throws Exception
+     *             never, this is required by the executor
+     */
+    @Test
+    public final void testConcurrent_AddRemove_Consistent() throws Exception {
+        final ExecutorService executor; // Executor for the writers
+        final List<Future<?>> futures;  // Pending writers
+
+        executor = Executors.newFixedThreadPool(4);
+        futures = new ArrayList<Future<?>>();
+        for (Integer t = 0; t < 4; t++) {
+            final Integer offset = (t * 1000) + 10;
+            futures.add(executor.submit(new Callable<Void>() {
+
+                @Override
+                public final Void call() {
+                    for (Integer i = offset; i < offset + 1000; i++) {
+                        repository.add(getEntity(i, "x"));
+                        repository.getCollection(new Predicate<TestEntity>() {
+
+                            @Override
+                            public final boolean apply(
+                                    final TestEntity entity) {
+                                return "x".equals(entity.getName());
+                            }
+
+                        });
+                        if (i % 2 == 0) {
+                            repository.remove(getEntity(i, ""));
+                        }
+                    }
+
+                    return null;
+                }
+
+            }));
+        }
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(repository.getAll().size(), 2003);
+    }
+
+    /**
+     * Tests that the {@code getEntity} method filters the entities correctly.
+     */
+    @Test
+    public final void testGetEntity_Filter_Filters() {
+        final TestEntity entity; // Filtered entity
+
+        entity = repository.getEntity(new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId() > 1;
+            }
+
+        });
+
+        Assert.assertEquals(entity.getName(), "b");
+    }
+
+    /**
+     * Tests that entities are returned in the order they were added.
+     */
+    @Test
+    public final void testGetAll_InsertionOrder() {
+        repository.add(getEntity(10, "d"));
+        repository.add(getEntity(5, "e"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcde");
+    }
+
+    /**
+     * Tests that entities are removed correctly.
+     */
+    @Test
+    public final void testRemove_Removes() {
+        repository.remove(getEntity(2, ""));
+
+        Assert.assertEquals(getNames(repository.getAll()), "ac");
+    }
+
+    /**
+     * Tests that entities are updated in place.
+     */
+    @Test
+    public final void testUpdate_Existing_UpdatedInPlace() {
+        repository.update(getEntity(1, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "dbc");
+    }
+
+    /**
+     * Tests that updating a non existing entity does not add it.
+     */
+    @Test
+    public final void testUpdate_NotExisting_NoAdd() {
+        repository.update(getEntity(4, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abc");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Joins the names of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the names of the entities, joined in the iteration order
+     */
+    private final String getNames(final Collection<TestEntity> entities) {
+        final StringBuilder names; // Joined names
+
+        names = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            names.append(entity.getName());
+        }
+
+        return names.toString();
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.pagination.CountCache;
+import com.wandrell.pattern.repository.pagination.DefaultPage;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.pagination.Page;
+
+/**
+ * Unit tests for {@link CountCache} and {@link DefaultPage}, checking the
+ * cached counts and the pages built from them.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The count is found for the same query and parameters, in any order</li>
+ * <li>The count is not found for different parameters</li>
+ * <li>Invalidating the cache removes the counts</li>
+ * <li>The number of pages is rounded up</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CountCache
+ */
+public final class TestCountCache {
+
+    /**
+     * Default constructor.
+     */
+    public TestCountCache() {
+        super();
+    }
+
+    /**
+     * Tests that the count is not found for different parameters.
+     */
+    @Test
+    public final void testGetCount_DifferentParameters() {
+        final CountCache cache;                    // Tested cache
+        final Map<String, Object> parameters;      // Cached parameters
+        final Map<String, Object> otherParameters; // Queried parameters
+
+        cache = new CountCache();
+        parameters = new LinkedHashMap<String, Object>();
+        parameters.put("id", 1);
+        otherParameters = new LinkedHashMap<String, Object>();
+        otherParameters.put("id", 2);
+
+        cache.putCount("SELECT * FROM test_entities WHERE id > :id",
+                parameters, 5L);
+
+        Assert.assertNull(cache.getCount(
+                "SELECT * FROM test_entities WHERE id > :id", otherParameters));
+    }
+
+    /**
+     * Tests that the count is found for the same query and parameters, in any
+     * order.
+     */
+    @Test
+    public final void testGetCount_SameParameters() {
+        final CountCache cache;                    // Tested cache
+        final Map<String, Object> parameters;      // Cached parameters
+        final Map<String, Object> otherParameters; // Queried parameters
+        final String query;                        // Counted query
+
+        cache = new CountCache();
+        query = "SELECT * FROM test_entities WHERE id > :a AND id < :b";
+        parameters = new LinkedHashMap<String, Object>();
+        parameters.put("a", 1);
+        parameters.put("b", 9);
+        otherParameters = new LinkedHashMap<String, Object>();
+        otherParameters.put("b", 9);
+        otherParameters.put("a", 1);
+
+        cache.putCount(query, parameters, 7L);
+
+        Assert.assertEquals(cache.getCount(query, otherParameters),
+                (Long) 7L);
+    }
+
+    /**
+     * Tests that invalidating the cache removes the counts.
+     */
+    @Test
+    public final void testInvalidateAll() {
+        final CountCache cache;               // Tested cache
+        final Map<String, Object> parameters; // Query parameters
+
+        cache = new CountCache();
+        parameters = new LinkedHashMap<String, Object>();
+
+        cache.putCount("SELECT * FROM test_entities", parameters, 30L);
+        cache.invalidateAll();
+
+        Assert.assertNull(
+                cache.getCount("SELECT * FROM test_entities", parameters));
+    }
+
+    /**
+     * Tests that the number of pages is rounded up.
+     */
+    @Test
+    public final void testTotalPages_RoundedUp() {
+        final Page<Integer> page; // Tested page
+
+        page = new DefaultPage<Integer>(Arrays.asList(1, 2, 3),
+                new DefaultPaginationData(3, 1), 7L);
+
+        Assert.assertEquals(page.getTotalPages(), (Long) 3L);
+    }
+
+}
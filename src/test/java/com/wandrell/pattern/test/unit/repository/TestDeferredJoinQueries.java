@@ -0,0 +1,201 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.pagination.DeferredJoinQueries;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link DeferredJoinQueries}, checking the queries created for
+ * the deferred joins.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The keys are selected instead of the full rows</li>
+ * <li>The {@code DISTINCT} modifier is kept when selecting the keys</li>
+ * <li>Queries without a {@code SELECT} clause are rejected</li>
+ * <li>The selection of a JPQL query is found</li>
+ * <li>The keys condition is appended to a query without {@code WHERE}</li>
+ * <li>The keys condition is combined with an existing {@code WHERE} clause</li>
+ * <li>The entities are sorted as their keys</li>
+ * <li>Entities missing for a key are skipped</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see DeferredJoinQueries
+ */
+public final class TestDeferredJoinQueries {
+
+    /**
+     * Default constructor.
+     */
+    public TestDeferredJoinQueries() {
+        super();
+    }
+
+    /**
+     * Tests that the selection of a JPQL query is found.
+     */
+    @Test
+    public final void testGetSelection() {
+        Assert.assertEquals(DeferredJoinQueries.getSelection(
+                "SELECT entity FROM TestEntity entity WHERE entity.id > 5"),
+                "entity");
+    }
+
+    /**
+     * Tests that entities missing for a key are skipped.
+     */
+    @Test
+    public final void testOrderByKeys_Missing() {
+        final List<TestEntity> sorted; // Sorted entities
+
+        sorted = DeferredJoinQueries.orderByKeys(getEntities(3, 1),
+                Arrays.asList(1, 2, 3));
+
+        Assert.assertEquals(sorted.size(), 2);
+        Assert.assertEquals(sorted.get(0).getId(), (Integer) 1);
+        Assert.assertEquals(sorted.get(1).getId(), (Integer) 3);
+    }
+
+    /**
+     * Tests that the entities are sorted as their keys.
+     */
+    @Test
+    public final void testOrderByKeys_Sorted() {
+        final List<TestEntity> sorted; // Sorted entities
+
+        sorted = DeferredJoinQueries.orderByKeys(getEntities(1, 2, 3),
+                Arrays.asList(3, 1, 2));
+
+        Assert.assertEquals(sorted.size(), 3);
+        Assert.assertEquals(sorted.get(0).getId(), (Integer) 3);
+        Assert.assertEquals(sorted.get(1).getId(), (Integer) 1);
+        Assert.assertEquals(sorted.get(2).getId(), (Integer) 2);
+    }
+
+    /**
+     * Tests that the keys condition is appended to a query without
+     * {@code WHERE}.
+     */
+    @Test
+    public final void testRestrictToKeys() {
+        final String query; // Restricted query
+
+        query = DeferredJoinQueries.restrictToKeys(
+                "SELECT * FROM test_entities", "id IN (:deferredKeys)");
+
+        Assert.assertEquals(query,
+                "SELECT * FROM test_entities WHERE id IN (:deferredKeys)");
+    }
+
+    /**
+     * Tests that the keys condition is combined with an existing {@code WHERE}
+     * clause.
+     */
+    @Test
+    public final void testRestrictToKeys_Where() {
+        final String query; // Restricted query
+
+        query = DeferredJoinQueries.restrictToKeys(
+                "SELECT entity FROM TestEntity entity "
+                        + "WHERE entity.id = 1 OR entity.id > 5",
+                "entity.id IN :deferredKeys");
+
+        Assert.assertEquals(query, "SELECT entity FROM TestEntity entity "
+                + "WHERE (entity.id = 1 OR entity.id > 5) "
+                + "AND entity.id IN :deferredKeys");
+    }
+
+    /**
+     * Tests that the keys are selected instead of the full rows.
+     */
+    @Test
+    public final void testSelectKeys() {
+        final String query; // Query for the keys
+
+        query = DeferredJoinQueries.selectKeys(
+                "SELECT * FROM test_entities WHERE id > 5 ORDER BY name ASC",
+                "id");
+
+        Assert.assertEquals(query,
+                "SELECT id FROM test_entities WHERE id > 5 ORDER BY name ASC");
+    }
+
+    /**
+     * Tests that the {@code DISTINCT} modifier is kept when selecting the
+     * keys.
+     */
+    @Test
+    public final void testSelectKeys_Distinct() {
+        final String query; // Query for the keys
+
+        query = DeferredJoinQueries.selectKeys(
+                "SELECT DISTINCT entity FROM TestEntity entity",
+                "entity.id");
+
+        Assert.assertEquals(query,
+                "SELECT DISTINCT entity.id FROM TestEntity entity");
+    }
+
+    /**
+     * Tests that queries without a {@code SELECT} clause are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testSelectKeys_Invalid() {
+        DeferredJoinQueries.selectKeys("DELETE FROM test_entities", "id");
+    }
+
+    /**
+     * Returns entities with the received ids, in the same order.
+     * 
+     * @param ids
+     *            ids for the entities
+     * @return entities with the ids
+     */
+    private final Collection<TestEntity> getEntities(final Integer... ids) {
+        final Collection<TestEntity> entities; // Created entities
+        TestEntityBean entity;                 // Current entity
+
+        entities = new ArrayList<TestEntity>();
+        for (final Integer id : ids) {
+            entity = new TestEntityBean();
+            entity.setId(id);
+            entities.add(entity);
+        }
+
+        return entities;
+    }
+
+}
@@ -0,0 +1,436 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Strings;
+import com.wandrell.pattern.repository.durable.DurableRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+import com.wandrell.pattern.test.util.model.TestEntityCodec;
+
+/**
+ * Unit tests for {@link DurableRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Changes are recovered after reopening the repository</li>
+ * <li>Changes made after a snapshot are recovered</li>
+ * <li>Entities bigger than the read buffer are recovered from a snapshot</li>
+ * <li>Snapshots remove the older files</li>
+ * <li>Snapshots are written after the configured number of changes</li>
+ * <li>An incomplete record at the end of the log is discarded</li>
+ * <li>A partial record at the end of the log is truncated</li>
+ * <li>A failed snapshot keeps the repository on the previous log</li>
+ * <li>A failed snapshot after a number of changes keeps the change</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see DurableRepository
+ */
+public final class TestDurableRepository {
+
+    /**
+     * Directory for the repository files.
+     */
+    private Path                          directory;
+
+    /**
+     * The repository being tested.
+     */
+    private DurableRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestDurableRepository() {
+        super();
+    }
+
+    /**
+     * Deletes the repository files after each test.
+     * 
+     * @throws IOException
+     *             if the files can't be deleted
+     */
+    @AfterMethod
+    public final void clean() throws IOException {
+        repository.close();
+
+        for (final String file : getFiles()) {
+            Files.delete(directory.resolve(file));
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     * 
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @BeforeMethod
+    public final void initialize() throws IOException {
+        directory = Files.createTempDirectory("durable");
+        repository = open();
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "c"));
+    }
+
+    /**
+     * Tests that an incomplete record at the end of the log is discarded.
+     * 
+     * @throws IOException
+     *             if the log can't be written
+     */
+    @Test
+    public final void testRecover_IncompleteRecord_Discarded()
+            throws IOException {
+        final FileChannel channel; // Channel for the log
+
+        repository.close();
+
+        // Simulates a crash while writing the length of a record
+        channel = FileChannel.open(directory.resolve("log-0"),
+                StandardOpenOption.APPEND);
+        try {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0 }));
+        } finally {
+            channel.close();
+        }
+
+        repository = open();
+        repository.add(getEntity(4, "d"));
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcd");
+    }
+
+    /**
+     * Tests that a partial record at the end of the log is truncated.
+     * 
+     * @throws IOException
+     *             if the log can't be written
+     */
+    @Test
+    public final void testRecover_PartialRecord_Truncated()
+            throws IOException {
+        final Path log;            // Log file
+        final long size;           // Size of the valid records
+        final FileChannel channel; // Channel for the log
+        final ByteBuffer record;   // Partial record
+
+        repository.close();
+
+        log = directory.resolve("log-0");
+        size = Files.size(log);
+
+        // Simulates a crash while writing the entity of a record
+        record = ByteBuffer.allocate(8);
+        record.putInt(20);
+        record.put((byte) 1);
+        record.put(new byte[] { 1, 2, 3 });
+        record.flip();
+        channel = FileChannel.open(log, StandardOpenOption.APPEND);
+        try {
+            channel.write(record);
+        } finally {
+            channel.close();
+        }
+
+        repository = open();
+
+        Assert.assertEquals(Files.size(log), size);
+
+        repository.add(getEntity(4, "d"));
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcd");
+    }
+
+    /**
+     * Tests that changes are recovered after reopening the repository.
+     * 
+     * @throws IOException
+     *             if the repository can't be closed
+     */
+    @Test
+    public final void testReopen_Changes_Recovered() throws IOException {
+        repository.update(getEntity(1, "d"));
+        repository.remove(getEntity(2, ""));
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "cd");
+    }
+
+    /**
+     * Tests that entities bigger than the read buffer are recovered from a
+     * snapshot.
+     * 
+     * @throws IOException
+     *             if the repository can't be closed
+     */
+    @Test
+    public final void testSnapshot_BigEntities_Recovered()
+            throws IOException {
+        final String big;    // Name bigger than the read buffer
+        final String medium; // Name crossing the end of the read buffer
+
+        big = Strings.repeat("d", 100000);
+        medium = Strings.repeat("e", 50000);
+
+        repository.add(getEntity(4, big));
+        repository.add(getEntity(5, medium));
+        repository.snapshot();
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()),
+                "abc" + big + medium);
+    }
+
+    /**
+     * Tests that changes made after a snapshot are recovered.
+     * 
+     * @throws IOException
+     *             if the repository can't be closed
+     */
+    @Test
+    public final void testSnapshot_ChangesAfter_Recovered()
+            throws IOException {
+        repository.snapshot();
+        repository.remove(getEntity(1, ""));
+        repository.add(getEntity(4, "d"));
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "bcd");
+    }
+
+    /**
+     * Tests that a failed snapshot keeps the repository on the previous log.
+     * 
+     * @throws IOException
+     *             if the files can't be handled
+     */
+    @Test
+    public final void testSnapshot_Failed_PreviousLogKept()
+            throws IOException {
+        final Path blocker; // Directory in place of the new log
+        final Path content; // File keeping the directory from being deleted
+
+        blocker = Files.createDirectory(directory.resolve("log-1"));
+        content = Files.createFile(blocker.resolve("content"));
+
+        try {
+            repository.snapshot();
+            Assert.fail("Expected an exception");
+        } catch (final IllegalStateException e) {
+            // The new log can't be opened
+        }
+
+        Files.delete(content);
+        Files.delete(blocker);
+
+        Assert.assertEquals(getFiles().toString(), "[log-0]");
+
+        repository.add(getEntity(4, "d"));
+        repository.close();
+
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcd");
+    }
+
+    /**
+     * Tests that snapshots remove the older files.
+     * 
+     * @throws IOException
+     *             if the files can't be listed
+     */
+    @Test
+    public final void testSnapshot_OlderFilesRemoved() throws IOException {
+        repository.snapshot();
+        repository.snapshot();
+
+        Assert.assertEquals(getFiles().toString(), "[log-2, snapshot-2]");
+    }
+
+    /**
+     * Tests that a failed snapshot after a number of changes keeps the change,
+     * and it is not tried again until the same number of changes is reached.
+     * 
+     * @throws IOException
+     *             if the files can't be handled
+     */
+    @Test
+    public final void testSnapshotInterval_Failed_ChangeKept()
+            throws IOException {
+        final Path blocker; // Directory in place of the new log
+        final Path content; // File keeping the directory from being deleted
+
+        repository.setSnapshotInterval(4);
+
+        blocker = Files.createDirectory(directory.resolve("log-1"));
+        content = Files.createFile(blocker.resolve("content"));
+
+        repository.add(getEntity(4, "d"));
+
+        Files.delete(content);
+        Files.delete(blocker);
+
+        repository.add(getEntity(5, "e"));
+
+        Assert.assertEquals(getFiles().toString(), "[log-0]");
+
+        repository.close();
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcde");
+    }
+
+    /**
+     * Tests that snapshots are written after the configured number of
+     * changes.
+     * 
+     * @throws IOException
+     *             if the files can't be listed
+     */
+    @Test
+    public final void testSnapshotInterval_Reached_Snapshot()
+            throws IOException {
+        repository.setSnapshotInterval(4);
+        repository.setSyncInterval(10);
+
+        repository.add(getEntity(4, "d"));
+        repository.add(getEntity(5, "e"));
+        repository.add(getEntity(6, "f"));
+
+        Assert.assertEquals(getFiles().toString(), "[log-1, snapshot-1]");
+
+        repository.close();
+        repository = open();
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcdef");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Returns the names of the files in the directory, sorted.
+     * 
+     * @return the names of the files in the directory
+     * @throws IOException
+     *             if the files can't be listed
+     */
+    private final Set<String> getFiles() throws IOException {
+        final Set<String> names;           // Names of the files
+        final DirectoryStream<Path> files; // Files in the directory
+
+        names = new TreeSet<String>();
+        files = Files.newDirectoryStream(directory);
+        try {
+            for (final Path file : files) {
+                names.add(file.getFileName().toString());
+            }
+        } finally {
+            files.close();
+        }
+
+        return names;
+    }
+
+    /**
+     * Joins the names of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the names of the entities, joined in the iteration order
+     */
+    private final String getNames(final Collection<TestEntity> entities) {
+        final StringBuilder names; // Joined names
+
+        names = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            names.append(entity.getName());
+        }
+
+        return names.toString();
+    }
+
+    /**
+     * Opens a repository on the test directory.
+     * 
+     * @return a repository on the test directory
+     */
+    private final DurableRepository<TestEntity> open() {
+        return new DurableRepository<TestEntity>(directory,
+                new TestEntityCodec(), new EntityKeyFunction());
+    }
+
+}
@@ -0,0 +1,307 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.sort.ExternalSorter;
+import com.wandrell.pattern.repository.sort.SortedIterator;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+import com.wandrell.pattern.test.util.model.TestEntityCodec;
+
+/**
+ * Unit tests for {@link ExternalSorter}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities fitting in the budget are sorted without writing runs</li>
+ * <li>Entities over the budget are sorted through several merge passes</li>
+ * <li>Equal entities keep the order in which they were received</li>
+ * <li>The runs are deleted after reading all the entities</li>
+ * <li>The runs are deleted after closing the iterator</li>
+ * <li>Sorting no entities returns no entities</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ExternalSorter
+ */
+public final class TestExternalSorter {
+
+    /**
+     * Budget small enough to write a run every two entities.
+     */
+    private static final long SMALL_BUDGET = 150;
+
+    /**
+     * Directory for the runs.
+     */
+    private Path              directory;
+
+    /**
+     * Default constructor.
+     */
+    public TestExternalSorter() {
+        super();
+    }
+
+    /**
+     * Deletes the directory for the runs after each test.
+     * 
+     * @throws IOException
+     *             if the directory can't be deleted
+     */
+    @AfterMethod
+    public final void clean() throws IOException {
+        final DirectoryStream<Path> files; // Files left in the directory
+
+        files = Files.newDirectoryStream(directory);
+        try {
+            for (final Path file : files) {
+                Files.delete(file);
+            }
+        } finally {
+            files.close();
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Creates the directory for the runs before each test.
+     * 
+     * @throws IOException
+     *             if the directory can't be created
+     */
+    @BeforeMethod
+    public final void initialize() throws IOException {
+        directory = Files.createTempDirectory("sort");
+    }
+
+    /**
+     * Tests that after closing the iterator the runs are deleted.
+     * 
+     * @throws IOException
+     *             if the files can't be counted
+     */
+    @Test
+    public final void testSort_Close_RunsDeleted() throws IOException {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+
+        sorted = getSorter(SMALL_BUDGET).sort(getEntities("dcba"));
+
+        Assert.assertTrue(countFiles() > 0);
+
+        sorted.next();
+        sorted.close();
+
+        Assert.assertEquals(countFiles(), 0);
+    }
+
+    /**
+     * Tests that sorting no entities returns no entities.
+     */
+    @Test
+    public final void testSort_Empty_Empty() {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+
+        sorted = getSorter(SMALL_BUDGET)
+                .sort(new ArrayList<TestEntity>());
+
+        Assert.assertFalse(sorted.hasNext());
+    }
+
+    /**
+     * Tests that entities which fit in the budget are sorted without writing
+     * runs.
+     * 
+     * @throws IOException
+     *             if the files can't be counted
+     */
+    @Test
+    public final void testSort_InBudget_NoRuns() throws IOException {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+
+        sorted = getSorter(ExternalSorter.DEFAULT_BUDGET)
+                .sort(getEntities("dbeac"));
+
+        Assert.assertEquals(countFiles(), 0);
+        Assert.assertEquals(getNames(sorted), "abcde");
+    }
+
+    /**
+     * Tests that entities over the budget are sorted through several merge
+     * passes.
+     */
+    @Test
+    public final void testSort_OverBudget_Sorted() {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+
+        sorted = getSorter(SMALL_BUDGET)
+                .sort(getEntities("qwertyuiopasdfghjklz"));
+
+        Assert.assertEquals(getNames(sorted), "adefghijklopqrstuwyz");
+    }
+
+    /**
+     * Tests that after reading all the entities the runs are deleted.
+     * 
+     * @throws IOException
+     *             if the files can't be counted
+     */
+    @Test
+    public final void testSort_Read_RunsDeleted() throws IOException {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+
+        sorted = getSorter(SMALL_BUDGET).sort(getEntities("qwertyuiop"));
+
+        Assert.assertTrue(countFiles() > 0);
+
+        getNames(sorted);
+
+        Assert.assertEquals(countFiles(), 0);
+    }
+
+    /**
+     * Tests that equal entities keep the order in which they were received.
+     */
+    @Test
+    public final void testSort_Repeated_Stable() {
+        final SortedIterator<TestEntity> sorted; // Sorted entities
+        final StringBuilder ids;                 // Ids of the sorted entities
+
+        sorted = getSorter(SMALL_BUDGET).sort(getEntities("babababab"));
+
+        ids = new StringBuilder();
+        while (sorted.hasNext()) {
+            ids.append(sorted.next().getId()).append(',');
+        }
+
+        Assert.assertEquals(ids.toString(), "2,4,6,8,1,3,5,7,9,");
+    }
+
+    /**
+     * Returns the number of files in the directory for the runs.
+     * 
+     * @return the number of files in the directory
+     * @throws IOException
+     *             if the files can't be listed
+     */
+    private final int countFiles() throws IOException {
+        final DirectoryStream<Path> files; // Files in the directory
+        int count;                         // Number of files
+
+        count = 0;
+        files = Files.newDirectoryStream(directory);
+        try {
+            for (@SuppressWarnings("unused")
+            final Path file : files) {
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates an entity for each character in the received names, with
+     * consecutive ids starting at 1.
+     * 
+     * @param names
+     *            names for the entities
+     * @return the created entities
+     */
+    private final List<TestEntity> getEntities(final String names) {
+        final List<TestEntity> entities; // Created entities
+        TestEntity entity;               // Created entity
+
+        entities = new ArrayList<TestEntity>();
+        for (int i = 0; i < names.length(); i++) {
+            entity = new TestEntityBean();
+            entity.setId(i + 1);
+            entity.setName(String.valueOf(names.charAt(i)));
+
+            entities.add(entity);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Returns the names of the entities, concatenated.
+     * 
+     * @param entities
+     *            iterator for the entities
+     * @return the names of the entities
+     */
+    private final String getNames(final Iterator<TestEntity> entities) {
+        final StringBuilder names; // Names of the entities
+
+        names = new StringBuilder();
+        while (entities.hasNext()) {
+            names.append(entities.next().getName());
+        }
+
+        return names.toString();
+    }
+
+    /**
+     * Creates a sorter with the specified budget, writing the runs into the
+     * test directory.
+     * 
+     * @param budget
+     *            memory budget for the sorter
+     * @return a sorter with the specified budget
+     */
+    private final ExternalSorter<TestEntity> getSorter(final long budget) {
+        final Comparator<TestEntity> comparator; // Compares the names
+
+        comparator = new Comparator<TestEntity>() {
+
+            @Override
+            public final int compare(final TestEntity a, final TestEntity b) {
+                return a.getName().compareTo(b.getName());
+            }
+
+        };
+
+        return new ExternalSorter<TestEntity>(new TestEntityCodec(),
+                comparator, budget, directory);
+    }
+
+}
@@ -0,0 +1,207 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that the hash indexes
+ * work correctly. For this test the repository will contain entities indexed
+ * by their names.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities added before registering the index are indexed</li>
+ * <li>Added entities are indexed</li>
+ * <li>Removed entities are removed from the index</li>
+ * <li>Updated entities are moved to their new keys</li>
+ * <li>Entities modified and then updated are moved to their new keys</li>
+ * <li>Querying a missing key returns no entity</li>
+ * <li>Querying a not registered index throws an exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestIndexedCollectionRepository {
+
+    /**
+     * Name of the index used for the tests.
+     */
+    private static final String              INDEX = "name";
+
+    /**
+     * The repository being tested.
+     */
+    private CollectionRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestIndexedCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new CollectionRepository<TestEntity>();
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "a"));
+
+        repository.addIndex(INDEX, new Function<TestEntity, String>() {
+
+            @Override
+            public final String apply(final TestEntity entity) {
+                return entity.getName();
+            }
+
+        });
+    }
+
+    /**
+     * Tests that added entities are indexed.
+     */
+    @Test
+    public final void testAdd_Indexed() {
+        final Collection<TestEntity> entities; // Indexed entities
+
+        repository.add(getEntity(4, "b"));
+
+        entities = repository.getCollection(INDEX, "b");
+
+        Assert.assertEquals(entities.size(), 2);
+        Assert.assertTrue(entities.contains(getEntity(4, "")));
+    }
+
+    /**
+     * Tests that entities added before registering the index are indexed.
+     */
+    @Test
+    public final void testAddIndex_Existing_Indexed() {
+        final Collection<TestEntity> entities; // Indexed entities
+
+        entities = repository.getCollection(INDEX, "a");
+
+        Assert.assertEquals(entities.size(), 2);
+        Assert.assertTrue(entities.contains(getEntity(1, "")));
+        Assert.assertTrue(entities.contains(getEntity(3, "")));
+    }
+
+    /**
+     * Tests that querying a missing key returns no entity.
+     */
+    @Test
+    public final void testGetEntity_MissingKey_Null() {
+        Assert.assertNull(repository.getEntity(INDEX, "z"));
+        Assert.assertTrue(repository.getCollection(INDEX, "z").isEmpty());
+    }
+
+    /**
+     * Tests that querying a not registered index throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetEntity_MissingIndex_Exception() {
+        repository.getEntity("id", 1);
+    }
+
+    /**
+     * Tests that removed entities are removed from the index.
+     */
+    @Test
+    public final void testRemove_RemovedFromIndex() {
+        final Collection<TestEntity> entities; // Indexed entities
+
+        repository.remove(getEntity(1, ""));
+
+        entities = repository.getCollection(INDEX, "a");
+
+        Assert.assertEquals(entities.size(), 1);
+        Assert.assertEquals(entities.iterator().next().getId(), (Integer) 3);
+    }
+
+    /**
+     * Tests that entities modified and then updated are moved to their new
+     * keys.
+     */
+    @Test
+    public final void testUpdate_Modified_Reindexed() {
+        final TestEntity entity; // Modified entity
+
+        entity = repository.getEntity(INDEX, "b");
+        entity.setName("c");
+
+        repository.update(entity);
+
+        Assert.assertTrue(repository.getCollection(INDEX, "b").isEmpty());
+        Assert.assertEquals(repository.getEntity(INDEX, "c").getId(),
+                (Integer) 2);
+    }
+
+    /**
+     * Tests that updated entities are moved to their new keys.
+     */
+    @Test
+    public final void testUpdate_NewInstance_Reindexed() {
+        repository.update(getEntity(1, "c"));
+
+        Assert.assertEquals(repository.getCollection(INDEX, "a").size(), 1);
+        Assert.assertEquals(repository.getEntity(INDEX, "c").getId(),
+                (Integer) 1);
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.IntKeyedRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link IntKeyedRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities are found by their identifiers</li>
+ * <li>Adding an entity with an existing identifier does not add it</li>
+ * <li>Adding an entity without identifier throws an exception</li>
+ * <li>Entities are removed by their identifiers</li>
+ * <li>Entities are updated correctly</li>
+ * <li>Updating a non existing entity does not add it</li>
+ * <li>Entities are filtered correctly</li>
+ * <li>Entities are kept when the table grows and entities are removed</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see IntKeyedRepository
+ */
+public final class TestIntKeyedRepository {
+
+    /**
+     * The repository being tested.
+     */
+    private IntKeyedRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestIntKeyedRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new IntKeyedRepository<TestEntity>();
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "c"));
+    }
+
+    /**
+     * Tests that adding an entity with an existing identifier does not add
+     * it.
+     */
+    @Test
+    public final void testAdd_ExistingId_NoAdd() {
+        repository.add(getEntity(2, "d"));
+
+        Assert.assertEquals(repository.getAll().size(), 3);
+        Assert.assertEquals(repository.getById(2).getName(), "b");
+    }
+
+    /**
+     * Tests that adding an entity without identifier throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_NoId_Exception() {
+        repository.add(new TestEntityBean());
+    }
+
+    /**
+     * Tests that entities are kept when the table grows and entities are
+     * removed.
+     */
+    @Test
+    public final void testAddRemove_Many_Consistent() {
+        for (Integer i = 10; i < 10000; i++) {
+            repository.add(getEntity(i * 64, "x"));
+        }
+        for (Integer i = 10; i < 10000; i += 2) {
+            repository.removeById(i * 64);
+        }
+
+        Assert.assertEquals(repository.getAll().size(), 4998);
+        for (Integer i = 10; i < 10000; i++) {
+            Assert.assertEquals(repository.containsId(i * 64), i % 2 == 1);
+        }
+        Assert.assertEquals(repository.getById(2).getName(), "b");
+    }
+
+    /**
+     * Tests that the identifiers of the entities are found.
+     */
+    @Test
+    public final void testContainsId() {
+        Assert.assertTrue(repository.containsId(1));
+        Assert.assertFalse(repository.containsId(4));
+    }
+
+    /**
+     * Tests that entities are filtered correctly.
+     */
+    @Test
+    public final void testGetCollection_Filter_Filters() {
+        final Collection<TestEntity> entities; // Filtered entities
+
+        entities = repository.getCollection(new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId() > 1;
+            }
+
+        });
+
+        Assert.assertEquals(entities.size(), 2);
+    }
+
+    /**
+     * Tests that entities are found by their identifiers.
+     */
+    @Test
+    public final void testGetById() {
+        Assert.assertEquals(repository.getById(3).getName(), "c");
+        Assert.assertNull(repository.getById(4));
+    }
+
+    /**
+     * Tests that entities are removed by their identifiers.
+     */
+    @Test
+    public final void testRemoveById_Removes() {
+        Assert.assertEquals(repository.removeById(2).getName(), "b");
+        Assert.assertNull(repository.removeById(2));
+
+        repository.remove(getEntity(3, ""));
+
+        Assert.assertEquals(repository.getAll().size(), 1);
+        Assert.assertFalse(repository.containsId(3));
+    }
+
+    /**
+     * Tests that entities are updated correctly.
+     */
+    @Test
+    public final void testUpdate_Existing_Updated() {
+        repository.update(getEntity(1, "d"));
+
+        Assert.assertEquals(repository.getById(1).getName(), "d");
+    }
+
+    /**
+     * Tests that updating a non existing entity does not add it.
+     */
+    @Test
+    public final void testUpdate_NotExisting_NoAdd() {
+        repository.update(getEntity(4, "d"));
+
+        Assert.assertFalse(repository.containsId(4));
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+}
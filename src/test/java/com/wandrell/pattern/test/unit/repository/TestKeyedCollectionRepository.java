@@ -0,0 +1,225 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link CollectionRepository} when indexing the entities by
+ * their keys. For this test the repository will contain entities identified by
+ * their IDs.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities are returned in the order they were added</li>
+ * <li>Adding an entity with an existing key does not add it</li>
+ * <li>Entities are updated correctly</li>
+ * <li>Updating a non existing entity does not add it</li>
+ * <li>Entities are removed correctly</li>
+ * <li>The order is kept after removing most of the entities</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestKeyedCollectionRepository {
+
+    /**
+     * The repository being tested.
+     */
+    private FilteredRepository<TestEntity, Predicate<TestEntity>> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestKeyedCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new CollectionRepository<TestEntity>(
+                new EntityKeyFunction());
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "c"));
+    }
+
+    /**
+     * Tests that adding an entity with an existing key does not add it.
+     */
+    @Test
+    public final void testAdd_ExistingKey_NoAdd() {
+        final Collection<TestEntity> entities; // All the entities
+
+        repository.add(getEntity(2, "d"));
+
+        entities = repository.getAll();
+
+        Assert.assertEquals(entities.size(), 3);
+        Assert.assertEquals(getNames(entities), "abc");
+    }
+
+    /**
+     * Tests that entities are returned in the order they were added.
+     */
+    @Test
+    public final void testGetAll_InsertionOrder() {
+        repository.add(getEntity(10, "d"));
+        repository.add(getEntity(5, "e"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcde");
+    }
+
+    /**
+     * Tests that entities are removed correctly.
+     */
+    @Test
+    public final void testRemove_Removes() {
+        final Collection<TestEntity> entities; // All the entities
+
+        repository.remove(getEntity(2, ""));
+
+        entities = repository.getAll();
+
+        Assert.assertEquals(entities.size(), 2);
+        Assert.assertEquals(getNames(entities), "ac");
+    }
+
+    /**
+     * Tests that the order is kept after removing most of the entities.
+     */
+    @Test
+    public final void testRemove_Several_OrderKept() {
+        final Iterator<TestEntity> itr; // Iterator for the entities
+        Integer expected;               // Expected ID
+
+        for (Integer i = 4; i < 100; i++) {
+            repository.add(getEntity(i, String.valueOf(i)));
+        }
+
+        for (Integer i = 1; i < 100; i++) {
+            if (i % 10 != 0) {
+                repository.remove(getEntity(i, ""));
+            }
+        }
+
+        Assert.assertEquals(repository.getAll().size(), 9);
+
+        itr = repository.getAll().iterator();
+        expected = 10;
+        while (itr.hasNext()) {
+            Assert.assertEquals(itr.next().getId(), expected);
+            expected += 10;
+        }
+    }
+
+    /**
+     * Tests that entities are updated correctly.
+     */
+    @Test
+    public final void testUpdate_Existing_Update() {
+        final TestEntity entity; // Entity found after the update
+
+        repository.update(getEntity(2, "d"));
+
+        entity = repository.getEntity(new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId().equals(2);
+            }
+
+        });
+
+        Assert.assertEquals(repository.getAll().size(), 3);
+        Assert.assertEquals(entity.getName(), "d");
+    }
+
+    /**
+     * Tests that updating a non existing entity does not add it.
+     */
+    @Test
+    public final void testUpdate_NotExisting_NoAdd() {
+        repository.update(getEntity(4, "d"));
+
+        Assert.assertEquals(repository.getAll().size(), 3);
+        Assert.assertEquals(getNames(repository.getAll()), "abc");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Joins the names of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the names of the entities, joined in the iteration order
+     */
+    private final String getNames(final Collection<TestEntity> entities) {
+        final StringBuilder names; // Joined names
+
+        names = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            names.append(entity.getName());
+        }
+
+        return names.toString();
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.pagination.DefaultKeysetPaginationData;
+import com.wandrell.pattern.repository.pagination.KeysetQueries;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+
+/**
+ * Unit tests for {@link KeysetQueries} and
+ * {@link DefaultKeysetPaginationData}, checking the queries created for the
+ * pages and the cursors.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The first page is just sorted by the key</li>
+ * <li>The following pages add a condition on the key</li>
+ * <li>The condition is combined with an existing {@code WHERE} clause</li>
+ * <li>Descending keys are compared the other way</li>
+ * <li>The key stored in a cursor is read back with the same type</li>
+ * <li>Invalid cursors are rejected</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see KeysetQueries
+ */
+public final class TestKeysetQueries {
+
+    /**
+     * Default constructor.
+     */
+    public TestKeysetQueries() {
+        super();
+    }
+
+    /**
+     * Tests that the key stored in a cursor is read back with the same type.
+     */
+    @Test
+    public final void testCursor_RoundTrip() {
+        final DefaultKeysetPaginationData data; // Data with the key
+        final DefaultKeysetPaginationData read; // Data read from the cursor
+
+        data = new DefaultKeysetPaginationData(new SortOrder("id"), 5, 12L);
+
+        read = DefaultKeysetPaginationData.fromCursor(data.getOrder(), 5,
+                data.getCursor());
+
+        Assert.assertEquals(read.getLastKey(), 12L);
+        Assert.assertEquals(
+                DefaultKeysetPaginationData.fromCursor(data.getOrder(), 5,
+                        data.next("a:b").getCursor()).getLastKey(),
+                "a:b");
+    }
+
+    /**
+     * Tests that invalid cursors are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testCursor_Invalid() {
+        DefaultKeysetPaginationData.fromCursor(new SortOrder("id"), 5,
+                "not a cursor");
+    }
+
+    /**
+     * Tests that descending keys are compared the other way.
+     */
+    @Test
+    public final void testSeek_Descending() {
+        final String query; // Paginated query
+
+        query = KeysetQueries.seek("SELECT * FROM test_entities",
+                new DefaultKeysetPaginationData(
+                        new SortOrder("id", SortDirection.DESCENDING), 5, 11));
+
+        Assert.assertEquals(query, "SELECT * FROM test_entities "
+                + "WHERE id < :keysetLastKey ORDER BY id DESC");
+    }
+
+    /**
+     * Tests that the first page is just sorted by the key.
+     */
+    @Test
+    public final void testSeek_FirstPage() {
+        final String query; // Paginated query
+
+        query = KeysetQueries.seek("SELECT * FROM test_entities",
+                new DefaultKeysetPaginationData(new SortOrder("id"), 5));
+
+        Assert.assertEquals(query,
+                "SELECT * FROM test_entities ORDER BY id ASC");
+    }
+
+    /**
+     * Tests that the following pages add a condition on the key.
+     */
+    @Test
+    public final void testSeek_NextPage() {
+        final String query; // Paginated query
+
+        query = KeysetQueries.seek("SELECT entity FROM TestEntity entity",
+                new DefaultKeysetPaginationData(new SortOrder("entity.id"), 5,
+                        5));
+
+        Assert.assertEquals(query, "SELECT entity FROM TestEntity entity "
+                + "WHERE entity.id > :keysetLastKey ORDER BY entity.id ASC");
+    }
+
+    /**
+     * Tests that the condition is combined with an existing {@code WHERE}
+     * clause.
+     */
+    @Test
+    public final void testSeek_Where() {
+        final String query; // Paginated query
+
+        query = KeysetQueries.seek(
+                "SELECT * FROM test_entities where id = 1 OR id > 5",
+                new DefaultKeysetPaginationData(new SortOrder("id"), 5, 7));
+
+        Assert.assertEquals(query, "SELECT * FROM test_entities where "
+                + "(id = 1 OR id > 5) AND id > :keysetLastKey ORDER BY id ASC");
+    }
+
+}
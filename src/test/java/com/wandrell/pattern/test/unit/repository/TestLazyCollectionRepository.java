@@ -0,0 +1,162 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that entities are only
+ * checked while they are needed. For this test the repository will contain
+ * {@code Integer} entities.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The {@code getEntity} method stops at the first entity accepted</li>
+ * <li>The lazy view does not check any entity until iterated</li>
+ * <li>The lazy view stops checking entities once the iteration stops</li>
+ * <li>The lazy view can't modify the repository</li>
+ * <li>Modifying the repository while iterating the lazy view throws an
+ * exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestLazyCollectionRepository {
+
+    /**
+     * Counter for the number of entities checked.
+     */
+    private AtomicInteger                 checked;
+
+    /**
+     * Filter accepting the even entities, and counting the checks.
+     */
+    private Predicate<Integer>            even;
+
+    /**
+     * The repository being tested.
+     */
+    private CollectionRepository<Integer> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestLazyCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new CollectionRepository<Integer>();
+        for (Integer i = 1; i <= 1000; i++) {
+            repository.add(i);
+        }
+
+        checked = new AtomicInteger();
+        even = new Predicate<Integer>() {
+
+            @Override
+            public final boolean apply(final Integer entity) {
+                checked.incrementAndGet();
+                return entity % 2 == 0;
+            }
+
+        };
+    }
+
+    /**
+     * Tests that the {@code getEntity} method stops at the first entity
+     * accepted.
+     */
+    @Test
+    public final void testGetEntity_StopsAtFirst() {
+        Assert.assertEquals(repository.getEntity(even), (Integer) 2);
+        Assert.assertEquals(checked.get(), 2);
+    }
+
+    /**
+     * Tests that the lazy view does not check any entity until iterated.
+     */
+    @Test
+    public final void testGetIterable_NotIterated_NoChecks() {
+        repository.getIterable(even);
+
+        Assert.assertEquals(checked.get(), 0);
+    }
+
+    /**
+     * Tests that the lazy view stops checking entities once the iteration
+     * stops.
+     */
+    @Test
+    public final void testGetIterable_Limit_StopsChecking() {
+        Assert.assertEquals(repository.getIterable(even).limit(3).toList(),
+                Arrays.asList(2, 4, 6));
+        Assert.assertEquals(checked.get(), 6);
+    }
+
+    /**
+     * Tests that modifying the repository while iterating the lazy view
+     * throws an exception.
+     */
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public final void testGetIterable_Modified_Exception() {
+        final Iterator<Integer> itr; // Iterator for the view
+
+        itr = repository.getIterable(even).iterator();
+        itr.next();
+
+        repository.add(1001);
+
+        itr.next();
+    }
+
+    /**
+     * Tests that the lazy view can't modify the repository.
+     */
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public final void testGetIterable_Remove_Exception() {
+        final Iterator<Integer> itr; // Iterator for the view
+
+        itr = repository.getIterable(even).iterator();
+        itr.next();
+        itr.remove();
+    }
+
+}
@@ -0,0 +1,417 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.codec.SerializationCodec;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.repository.offheap.OffHeapRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+import com.wandrell.pattern.test.util.model.TestEntityCodec;
+
+/**
+ * Unit tests for {@link OffHeapRepository}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities are returned in the order they were added</li>
+ * <li>Adding an entity with an existing key does not add it</li>
+ * <li>Entities are updated in place, even when they grow</li>
+ * <li>Entities are removed correctly</li>
+ * <li>Only the entities passing the filter are decoded</li>
+ * <li>The memory of removed entities is reused</li>
+ * <li>Entities bigger than a slab are rejected</li>
+ * <li>Entities can be stored in a mapped file</li>
+ * <li>Entities can be stored with the serialization codec</li>
+ * <li>Stored entities are not kept on the heap</li>
+ * <li>Key functions returning the entity itself are rejected</li>
+ * <li>Keys with the same hash are told apart</li>
+ * <li>Many additions and removals keep the insertion order</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see OffHeapRepository
+ */
+public final class TestOffHeapRepository {
+
+    /**
+     * Codec for the entities.
+     */
+    private TestEntityCodec               codec;
+
+    /**
+     * The repository being tested.
+     */
+    private OffHeapRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestOffHeapRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        codec = new TestEntityCodec();
+        repository = new OffHeapRepository<TestEntity>(codec,
+                new EntityKeyFunction(), 1024);
+
+        repository.add(getEntity(1, "a"));
+        repository.add(getEntity(2, "b"));
+        repository.add(getEntity(3, "c"));
+    }
+
+    /**
+     * Tests that adding an entity with an existing key does not add it.
+     */
+    @Test
+    public final void testAdd_ExistingKey_NoAdd() {
+        repository.add(getEntity(2, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abc");
+    }
+
+    /**
+     * Tests that key functions returning the entity itself are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_EntityAsKey_Rejected() {
+        // The default key function returns the entity if it has no id
+        repository.add(getEntity(null, "d"));
+    }
+
+    /**
+     * Tests that entities bigger than a slab are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_TooBig_Rejected() {
+        repository.add(getEntity(4, new String(new char[2048])));
+    }
+
+    /**
+     * Tests that entities can be stored in a mapped file.
+     * 
+     * @throws Exception
+     *             if the file can't be created
+     */
+    @Test
+    public final void testFile_AddUpdate_Stored() throws Exception {
+        final File file;                            // Mapped file
+        final RandomAccessFile access;              // Access to the file
+        final FileChannel channel;                  // Channel for the file
+        final OffHeapRepository<TestEntity> mapped; // Repository on the file
+
+        file = File.createTempFile("offheap", ".bin");
+        file.deleteOnExit();
+        access = new RandomAccessFile(file, "rw");
+        channel = access.getChannel();
+        try {
+            mapped = new OffHeapRepository<TestEntity>(new TestEntityCodec(),
+                    new EntityKeyFunction(), 1024, channel);
+            for (Integer i = 0; i < 100; i++) {
+                mapped.add(getEntity(i, "entity" + i));
+            }
+            mapped.update(getEntity(1, "x"));
+
+            Assert.assertEquals(mapped.getAll().size(), 100);
+            Assert.assertEquals(
+                    mapped.getEntity(new Predicate<ByteBuffer>() {
+
+                        @Override
+                        public final boolean apply(final ByteBuffer record) {
+                            return record.getInt(0) == 1;
+                        }
+
+                    }).getName(), "x");
+            Assert.assertTrue(mapped.getAllocatedBytes() > 1024);
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Tests that only the entities passing the filter are decoded.
+     */
+    @Test
+    public final void testGetCollection_Filter_DecodesMatches() {
+        final Collection<TestEntity> entities; // Filtered entities
+
+        entities = repository.getCollection(getIdAboveOne());
+
+        Assert.assertEquals(getNames(entities), "bc");
+        Assert.assertEquals(codec.getDecoded(), 2);
+    }
+
+    /**
+     * Tests that the {@code getEntity} method decodes only the first entity
+     * passing the filter.
+     */
+    @Test
+    public final void testGetEntity_Filter_DecodesFirst() {
+        Assert.assertEquals(repository.getEntity(getIdAboveOne()).getName(),
+                "b");
+        Assert.assertEquals(codec.getDecoded(), 1);
+    }
+
+    /**
+     * Tests that entities are returned in the order they were added.
+     */
+    @Test
+    public final void testGetAll_InsertionOrder() {
+        repository.add(getEntity(10, "d"));
+        repository.add(getEntity(5, "e"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abcde");
+    }
+
+    /**
+     * Tests that the memory of removed entities is reused.
+     */
+    @Test
+    public final void testRemove_MemoryReused() {
+        final long allocated; // Bytes allocated before removing
+        final long used;      // Bytes used before removing
+
+        allocated = repository.getAllocatedBytes();
+        used = repository.getUsedBytes();
+
+        repository.remove(getEntity(2, ""));
+
+        Assert.assertTrue(repository.getUsedBytes() < used);
+
+        repository.add(getEntity(4, "d"));
+
+        Assert.assertEquals(repository.getUsedBytes(), used);
+        Assert.assertEquals(repository.getAllocatedBytes(), allocated);
+    }
+
+    /**
+     * Tests that many additions and removals keep the insertion order.
+     */
+    @Test
+    public final void testRemove_Many_InsertionOrder() {
+        final StringBuilder expected; // Expected names
+
+        for (Integer i = 4; i <= 1000; i++) {
+            repository.add(getEntity(i, String.valueOf(i)));
+        }
+        for (Integer i = 1; i <= 1000; i++) {
+            if ((i % 3) != 0) {
+                repository.remove(getEntity(i, ""));
+            }
+        }
+        repository.add(getEntity(1, "x"));
+
+        expected = new StringBuilder("c");
+        for (Integer i = 6; i <= 1000; i += 3) {
+            expected.append(i);
+        }
+        expected.append('x');
+
+        Assert.assertEquals(getNames(repository.getAll()), expected.toString());
+        Assert.assertEquals(repository.getAll().size(), 334);
+    }
+
+    /**
+     * Tests that entities are removed correctly.
+     */
+    @Test
+    public final void testRemove_Removes() {
+        repository.remove(getEntity(2, ""));
+
+        Assert.assertEquals(getNames(repository.getAll()), "ac");
+    }
+
+    /**
+     * Tests that keys with the same hash are told apart.
+     */
+    @Test
+    public final void testSameHash_Distinguished() {
+        final OffHeapRepository<TestEntity> colliding; // Colliding keys
+
+        colliding = new OffHeapRepository<TestEntity>(codec,
+                new Function<TestEntity, Object>() {
+
+                    @Override
+                    public final Object apply(final TestEntity input) {
+                        // "Aa" and "BB" have the same hash
+                        return input.getName().substring(0, 2);
+                    }
+
+                }, 1024);
+        colliding.add(getEntity(1, "Aa1"));
+        colliding.add(getEntity(2, "BB2"));
+        colliding.add(getEntity(3, "Aa3"));
+        colliding.update(getEntity(4, "BB4"));
+        colliding.remove(getEntity(5, "Aa5"));
+
+        Assert.assertEquals(getNames(colliding.getAll()), "BB4");
+    }
+
+    /**
+     * Tests that entities can be stored with the serialization codec.
+     */
+    @Test
+    public final void testSerialization_Add_Decoded() {
+        final OffHeapRepository<TestEntity> serialized; // Serializing repo
+
+        serialized = new OffHeapRepository<TestEntity>(
+                new SerializationCodec<TestEntity>(TestEntity.class));
+        serialized.add(getEntity(1, "a"));
+        serialized.add(getEntity(2, "b"));
+
+        Assert.assertEquals(getNames(serialized.getAll()), "ab");
+    }
+
+    /**
+     * Tests that entities are updated in place.
+     */
+    @Test
+    public final void testUpdate_Existing_UpdatedInPlace() {
+        repository.update(getEntity(1, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "dbc");
+    }
+
+    /**
+     * Tests that entities which no longer fit in their memory are updated in
+     * place.
+     */
+    @Test
+    public final void testUpdate_Grown_UpdatedInPlace() {
+        repository.update(getEntity(2, "a much longer name"));
+
+        Assert.assertEquals(getNames(repository.getAll()),
+                "aa much longer namec");
+    }
+
+    /**
+     * Tests that updating a non existing entity does not add it.
+     */
+    @Test
+    public final void testUpdate_NotExisting_NoAdd() {
+        repository.update(getEntity(4, "d"));
+
+        Assert.assertEquals(getNames(repository.getAll()), "abc");
+    }
+
+    /**
+     * Tests that stored entities are not kept on the heap.
+     * 
+     * @throws InterruptedException
+     *             if interrupted while waiting for the garbage collector
+     */
+    @Test
+    public final void testStored_NotRetained() throws InterruptedException {
+        final WeakReference<TestEntity> reference; // Reference to the entity
+        TestEntity entity;                         // Stored entity
+
+        entity = getEntity(4, "d");
+        reference = new WeakReference<TestEntity>(entity);
+        repository.add(entity);
+        entity = null;
+
+        for (int i = 0; (i < 50) && (reference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertNull(reference.get());
+        Assert.assertEquals(getNames(repository.getAll()), "abcd");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Returns a filter for entities with an identifier greater than one.
+     * <p>
+     * It reads the identifier from the encoded entity.
+     * 
+     * @return a filter for entities with an identifier greater than one
+     */
+    private final Predicate<ByteBuffer> getIdAboveOne() {
+        return new Predicate<ByteBuffer>() {
+
+            @Override
+            public final boolean apply(final ByteBuffer record) {
+                return record.getInt(0) > 1;
+            }
+
+        };
+    }
+
+    /**
+     * Joins the names of the received entities.
+     * 
+     * @param entities
+     *            entities to join
+     * @return the names of the entities, joined in the iteration order
+     */
+    private final String getNames(final Collection<TestEntity> entities) {
+        final StringBuilder names; // Joined names
+
+        names = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            names.append(entity.getName());
+        }
+
+        return names.toString();
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.pagination.PaginationData;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that paginating works
+ * correctly. The same tests are applied to a repository built with a key
+ * function, one built with an {@code ArrayList} and one built with a
+ * {@code LinkedList}, as each of them reads the pages in a different way.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The first page contains the first entities</li>
+ * <li>A page in the middle contains the entities in its range</li>
+ * <li>The last page may be partially filled</li>
+ * <li>Pages after the last entity are empty</li>
+ * <li>Pages skip the removed entities</li>
+ * <li>Pages are correct after the removed entities are compacted</li>
+ * <li>Filtered pages contain only the accepted entities</li>
+ * <li>Invalid pagination data throws an exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestPaginatedCollectionRepository {
+
+    /**
+     * Number of entities added to the repositories.
+     */
+    private static final int                       SIZE = 25;
+
+    /**
+     * The repositories being tested.
+     */
+    private List<CollectionRepository<TestEntity>> repositories;
+
+    /**
+     * Default constructor.
+     */
+    public TestPaginatedCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repositories being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repositories = new ArrayList<CollectionRepository<TestEntity>>();
+        repositories.add(new CollectionRepository<TestEntity>(
+                new EntityKeyFunction()));
+        repositories.add(new CollectionRepository<TestEntity>(
+                new ArrayList<TestEntity>()));
+        repositories.add(new CollectionRepository<TestEntity>(
+                new LinkedList<TestEntity>()));
+
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            for (Integer i = 1; i <= SIZE; i++) {
+                repository.add(getEntity(i));
+            }
+        }
+    }
+
+    /**
+     * Tests that the first page contains the first entities.
+     */
+    @Test
+    public final void testGetAll_FirstPage() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            Assert.assertEquals(getIds(repository.getAll(getPage(10, 1))),
+                    "1,2,3,4,5,6,7,8,9,10,");
+        }
+    }
+
+    /**
+     * Tests that the last page is partially filled.
+     */
+    @Test
+    public final void testGetAll_LastPage_Partial() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            Assert.assertEquals(getIds(repository.getAll(getPage(10, 3))),
+                    "21,22,23,24,25,");
+        }
+    }
+
+    /**
+     * Tests that a page in the middle contains the entities in its range.
+     */
+    @Test
+    public final void testGetAll_MiddlePage() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            Assert.assertEquals(getIds(repository.getAll(getPage(4, 3))),
+                    "9,10,11,12,");
+        }
+    }
+
+    /**
+     * Tests that a negative page size throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetAll_NegativeSize_Exception() {
+        repositories.get(0).getAll(getPage(-1, 1));
+    }
+
+    /**
+     * Tests that pages after the last entity are empty.
+     */
+    @Test
+    public final void testGetAll_OutOfRange_Empty() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            Assert.assertTrue(repository.getAll(getPage(10, 4)).isEmpty());
+            Assert.assertTrue(repository
+                    .getAll(getPage(Integer.MAX_VALUE, Integer.MAX_VALUE))
+                    .isEmpty());
+        }
+    }
+
+    /**
+     * Tests that pages are correct after the removed entities are compacted.
+     */
+    @Test
+    public final void testGetAll_Removed_Compacted() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            for (Integer i = 1; i <= 20; i++) {
+                repository.remove(getEntity(i));
+            }
+            for (Integer i = 26; i <= 30; i++) {
+                repository.add(getEntity(i));
+            }
+
+            Assert.assertEquals(getIds(repository.getAll(getPage(3, 2))),
+                    "24,25,26,");
+            Assert.assertEquals(getIds(repository.getAll(getPage(3, 4))),
+                    "30,");
+        }
+    }
+
+    /**
+     * Tests that pages skip the removed entities.
+     */
+    @Test
+    public final void testGetAll_Removed_Skipped() {
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            for (Integer i = 2; i <= SIZE; i += 3) {
+                repository.remove(getEntity(i));
+            }
+
+            Assert.assertEquals(getIds(repository.getAll(getPage(5, 2))),
+                    "9,10,12,13,15,");
+            Assert.assertEquals(getIds(repository.getAll(getPage(5, 4))),
+                    "24,25,");
+        }
+    }
+
+    /**
+     * Tests that the page number zero throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetAll_ZeroPage_Exception() {
+        repositories.get(0).getAll(getPage(10, 0));
+    }
+
+    /**
+     * Tests that filtered pages contain only the accepted entities.
+     */
+    @Test
+    public final void testGetCollection_FilteredPage() {
+        final Predicate<TestEntity> even; // Accepts even ids
+
+        even = new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId() % 2 == 0;
+            }
+
+        };
+
+        for (final CollectionRepository<TestEntity> repository : repositories) {
+            Assert.assertEquals(
+                    getIds(repository.getCollection(even, getPage(5, 2))),
+                    "12,14,16,18,20,");
+            Assert.assertEquals(
+                    getIds(repository.getCollection(even, getPage(5, 3))),
+                    "22,24,");
+            Assert.assertTrue(
+                    repository.getCollection(even, getPage(5, 4)).isEmpty());
+        }
+    }
+
+    /**
+     * Creates an entity with the specified id.
+     * 
+     * @param id
+     *            id for the entity
+     * @return an entity with the specified id
+     */
+    private final TestEntity getEntity(final Integer id) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(String.valueOf(id));
+
+        return entity;
+    }
+
+    /**
+     * Returns the ids of the received entities, joined in order.
+     * 
+     * @param entities
+     *            entities to read
+     * @return the ids of the entities
+     */
+    private final String getIds(final Collection<TestEntity> entities) {
+        final StringBuilder ids; // Joined ids
+
+        ids = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            ids.append(entity.getId());
+            ids.append(',');
+        }
+
+        return ids.toString();
+    }
+
+    /**
+     * Creates pagination data for the specified page.
+     * 
+     * @param size
+     *            size of the page
+     * @param page
+     *            number of the page
+     * @return pagination data for the page
+     */
+    private final PaginationData getPage(final int size, final int page) {
+        return new DefaultPaginationData(size, page);
+    }
+
+}
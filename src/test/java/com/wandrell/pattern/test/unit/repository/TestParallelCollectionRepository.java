@@ -0,0 +1,176 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that filtering in
+ * parallel works correctly. For this test the repository will contain
+ * {@code Integer} entities.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Filtering in parallel returns the same entities, in the same order, as
+ * filtering sequentially</li>
+ * <li>Filtering in parallel when no entity is accepted returns an empty
+ * collection</li>
+ * <li>Filtering a repository smaller than the threshold works correctly</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestParallelCollectionRepository {
+
+    /**
+     * Pool for filtering in parallel.
+     */
+    private ForkJoinPool                  pool;
+
+    /**
+     * The repository being tested.
+     */
+    private CollectionRepository<Integer> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestParallelCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before any test is run.
+     */
+    @BeforeClass
+    public final void initialize() {
+        pool = new ForkJoinPool(4);
+
+        repository = new CollectionRepository<Integer>();
+        for (Integer i = 0; i < 10007; i++) {
+            repository.add(i);
+        }
+
+        repository.setForkJoinPool(pool);
+        repository.setParallelThreshold(1000);
+    }
+
+    /**
+     * Shuts down the pool after all the tests are run.
+     */
+    @AfterClass
+    public final void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tests that filtering in parallel when no entity is accepted returns an
+     * empty collection.
+     */
+    @Test
+    public final void testGetCollection_NoneAccepted_Empty() {
+        final Collection<Integer> entities; // Filtered entities
+
+        entities = repository.getCollection(new Predicate<Integer>() {
+
+            @Override
+            public final boolean apply(final Integer entity) {
+                return entity < 0;
+            }
+
+        });
+
+        Assert.assertTrue(entities.isEmpty());
+    }
+
+    /**
+     * Tests that filtering in parallel returns the same entities, in the same
+     * order, as filtering sequentially.
+     */
+    @Test
+    public final void testGetCollection_Parallel_SequentialOrder() {
+        final List<Integer> entities; // Filtered entities
+        final List<Integer> expected; // Expected entities
+
+        entities = new ArrayList<Integer>(
+                repository.getCollection(new Predicate<Integer>() {
+
+                    @Override
+                    public final boolean apply(final Integer entity) {
+                        return entity % 3 == 0;
+                    }
+
+                }));
+
+        expected = new ArrayList<Integer>();
+        for (Integer i = 0; i < 10007; i += 3) {
+            expected.add(i);
+        }
+
+        Assert.assertEquals(entities, expected);
+    }
+
+    /**
+     * Tests that filtering a repository smaller than the threshold works
+     * correctly.
+     */
+    @Test
+    public final void testGetCollection_UnderThreshold_Filters() {
+        final CollectionRepository<Integer> small; // Repository to filter
+        final Collection<Integer> entities;        // Filtered entities
+
+        small = new CollectionRepository<Integer>();
+        small.setForkJoinPool(pool);
+        small.add(1);
+        small.add(2);
+        small.add(3);
+
+        entities = small.getCollection(new Predicate<Integer>() {
+
+            @Override
+            public final boolean apply(final Integer entity) {
+                return entity > 1;
+            }
+
+        });
+
+        Assert.assertEquals(new ArrayList<Integer>(entities),
+                Arrays.asList(2, 3));
+    }
+
+}
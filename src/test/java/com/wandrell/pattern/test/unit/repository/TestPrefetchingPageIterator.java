@@ -0,0 +1,360 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.pagination.PrefetchingPageIterator;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link PrefetchingPageIterator}, checking that the pages are
+ * read in the background.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>All the pages are returned in order</li>
+ * <li>A last page which is full ends the iteration</li>
+ * <li>An empty repository has no pages</li>
+ * <li>Filtered pages contain only the accepted entities</li>
+ * <li>No more pages than the prefetch depth are read ahead</li>
+ * <li>Closing the iterator stops reading pages</li>
+ * <li>Failures reading a page are thrown when reaching it</li>
+ * <li>Errors reading a page are thrown when reaching it</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see PrefetchingPageIterator
+ */
+public final class TestPrefetchingPageIterator {
+
+    /**
+     * Number of entities added to the repository.
+     */
+    private static final int                 SIZE    = 23;
+
+    /**
+     * Milliseconds to wait for the background task.
+     */
+    private static final long                TIMEOUT = 5000;
+
+    /**
+     * Executor for reading the pages.
+     */
+    private ExecutorService                  executor;
+
+    /**
+     * Highest id read from the repository.
+     */
+    private AtomicInteger                    lastRead;
+
+    /**
+     * The repository being read.
+     */
+    private CollectionRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestPrefetchingPageIterator() {
+        super();
+    }
+
+    /**
+     * Creates the repository and the executor before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        TestEntity entity; // Added entity
+
+        executor = Executors.newSingleThreadExecutor();
+        lastRead = new AtomicInteger();
+
+        repository = new CollectionRepository<TestEntity>(
+                new ArrayList<TestEntity>());
+        for (Integer i = 1; i <= SIZE; i++) {
+            entity = new TestEntityBean();
+            entity.setId(i);
+            repository.add(entity);
+        }
+    }
+
+    /**
+     * Stops the executor after each test.
+     */
+    @AfterMethod
+    public final void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that all the pages are returned in order.
+     */
+    @Test
+    public final void testAll() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, executor, 5, 2);
+
+        Assert.assertEquals(getIds(pages), "[[1, 2, 3, 4, 5], "
+                + "[6, 7, 8, 9, 10], [11, 12, 13, 14, 15], "
+                + "[16, 17, 18, 19, 20], [21, 22, 23]]");
+    }
+
+    /**
+     * Tests that closing the iterator stops reading pages.
+     * 
+     * @throws InterruptedException
+     *             if interrupted while waiting for the executor
+     */
+    @Test
+    public final void testClose() throws InterruptedException {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, executor, 5, 1);
+
+        pages.next();
+        pages.close();
+
+        executor.shutdown();
+        Assert.assertTrue(
+                executor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Tests that no more pages than the prefetch depth are read ahead.
+     * 
+     * @throws InterruptedException
+     *             if interrupted while waiting for the pages
+     */
+    @Test
+    public final void testDepth() throws InterruptedException {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, getTrackingFilter(), executor, 5, 2);
+
+        // Two pages are read ahead, and then it waits
+        awaitRead(10);
+        Thread.sleep(100);
+        Assert.assertEquals(lastRead.get(), 10);
+
+        // Returning a page allows reading another one
+        pages.next();
+        awaitRead(15);
+        Thread.sleep(100);
+        Assert.assertEquals(lastRead.get(), 15);
+
+        pages.close();
+    }
+
+    /**
+     * Tests that an empty repository has no pages.
+     */
+    @Test
+    public final void testEmpty() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                new CollectionRepository<TestEntity>(), executor, 5, 1);
+
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Tests that failures reading a page are thrown when reaching it.
+     */
+    @Test
+    public final void testFailure() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, new Predicate<TestEntity>() {
+
+                    @Override
+                    public final boolean apply(final TestEntity input) {
+                        if (input.getId() == 8) {
+                            throw new IllegalStateException();
+                        }
+
+                        return true;
+                    }
+
+                }, executor, 5, 2);
+
+        Assert.assertEquals(pages.next().size(), 5);
+        try {
+            pages.hasNext();
+            Assert.fail("Expected an exception");
+        } catch (final IllegalStateException e) {
+            // Thrown by the filter
+        }
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Tests that errors reading a page are thrown when reaching it, instead of
+     * leaving the iterator waiting for the page.
+     */
+    @Test(timeOut = TIMEOUT)
+    public final void testFailure_Error() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, new Predicate<TestEntity>() {
+
+                    @Override
+                    public final boolean apply(final TestEntity input) {
+                        if (input.getId() == 8) {
+                            throw new StackOverflowError();
+                        }
+
+                        return true;
+                    }
+
+                }, executor, 5, 2);
+
+        Assert.assertEquals(pages.next().size(), 5);
+        try {
+            pages.hasNext();
+            Assert.fail("Expected an error");
+        } catch (final StackOverflowError e) {
+            // Thrown by the filter
+        }
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Tests that filtered pages contain only the accepted entities.
+     */
+    @Test
+    public final void testFiltered() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, new Predicate<TestEntity>() {
+
+                    @Override
+                    public final boolean apply(final TestEntity input) {
+                        return (input.getId() % 2) == 0;
+                    }
+
+                }, executor, 4, 1);
+
+        Assert.assertEquals(getIds(pages),
+                "[[2, 4, 6, 8], [10, 12, 14, 16], [18, 20, 22]]");
+    }
+
+    /**
+     * Tests that a last page which is full ends the iteration.
+     */
+    @Test
+    public final void testFullLastPage() {
+        final PrefetchingPageIterator<TestEntity, Predicate<TestEntity>> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, Predicate<TestEntity>>(
+                repository, executor, 23, 1);
+
+        Assert.assertEquals(pages.next().size(), SIZE);
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Waits until the entity with the specified id has been read.
+     * 
+     * @param id
+     *            id of the entity to wait for
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private final void awaitRead(final int id) throws InterruptedException {
+        final long limit; // Time limit for waiting
+
+        limit = System.currentTimeMillis() + TIMEOUT;
+        while ((lastRead.get() < id) && (System.currentTimeMillis() < limit)) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Returns the ids of the entities in each page, in order.
+     * 
+     * @param pages
+     *            pages to read
+     * @return the ids of the entities in each page
+     */
+    private final String getIds(
+            final PrefetchingPageIterator<TestEntity, ?> pages) {
+        final List<List<Integer>> ids; // Ids in each page
+        List<Integer> pageIds;         // Ids in the current page
+
+        ids = new ArrayList<List<Integer>>();
+        while (pages.hasNext()) {
+            pageIds = new ArrayList<Integer>();
+            for (final TestEntity entity : pages.next()) {
+                pageIds.add(entity.getId());
+            }
+            ids.add(pageIds);
+        }
+
+        return ids.toString();
+    }
+
+    /**
+     * Returns a filter accepting all the entities, which keeps the highest id
+     * read.
+     * 
+     * @return a filter keeping the highest id read
+     */
+    private final Predicate<TestEntity> getTrackingFilter() {
+        return new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity input) {
+                lastRead.set(Math.max(lastRead.get(), input.getId()));
+
+                return true;
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,332 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that the range indexes
+ * work correctly. For this test the repository will contain entities indexed
+ * by their ids and by their names.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Entities added before registering the index are indexed</li>
+ * <li>Range queries return the entities in the range, sorted</li>
+ * <li>Range queries can exclude the limits</li>
+ * <li>Floor and ceiling queries return the closest entities</li>
+ * <li>The entities can be iterated sorted in both directions</li>
+ * <li>Entities with the same key are kept in the order they were added</li>
+ * <li>Entities with the same key keep their order when sorted backwards</li>
+ * <li>The floor query returns the first entity with the floor key</li>
+ * <li>Entities with a null key are not indexed</li>
+ * <li>Removed entities are removed from the index</li>
+ * <li>Removing an entity keeps the others with the same key</li>
+ * <li>Updated entities are moved to their new keys</li>
+ * <li>Querying a hash index as a range index throws an exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestRangeIndexCollectionRepository {
+
+    /**
+     * Name of the index for the ids.
+     */
+    private static final String              ID   = "id";
+
+    /**
+     * Name of the index for the names.
+     */
+    private static final String              NAME = "name";
+
+    /**
+     * The repository being tested.
+     */
+    private CollectionRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestRangeIndexCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository = new CollectionRepository<TestEntity>();
+
+        for (int i = 20; i > 0; i -= 2) {
+            repository.add(getEntity(i, String.valueOf((char) ('a' + i % 3))));
+        }
+
+        repository.addRangeIndex(ID, new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity entity) {
+                return entity.getId();
+            }
+
+        });
+        repository.addRangeIndex(NAME, new Function<TestEntity, String>() {
+
+            @Override
+            public final String apply(final TestEntity entity) {
+                return entity.getName();
+            }
+
+        });
+    }
+
+    /**
+     * Tests that added entities are indexed.
+     */
+    @Test
+    public final void testAdd_Indexed() {
+        repository.add(getEntity(7, "z"));
+
+        Assert.assertEquals(getIds(repository.getRange(ID, 6, 8)), "678");
+        Assert.assertEquals(repository.getCeiling(NAME, "d").getId(),
+                (Integer) 7);
+    }
+
+    /**
+     * Tests that entities with a null key are not indexed.
+     */
+    @Test
+    public final void testAdd_NullKey_NotIndexed() {
+        repository.add(getEntity(5, null));
+
+        Assert.assertEquals(repository.getAll().size(), 11);
+        Assert.assertEquals(repository.getSorted(NAME, false).size(), 10);
+        Assert.assertEquals(getIds(repository.getRange(ID, 4, 6)), "456");
+    }
+
+    /**
+     * Tests that the ceiling query returns the first entity with the lowest
+     * key equal or greater than the received one.
+     */
+    @Test
+    public final void testGetCeiling() {
+        Assert.assertEquals(repository.getCeiling(ID, 6).getId(), (Integer) 6);
+        Assert.assertEquals(repository.getCeiling(ID, 7).getId(), (Integer) 8);
+        Assert.assertNull(repository.getCeiling(ID, 21));
+    }
+
+    /**
+     * Tests that the floor query returns the first entity with the greatest
+     * key equal or lower than the received one.
+     */
+    @Test
+    public final void testGetFloor() {
+        Assert.assertEquals(repository.getFloor(ID, 6).getId(), (Integer) 6);
+        Assert.assertEquals(repository.getFloor(ID, 7).getId(), (Integer) 6);
+        Assert.assertNull(repository.getFloor(ID, 1));
+    }
+
+    /**
+     * Tests that the floor query returns the first entity added with the
+     * floor key.
+     */
+    @Test
+    public final void testGetFloor_SameKey_First() {
+        Assert.assertEquals(repository.getFloor(NAME, "bz").getId(),
+                (Integer) 16);
+    }
+
+    /**
+     * Tests that querying a hash index as a range index throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetRange_HashIndex_Exception() {
+        repository.addIndex("hash", new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity entity) {
+                return entity.getId();
+            }
+
+        });
+
+        repository.getRange("hash", 1, 2);
+    }
+
+    /**
+     * Tests that a range query returns the entities in the range, limits
+     * included, sorted by their keys.
+     */
+    @Test
+    public final void testGetRange_Inclusive() {
+        Assert.assertEquals(getIds(repository.getRange(ID, 6, 10)), "6810");
+    }
+
+    /**
+     * Tests that a range query can exclude the limits.
+     */
+    @Test
+    public final void testGetRange_Exclusive() {
+        Assert.assertEquals(
+                getIds(repository.getRange(ID, 6, false, 10, false)), "8");
+        Assert.assertEquals(getIds(repository.getRange(ID, 6, true, 10, false)),
+                "68");
+    }
+
+    /**
+     * Tests that a range query with no entities in it returns an empty
+     * collection.
+     */
+    @Test
+    public final void testGetRange_Empty() {
+        Assert.assertTrue(repository.getRange(ID, 21, 30).isEmpty());
+        Assert.assertTrue(repository.getRange(ID, 10, 6).isEmpty());
+        Assert.assertTrue(repository.getRange(ID, 6, false, 6, true).isEmpty());
+    }
+
+    /**
+     * Tests that the entities with the same key are kept in the order they
+     * were added.
+     */
+    @Test
+    public final void testGetRange_SameKey_InsertionOrder() {
+        Assert.assertEquals(getIds(repository.getRange(NAME, "a", "a")),
+                "18126");
+    }
+
+    /**
+     * Tests that the entities can be iterated sorted by their keys.
+     */
+    @Test
+    public final void testGetSorted() {
+        Assert.assertEquals(getIds(repository.getSorted(ID, false)),
+                "2468101214161820");
+        Assert.assertEquals(getIds(repository.getSorted(ID, true)),
+                "2018161412108642");
+        Assert.assertEquals(getIds(repository.getSorted(ID, true).limit(2)),
+                "2018");
+    }
+
+    /**
+     * Tests that the entities with the same key keep the order they were
+     * added when sorted from the highest key.
+     */
+    @Test
+    public final void testGetSorted_SameKey_InsertionOrder() {
+        Assert.assertEquals(getIds(repository.getSorted(NAME, true)),
+                "2014821610418126");
+    }
+
+    /**
+     * Tests that removed entities are removed from the index.
+     */
+    @Test
+    public final void testRemove_RemovedFromIndex() {
+        repository.remove(getEntity(8, ""));
+
+        Assert.assertEquals(getIds(repository.getRange(ID, 6, 10)), "610");
+        Assert.assertEquals(getIds(repository.getRange(NAME, "c", "c")),
+                "20142");
+    }
+
+    /**
+     * Tests that removing an entity keeps the others with the same key.
+     */
+    @Test
+    public final void testRemove_SameKey_OthersKept() {
+        repository.remove(getEntity(14, ""));
+
+        Assert.assertEquals(getIds(repository.getRange(NAME, "c", "c")),
+                "2082");
+        Assert.assertEquals(repository.getFloor(NAME, "c").getId(),
+                (Integer) 20);
+    }
+
+    /**
+     * Tests that entities modified and then updated are moved to their new
+     * keys.
+     */
+    @Test
+    public final void testUpdate_Modified_Reindexed() {
+        final TestEntity entity; // Modified entity
+
+        entity = repository.getFloor(ID, 4);
+        entity.setName("0");
+
+        repository.update(entity);
+
+        Assert.assertEquals(repository.getFloor(NAME, "0").getId(),
+                (Integer) 4);
+        Assert.assertEquals(getIds(repository.getRange(NAME, "b", "b")),
+                "1610");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Returns the ids of the received entities, joined in order.
+     * 
+     * @param entities
+     *            entities to read
+     * @return the ids of the entities
+     */
+    private final String getIds(final Iterable<TestEntity> entities) {
+        final StringBuilder ids; // Joined ids
+
+        ids = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            ids.append(entity.getId());
+        }
+
+        return ids.toString();
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.sort.DefaultSortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortQueries;
+
+/**
+ * Unit tests for {@link SortQueries}, checking the {@code ORDER BY} clauses
+ * added to the queries.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>A single order is added to the query</li>
+ * <li>Several orders are added to the query in order</li>
+ * <li>Properties which are not identifiers are rejected</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see SortQueries
+ */
+public final class TestSortQueries {
+
+    /**
+     * Default constructor.
+     */
+    public TestSortQueries() {
+        super();
+    }
+
+    /**
+     * Tests that several orders are added to the query in order.
+     */
+    @Test
+    public final void testOrderBy_Multiple() {
+        final String query; // Sorted query
+
+        query = SortQueries.orderBy(
+                "SELECT entity FROM TestEntity entity",
+                new DefaultSortData(new SortOrder("entity.name"),
+                        new SortOrder("entity.id", SortDirection.DESCENDING)));
+
+        Assert.assertEquals(query, "SELECT entity FROM TestEntity entity "
+                + "ORDER BY entity.name ASC, entity.id DESC");
+    }
+
+    /**
+     * Tests that a single order is added to the query.
+     */
+    @Test
+    public final void testOrderBy_Single() {
+        final String query; // Sorted query
+
+        query = SortQueries.orderBy("SELECT * FROM test_entities",
+                new DefaultSortData(new SortOrder("name")));
+
+        Assert.assertEquals(query,
+                "SELECT * FROM test_entities ORDER BY name ASC");
+    }
+
+    /**
+     * Tests that properties which are not identifiers are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testSortOrder_Injection_Exception() {
+        new SortOrder("name; DROP TABLE test_entities");
+    }
+
+}
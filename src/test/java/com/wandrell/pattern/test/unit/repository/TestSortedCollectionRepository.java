@@ -0,0 +1,344 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.wandrell.pattern.repository.CollectionRepository;
+import com.wandrell.pattern.repository.entity.EntityKeyFunction;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.sort.DefaultSortData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.test.util.model.TestEntity;
+import com.wandrell.pattern.test.util.model.TestEntityBean;
+
+/**
+ * Unit tests for {@link CollectionRepository} testing that sorting works
+ * correctly. For this test the repository will contain entities which can be
+ * sorted by their names, through a sort key, and by their ids, through a range
+ * index.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The entities can be sorted in both directions</li>
+ * <li>The entities can be sorted by several keys</li>
+ * <li>Sorted pages contain the entities in their range</li>
+ * <li>Sorted pages read from a range index contain the entities in their
+ * range</li>
+ * <li>Filtered entities can be sorted and paginated</li>
+ * <li>Entities with a null key are sorted as if it was the highest value</li>
+ * <li>Range indexes with not indexed entities can still be used for sorting
+ * </li>
+ * <li>Sorting by a not registered key throws an exception</li>
+ * <li>Registering a sort key with the name of a range index throws an
+ * exception</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see CollectionRepository
+ */
+public final class TestSortedCollectionRepository {
+
+    /**
+     * Name of the range index for the ids.
+     */
+    private static final String              ID   = "id";
+
+    /**
+     * Name of the sort key for the names.
+     */
+    private static final String              NAME = "name";
+
+    /**
+     * The repository being tested.
+     */
+    private CollectionRepository<TestEntity> repository;
+
+    /**
+     * Default constructor.
+     */
+    public TestSortedCollectionRepository() {
+        super();
+    }
+
+    /**
+     * Creates the repository being tested before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        final String names; // Names for the entities
+
+        repository = new CollectionRepository<TestEntity>(
+                new EntityKeyFunction());
+
+        names = "dbfacbea";
+        for (Integer i = 1; i <= names.length(); i++) {
+            repository.add(getEntity(i, names.substring(i - 1, i)));
+        }
+
+        repository.addRangeIndex(ID, new Function<TestEntity, Integer>() {
+
+            @Override
+            public final Integer apply(final TestEntity entity) {
+                return entity.getId();
+            }
+
+        });
+        repository.addSortKey(NAME, getNameFunction());
+    }
+
+    /**
+     * Tests that registering a sort key with the name of a range index throws
+     * an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAddSortKey_IndexName_Exception() {
+        repository.addSortKey(ID, getNameFunction());
+    }
+
+    /**
+     * Tests that the entities can be sorted in ascending order.
+     */
+    @Test
+    public final void testGetAll_Ascending() {
+        Assert.assertEquals(getIds(repository.getAll(getSort(NAME, ID))),
+                "4,8,2,6,5,1,7,3,");
+    }
+
+    /**
+     * Tests that the entities can be sorted in descending order.
+     */
+    @Test
+    public final void testGetAll_Descending() {
+        final SortData sort; // Sorting data
+
+        sort = new DefaultSortData(
+                new SortOrder(NAME, SortDirection.DESCENDING),
+                new SortOrder(ID, SortDirection.DESCENDING));
+
+        Assert.assertEquals(getIds(repository.getAll(sort)),
+                "3,7,1,5,6,2,8,4,");
+    }
+
+    /**
+     * Tests that entities with a null key are sorted as if it was the highest
+     * value.
+     */
+    @Test
+    public final void testGetAll_NullKey_Highest() {
+        final SortData sort; // Descending sorting data
+
+        repository.add(getEntity(9, null));
+
+        sort = new DefaultSortData(
+                new SortOrder(NAME, SortDirection.DESCENDING));
+
+        Assert.assertEquals(getIds(repository.getAll(getSort(NAME, ID))),
+                "4,8,2,6,5,1,7,3,9,");
+        Assert.assertEquals(
+                repository.getAll(sort).iterator().next().getId(),
+                (Integer) 9);
+    }
+
+    /**
+     * Tests that sorted pages contain the entities in their range.
+     */
+    @Test
+    public final void testGetAll_Paginated() {
+        Assert.assertEquals(
+                getIds(repository.getAll(getSort(NAME, ID),
+                        new DefaultPaginationData(3, 1))),
+                "4,8,2,");
+        Assert.assertEquals(
+                getIds(repository.getAll(getSort(NAME, ID),
+                        new DefaultPaginationData(3, 2))),
+                "6,5,1,");
+        Assert.assertEquals(
+                getIds(repository.getAll(getSort(NAME, ID),
+                        new DefaultPaginationData(3, 3))),
+                "7,3,");
+        Assert.assertTrue(repository
+                .getAll(getSort(NAME, ID), new DefaultPaginationData(3, 4))
+                .isEmpty());
+    }
+
+    /**
+     * Tests that sorted pages read from a range index contain the entities in
+     * their range.
+     */
+    @Test
+    public final void testGetAll_Paginated_RangeIndex() {
+        final SortData sort; // Sorting data
+
+        sort = new DefaultSortData(new SortOrder(ID, SortDirection.DESCENDING));
+
+        Assert.assertEquals(getIds(
+                repository.getAll(sort, new DefaultPaginationData(3, 1))),
+                "8,7,6,");
+        Assert.assertEquals(getIds(
+                repository.getAll(sort, new DefaultPaginationData(3, 3))),
+                "2,1,");
+    }
+
+    /**
+     * Tests that range indexes with not indexed entities can still be used for
+     * sorting.
+     */
+    @Test
+    public final void testGetAll_RangeIndex_NotIndexed() {
+        final Collection<TestEntity> entities; // Sorted entities
+        final Iterator<TestEntity> itr;        // Iterator for the entities
+        TestEntity last;                       // Last sorted entity
+
+        repository.addRangeIndex("indexed", getNameFunction());
+        repository.add(getEntity(9, null));
+
+        entities = repository.getAll(new DefaultSortData(new SortOrder(
+                "indexed")));
+
+        itr = entities.iterator();
+        last = null;
+        while (itr.hasNext()) {
+            last = itr.next();
+        }
+
+        Assert.assertEquals(entities.size(), 9);
+        Assert.assertEquals(last.getId(), (Integer) 9);
+    }
+
+    /**
+     * Tests that sorting by a not registered key throws an exception.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testGetAll_UnknownKey_Exception() {
+        repository.getAll(new DefaultSortData(new SortOrder("abc")));
+    }
+
+    /**
+     * Tests that filtered entities can be sorted and paginated.
+     */
+    @Test
+    public final void testGetCollection_Filtered() {
+        final Predicate<TestEntity> even; // Accepts even ids
+        final SortData sort;              // Sorting by the index
+
+        even = new Predicate<TestEntity>() {
+
+            @Override
+            public final boolean apply(final TestEntity entity) {
+                return entity.getId() % 2 == 0;
+            }
+
+        };
+        sort = new DefaultSortData(new SortOrder(ID, SortDirection.DESCENDING));
+
+        Assert.assertEquals(getIds(repository.getCollection(even, sort)),
+                "8,6,4,2,");
+        Assert.assertEquals(getIds(repository.getCollection(even,
+                getSort(NAME, ID), new DefaultPaginationData(2, 2))), "2,6,");
+    }
+
+    /**
+     * Creates an entity with the specified data.
+     * 
+     * @param id
+     *            id for the entity
+     * @param name
+     *            name for the entity
+     * @return an entity with the specified data
+     */
+    private final TestEntity getEntity(final Integer id, final String name) {
+        final TestEntity entity; // Created entity
+
+        entity = new TestEntityBean();
+        entity.setId(id);
+        entity.setName(name);
+
+        return entity;
+    }
+
+    /**
+     * Returns the ids of the received entities, joined in order.
+     * 
+     * @param entities
+     *            entities to read
+     * @return the ids of the entities
+     */
+    private final String getIds(final Collection<TestEntity> entities) {
+        final StringBuilder ids; // Joined ids
+
+        ids = new StringBuilder();
+        for (final TestEntity entity : entities) {
+            ids.append(entity.getId());
+            ids.append(',');
+        }
+
+        return ids.toString();
+    }
+
+    /**
+     * Returns a function extracting the names from the entities.
+     * 
+     * @return a function extracting the names
+     */
+    private final Function<TestEntity, String> getNameFunction() {
+        return new Function<TestEntity, String>() {
+
+            @Override
+            public final String apply(final TestEntity entity) {
+                return entity.getName();
+            }
+
+        };
+    }
+
+    /**
+     * Creates ascending sorting data for the specified properties.
+     * 
+     * @param properties
+     *            properties to sort by
+     * @return sorting data for the properties
+     */
+    private final SortData getSort(final String... properties) {
+        final SortOrder[] orders; // Orders for the properties
+
+        orders = new SortOrder[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            orders[i] = new SortOrder(properties[i]);
+        }
+
+        return new DefaultSortData(orders);
+    }
+
+}
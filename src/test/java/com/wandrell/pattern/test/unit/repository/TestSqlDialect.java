@@ -0,0 +1,194 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.unit.repository;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.spring.SqlDialect;
+
+/**
+ * Unit tests for {@link SqlDialect}, checking the pagination and count clauses
+ * added to the queries.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The dialect is found from the database product name</li>
+ * <li>Unknown databases use the standard dialect</li>
+ * <li>The {@code LIMIT} clause contains the size and offset of the page</li>
+ * <li>The standard clause contains the size and offset of the page</li>
+ * <li>The count query wraps the received query</li>
+ * <li>The window count is added to the received query</li>
+ * <li>The window count keeps the sorting of the received query</li>
+ * <li>Window counts are rejected by the dialects not supporting them</li>
+ * <li>Window counts are rejected for queries with {@code DISTINCT}</li>
+ * <li>Batch keys are supported only by the drivers returning all of them</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see SqlDialect
+ */
+public final class TestSqlDialect {
+
+    /**
+     * Default constructor.
+     */
+    public TestSqlDialect() {
+        super();
+    }
+
+    /**
+     * Tests that batch keys are supported only by the drivers returning all of
+     * them.
+     */
+    @Test
+    public final void testBatchKeys() {
+        Assert.assertTrue(SqlDialect.H2.isBatchKeysSupported());
+        Assert.assertFalse(SqlDialect.HSQLDB.isBatchKeysSupported());
+        Assert.assertFalse(SqlDialect.SQLITE.isBatchKeysSupported());
+        Assert.assertFalse(SqlDialect.STANDARD.isBatchKeysSupported());
+    }
+
+    /**
+     * Tests that the count query wraps the received query.
+     */
+    @Test
+    public final void testCount() {
+        Assert.assertEquals(SqlDialect.H2.count("SELECT * FROM test_entities"),
+                "SELECT COUNT(*) FROM (SELECT * FROM test_entities) counted");
+    }
+
+    /**
+     * Tests that the window count is added to the received query.
+     */
+    @Test
+    public final void testCountOver() {
+        final String query; // Counted query
+
+        query = SqlDialect.POSTGRESQL.countOver("SELECT * FROM test_entities");
+
+        Assert.assertEquals(query,
+                "SELECT COUNT(*) OVER() AS page_total_count, * "
+                        + "FROM test_entities");
+    }
+
+    /**
+     * Tests that window counts are rejected for queries with
+     * {@code DISTINCT}.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testCountOver_Distinct() {
+        Assert.assertFalse(SqlDialect.POSTGRESQL
+                .canCountOver("SELECT DISTINCT name FROM test_entities"));
+
+        SqlDialect.POSTGRESQL
+                .countOver("SELECT DISTINCT name FROM test_entities");
+    }
+
+    /**
+     * Tests that the window count keeps the sorting of the received query.
+     */
+    @Test
+    public final void testCountOver_Sorted() {
+        final String query; // Counted query
+
+        query = SqlDialect.POSTGRESQL.paginate(
+                SqlDialect.POSTGRESQL.countOver(
+                        "SELECT * FROM test_entities ORDER BY name DESC"),
+                new DefaultPaginationData(5, 2));
+
+        Assert.assertEquals(query,
+                "SELECT COUNT(*) OVER() AS page_total_count, * "
+                        + "FROM test_entities ORDER BY name DESC "
+                        + "OFFSET 5 ROWS FETCH FIRST 5 ROWS ONLY");
+    }
+
+    /**
+     * Tests that window counts are rejected by the dialects not supporting
+     * them.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public final void testCountOver_Unsupported() {
+        Assert.assertFalse(SqlDialect.MYSQL.isWindowCountSupported());
+
+        SqlDialect.MYSQL.countOver("SELECT * FROM test_entities");
+    }
+
+    /**
+     * Tests that the dialect is found from the database product name.
+     */
+    @Test
+    public final void testFromProductName_Known() {
+        Assert.assertEquals(SqlDialect.fromProductName("H2"), SqlDialect.H2);
+        Assert.assertEquals(SqlDialect.fromProductName("HSQL Database Engine"),
+                SqlDialect.HSQLDB);
+        Assert.assertEquals(SqlDialect.fromProductName("MySQL"),
+                SqlDialect.MYSQL);
+        Assert.assertEquals(SqlDialect.fromProductName("PostgreSQL"),
+                SqlDialect.POSTGRESQL);
+        Assert.assertEquals(SqlDialect.fromProductName("SQLite"),
+                SqlDialect.SQLITE);
+    }
+
+    /**
+     * Tests that unknown databases use the standard dialect.
+     */
+    @Test
+    public final void testFromProductName_Unknown() {
+        Assert.assertEquals(SqlDialect.fromProductName("Unknown"),
+                SqlDialect.STANDARD);
+    }
+
+    /**
+     * Tests that the {@code LIMIT} clause contains the size and offset of the
+     * page.
+     */
+    @Test
+    public final void testPaginate_Limit() {
+        final String query; // Paginated query
+
+        query = SqlDialect.MYSQL.paginate("SELECT * FROM test_entities",
+                new DefaultPaginationData(5, 3));
+
+        Assert.assertEquals(query,
+                "SELECT * FROM test_entities LIMIT 5 OFFSET 10");
+    }
+
+    /**
+     * Tests that the standard clause contains the size and offset of the page.
+     */
+    @Test
+    public final void testPaginate_Standard() {
+        final String query; // Paginated query
+
+        query = SqlDialect.H2.paginate("SELECT * FROM test_entities",
+                new DefaultPaginationData(5, 3));
+
+        Assert.assertEquals(query, "SELECT * FROM test_entities "
+                + "OFFSET 10 ROWS FETCH FIRST 5 ROWS ONLY");
+    }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import com.wandrell.pattern.repository.codec.EntityCodec;
+
+/**
+ * Codec for the {@link TestEntity}.
+ * <p>
+ * The identifier is written first, as an {@code int}, followed by the name
+ * encoded as UTF-8.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestEntityCodec implements EntityCodec<TestEntity> {
+
+    /**
+     * Charset for the names.
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * Number of entities decoded.
+     */
+    private int                  decoded = 0;
+
+    /**
+     * Default constructor.
+     */
+    public TestEntityCodec() {
+        super();
+    }
+
+    @Override
+    public final TestEntity decode(final ByteBuffer buffer) {
+        final TestEntity entity; // Decoded entity
+        final byte[] name;       // Encoded name
+
+        entity = new TestEntityBean();
+        entity.setId(buffer.getInt());
+
+        name = new byte[buffer.remaining()];
+        buffer.get(name);
+        entity.setName(new String(name, CHARSET));
+
+        decoded++;
+
+        return entity;
+    }
+
+    @Override
+    public final byte[] encode(final TestEntity entity) {
+        final byte[] name; // Encoded name
+
+        name = entity.getName().getBytes(CHARSET);
+
+        return ByteBuffer.allocate(4 + name.length).putInt(entity.getId())
+                .put(name).array();
+    }
+
+    /**
+     * Returns the number of entities decoded.
+     * 
+     * @return the number of entities decoded
+     */
+    public final int getDecoded() {
+        return decoded;
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.batch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.BatchRepository;
+import com.wandrell.pattern.repository.FilteredRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link BatchRepository} testing the methods
+ * modifying several entities at once.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Adding several entities adds all of them and assigns their ids.</li>
+ * <li>Removing several entities removes all of them.</li>
+ * <li>Updating several entities changes all of them.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements. The repository should send the
+ * entities in batches smaller than the number of entities used by the tests.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see BatchRepository
+ */
+public abstract class AbstractITBatch
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * The repository being tested, as a batch repository.
+     */
+    @Autowired
+    private BatchRepository<TestEntity>                             batchRepository;
+
+    /**
+     * The entity manager for the test context.
+     */
+    @Autowired(required = false)
+    private EntityManager                                           emanager;
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                                                 entitiesCount;
+
+    /**
+     * The repository being tested, for querying the entities.
+     */
+    @Autowired
+    private FilteredRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring an entity by it's id.
+     */
+    @Value("${query.byId}")
+    private String                                                  selectByIdQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITBatch() {
+        super();
+    }
+
+    /**
+     * Tests that adding several entities adds all of them and assigns their
+     * ids.
+     */
+    @Test
+    @Transactional
+    public final void testAddAll() {
+        final List<TestEntity> entities; // Added entities
+        final Set<Integer> ids;          // Assigned ids
+        TestEntity entity;               // Added entity
+
+        entities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entity = applicationContext.getBean("newEntity", TestEntity.class);
+            entity.setName("batch_" + i);
+            entities.add(entity);
+        }
+
+        batchRepository.addAll(entities);
+
+        if (emanager != null) {
+            // Flushed to force updating ids
+            emanager.flush();
+        }
+
+        Assert.assertEquals(repository.getAll().size(), entitiesCount + 5);
+
+        ids = new HashSet<>();
+        for (final TestEntity added : entities) {
+            Assert.assertNotNull(added.getId());
+            Assert.assertTrue(added.getId() >= 0);
+            ids.add(added.getId());
+        }
+        Assert.assertEquals(ids.size(), 5);
+    }
+
+    /**
+     * Tests that removing several entities removes all of them.
+     */
+    @Test
+    @Transactional
+    public final void testRemoveAll() {
+        batchRepository.removeAll(getEntities(1, 2, 3, 4, 5));
+
+        Assert.assertEquals(repository.getAll().size(), entitiesCount - 5);
+        Assert.assertNull(repository.getEntity(getQuery(3)));
+    }
+
+    /**
+     * Tests that updating several entities changes all of them.
+     */
+    @Test
+    @Transactional
+    public final void testUpdateAll() {
+        final List<TestEntity> entities; // Updated entities
+
+        entities = getEntities(1, 2, 3, 4, 5);
+        for (final TestEntity entity : entities) {
+            entity.setName("updated_" + entity.getId());
+        }
+
+        batchRepository.updateAll(entities);
+
+        if (emanager != null) {
+            // Cleared to force reading the entities again
+            emanager.flush();
+            emanager.clear();
+        }
+
+        for (int i = 1; i <= 5; i++) {
+            Assert.assertEquals(repository.getEntity(getQuery(i)).getName(),
+                    "updated_" + i);
+        }
+    }
+
+    /**
+     * Returns the entities with the specified ids.
+     *
+     * @param ids
+     *            ids of the entities
+     * @return the entities with the specified ids
+     */
+    private final List<TestEntity> getEntities(final Integer... ids) {
+        final List<TestEntity> entities; // Queried entities
+
+        entities = new ArrayList<>();
+        for (final Integer id : ids) {
+            entities.add(repository.getEntity(getQuery(id)));
+        }
+
+        return entities;
+    }
+
+    /**
+     * Returns a query for acquiring the entity with the specified id.
+     *
+     * @param id
+     *            id of the entity
+     * @return a query for the entity with the specified id
+     */
+    private final NamedParameterQueryData getQuery(final Integer id) {
+        final Map<String, Object> parameters; // Params for the query
+
+        parameters = new LinkedHashMap<>();
+        parameters.put("id", id);
+
+        return new DefaultNamedParameterQueryData(selectByIdQuery, parameters);
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.count;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.pagination.CountedPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.pagination.Page;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link CountedPaginatedRepository} testing
+ * the pages containing the total number of entities.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>A page of all the entities contains the total number of entities.</li>
+ * <li>A page of a subset of entities contains the number of entities in the
+ * subset.</li>
+ * <li>A page out of the entities is empty, but still contains the total
+ * number of entities.</li>
+ * <li>Adding an entity updates the total number of entities.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see CountedPaginatedRepository
+ */
+public abstract class AbstractITCountedPagination
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                                                         entitiesCount;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private CountedPaginatedRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                          selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITCountedPagination() {
+        super();
+    }
+
+    /**
+     * Tests that adding an entity updates the total number of entities.
+     */
+    @Test
+    public final void testGetPage_Added_CountUpdated() {
+        final TestEntity entity; // Added entity
+
+        // Counts the entities before adding one
+        repository.getPage(new DefaultPaginationData(5, 1));
+
+        entity = applicationContext.getBean("newEntity", TestEntity.class);
+        entity.setName("counted");
+        repository.add(entity);
+
+        Assert.assertEquals(
+                (long) repository.getPage(new DefaultPaginationData(5, 1))
+                        .getTotalCount(),
+                entitiesCount + 1);
+    }
+
+    /**
+     * Tests that a page of all the entities contains the total number of
+     * entities.
+     */
+    @Test
+    public final void testGetPage_All() {
+        final Page<TestEntity> page; // Read page
+
+        page = repository.getPage(new DefaultPaginationData(5, 2));
+
+        Assert.assertEquals(getIds(page).toString(), "[6, 7, 8, 9, 10]");
+        Assert.assertEquals((long) page.getTotalCount(), (long) entitiesCount);
+        Assert.assertEquals((long) page.getTotalPages(),
+                (long) ((entitiesCount + 4) / 5));
+    }
+
+    /**
+     * Tests that a page out of the entities is empty, but still contains the
+     * total number of entities.
+     */
+    @Test
+    public final void testGetPage_OutOfRange() {
+        final Page<TestEntity> page; // Read page
+
+        page = repository
+                .getPage(new DefaultPaginationData(5, entitiesCount));
+
+        Assert.assertTrue(page.getEntities().isEmpty());
+        Assert.assertEquals((long) page.getTotalCount(), (long) entitiesCount);
+    }
+
+    /**
+     * Tests that a page of a subset of entities contains the number of
+     * entities in the subset.
+     */
+    @Test
+    public final void testGetPage_Subset() {
+        final NamedParameterQueryData query; // Query for the entities
+        final Page<TestEntity> page;         // Read page
+
+        query = new DefaultNamedParameterQueryData(selectSecondFiveQuery);
+
+        page = repository.getPage(query, new DefaultPaginationData(2, 2));
+
+        Assert.assertEquals(getIds(page).toString(), "[8, 9]");
+        Assert.assertEquals((long) page.getTotalCount(), 5);
+        Assert.assertEquals((long) page.getTotalPages(), 3);
+    }
+
+    /**
+     * Returns the ids of the entities in the page, keeping their order.
+     * 
+     * @param page
+     *            page to read
+     * @return the ids of the entities
+     */
+    private final List<Integer> getIds(final Page<TestEntity> page) {
+        final List<Integer> ids; // Ids of the entities
+
+        ids = new ArrayList<Integer>();
+        for (final TestEntity entity : page.getEntities()) {
+            ids.add(entity.getId());
+        }
+
+        return ids;
+    }
+
+}
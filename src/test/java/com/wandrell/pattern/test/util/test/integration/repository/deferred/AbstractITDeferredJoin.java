@@ -0,0 +1,195 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.deferred;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.pagination.CountedPaginatedRepository;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.pagination.Page;
+import com.wandrell.pattern.repository.sort.DefaultSortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortedPaginatedRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link SortedPaginatedRepository} reading
+ * the pages with a deferred join.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>A page of all the entities returns the entities in the page.</li>
+ * <li>A sorted page keeps the order of the entities.</li>
+ * <li>A page of a subset of entities returns the entities in the page.</li>
+ * <li>A page out of the entities is empty.</li>
+ * <li>A page containing the total number of entities returns the entities in
+ * the page.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements, including enabling the deferred
+ * joins.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see SortedPaginatedRepository
+ */
+public abstract class AbstractITDeferredJoin
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                                                         entitiesCount;
+
+    /**
+     * Property for sorting by the id.
+     */
+    @Value("${sort.id}")
+    private String                                                          idProperty;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private SortedPaginatedRepository<TestEntity, NamedParameterQueryData>  repository;
+
+    /**
+     * The repository being tested, as a repository returning pages with the
+     * total number of entities.
+     */
+    @Autowired
+    private CountedPaginatedRepository<TestEntity, NamedParameterQueryData> repositoryCounted;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                          selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITDeferredJoin() {
+        super();
+    }
+
+    /**
+     * Tests that a page of all the entities returns the entities in the page.
+     */
+    @Test
+    public final void testGetAll() {
+        final Collection<TestEntity> entities; // Entities in the page
+
+        entities = repository.getAll(new DefaultPaginationData(5, 2));
+
+        Assert.assertEquals(getIds(entities).toString(), "[6, 7, 8, 9, 10]");
+    }
+
+    /**
+     * Tests that a page out of the entities is empty.
+     */
+    @Test
+    public final void testGetAll_OutOfRange() {
+        Assert.assertTrue(repository
+                .getAll(new DefaultPaginationData(5, entitiesCount))
+                .isEmpty());
+    }
+
+    /**
+     * Tests that a sorted page keeps the order of the entities.
+     */
+    @Test
+    public final void testGetAll_Sorted() {
+        final Collection<TestEntity> entities; // Entities in the page
+
+        entities = repository.getAll(
+                new DefaultSortData(
+                        new SortOrder(idProperty, SortDirection.DESCENDING)),
+                new DefaultPaginationData(3, 2));
+
+        Assert.assertEquals(getIds(entities).toString(), "[27, 26, 25]");
+    }
+
+    /**
+     * Tests that a page of a subset of entities returns the entities in the
+     * page.
+     */
+    @Test
+    public final void testGetCollection() {
+        final Collection<TestEntity> entities; // Entities in the page
+
+        entities = repository.getCollection(
+                new DefaultNamedParameterQueryData(selectSecondFiveQuery),
+                new DefaultPaginationData(2, 2));
+
+        Assert.assertEquals(getIds(entities).toString(), "[8, 9]");
+    }
+
+    /**
+     * Tests that a page containing the total number of entities returns the
+     * entities in the page.
+     */
+    @Test
+    public final void testGetPage() {
+        final Page<TestEntity> page; // Read page
+
+        page = repositoryCounted.getPage(new DefaultPaginationData(5, 2));
+
+        Assert.assertEquals(getIds(page.getEntities()).toString(),
+                "[6, 7, 8, 9, 10]");
+        Assert.assertEquals((long) page.getTotalCount(), (long) entitiesCount);
+    }
+
+    /**
+     * Returns the ids of the entities, keeping their order.
+     * 
+     * @param entities
+     *            entities to read
+     * @return the ids of the entities
+     */
+    private final List<Integer> getIds(final Collection<TestEntity> entities) {
+        final List<Integer> ids; // Ids of the entities
+
+        ids = new ArrayList<Integer>();
+        for (final TestEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+
+        return ids;
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.keyset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.pagination.DefaultKeysetPaginationData;
+import com.wandrell.pattern.repository.pagination.KeysetPaginatedRepository;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link KeysetPaginatedRepository} testing
+ * keyset pagination.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The first page contains the first entities.</li>
+ * <li>The next page contains the entities after the last key.</li>
+ * <li>Descending pages contain the entities before the last key.</li>
+ * <li>The page read from a cursor is the same as the one read from the key.
+ * </li>
+ * <li>Paginating a subset of entities returns just those after the key.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see KeysetPaginatedRepository
+ */
+public abstract class AbstractITKeysetPagination
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Property used as key.
+     */
+    @Value("${sort.id}")
+    private String                                                         idProperty;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private KeysetPaginatedRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                         selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITKeysetPagination() {
+        super();
+    }
+
+    /**
+     * Tests that the page read from a cursor is the same as the one read from
+     * the key.
+     */
+    @Test
+    public final void testGetAll_Cursor() {
+        final DefaultKeysetPaginationData data; // Data with the key
+
+        data = new DefaultKeysetPaginationData(new SortOrder(idProperty), 5,
+                5);
+
+        Assert.assertEquals(
+                getIds(repository
+                        .getAll(DefaultKeysetPaginationData.fromCursor(
+                                data.getOrder(), 5, data.getCursor()))),
+                getIds(repository.getAll(data)));
+    }
+
+    /**
+     * Tests that descending pages contain the entities before the last key.
+     */
+    @Test
+    public final void testGetAll_Descending() {
+        final List<Integer> ids; // Ids of the entities in the page
+
+        ids = getIds(repository.getAll(new DefaultKeysetPaginationData(
+                new SortOrder(idProperty, SortDirection.DESCENDING), 5, 11)));
+
+        Assert.assertEquals(ids.toString(), "[10, 9, 8, 7, 6]");
+    }
+
+    /**
+     * Tests that the first page contains the first entities.
+     */
+    @Test
+    public final void testGetAll_FirstPage() {
+        final List<Integer> ids; // Ids of the entities in the page
+
+        ids = getIds(repository.getAll(
+                new DefaultKeysetPaginationData(new SortOrder(idProperty), 5)));
+
+        Assert.assertEquals(ids.toString(), "[1, 2, 3, 4, 5]");
+    }
+
+    /**
+     * Tests that the next page contains the entities after the last key.
+     */
+    @Test
+    public final void testGetAll_NextPage() {
+        final DefaultKeysetPaginationData first; // First page
+        final List<Integer> ids;                 // Ids of the entities
+
+        first = new DefaultKeysetPaginationData(new SortOrder(idProperty), 5);
+
+        ids = getIds(repository.getAll(first));
+        ids.addAll(getIds(
+                repository.getAll(first.next(ids.get(ids.size() - 1)))));
+
+        Assert.assertEquals(ids.toString(),
+                "[1, 2, 3, 4, 5, 6, 7, 8, 9, 10]");
+    }
+
+    /**
+     * Tests that paginating a subset of entities returns just those after the
+     * key.
+     */
+    @Test
+    public final void testGetCollection_NextPage() {
+        final NamedParameterQueryData query; // Query for the entities
+        final List<Integer> ids;             // Ids of the entities
+
+        query = new DefaultNamedParameterQueryData(selectSecondFiveQuery);
+
+        ids = getIds(repository.getCollection(query,
+                new DefaultKeysetPaginationData(new SortOrder(idProperty), 5,
+                        7)));
+
+        Assert.assertEquals(ids.toString(), "[8, 9, 10]");
+    }
+
+    /**
+     * Returns the ids of the received entities, keeping their order.
+     * 
+     * @param entities
+     *            entities to read
+     * @return the ids of the entities
+     */
+    private final List<Integer> getIds(final Collection<TestEntity> entities) {
+        final List<Integer> ids; // Ids of the entities
+
+        ids = new ArrayList<Integer>();
+        for (final TestEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+
+        return ids;
+    }
+
+}
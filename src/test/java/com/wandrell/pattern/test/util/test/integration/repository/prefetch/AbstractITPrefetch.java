@@ -0,0 +1,173 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.prefetch;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.pagination.PaginatedRepository;
+import com.wandrell.pattern.repository.pagination.PrefetchingPageIterator;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link PrefetchingPageIterator} reading the
+ * pages of a {@link PaginatedRepository} in the background.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Iterating over the pages of all the entities returns all of them, in
+ * order.</li>
+ * <li>Iterating over the pages of a subset of entities returns just the
+ * subset.</li>
+ * <li>Closing the iterator before the end stops returning pages.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see PrefetchingPageIterator
+ */
+public abstract class AbstractITPrefetch
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                                                  entitiesCount;
+
+    /**
+     * Executor for reading the pages.
+     */
+    private ExecutorService                                          executor;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private PaginatedRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                   selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITPrefetch() {
+        super();
+    }
+
+    /**
+     * Creates the executor for reading the pages.
+     */
+    @BeforeClass
+    public final void startExecutor() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stops the executor for reading the pages.
+     */
+    @AfterClass
+    public final void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that iterating over the pages of all the entities returns all of
+     * them, in order.
+     */
+    @Test
+    public final void testAll() {
+        final PrefetchingPageIterator<TestEntity, NamedParameterQueryData> pages;
+        Collection<TestEntity> page; // Current page
+        Integer expected;            // Expected id for the next entity
+
+        pages = new PrefetchingPageIterator<TestEntity, NamedParameterQueryData>(
+                repository, executor, 4, 2);
+
+        expected = 1;
+        while (pages.hasNext()) {
+            page = pages.next();
+            for (final TestEntity entity : page) {
+                Assert.assertEquals(entity.getId(), expected);
+                expected++;
+            }
+        }
+
+        Assert.assertEquals((int) expected, entitiesCount + 1);
+    }
+
+    /**
+     * Tests that closing the iterator before the end stops returning pages.
+     */
+    @Test
+    public final void testClose() {
+        final PrefetchingPageIterator<TestEntity, NamedParameterQueryData> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, NamedParameterQueryData>(
+                repository, executor, 5, 2);
+
+        Assert.assertEquals(pages.next().size(), 5);
+
+        pages.close();
+
+        Assert.assertFalse(pages.hasNext());
+    }
+
+    /**
+     * Tests that iterating over the pages of a subset of entities returns just
+     * the subset.
+     */
+    @Test
+    public final void testSubset() {
+        final PrefetchingPageIterator<TestEntity, NamedParameterQueryData> pages;
+
+        pages = new PrefetchingPageIterator<TestEntity, NamedParameterQueryData>(
+                repository,
+                new DefaultNamedParameterQueryData(selectSecondFiveQuery),
+                executor, 3, 1);
+
+        Assert.assertEquals(pages.next().size(), 3);
+        Assert.assertEquals(pages.next().size(), 2);
+        Assert.assertFalse(pages.hasNext());
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.sort;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.sort.DefaultSortData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortedRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link SortedRepository} testing sorted
+ * query methods.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Retrieving all the entities sorted in descending order returns the
+ * highest first.</li>
+ * <li>Retrieving all the entities sorted by a text column sorts them as text.
+ * </li>
+ * <li>Retrieving a subset of entities sorted returns them in order.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see SortedRepository
+ */
+public abstract class AbstractITSort
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Property for sorting by the id.
+     */
+    @Value("${sort.id}")
+    private String                                          idProperty;
+
+    /**
+     * Property for sorting by the name.
+     */
+    @Value("${sort.name}")
+    private String                                          nameProperty;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private SortedRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                          selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITSort() {
+        super();
+    }
+
+    /**
+     * Tests that retrieving all the entities sorted in descending order
+     * returns the highest first.
+     */
+    @Test
+    public final void testGetAll_Descending_HighestFirst() {
+        final Collection<TestEntity> entities; // Sorted entities
+
+        entities = getRepository().getAll(getDescendingSort());
+
+        Assert.assertEquals(entities.size(), 30);
+        Assert.assertEquals(entities.iterator().next().getId(), (Integer) 30);
+    }
+
+    /**
+     * Tests that retrieving all the entities sorted by a text column sorts
+     * them as text.
+     */
+    @Test
+    public final void testGetAll_Text_SortedAsText() {
+        final Iterator<TestEntity> entities; // Sorted entities
+
+        entities = getRepository()
+                .getAll(new DefaultSortData(new SortOrder(nameProperty)))
+                .iterator();
+
+        // entity_1 is followed by entity_10
+        Assert.assertEquals(entities.next().getId(), (Integer) 1);
+        Assert.assertEquals(entities.next().getId(), (Integer) 10);
+    }
+
+    /**
+     * Tests that retrieving a subset of entities sorted returns them in order.
+     */
+    @Test
+    public final void testGetCollection_Descending_Sorted() {
+        final NamedParameterQueryData query; // Query for the entities
+        Integer expected;                    // Next expected id
+
+        query = new DefaultNamedParameterQueryData(selectSecondFiveQuery);
+
+        expected = 10;
+        for (final TestEntity entity : getRepository().getCollection(query,
+                getDescendingSort())) {
+            Assert.assertEquals(entity.getId(), expected);
+            expected--;
+        }
+
+        Assert.assertEquals(expected, (Integer) 5);
+    }
+
+    /**
+     * Returns sorting data for sorting by descending id.
+     *
+     * @return sorting data for sorting by descending id
+     */
+    protected final SortData getDescendingSort() {
+        return new DefaultSortData(
+                new SortOrder(idProperty, SortDirection.DESCENDING));
+    }
+
+    /**
+     * Returns the repository being tested.
+     *
+     * @return the repository being tested.
+     */
+    protected final SortedRepository<TestEntity, NamedParameterQueryData> getRepository() {
+        return repository;
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.sort;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.repository.sort.DefaultSortData;
+import com.wandrell.pattern.repository.sort.SortData;
+import com.wandrell.pattern.repository.sort.SortDirection;
+import com.wandrell.pattern.repository.sort.SortOrder;
+import com.wandrell.pattern.repository.sort.SortedPaginatedRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link SortedPaginatedRepository} testing
+ * sorted and paginated query methods.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Retrieving the first page for all the entities sorted returns the top
+ * entities.</li>
+ * <li>Retrieving a page for a subset of entities sorted returns the correct
+ * entities.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see SortedPaginatedRepository
+ */
+public abstract class AbstractITSortPagination
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * Property for sorting by the id.
+     */
+    @Value("${sort.id}")
+    private String                                                   idProperty;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private SortedPaginatedRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                   selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITSortPagination() {
+        super();
+    }
+
+    /**
+     * Tests that retrieving the first page for all the entities sorted
+     * returns the top entities.
+     */
+    @Test
+    public final void testGetAll_FirstPage_TopEntities() {
+        final Collection<TestEntity> entities; // Top entities
+        final Iterator<TestEntity> itr;        // Iterator for the entities
+
+        entities = getRepository().getAll(getDescendingSort(),
+                new DefaultPaginationData(3, 1));
+
+        Assert.assertEquals(entities.size(), 3);
+
+        itr = entities.iterator();
+        Assert.assertEquals(itr.next().getId(), (Integer) 30);
+        Assert.assertEquals(itr.next().getId(), (Integer) 29);
+        Assert.assertEquals(itr.next().getId(), (Integer) 28);
+    }
+
+    /**
+     * Tests that retrieving a page for a subset of entities sorted returns the
+     * correct entities.
+     */
+    @Test
+    public final void testGetCollection_SecondPage_CorrectEntities() {
+        final Collection<TestEntity> entities; // Entities in the page
+        final Iterator<TestEntity> itr;        // Iterator for the entities
+        final NamedParameterQueryData query;   // Query for the entities
+
+        query = new DefaultNamedParameterQueryData(selectSecondFiveQuery);
+
+        entities = getRepository().getCollection(query, getDescendingSort(),
+                new DefaultPaginationData(2, 2));
+
+        Assert.assertEquals(entities.size(), 2);
+
+        itr = entities.iterator();
+        Assert.assertEquals(itr.next().getId(), (Integer) 8);
+        Assert.assertEquals(itr.next().getId(), (Integer) 7);
+    }
+
+    /**
+     * Returns sorting data for sorting by descending id.
+     *
+     * @return sorting data for sorting by descending id
+     */
+    protected final SortData getDescendingSort() {
+        return new DefaultSortData(
+                new SortOrder(idProperty, SortDirection.DESCENDING));
+    }
+
+    /**
+     * Returns the repository being tested.
+     *
+     * @return the repository being tested.
+     */
+    protected final SortedPaginatedRepository<TestEntity, NamedParameterQueryData> getRepository() {
+        return repository;
+    }
+
+}
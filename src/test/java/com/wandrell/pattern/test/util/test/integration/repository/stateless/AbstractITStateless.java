@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.stateless;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.jpa.JpaRepository;
+import com.wandrell.pattern.repository.pagination.DefaultPaginationData;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link JpaRepository} in the stateless
+ * mode.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Queried entities are not kept in the persistence context.</li>
+ * <li>Paginated entities are not kept in the persistence context.</li>
+ * <li>Added entities are not kept in the persistence context.</li>
+ * <li>Updating a queried entity changes it.</li>
+ * <li>Removing a queried entity removes it.</li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see JpaRepository
+ */
+public abstract class AbstractITStateless
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * The entity manager for the test context.
+     */
+    @Autowired
+    private EntityManager             emanager;
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                   entitiesCount;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private JpaRepository<TestEntity> repository;
+
+    /**
+     * Query for acquiring an entity by it's id.
+     */
+    @Value("${query.byId}")
+    private String                    selectByIdQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITStateless() {
+        super();
+    }
+
+    /**
+     * Disables the stateless mode after each test.
+     */
+    @AfterMethod
+    public final void clean() {
+        repository.setStateless(false);
+    }
+
+    /**
+     * Enables the stateless mode before each test.
+     */
+    @BeforeMethod
+    public final void initialize() {
+        repository.setStateless(true);
+    }
+
+    /**
+     * Tests that added entities are not kept in the persistence context.
+     */
+    @Test
+    @Transactional
+    public final void testAdd_NotManaged() {
+        final TestEntity entity; // Added entity
+
+        entity = applicationContext.getBean("newEntity", TestEntity.class);
+        entity.setName("stateless");
+
+        repository.add(entity);
+
+        Assert.assertNotNull(entity.getId());
+        Assert.assertFalse(emanager.contains(entity));
+        Assert.assertEquals(repository.getAll().size(), entitiesCount + 1);
+    }
+
+    /**
+     * Tests that queried entities are not kept in the persistence context.
+     */
+    @Test
+    @Transactional
+    public final void testGetAll_NotManaged() {
+        final Collection<TestEntity> entities; // Queried entities
+
+        entities = repository.getAll();
+
+        Assert.assertEquals(entities.size(), (int) entitiesCount);
+        for (final TestEntity entity : entities) {
+            Assert.assertFalse(emanager.contains(entity));
+        }
+    }
+
+    /**
+     * Tests that paginated entities are not kept in the persistence context.
+     */
+    @Test
+    @Transactional
+    public final void testGetAll_Paginated_NotManaged() {
+        final Collection<TestEntity> entities; // Queried entities
+
+        entities = repository.getAll(new DefaultPaginationData(5, 2));
+
+        Assert.assertEquals(entities.size(), 5);
+        for (final TestEntity entity : entities) {
+            Assert.assertFalse(emanager.contains(entity));
+        }
+    }
+
+    /**
+     * Tests that removing a queried entity removes it.
+     */
+    @Test
+    @Transactional
+    public final void testRemove_Queried_Removed() {
+        repository.remove(repository.getEntity(getQuery(1)));
+
+        Assert.assertNull(repository.getEntity(getQuery(1)));
+        Assert.assertEquals(repository.getAll().size(), entitiesCount - 1);
+    }
+
+    /**
+     * Tests that updating a queried entity changes it.
+     */
+    @Test
+    @Transactional
+    public final void testUpdate_Queried_Updated() {
+        TestEntity entity; // The entity being tested
+
+        entity = repository.getEntity(getQuery(1));
+        Assert.assertFalse(emanager.contains(entity));
+
+        entity.setName("The new name");
+        repository.update(entity);
+
+        entity = repository.getEntity(getQuery(1));
+
+        Assert.assertEquals(entity.getName(), "The new name");
+    }
+
+    /**
+     * Returns a query for acquiring the entity with the specified id.
+     *
+     * @param id
+     *            id of the entity
+     * @return a query for the entity with the specified id
+     */
+    private final NamedParameterQueryData getQuery(final Integer id) {
+        final Map<String, Object> parameters; // Params for the query
+
+        parameters = new LinkedHashMap<>();
+        parameters.put("id", id);
+
+        return new DefaultNamedParameterQueryData(selectByIdQuery, parameters);
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2016 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.wandrell.pattern.test.util.test.integration.repository.stream;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.pattern.query.DefaultNamedParameterQueryData;
+import com.wandrell.pattern.query.NamedParameterQueryData;
+import com.wandrell.pattern.repository.stream.CloseableIterator;
+import com.wandrell.pattern.repository.stream.StreamingRepository;
+import com.wandrell.pattern.test.util.model.TestEntity;
+
+/**
+ * Abstract integration tests for a {@link StreamingRepository} testing
+ * streaming query methods.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Streaming all the entities returns all of them.</li>
+ * <li>Streaming a subset of entities returns just them.</li>
+ * <li>Closing a stream before the end stops it, and the repository can still
+ * be used.</li>
+ * <li>Streamed entities are not kept in the persistence context once read.
+ * </li>
+ * </ol>
+ * <p>
+ * This is meant to be used along a Spring context, which will set up the
+ * repository and all of it's requirements. The repository should fetch less
+ * entities at once than those in the repository.
+ *
+ * @author Bernardo Martínez Garrido
+ * @see StreamingRepository
+ */
+public abstract class AbstractITStream
+        extends AbstractTransactionalTestNGSpringContextTests {
+
+    /**
+     * The entity manager for the test context.
+     */
+    @Autowired(required = false)
+    private EntityManager                                            emanager;
+
+    /**
+     * Initial number of entities in the repository.
+     */
+    @Value("${entities.total}")
+    private Integer                                                  entitiesCount;
+
+    /**
+     * The repository being tested.
+     */
+    @Autowired
+    private StreamingRepository<TestEntity, NamedParameterQueryData> repository;
+
+    /**
+     * Query for acquiring the second set of five entities.
+     */
+    @Value("${query.secondFive}")
+    private String                                                   selectSecondFiveQuery;
+
+    /**
+     * Default constructor.
+     */
+    public AbstractITStream() {
+        super();
+    }
+
+    /**
+     * Tests that closing a stream before the end stops it, and the repository
+     * can still be used.
+     */
+    @Test
+    public final void testStreamAll_Closed_Stopped() {
+        final CloseableIterator<TestEntity> entities; // Streamed entities
+
+        entities = repository.streamAll();
+
+        Assert.assertNotNull(entities.next());
+        entities.close();
+
+        Assert.assertFalse(entities.hasNext());
+        Assert.assertEquals(repository.getAll().size(), (int) entitiesCount);
+    }
+
+    /**
+     * Tests that streaming all the entities returns all of them.
+     */
+    @Test
+    public final void testStreamAll_Complete() {
+        final Set<Integer> ids; // Ids of the streamed entities
+
+        ids = getIds(repository.streamAll());
+
+        Assert.assertEquals(ids.size(), (int) entitiesCount);
+        Assert.assertTrue(ids.contains(1));
+        Assert.assertTrue(ids.contains(entitiesCount));
+    }
+
+    /**
+     * Tests that streamed entities are not kept in the persistence context
+     * once read.
+     */
+    @Test
+    public final void testStreamAll_Read_NotManaged() {
+        final CloseableIterator<TestEntity> entities; // Streamed entities
+        final TestEntity first;                       // First streamed entity
+
+        if (emanager != null) {
+            entities = repository.streamAll();
+
+            first = entities.next();
+            while (entities.hasNext()) {
+                entities.next();
+            }
+
+            Assert.assertFalse(emanager.contains(first));
+        }
+    }
+
+    /**
+     * Tests that streaming a subset of entities returns just them.
+     */
+    @Test
+    public final void testStreamCollection_Subset() {
+        final NamedParameterQueryData query; // Query for the entities
+
+        query = new DefaultNamedParameterQueryData(selectSecondFiveQuery);
+
+        Assert.assertEquals(getIds(repository.streamCollection(query))
+                .toString(), "[6, 7, 8, 9, 10]");
+    }
+
+    /**
+     * Reads all the entities in the stream and returns their ids.
+     *
+     * @param entities
+     *            streamed entities
+     * @return the ids of the entities, sorted
+     */
+    private final Set<Integer> getIds(
+            final CloseableIterator<TestEntity> entities) {
+        final Set<Integer> ids; // Ids of the streamed entities
+
+        ids = new TreeSet<>();
+        try {
+            while (entities.hasNext()) {
+                ids.add(entities.next().getId());
+            }
+        } finally {
+            entities.close();
+        }
+
+        return ids;
+    }
+
+}